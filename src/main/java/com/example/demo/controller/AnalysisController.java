@@ -0,0 +1,77 @@
+package com.example.demo.controller;
+
+import com.example.demo.dao.JsonUtil;
+import com.example.demo.service.AnalysisStatistics;
+import com.example.demo.service.KLineAnalysisService;
+import com.example.demo.service.WalkForwardResult;
+import jakarta.annotation.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class AnalysisController {
+
+    @Resource
+    KLineAnalysisService kLineAnalysisService;
+
+    // 量价规则滚动前推评估，codes以逗号分隔，为空时使用全部已缓存代码；folds=true时返回每折明细
+    @GetMapping(value = "/analysis/walk-forward", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> walkForward(
+            @RequestParam(required = false) String codes,
+            @RequestParam(required = false, defaultValue = "101") Integer kt,
+            @RequestParam(required = false, defaultValue = "250") Integer train,
+            @RequestParam(required = false, defaultValue = "60") Integer test,
+            @RequestParam(required = false, defaultValue = "false") Boolean folds) {
+        List<String> stockCodes = new ArrayList<>();
+        if (codes != null) {
+            for (String code : codes.split(",")) {
+                if (!code.trim().isEmpty()) {
+                    stockCodes.add(code.trim());
+                }
+            }
+        }
+        WalkForwardResult result;
+        try {
+            result = kLineAnalysisService.walkForwardTest(stockCodes, kt, train, test);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+        if (!folds) {
+            result.getFolds().clear();
+        }
+        return ResponseEntity.ok(JsonUtil.toJsonString(result));
+    }
+
+    // 流式批量回测：每个日期完成预测和验证后立即作为result事件发出，最后发出summary事件
+    @GetMapping(value = "/analysis/batch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> batchStream(
+            @RequestParam(required = false, defaultValue = "510500") String code,
+            @RequestParam(required = false, defaultValue = "30") Integer count) {
+        return SseStream.start(stream -> {
+            AnalysisStatistics stats = kLineAnalysisService.streamBatchAnalysis(code, count, result -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("date", result.getTargetDate());
+                item.put("predictedRise", result.isPredictedRise());
+                item.put("actualRise", result.getActualRise());
+                item.put("correct", result.getActualRise() == result.isPredictedRise());
+                item.put("confidence", result.getConfidence());
+                item.put("message", result.getMessage());
+                return stream.send("result", item);
+            });
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("totalTests", stats.getTotalTests());
+            summary.put("correctPredictions", stats.getCorrectPredictions());
+            summary.put("accuracy", stats.getAccuracy());
+            summary.put("message", stats.getMessage());
+            stream.send("summary", summary);
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.controller;
+
+import com.example.demo.dao.JsonUtil;
+import com.example.demo.service.BackfillService;
+import jakarta.annotation.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class BackfillController {
+
+    @Resource
+    BackfillService backfillService;
+
+    // 回填进度、吞吐与预计剩余时间
+    @GetMapping(value = "/backfill/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String status() {
+        return JsonUtil.toJsonString(backfillService.getStatus());
+    }
+
+    // 创建新的回填作业，codes为空时回填全市场，periods为空时使用配置的周期
+    @PostMapping(value = "/backfill/start", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String start(
+            @RequestParam(required = false) String codes,
+            @RequestParam(required = false) String periods) {
+        List<String> stockCodes = new ArrayList<>();
+        if (codes != null) {
+            Arrays.stream(codes.split(",")).map(String::trim).filter(c -> !c.isEmpty()).forEach(stockCodes::add);
+        }
+        int[] klts = periods == null ? null : Arrays.stream(periods.split(","))
+                .map(String::trim).filter(p -> !p.isEmpty()).mapToInt(Integer::parseInt).toArray();
+        return result(backfillService.start("手动", stockCodes, klts));
+    }
+
+    // 续跑未完成的作业
+    @PostMapping(value = "/backfill/resume", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String resume() {
+        return result(backfillService.resume("手动续跑"));
+    }
+
+    // 停止作业，未执行的任务留待续跑
+    @PostMapping(value = "/backfill/stop", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String stop() {
+        backfillService.stop();
+        return result(true);
+    }
+
+    private String result(boolean accepted) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accepted", accepted);
+        result.put("status", backfillService.getStatus());
+        return JsonUtil.toJsonString(result);
+    }
+}
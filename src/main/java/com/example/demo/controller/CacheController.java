@@ -0,0 +1,39 @@
+package com.example.demo.controller;
+
+import com.example.demo.dao.JsonUtil;
+import com.example.demo.dao.KLineDao;
+import com.example.demo.service.CacheWarmupService;
+import jakarta.annotation.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class CacheController {
+
+    @Resource
+    KLineDao kLineDao;
+
+    @Resource
+    CacheWarmupService cacheWarmupService;
+
+    // 缓存统计
+    @GetMapping(value = "/cache/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String cacheStats() {
+        return JsonUtil.toJsonString(kLineDao.getCacheStats());
+    }
+
+    // 预热进度与耗时
+    @GetMapping(value = "/warmup/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String warmupStatus() {
+        return JsonUtil.toJsonString(cacheWarmupService.getStatus());
+    }
+
+    // 手动触发一轮预热（后台执行）
+    @PostMapping(value = "/warmup/run", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String runWarmup() {
+        cacheWarmupService.startWarmUp("手动");
+        return JsonUtil.toJsonString(cacheWarmupService.getStatus());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.controller;
+
+import com.example.demo.dao.AdjustType;
+import com.example.demo.dao.ClusterKLineDao;
+import com.example.demo.dao.JsonUtil;
+import com.example.demo.dao.KLineBlockCodec;
+import com.example.demo.dao.KLineData;
+import jakarta.annotation.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class ClusterController {
+
+    @Resource
+    ClusterKLineDao clusterKLineDao;
+
+    // 节点间转发的K线读取，只读本节点，返回KLineBlockCodec无损编码；密钥不符时返回403，无此代码时返回404
+    @GetMapping(ClusterKLineDao.INTERNAL_PATH)
+    public ResponseEntity<byte[]> internalKLine(
+            @RequestHeader(value = ClusterKLineDao.SECRET_HEADER, required = false) String secret,
+            @RequestParam String code,
+            @RequestParam(required = false, defaultValue = "101") Integer klt,
+            @RequestParam(required = false, defaultValue = "1") Integer fqt,
+            @RequestParam(required = false) Integer start,
+            @RequestParam(required = false) Integer end) {
+        if (!clusterKLineDao.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        List<KLineData> data = clusterKLineDao.readLocal(code, klt, AdjustType.fromFqt(fqt), start, end);
+        if (data == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(KLineController.KLINE_BLOCK_VALUE))
+                .body(KLineBlockCodec.encodeExact(data));
+    }
+
+    // 集群成员与代码归属
+    @GetMapping(value = "/cluster", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String cluster(@RequestParam(required = false) String code) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", clusterKLineDao.isEnabled());
+        result.put("self", clusterKLineDao.getSelf());
+        result.put("members", clusterKLineDao.getMembers());
+        if (code != null) {
+            result.put("owner", clusterKLineDao.ownerOf(code));
+        }
+        return JsonUtil.toJsonString(result);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.controller;
+
+import com.example.demo.dao.JsonUtil;
+import com.example.demo.service.CorrelationService;
+import jakarta.annotation.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+public class CorrelationController {
+
+    @Resource
+    CorrelationService correlationService;
+
+    // 滚动收益率相关系数矩阵，codes以逗号分隔，为空时使用全部已缓存代码
+    @GetMapping(value = "/correlation", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String correlation(
+            @RequestParam(required = false) String codes,
+            @RequestParam(required = false, defaultValue = "101") Integer kt,
+            @RequestParam(required = false) Integer window) {
+        List<String> stockCodes = new ArrayList<>();
+        if (codes != null) {
+            for (String code : codes.split(",")) {
+                if (!code.trim().isEmpty()) {
+                    stockCodes.add(code.trim());
+                }
+            }
+        }
+        int size = window == null ? correlationService.getDefaultWindow() : window;
+        return JsonUtil.toJsonString(correlationService.getCorrelation(stockCodes, kt, size));
+    }
+}
@@ -1,16 +1,31 @@
 package com.example.demo.controller;
 
+import com.example.demo.dao.JsonUtil;
 import com.example.demo.service.PromptGenerationService;
+import com.example.demo.service.PromptSamplePlan;
+import com.example.demo.service.PromptVersion;
 import com.example.demo.service.StockAnalysisPrompt;
 import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 public class HelloController {
@@ -18,19 +33,222 @@ public class HelloController {
     @Resource
     PromptGenerationService promptGenerationService;
 
+    public HelloController() {
+    }
+
+    /**
+     * 不经过Spring装配时使用
+     */
+    public HelloController(PromptGenerationService promptGenerationService) {
+        this.promptGenerationService = promptGenerationService;
+    }
+
+    /**
+     * 已结束周期的K线不再变化，但前复权价格在除权后整体调整、附加的相似形态随索引重建变化，
+     * 因此只缓存几分钟，过期后凭ETag重新验证（命中时返回304，不生成提示词）；当前周期随盘中K线变化，只缓存几秒
+     */
+    @Value("${prompt.cache.closed-max-age-seconds:300}")
+    private long closedMaxAgeSeconds = 300;
+    @Value("${prompt.cache.current-max-age-seconds:5}")
+    private long currentMaxAgeSeconds = 5;
+
     // 根据日期，生成prompt
+    // 响应带强ETag（由所用K线和配置计算），If-None-Match匹配时直接返回304，不生成提示词
     @GetMapping(value = "/", produces = MediaType.APPLICATION_JSON_VALUE) // 映射根路径
-    public String home(
+    public ResponseEntity<String> home(
             @RequestParam(required = false) String date,
             @RequestParam(required = false, defaultValue = "510500") String code,
-            @RequestParam(required = false, defaultValue = "101") Integer kt) throws ParseException {
+            @RequestParam(required = false, defaultValue = "101") Integer kt,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws ParseException {
         String stockCode = code == null ? "510500" : code;
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         Date targetDate = date == null ? new Date() : sdf.parse(date);
 
+        PromptVersion version = promptGenerationService.getPromptVersion(stockCode, targetDate, kt);
+        if (version == null) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(null);
+        }
+        // 未指定日期时目标随时间推移，按当前周期处理
+        CacheControl cacheControl = date != null && version.isClosed()
+                ? CacheControl.maxAge(closedMaxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate()
+                : CacheControl.maxAge(currentMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        if (matches(ifNoneMatch, version.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(version.getEtag()).cacheControl(cacheControl).build();
+        }
+
         StockAnalysisPrompt prompt =
                 promptGenerationService.generateSinglePrompt(stockCode, targetDate, kt);
+        if (prompt == null) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(null);
+        }
+        return ResponseEntity.ok().eTag(version.getEtag()).cacheControl(cacheControl).body(prompt.getPrompt());
+    }
+
+    /**
+     * If-None-Match是否包含当前ETag（支持*、多个值和弱校验前缀W/）
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 多个代码、多个周期批量生成prompt，codes以逗号分隔
+    @GetMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> batch(
+            @RequestParam String codes,
+            @RequestParam(required = false) String date,
+            @RequestParam(required = false, defaultValue = "101,102,103") String kts) throws ParseException {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        Date targetDate = date == null ? new Date() : sdf.parse(date);
+
+        List<String> stockCodes = parseCodes(codes);
+        List<Integer> klts = parseKlts(kts);
+
+        long start = System.currentTimeMillis();
+        List<StockAnalysisPrompt> prompts;
+        try {
+            prompts = promptGenerationService.generateBatchPrompts(stockCodes, klts, targetDate);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (StockAnalysisPrompt prompt : prompts) {
+            items.add(toItem(prompt));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requested", stockCodes.size() * klts.size());
+        result.put("generated", items.size());
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        result.put("prompts", items);
+        return ResponseEntity.ok(JsonUtil.toJsonString(result));
+    }
+
+    // 流式批量生成：每个(代码, 周期)的提示词生成后立即作为prompt事件发出，全部完成后发出done事件
+    @GetMapping(value = "/batch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> batchStream(
+            @RequestParam String codes,
+            @RequestParam(required = false) String date,
+            @RequestParam(required = false, defaultValue = "101,102,103") String kts) throws ParseException {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        Date targetDate = date == null ? new Date() : sdf.parse(date);
+        List<String> stockCodes = parseCodes(codes);
+        List<Integer> klts = parseKlts(kts);
+        try {
+            promptGenerationService.checkBatchSize(stockCodes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+
+        return SseStream.start(stream -> {
+            long start = System.currentTimeMillis();
+            int generated = promptGenerationService.streamBatchPrompts(stockCodes, klts, targetDate,
+                    prompt -> stream.send("prompt", toItem(prompt)));
+            sendDone(stream, stockCodes.size() * klts.size(), generated, start);
+        });
+    }
+
+    // 流式生成随机日期的提示词，每个提示词生成后立即发出
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> stream(
+            @RequestParam(required = false, defaultValue = "510500") String code,
+            @RequestParam(required = false, defaultValue = "101") Integer kt,
+            @RequestParam(required = false, defaultValue = "10") Integer count) {
+        try {
+            promptGenerationService.checkStreamCount(count);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+        return SseStream.start(stream -> {
+            long start = System.currentTimeMillis();
+            int generated = promptGenerationService.streamMultiplePrompts(code, kt, count,
+                    prompt -> stream.send("prompt", toItem(prompt)));
+            sendDone(stream, count, generated, start);
+        });
+    }
+
+    // 分层抽样生成提示词数据集：跨代码、跨周期按涨跌标签 × 周期 × 波动状态均衡抽样，固定种子可复现
+    // codes为空时从已缓存的全部代码中抽样；先发出plan事件（各层候选数与入选数），再逐个发出prompt事件
+    @GetMapping(value = "/sample/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> sampleStream(
+            @RequestParam(required = false) String codes,
+            @RequestParam(required = false, defaultValue = "101,102,103") String kts,
+            @RequestParam(required = false, defaultValue = "100") Integer count,
+            @RequestParam(required = false) Long seed) {
+        try {
+            promptGenerationService.checkStreamCount(count);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+        List<String> stockCodes = codes == null || codes.isBlank() ? null : parseCodes(codes);
+        List<Integer> klts = parseKlts(kts);
+        long sampleSeed = seed == null ? promptGenerationService.getSampleSeed() : seed;
+
+        return SseStream.start(stream -> {
+            long start = System.currentTimeMillis();
+            PromptSamplePlan plan = promptGenerationService.sampleStratified(stockCodes, klts, count, sampleSeed);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("seed", plan.getSeed());
+            summary.put("seriesCount", plan.getSeriesCount());
+            summary.put("candidateCount", plan.getCandidateCount());
+            summary.put("sampleCount", plan.getSamples().size());
+            summary.put("strata", plan.getStrata());
+            if (!stream.send("plan", summary)) {
+                return;
+            }
+            int generated = promptGenerationService.streamSampledPrompts(plan,
+                    prompt -> stream.send("prompt", toItem(prompt)));
+            sendDone(stream, plan.getSamples().size(), generated, start);
+        });
+    }
+
+    private static void sendDone(SseStream stream, int requested, int generated, long start) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requested", requested);
+        result.put("generated", generated);
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        stream.send("done", result);
+    }
+
+    private static Map<String, Object> toItem(StockAnalysisPrompt prompt) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("code", prompt.getStockCode());
+        item.put("klt", prompt.getKlt());
+        item.put("period", prompt.getPeriodName());
+        item.put("date", prompt.getAnalysisDate());
+        item.put("actualRise", prompt.getActualNextPeriodRise());
+        item.put("prompt", prompt.getPrompt());
+        return item;
+    }
+
+    private static List<String> parseCodes(String codes) {
+        List<String> stockCodes = new ArrayList<>();
+        for (String code : codes.split(",")) {
+            if (!code.trim().isEmpty()) {
+                stockCodes.add(code.trim());
+            }
+        }
+        return stockCodes;
+    }
 
-        return prompt.getPrompt();
+    private static List<Integer> parseKlts(String kts) {
+        List<Integer> klts = new ArrayList<>();
+        Arrays.stream(kts.split(",")).map(String::trim).filter(kt -> !kt.isEmpty())
+                .forEach(kt -> klts.add(Integer.parseInt(kt)));
+        return klts;
     }
 }
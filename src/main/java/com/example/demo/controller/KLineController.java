@@ -0,0 +1,64 @@
+package com.example.demo.controller;
+
+import com.example.demo.dao.AdjustType;
+import com.example.demo.dao.KLineBlockCodec;
+import com.example.demo.dao.KLineDao;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.KLineJsonWriter;
+import jakarta.annotation.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+@RestController
+public class KLineController {
+
+    /**
+     * 列式二进制格式，内容为KLineBlockCodec编码的数据块
+     */
+    public static final String KLINE_BLOCK_VALUE = "application/x-kline-block";
+
+    @Resource
+    KLineDao kLineDao;
+
+    // K线历史数据，format=json为紧凑JSON，format=binary为列式二进制（仅日K及以上周期）
+    // 响应压缩由 server.compression 配置
+    @GetMapping("/kline")
+    public ResponseEntity<byte[]> kline(
+            @RequestParam(required = false, defaultValue = "510500") String code,
+            @RequestParam(required = false, defaultValue = "101") Integer kt,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestParam(required = false, defaultValue = "0") Integer fqt,
+            @RequestParam(required = false, defaultValue = "json") String format) {
+        AdjustType adjustType = AdjustType.fromFqt(fqt);
+        List<KLineData> data = start == null && end == null
+                ? kLineDao.getAllKLineData(code, kt, adjustType)
+                : kLineDao.getKLineData(code,
+                        start == null ? LocalDate.EPOCH : LocalDate.parse(start),
+                        end == null ? LocalDate.now() : LocalDate.parse(end), kt, adjustType);
+        if (data == null) {
+            data = Collections.emptyList();
+        }
+
+        if ("binary".equalsIgnoreCase(format)) {
+            if (kt < 101) {
+                return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                        .body("分钟K线不支持二进制格式".getBytes(StandardCharsets.UTF_8));
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(KLINE_BLOCK_VALUE))
+                    .body(KLineBlockCodec.encode(data, kt));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(KLineJsonWriter.toJson(data).getBytes(StandardCharsets.UTF_8));
+    }
+}
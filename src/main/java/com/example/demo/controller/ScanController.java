@@ -0,0 +1,83 @@
+package com.example.demo.controller;
+
+import com.example.demo.dao.JsonUtil;
+import com.example.demo.service.MarketScanService;
+import com.example.demo.service.PatternSearchService;
+import com.example.demo.service.ScanCriteria;
+import com.example.demo.service.ScreenService;
+import jakarta.annotation.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+@RestController
+public class ScanController {
+
+    @Resource
+    MarketScanService marketScanService;
+
+    @Resource
+    PatternSearchService patternSearchService;
+
+    @Resource
+    ScreenService screenService;
+
+    // 全市场量价信号扫描，只扫描已缓存的代码
+    @GetMapping(value = "/scan", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String scan(
+            @RequestParam(required = false) String date,
+            @RequestParam(required = false, defaultValue = "101") Integer kt,
+            @RequestParam(required = false, defaultValue = "50") Integer topK,
+            @RequestParam(required = false) Double minTurnover,
+            @RequestParam(required = false) Double maxTurnover,
+            @RequestParam(required = false) Double minAmplitude,
+            @RequestParam(required = false) Double maxAmplitude,
+            @RequestParam(required = false) Double minChange,
+            @RequestParam(required = false) Double maxChange) throws ParseException {
+        ScanCriteria criteria = new ScanCriteria();
+        criteria.setKlt(kt);
+        criteria.setTopK(topK);
+        criteria.setTargetDate(date == null ? null : new SimpleDateFormat("yyyy-MM-dd").parse(date));
+        criteria.setMinTurnoverRate(minTurnover);
+        criteria.setMaxTurnoverRate(maxTurnover);
+        criteria.setMinAmplitude(minAmplitude);
+        criteria.setMaxAmplitude(maxAmplitude);
+        criteria.setMinChangeRate(minChange);
+        criteria.setMaxChangeRate(maxChange);
+
+        return JsonUtil.toJsonString(marketScanService.scan(criteria));
+    }
+
+    // 全市场历史相似形态检索，返回最相似窗口及其下一周期表现
+    @GetMapping(value = "/similar", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String similar(
+            @RequestParam(required = false, defaultValue = "510500") String code,
+            @RequestParam(required = false) String date,
+            @RequestParam(required = false, defaultValue = "101") Integer kt) throws ParseException {
+        Date targetDate = date == null ? new Date() : new SimpleDateFormat("yyyy-MM-dd").parse(date);
+        return JsonUtil.toJsonString(patternSearchService.findSimilar(code, kt, targetDate));
+    }
+
+    // 条件选股，例如 expr=turnover > 5 and amplitude < 2 and close > ma(close, 20) and falling(volume, 3)
+    // rank为可选的数值表达式，按其值从高到低取前limit个；只筛选已缓存的代码，价格字段按前复权计算
+    @GetMapping(value = "/screen", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> screen(
+            @RequestParam String expr,
+            @RequestParam(required = false) String rank,
+            @RequestParam(required = false) String date,
+            @RequestParam(required = false, defaultValue = "101") Integer kt,
+            @RequestParam(required = false, defaultValue = "100") Integer limit) throws ParseException {
+        Date targetDate = date == null ? null : new SimpleDateFormat("yyyy-MM-dd").parse(date);
+        try {
+            return ResponseEntity.ok(JsonUtil.toJsonString(screenService.screen(expr, rank, kt, targetDate, limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+    }
+}
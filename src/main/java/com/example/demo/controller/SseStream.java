@@ -0,0 +1,89 @@
+package com.example.demo.controller;
+
+import com.example.demo.dao.JsonUtil;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * SSE事件流
+ * 生成任务在共享的有界线程池中执行，每个结果就绪后立即作为一个JSON事件发出；
+ * 客户端断开、超时或发送失败后send返回false，生成任务据此停止。
+ * 同时执行的事件流和排队数都有上限，超出时直接返回503，不为每个请求新建线程。
+ */
+class SseStream {
+
+    private static final long TIMEOUT_MILLIS = 10 * 60 * 1000;
+    private static final int MAX_STREAMS = 16;
+    private static final int MAX_QUEUED = 32;
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private final SseEmitter emitter = new SseEmitter(TIMEOUT_MILLIS);
+    private final AtomicBoolean open = new AtomicBoolean(true);
+
+    private SseStream() {
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(e -> open.set(false));
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_STREAMS, MAX_STREAMS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED), runnable -> {
+            Thread thread = new Thread(runnable, "sse-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 在线程池中执行任务，任务结束后关闭事件流；线程池已满时返回503
+     */
+    static ResponseEntity<?> start(Consumer<SseStream> task) {
+        SseStream stream = new SseStream();
+        try {
+            EXECUTOR.execute(() -> {
+                try {
+                    task.accept(stream);
+                    stream.emitter.complete();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    stream.emitter.completeWithError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.TEXT_PLAIN)
+                    .body("同时进行的事件流已达上限，请稍后重试");
+        }
+        return ResponseEntity.ok(stream.emitter);
+    }
+
+    /**
+     * 发送一个事件，事件流已关闭或发送失败时返回false
+     */
+    boolean send(String event, Object data) {
+        if (!open.get()) {
+            return false;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(event).data(JsonUtil.toJsonString(data), MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            open.set(false);
+            return false;
+        }
+    }
+}
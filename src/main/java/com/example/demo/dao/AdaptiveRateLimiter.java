@@ -0,0 +1,77 @@
+package com.example.demo.dao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应限流器（AIMD）
+ * 请求成功且延迟正常时速率加性增长，遇到限流、超时、服务端错误或延迟超标时速率减半；
+ * 减速至少间隔一段冷却时间，避免一批并发失败把速率一次压到底。
+ */
+public class AdaptiveRateLimiter {
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double minRate;
+    private final double maxRate;
+    private final long latencyTargetMillis;
+    private double rate;              // 当前允许的每秒请求数
+    private long nextFreeNanos;       // 下一个请求可发出的时刻
+    private long lastDecreaseNanos;
+
+    public AdaptiveRateLimiter(double initialRate, double minRate, double maxRate, long latencyTargetMillis) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.latencyTargetMillis = latencyTargetMillis;
+        this.rate = Math.max(minRate, Math.min(maxRate, initialRate));
+        this.nextFreeNanos = System.nanoTime();
+        this.lastDecreaseNanos = System.nanoTime() - DECREASE_COOLDOWN_NANOS;
+    }
+
+    /**
+     * 获取一个请求许可，必要时等待
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextFreeNanos);
+            nextFreeNanos = start + (long) (1_000_000_000L / rate);
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 请求成功：延迟正常时加性增长（每秒约增加1），延迟超标视为拥塞
+     */
+    public synchronized void onSuccess(long latencyMillis) {
+        if (latencyMillis > latencyTargetMillis) {
+            decrease();
+        } else {
+            rate = Math.min(maxRate, rate + 1.0 / rate);
+        }
+    }
+
+    /**
+     * 被限流（429）、超时或服务端错误：乘性减小
+     */
+    public synchronized void onThrottle() {
+        decrease();
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    private void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < DECREASE_COOLDOWN_NANOS) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        rate = Math.max(minRate, rate * DECREASE_FACTOR);
+    }
+}
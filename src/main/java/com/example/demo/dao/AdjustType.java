@@ -0,0 +1,30 @@
+package com.example.demo.dao;
+
+/**
+ * 复权类型
+ */
+public enum AdjustType {
+    NONE(0, "不复权"),
+    QFQ(1, "前复权"),
+    HFQ(2, "后复权");
+
+    private final int fqt;
+    private final String name;
+
+    AdjustType(int fqt, String name) {
+        this.fqt = fqt;
+        this.name = name;
+    }
+
+    public int getFqt() { return fqt; }
+    public String getName() { return name; }
+
+    public static AdjustType fromFqt(int fqt) {
+        for (AdjustType type : values()) {
+            if (type.fqt == fqt) {
+                return type;
+            }
+        }
+        return QFQ;
+    }
+}
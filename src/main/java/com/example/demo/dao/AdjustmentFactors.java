@@ -0,0 +1,213 @@
+package com.example.demo.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 复权因子序列（等比复权）
+ * 由不复权K线推导：除权除息日交易所公布的昨收价与上一根K线收盘价不一致，
+ * 两者之比即为当次除权因子。只记录因子发生变化的日期，按日期二分查找。
+ * 缓存中相邻两根K线之间可能缺K线（分段获取），只在同一获取区间内的相邻K线之间推导，避免把缺口误判为除权。
+ * 推导出的因子以序列首根K线为基准；后复权需与上游一致时，用一根上游后复权K线锚定基准。
+ */
+public class AdjustmentFactors {
+
+    private static final double PRICE_TOLERANCE = 0.0005; // 价格精度为3位小数
+    private static final double PRICE_SCALE = 1000.0;
+
+    private final long[] eventTimes;     // 除权日（毫秒），升序
+    private final double[] eventFactors; // 除权日起生效的累计后复权因子
+    private final int hfqAnchorDay;      // 后复权锚定日，未锚定时为-1
+    private final double hfqAnchorFactor; // 锚定日上游后复权价与不复权价之比
+    private volatile QfqColumns qfqColumns; // 最近一个快照的前复权价格列
+
+    private AdjustmentFactors(long[] eventTimes, double[] eventFactors, int hfqAnchorDay, double hfqAnchorFactor) {
+        this.eventTimes = eventTimes;
+        this.eventFactors = eventFactors;
+        this.hfqAnchorDay = hfqAnchorDay;
+        this.hfqAnchorFactor = hfqAnchorFactor;
+    }
+
+    /**
+     * 从连续的不复权K线构建复权因子，相邻两根K线之间不能有缺失
+     */
+    public static AdjustmentFactors fromRawData(List<KLineData> rawData) {
+        List<KLineData> sorted = new ArrayList<>(rawData);
+        sorted.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+        return infer(sorted, null);
+    }
+
+    /**
+     * 从序列快照构建复权因子，只比较同一获取区间内的相邻K线
+     */
+    public static AdjustmentFactors fromSnapshot(SeriesSnapshot snapshot) {
+        return infer(snapshot.ascending(), snapshot.getCoverage());
+    }
+
+    private static AdjustmentFactors infer(List<KLineData> sorted, DayRanges coverage) {
+
+        long[] times = new long[8];
+        double[] factors = new double[8];
+        int count = 0;
+        double cumulative = 1.0;
+
+        for (int i = 1; i < sorted.size(); i++) {
+            Double prevClose = sorted.get(i - 1).getClose();
+            Double lastClose = sorted.get(i).getLastClose();
+            if (prevClose == null || lastClose == null || lastClose <= 0) {
+                continue;
+            }
+            if (coverage != null
+                    && !coverage.covers(sorted.get(i - 1).getEpochDay(), sorted.get(i).getEpochDay())) {
+                continue;
+            }
+            if (Math.abs(prevClose - lastClose) > PRICE_TOLERANCE) {
+                cumulative *= prevClose / lastClose;
+                if (count == times.length) {
+                    times = Arrays.copyOf(times, count * 2);
+                    factors = Arrays.copyOf(factors, count * 2);
+                }
+                times[count] = sorted.get(i).getDate().getTime();
+                factors[count] = cumulative;
+                count++;
+            }
+        }
+        return new AdjustmentFactors(Arrays.copyOf(times, count), Arrays.copyOf(factors, count), -1, Double.NaN);
+    }
+
+    /**
+     * 以指定日期的上游后复权因子锚定后复权基准，返回新实例
+     * @param anchorFactor 该日上游后复权价与不复权价之比
+     */
+    public AdjustmentFactors withHfqAnchor(int anchorDay, double anchorFactor) {
+        return new AdjustmentFactors(eventTimes, eventFactors, anchorDay, anchorFactor);
+    }
+
+    public boolean hasHfqAnchor() {
+        return hfqAnchorDay >= 0;
+    }
+
+    public int getHfqAnchorDay() {
+        return hfqAnchorDay;
+    }
+
+    public double getHfqAnchorFactor() {
+        return hfqAnchorFactor;
+    }
+
+    /**
+     * 获取指定日期的后复权因子（以序列首根K线为基准1.0）
+     */
+    public double getFactor(Date date) {
+        return getFactor(date.getTime());
+    }
+
+    private double getFactor(long time) {
+        int index = Arrays.binarySearch(eventTimes, time);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? 1.0 : eventFactors[index];
+    }
+
+    /**
+     * 最新的累计因子，前复权以此为基准
+     */
+    public double getLatestFactor() {
+        return eventFactors.length == 0 ? 1.0 : eventFactors[eventFactors.length - 1];
+    }
+
+    public int getEventCount() {
+        return eventTimes.length;
+    }
+
+    /**
+     * 按复权类型计算K线，不复权时原样返回
+     * 后复权已锚定时按锚定日的上游因子换算，未锚定时以序列首根K线为基准
+     */
+    public KLineData apply(KLineData raw, AdjustType adjustType) {
+        if (adjustType == AdjustType.NONE
+                || (eventTimes.length == 0 && (adjustType == AdjustType.QFQ || !hasHfqAnchor()))) {
+            return raw;
+        }
+        double factor = getFactor(raw.getDate());
+        if (adjustType == AdjustType.QFQ) {
+            factor = factor / getLatestFactor();
+        } else if (hasHfqAnchor()) {
+            factor = factor * hfqAnchorFactor / getFactor(EpochDays.toDate(hfqAnchorDay).getTime());
+        }
+        if (factor == 1.0) {
+            return raw;
+        }
+
+        KLineData adjusted = new KLineData();
+        adjusted.setDate(raw.getDate());
+        adjusted.setOpen(scale(raw.getOpen(), factor));
+        adjusted.setClose(scale(raw.getClose(), factor));
+        adjusted.setHigh(scale(raw.getHigh(), factor));
+        adjusted.setLow(scale(raw.getLow(), factor));
+        adjusted.setLastClose(scale(raw.getLastClose(), factor));
+        adjusted.setChangeAmount(scale(raw.getChangeAmount(), factor));
+        adjusted.setVolume(raw.getVolume());
+        adjusted.setAmount(raw.getAmount());
+        adjusted.setAmplitude(raw.getAmplitude());
+        adjusted.setChangeRate(raw.getChangeRate());
+        adjusted.setTurnoverRate(raw.getTurnoverRate());
+        adjusted.setKlt(raw.getKlt());
+        return adjusted;
+    }
+
+    /**
+     * 快照中某个字段的前复权列（升序），与apply(bar, QFQ)得到的值一致；
+     * 非价格字段或没有除权事件时直接返回快照的原始列。同一快照的列只计算一次
+     */
+    public double[] qfqColumn(SeriesSnapshot snapshot, BarField field) {
+        double[] raw = snapshot.column(field);
+        if (!field.isPrice() || eventTimes.length == 0) {
+            return raw;
+        }
+        QfqColumns current = qfqColumns;
+        if (current == null || current.snapshot != snapshot) {
+            current = new QfqColumns(snapshot);
+            qfqColumns = current;
+        }
+        double[] column = current.columns.get(field.ordinal());
+        if (column == null) {
+            column = new double[raw.length];
+            double latest = getLatestFactor();
+            int event = -1;
+            for (int i = 0; i < raw.length; i++) {
+                long time = snapshot.barAt(i).getDate().getTime();
+                while (event + 1 < eventTimes.length && eventTimes[event + 1] <= time) {
+                    event++;
+                }
+                double factor = (event < 0 ? 1.0 : eventFactors[event]) / latest;
+                column[i] = factor == 1.0 || Double.isNaN(raw[i])
+                        ? raw[i] : Math.round(raw[i] * factor * PRICE_SCALE) / PRICE_SCALE;
+            }
+            if (!current.columns.compareAndSet(field.ordinal(), null, column)) {
+                column = current.columns.get(field.ordinal());
+            }
+        }
+        return column;
+    }
+
+    private static final class QfqColumns {
+        private final SeriesSnapshot snapshot;
+        private final AtomicReferenceArray<double[]> columns = new AtomicReferenceArray<>(BarField.count());
+
+        private QfqColumns(SeriesSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static Double scale(Double price, double factor) {
+        if (price == null) {
+            return null;
+        }
+        return Math.round(price * factor * PRICE_SCALE) / PRICE_SCALE;
+    }
+}
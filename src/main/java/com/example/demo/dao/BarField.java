@@ -0,0 +1,69 @@
+package com.example.demo.dao;
+
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * K线数值字段，用于按列读取序列（缺失值为NaN）
+ */
+public enum BarField {
+    OPEN("open", true, bar -> value(bar.getOpen())),
+    CLOSE("close", true, bar -> value(bar.getClose())),
+    HIGH("high", true, bar -> value(bar.getHigh())),
+    LOW("low", true, bar -> value(bar.getLow())),
+    VOLUME("volume", false, bar -> bar.getVolume() == null ? Double.NaN : bar.getVolume()),
+    AMOUNT("amount", false, bar -> value(bar.getAmount())),
+    AMPLITUDE("amplitude", false, bar -> value(bar.getAmplitude())),
+    CHANGE("change", false, bar -> value(bar.getChangeRate())),
+    CHANGE_AMOUNT("changeamount", true, bar -> value(bar.getChangeAmount())),
+    LAST_CLOSE("lastclose", true, bar -> value(bar.getLastClose())),
+    TURNOVER("turnover", false, bar -> value(bar.getTurnoverRate()));
+
+    private static final BarField[] VALUES = values();
+
+    private final String fieldName;
+    private final boolean price;
+    private final ToDoubleFunction<KLineData> extractor;
+
+    BarField(String fieldName, boolean price, ToDoubleFunction<KLineData> extractor) {
+        this.fieldName = fieldName;
+        this.price = price;
+        this.extractor = extractor;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * 是否为价格字段（复权时需按因子换算）
+     */
+    public boolean isPrice() {
+        return price;
+    }
+
+    public double of(KLineData bar) {
+        return extractor.applyAsDouble(bar);
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * 按名称查找（不区分大小写），未知名称返回null
+     */
+    public static BarField fromName(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (BarField field : VALUES) {
+            if (field.fieldName.equals(lower)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static double value(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+}
@@ -0,0 +1,474 @@
+package com.example.demo.dao;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 集群模式的K线DAO
+ * 按股票代码一致性哈希分片，每个代码只由归属节点获取和缓存；
+ * 非归属节点把日K及以上周期的读取转发给归属节点（/internal/kline，KLineBlockCodec无损编码，
+ * 与归属节点本地读取的结果逐字段一致），归属节点不可用时退回本地读取。
+ * 节点间请求带共享密钥请求头，开启集群模式必须配置密钥，未带或不匹配的请求被拒绝。分钟K线、缓存管理和只读缓存查询只作用于本节点；
+ * 预热、预加载和回填只处理本节点归属的代码。
+ * 未开启集群模式时所有方法直接委托本地DAO。
+ */
+@Service
+@Primary
+@Lazy(false) // 含定时任务，开启懒加载时仍需启动时创建
+public class ClusterKLineDao implements KLineDao {
+
+    public static final String INTERNAL_PATH = "/internal/kline";
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterKLineDao.class);
+
+    @Autowired
+    private KLineDaoImpl local;
+
+    @Value("${kline.cluster.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 本节点地址，须与成员列表中的写法一致，如 http://127.0.0.1:8081
+     */
+    @Value("${kline.cluster.self:}")
+    private String self;
+
+    /**
+     * 成员列表，逗号分隔；配置了成员文件时以文件为准（每行一个地址，#开头为注释）
+     */
+    @Value("${kline.cluster.members:}")
+    private String members;
+    @Value("${kline.cluster.members-file:}")
+    private String membersFile;
+
+    /**
+     * 节点间共享密钥，各节点须一致
+     */
+    @Value("${kline.cluster.secret:}")
+    private String secret;
+
+    @Value("${kline.cluster.virtual-nodes:160}")
+    private int virtualNodes = 160;
+    @Value("${kline.cluster.timeout-ms:3000}")
+    private int timeoutMillis = 3000;
+
+    private volatile ConsistentHashRing ring;
+    private long membersFileModified;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final LongAdder forwardCount = new LongAdder();
+    private final LongAdder forwardFailureCount = new LongAdder();
+
+    public ClusterKLineDao() {
+    }
+
+    /**
+     * 不经Spring装配时使用，直接以给定成员开启集群模式
+     */
+    public ClusterKLineDao(KLineDaoImpl local, String self, String members, String secret, int timeoutMillis) {
+        this.local = local;
+        this.enabled = true;
+        this.self = self;
+        this.members = members;
+        this.secret = secret;
+        this.timeoutMillis = timeoutMillis;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        self = normalize(self);
+        if (enabled && self.isEmpty()) {
+            log.warn("集群模式未配置 kline.cluster.self，按单节点运行");
+            enabled = false;
+        }
+        if (enabled && (secret == null || secret.isEmpty())) {
+            log.warn("集群模式未配置 kline.cluster.secret，按单节点运行");
+            enabled = false;
+        }
+        if (enabled) {
+            reloadMembers();
+        }
+    }
+
+    /**
+     * 成员文件有变化时重建哈希环
+     */
+    @Scheduled(fixedDelayString = "${kline.cluster.reload-interval-ms:30000}")
+    public void reloadMembers() {
+        if (!enabled) {
+            return;
+        }
+        List<String> list = new ArrayList<>();
+        if (membersFile != null && !membersFile.trim().isEmpty()) {
+            Path file = Path.of(membersFile.trim());
+            try {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                if (ring != null && modified == membersFileModified) {
+                    return;
+                }
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (!line.trim().startsWith("#")) {
+                        list.add(line);
+                    }
+                }
+                membersFileModified = modified;
+            } catch (IOException e) {
+                log.warn("读取集群成员文件失败: {}", file, e);
+                return;
+            }
+        } else if (ring == null) {
+            list.addAll(Arrays.asList(members == null ? new String[0] : members.split(",")));
+        } else {
+            return;
+        }
+
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String member : list) {
+            if (!normalize(member).isEmpty()) {
+                normalized.add(normalize(member));
+            }
+        }
+        normalized.add(self);
+        ring = new ConsistentHashRing(normalized, virtualNodes);
+    }
+
+    private static String normalize(String address) {
+        String value = address == null ? "" : address.trim();
+        while (value.endsWith("/")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * 代码的归属节点地址，未开启集群模式时为本节点
+     */
+    public String ownerOf(String stockCode) {
+        ConsistentHashRing current = ring;
+        String owner = enabled && current != null ? current.ownerOf(stockCode) : null;
+        return owner == null ? self : owner;
+    }
+
+    /**
+     * 需要转发时返回归属节点地址，由本节点处理时返回null
+     */
+    private String remoteOwner(String stockCode, int klt) {
+        if (!enabled || IntradayBarStore.isIntraday(klt)) {
+            return null;
+        }
+        String owner = ownerOf(stockCode);
+        return owner.equals(self) ? null : owner;
+    }
+
+    /**
+     * 校验节点间请求的共享密钥，未开启集群模式时一律拒绝
+     */
+    public boolean isAuthorized(String presented) {
+        return enabled && presented != null && MessageDigest.isEqual(
+                presented.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 处理其他节点转发来的读取，只读本地，不再转发
+     *
+     * @param startDay 起始纪元日，为null时读取该周期的默认全部范围
+     */
+    public List<KLineData> readLocal(String stockCode, int klt, AdjustType adjustType, Integer startDay, Integer endDay) {
+        if (startDay == null || endDay == null) {
+            return local.getAllKLineData(stockCode, klt, adjustType);
+        }
+        return local.getKLineData(stockCode, LocalDate.ofEpochDay(startDay), LocalDate.ofEpochDay(endDay),
+                klt, adjustType);
+    }
+
+    /**
+     * 向归属节点请求K线，归属节点返回404表示无此代码（null）；连接失败或熔断时抛出IOException
+     */
+    private List<KLineData> forward(String owner, String stockCode, int klt, AdjustType adjustType,
+                                    Integer startDay, Integer endDay) throws IOException {
+        CircuitBreaker breaker = breakers.computeIfAbsent(owner, k -> new CircuitBreaker(3, 10_000));
+        if (!breaker.allowRequest()) {
+            throw new IOException("节点 " + owner + " 熔断中");
+        }
+        forwardCount.increment();
+        String url = owner + INTERNAL_PATH + "?code=" + URLEncoder.encode(stockCode, StandardCharsets.UTF_8)
+                + "&klt=" + klt + "&fqt=" + adjustType.getFqt()
+                + (startDay == null ? "" : "&start=" + startDay + "&end=" + endDay);
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestProperty(SECRET_HEADER, secret);
+            int status = connection.getResponseCode();
+            if (status == 404) {
+                breaker.onSuccess();
+                return null;
+            }
+            if (status != 200) {
+                throw new IOException("节点 " + owner + " 返回HTTP " + status);
+            }
+            byte[] block;
+            try (InputStream in = connection.getInputStream()) {
+                block = in.readAllBytes();
+            }
+            breaker.onSuccess();
+            // 与归属节点DAO返回的顺序一致，最新在前
+            return Collections.unmodifiableList(KLineBlockCodec.decodeExact(block));
+        } catch (IOException | RuntimeException e) {
+            breaker.onFailure();
+            forwardFailureCount.increment();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    // 默认获取日K线，默认前复权
+    @Override
+    public List<KLineData> getKLineData(String stockCode, Date startDate, Date endDate) {
+        return getKLineData(stockCode, startDate, endDate, 101);
+    }
+
+    @Override
+    public List<KLineData> getAllKLineData(String stockCode) {
+        return getAllKLineData(stockCode, 101);
+    }
+
+    @Override
+    public KLineData getKLineDataByDate(String stockCode, Date date) {
+        return getKLineDataByDate(stockCode, date, 101);
+    }
+
+    @Override
+    public List<KLineData> getKLineData(String stockCode, Date startDate, Date endDate, int klt) {
+        return getKLineData(stockCode, startDate, endDate, klt, AdjustType.QFQ);
+    }
+
+    @Override
+    public List<KLineData> getAllKLineData(String stockCode, int klt) {
+        return getAllKLineData(stockCode, klt, AdjustType.QFQ);
+    }
+
+    @Override
+    public KLineData getKLineDataByDate(String stockCode, Date date, int klt) {
+        return getKLineDataByDate(stockCode, date, klt, AdjustType.QFQ);
+    }
+
+    @Override
+    public List<KLineData> getKLineData(String stockCode, Date startDate, Date endDate, int klt,
+                                        AdjustType adjustType) {
+        String owner = remoteOwner(stockCode, klt);
+        if (owner != null) {
+            try {
+                return forward(owner, stockCode, klt, adjustType, EpochDays.of(startDate), EpochDays.of(endDate));
+            } catch (IOException e) {
+                // 归属节点不可用，本地读取
+            }
+        }
+        return local.getKLineData(stockCode, startDate, endDate, klt, adjustType);
+    }
+
+    @Override
+    public List<KLineData> getAllKLineData(String stockCode, int klt, AdjustType adjustType) {
+        String owner = remoteOwner(stockCode, klt);
+        if (owner != null) {
+            try {
+                return forward(owner, stockCode, klt, adjustType, null, null);
+            } catch (IOException e) {
+                // 归属节点不可用，本地读取
+            }
+        }
+        return local.getAllKLineData(stockCode, klt, adjustType);
+    }
+
+    @Override
+    public KLineData getKLineDataByDate(String stockCode, Date date, int klt, AdjustType adjustType) {
+        if (remoteOwner(stockCode, klt) == null) {
+            return local.getKLineDataByDate(stockCode, date, klt, adjustType);
+        }
+        return getKLineDataByDate(stockCode, EpochDays.toLocalDate(date), klt, adjustType);
+    }
+
+    @Override
+    public List<KLineData> getKLineData(String stockCode, LocalDate startDate, LocalDate endDate, int klt) {
+        return getKLineData(stockCode, startDate, endDate, klt, AdjustType.QFQ);
+    }
+
+    @Override
+    public List<KLineData> getKLineData(String stockCode, LocalDate startDate, LocalDate endDate, int klt,
+                                        AdjustType adjustType) {
+        String owner = remoteOwner(stockCode, klt);
+        if (owner != null) {
+            try {
+                return forward(owner, stockCode, klt, adjustType, EpochDays.of(startDate), EpochDays.of(endDate));
+            } catch (IOException e) {
+                // 归属节点不可用，本地读取
+            }
+        }
+        return local.getKLineData(stockCode, startDate, endDate, klt, adjustType);
+    }
+
+    @Override
+    public KLineData getKLineDataByDate(String stockCode, LocalDate date, int klt) {
+        return getKLineDataByDate(stockCode, date, klt, AdjustType.QFQ);
+    }
+
+    @Override
+    public KLineData getKLineDataByDate(String stockCode, LocalDate date, int klt, AdjustType adjustType) {
+        String owner = remoteOwner(stockCode, klt);
+        if (owner != null) {
+            int day = EpochDays.of(date);
+            try {
+                List<KLineData> bars = forward(owner, stockCode, klt, adjustType, day, day);
+                return bars == null || bars.isEmpty() || bars.get(0).getEpochDay() != day ? null : bars.get(0);
+            } catch (IOException e) {
+                // 归属节点不可用，本地读取
+            }
+        }
+        return local.getKLineDataByDate(stockCode, date, klt, adjustType);
+    }
+
+    @Override
+    public List<KLineData> getRecentKLineData(String stockCode, int klt, int count) {
+        List<KLineData> allData = getAllKLineData(stockCode, klt);
+        if (allData == null || allData.size() < count) {
+            return allData;
+        }
+        return allData.subList(0, count);
+    }
+
+    @Override
+    public AdjustmentFactors getAdjustmentFactors(String stockCode, int klt) {
+        return local.getAdjustmentFactors(stockCode, klt);
+    }
+
+    @Override
+    public void patchLatestBar(String stockCode, KLineData todayBar) {
+        local.patchLatestBar(stockCode, todayBar);
+    }
+
+    @Override
+    public SeriesIndicators getIndicators(String stockCode, int klt) {
+        return local.getIndicators(stockCode, klt);
+    }
+
+    @Override
+    public Set<String> getCachedStockCodes() {
+        return local.getCachedStockCodes();
+    }
+
+    @Override
+    public List<KLineData> getCachedKLineData(String stockCode, int klt) {
+        return local.getCachedKLineData(stockCode, klt);
+    }
+
+    @Override
+    public SeriesSnapshot getCachedSnapshot(String stockCode, int klt) {
+        return local.getCachedSnapshot(stockCode, klt);
+    }
+
+    /**
+     * 非归属代码由归属节点自己的回填作业负责，本节点不获取也不缓存，返回0
+     */
+    @Override
+    public int backfill(String stockCode, int klt, LocalDate startDate, LocalDate endDate) throws UpstreamException {
+        return isOwner(stockCode, klt) ? local.backfill(stockCode, klt, startDate, endDate) : 0;
+    }
+
+    /**
+     * 只预加载本节点归属的代码，非归属代码的读取会转发给归属节点，装入本地内存只会重复占用
+     */
+    @Override
+    public int preload(Collection<String> stockCodes, int klt) {
+        if (!enabled || IntradayBarStore.isIntraday(klt)) {
+            return local.preload(stockCodes, klt);
+        }
+        List<String> owned = new ArrayList<>();
+        for (String stockCode : stockCodes) {
+            if (isOwner(stockCode, klt)) {
+                owned.add(stockCode);
+            }
+        }
+        return local.preload(owned, klt);
+    }
+
+    @Override
+    public int warmUp(String stockCode, int klt) {
+        return isOwner(stockCode, klt) ? local.warmUp(stockCode, klt) : 0;
+    }
+
+    @Override
+    public boolean isOwner(String stockCode, int klt) {
+        return remoteOwner(stockCode, klt) == null;
+    }
+
+    @Override
+    public Map<String, Long> getAccessCounts() {
+        return local.getAccessCounts();
+    }
+
+    @Override
+    public void clearCache() {
+        local.clearCache();
+    }
+
+    @Override
+    public void clearCache(String stockCode) {
+        local.clearCache(stockCode);
+    }
+
+    @Override
+    public void clearCache(String stockCode, int klt) {
+        local.clearCache(stockCode, klt);
+    }
+
+    @Override
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = local.getCacheStats();
+        if (enabled) {
+            stats.put("集群成员", ring == null ? Collections.emptyList() : ring.getMembers());
+            stats.put("本节点", self);
+            stats.put("转发请求数", forwardCount.sum());
+            stats.put("转发失败数", forwardFailureCount.sum());
+        }
+        return stats;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public List<String> getMembers() {
+        ConsistentHashRing current = ring;
+        return current == null ? Collections.singletonList(self) : current.getMembers();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 一致性哈希环
+ * 每个成员在环上放置若干虚拟节点，键归属于顺时针方向的第一个虚拟节点；
+ * 增减一个成员时只有约1/N的键改变归属。创建后不可变，成员变化时整体替换。
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> members;
+    private final long[] points;   // 虚拟节点位置，升序
+    private final int[] owners;    // 各虚拟节点所属成员下标
+
+    public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+        this.members = Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(members)));
+        int count = this.members.size() * virtualNodes;
+        long[] keys = new long[count];
+        int[] memberIndexes = new int[count];
+        for (int m = 0, n = 0; m < this.members.size(); m++) {
+            for (int v = 0; v < virtualNodes; v++, n++) {
+                keys[n] = hash(this.members.get(m) + "#" + v);
+                memberIndexes[n] = m;
+            }
+        }
+        // 按位置排序，位置与成员下标一起移动
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        this.points = new long[count];
+        this.owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = keys[order[i]];
+            owners[i] = memberIndexes[order[i]];
+        }
+    }
+
+    /**
+     * 键的归属成员，环为空时返回null
+     */
+    public String ownerOf(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return members.get(owners[index == points.length ? 0 : index]);
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * FNV-1a 64位哈希，再经过MurmurHash3的fmix64打散，短字符串也能均匀分布
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
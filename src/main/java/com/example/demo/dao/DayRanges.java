@@ -0,0 +1,151 @@
+package com.example.demo.dao;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 已从上游完整获取过的纪元日区间集合（含两端），用于判断缓存中相邻两根K线之间是否可能缺K线
+ * 区间按起始日升序、互不重叠；两个区间之间只隔着周末时视为连续，合并为一个区间。
+ * 创建后不再修改，合并时返回新实例。
+ */
+public final class DayRanges {
+
+    public static final DayRanges EMPTY = new DayRanges(new int[0], new int[0]);
+
+    private final int[] starts;
+    private final int[] ends;
+
+    private DayRanges(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public static DayRanges of(int startDay, int endDay) {
+        return EMPTY.union(startDay, endDay);
+    }
+
+    /**
+     * 并入一个区间，结束日早于起始日时原样返回
+     */
+    public DayRanges union(int startDay, int endDay) {
+        if (endDay < startDay) {
+            return this;
+        }
+        int[] newStarts = new int[starts.length + 1];
+        int[] newEnds = new int[ends.length + 1];
+        int n = 0;
+        boolean placed = false;
+        for (int i = 0; i <= starts.length; i++) {
+            int start;
+            int end;
+            if (!placed && (i == starts.length || startDay < starts[i])) {
+                start = startDay;
+                end = endDay;
+                placed = true;
+                i--;
+            } else if (i < starts.length) {
+                start = starts[i];
+                end = ends[i];
+            } else {
+                break;
+            }
+            if (n > 0 && isAdjacent(newEnds[n - 1], start)) {
+                newEnds[n - 1] = Math.max(newEnds[n - 1], end);
+            } else {
+                newStarts[n] = start;
+                newEnds[n++] = end;
+            }
+        }
+        return new DayRanges(Arrays.copyOf(newStarts, n), Arrays.copyOf(newEnds, n));
+    }
+
+    public DayRanges union(DayRanges other) {
+        DayRanges result = this;
+        for (int i = 0; i < other.starts.length; i++) {
+            result = result.union(other.starts[i], other.ends[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 起止日是否落在同一个区间内，即两者之间的K线都已获取过
+     */
+    public boolean covers(int startDay, int endDay) {
+        int index = indexOf(startDay);
+        return index >= 0 && endDay <= ends[index];
+    }
+
+    public boolean contains(int day) {
+        return indexOf(day) >= 0;
+    }
+
+    /**
+     * 包含指定日期的区间下标，不在任何区间内时返回-1
+     */
+    private int indexOf(int day) {
+        int index = Arrays.binarySearch(starts, day);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index >= 0 && day <= ends[index] ? index : -1;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    public int startAt(int index) {
+        return starts[index];
+    }
+
+    public int endAt(int index) {
+        return ends[index];
+    }
+
+    /**
+     * 前一区间结束日与后一区间起始日之间没有工作日
+     */
+    private static boolean isAdjacent(int end, int start) {
+        for (int day = end + 1; day < start; day++) {
+            DayOfWeek dayOfWeek = LocalDate.ofEpochDay(day).getDayOfWeek();
+            if (dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DayRanges)) {
+            return false;
+        }
+        DayRanges other = (DayRanges) o;
+        return Arrays.equals(starts, other.starts) && Arrays.equals(ends, other.ends);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(EpochDays.formatBasic(starts[i])).append('-').append(EpochDays.formatBasic(ends[i]));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 东方财富行情接口客户端
+ * 所有请求经过自适应限流；429、5xx和超时按指数退避加随机抖动重试；
+ * 重试耗尽计为一次失败，连续失败后熔断，熔断期间直接拒绝请求。
+ */
+public class EastmoneyClient {
+
+    private static final long BACKOFF_BASE_MILLIS = 200;
+    private static final long BACKOFF_MAX_MILLIS = 5000;
+
+    private final String baseUrl;
+    private final int maxAttempts;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+
+    public EastmoneyClient(String baseUrl, int maxAttempts, int connectTimeoutMillis, int readTimeoutMillis,
+                           AdaptiveRateLimiter rateLimiter, CircuitBreaker circuitBreaker) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * 熔断器是否允许访问上游（打开期间调用方应直接使用缓存数据）
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * GET请求，path含查询参数，如 /api/qt/stock/kline/get?secid=...
+     */
+    public String get(String path) throws UpstreamException {
+        if (!circuitBreaker.allowRequest()) {
+            throw new UpstreamException("上游熔断中，拒绝请求", -1);
+        }
+
+        UpstreamException lastError = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            if (attempt > 0) {
+                sleepBackoff(attempt, lastError);
+            }
+            try {
+                rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                circuitBreaker.onFailure();
+                throw new UpstreamException("等待限流许可时被中断", e);
+            }
+
+            long start = System.currentTimeMillis();
+            HttpURLConnection connection = null;
+            int status;
+            String body = null;
+            long retryAfterMillis = 0;
+            try {
+                connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+                connection.setRequestMethod("GET");
+                connection.setConnectTimeout(connectTimeoutMillis);
+                connection.setReadTimeout(readTimeoutMillis);
+
+                status = connection.getResponseCode();
+                if (status == 200) {
+                    body = readBody(connection);
+                } else {
+                    retryAfterMillis = parseRetryAfter(connection.getHeaderField("Retry-After"));
+                }
+            } catch (IOException e) {
+                // 连接失败、读取超时
+                rateLimiter.onThrottle();
+                lastError = new UpstreamException("请求上游失败: " + e.getMessage(), e);
+                continue;
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+
+            if (status == 200) {
+                rateLimiter.onSuccess(System.currentTimeMillis() - start);
+                circuitBreaker.onSuccess();
+                return body;
+            }
+            lastError = new UpstreamException("上游返回HTTP " + status, status, retryAfterMillis);
+            if (status != 429 && status < 500) {
+                // 其他4xx重试无意义，上游本身可用，不计入熔断
+                circuitBreaker.onSuccess();
+                throw lastError;
+            }
+            rateLimiter.onThrottle();
+        }
+
+        circuitBreaker.onFailure();
+        throw lastError;
+    }
+
+    public double getCurrentRate() {
+        return rateLimiter.getRate();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * 指数退避加全随机抖动；服务端给出Retry-After时取两者较大值
+     */
+    private void sleepBackoff(int attempt, UpstreamException lastError) {
+        long cap = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(attempt, 10));
+        long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+        if (lastError != null) {
+            sleep = Math.max(sleep, Math.min(BACKOFF_MAX_MILLIS, lastError.getRetryAfterMillis()));
+        }
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long parseRetryAfter(String header) {
+        if (header == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(header.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String readBody(HttpURLConnection connection) throws IOException {
+        StringBuilder response = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                response.append(line);
+            }
+        }
+        return response.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.dao;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * 纪元日（1970-01-01起的天数）换算
+ * K线缓存以纪元日为键，按JVM默认时区换算（与KLineData解析日期时一致）；
+ * Date转纪元日只做整数运算，不创建Calendar/SimpleDateFormat，可在并发读路径上直接使用。
+ */
+public final class EpochDays {
+
+    private static final long MILLIS_PER_DAY = 24L * 3600 * 1000;
+
+    // TimeZone.getDefault()每次返回副本，只取一次
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    // DateTimeFormatter不可变，可在线程间共享
+    public static final DateTimeFormatter BASIC_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    public static final DateTimeFormatter DATE_MINUTE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private EpochDays() {
+    }
+
+    public static int of(long millis) {
+        return (int) Math.floorDiv(millis + ZONE.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    public static int of(Date date) {
+        return of(date.getTime());
+    }
+
+    public static int of(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    public static LocalDate toLocalDate(Date date) {
+        return LocalDate.ofEpochDay(of(date));
+    }
+
+    public static LocalDateTime toLocalDateTime(Date date) {
+        // java.sql.Date不支持toInstant，统一按毫秒数转换
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault());
+    }
+
+    /**
+     * 纪元日当天0点
+     */
+    public static Date toDate(int epochDay) {
+        return toDate(LocalDate.ofEpochDay(epochDay));
+    }
+
+    public static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * yyyy-MM-dd
+     */
+    public static String format(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    public static String format(Date date) {
+        return format(of(date));
+    }
+
+    /**
+     * K线日期：分钟K线为 yyyy-MM-dd HH:mm，日K及以上为 yyyy-MM-dd
+     */
+    public static String formatBar(Date date, int klt) {
+        return klt < 101 ? toLocalDateTime(date).format(DATE_MINUTE) : format(date);
+    }
+
+    /**
+     * yyyyMMdd，上游接口的日期参数格式
+     */
+    public static String formatBasic(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).format(BASIC_DATE);
+    }
+}
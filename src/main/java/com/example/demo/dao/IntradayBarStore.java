@@ -0,0 +1,166 @@
+package com.example.demo.dao;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 分钟K线存储，按时间戳（毫秒）索引
+ * 只从上游获取1分钟K线，5/15/30/60分钟K线在写入时按所属周期滚动聚合；
+ * 仅保留最近若干个交易日，避免分钟数据无限增长。
+ */
+public class IntradayBarStore {
+
+    public static final int[] PERIODS = {1, 5, 15, 30, 60};
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    /**
+     * 数据结构：Map<股票代码, Map<周期, NavigableMap<时间戳, KLineData>>>
+     */
+    private final Map<String, Map<Integer, NavigableMap<Long, KLineData>>> storeMap = new ConcurrentHashMap<>();
+    private final int retainDays;
+
+    public IntradayBarStore(int retainDays) {
+        this.retainDays = Math.max(1, retainDays);
+    }
+
+    public static boolean isIntraday(int klt) {
+        for (int period : PERIODS) {
+            if (period == klt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 写入1分钟K线，并重算受影响的各周期K线
+     */
+    public void putMinuteBars(String stockCode, List<KLineData> minuteBars) {
+        if (minuteBars == null || minuteBars.isEmpty()) {
+            return;
+        }
+        Map<Integer, NavigableMap<Long, KLineData>> stockStore =
+                storeMap.computeIfAbsent(stockCode, k -> new ConcurrentHashMap<>());
+        NavigableMap<Long, KLineData> oneMinute =
+                stockStore.computeIfAbsent(1, k -> new ConcurrentSkipListMap<>());
+
+        for (KLineData bar : minuteBars) {
+            oneMinute.put(bar.getDate().getTime(), bar);
+        }
+
+        for (int i = 1; i < PERIODS.length; i++) {
+            int period = PERIODS[i];
+            NavigableMap<Long, KLineData> periodStore =
+                    stockStore.computeIfAbsent(period, k -> new ConcurrentSkipListMap<>());
+            Set<Long> touchedBuckets = new TreeSet<>();
+            for (KLineData bar : minuteBars) {
+                touchedBuckets.add(MinuteBarAggregator.bucketEnd(bar.getDate().getTime(), period));
+            }
+            for (Long bucketEnd : touchedBuckets) {
+                KLineData merged = MinuteBarAggregator.merge(
+                        getBucketBars(oneMinute, bucketEnd, period), bucketEnd, period);
+                if (merged != null) {
+                    periodStore.put(bucketEnd, merged);
+                }
+            }
+        }
+
+        trim(stockStore);
+    }
+
+    /**
+     * 获取时间范围内的K线（最新的在前）
+     */
+    public List<KLineData> getBars(String stockCode, int klt, Date startTime, Date endTime) {
+        NavigableMap<Long, KLineData> periodStore = getPeriodStore(stockCode, klt);
+        if (periodStore == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(periodStore.subMap(startTime.getTime(), true, endTime.getTime(), true)
+                .descendingMap().values());
+    }
+
+    public KLineData getBar(String stockCode, int klt, Date time) {
+        NavigableMap<Long, KLineData> periodStore = getPeriodStore(stockCode, klt);
+        return periodStore == null ? null : periodStore.get(time.getTime());
+    }
+
+    /**
+     * 检查已存储的1分钟K线是否覆盖请求范围
+     */
+    public boolean covers(String stockCode, Date startTime, Date endTime) {
+        NavigableMap<Long, KLineData> oneMinute = getPeriodStore(stockCode, 1);
+        if (oneMinute == null || oneMinute.isEmpty()) {
+            return false;
+        }
+        return startTime.getTime() >= oneMinute.firstKey() && endTime.getTime() <= oneMinute.lastKey();
+    }
+
+    public void clear() {
+        storeMap.clear();
+    }
+
+    public void clear(String stockCode) {
+        storeMap.remove(stockCode);
+    }
+
+    public int size() {
+        int total = 0;
+        for (Map<Integer, NavigableMap<Long, KLineData>> stockStore : storeMap.values()) {
+            for (NavigableMap<Long, KLineData> periodStore : stockStore.values()) {
+                total += periodStore.size();
+            }
+        }
+        return total;
+    }
+
+    private NavigableMap<Long, KLineData> getPeriodStore(String stockCode, int klt) {
+        Map<Integer, NavigableMap<Long, KLineData>> stockStore = storeMap.get(stockCode);
+        return stockStore == null ? null : stockStore.get(klt);
+    }
+
+    /**
+     * 取出属于同一周期的1分钟K线，多取一分钟以包含开盘集合竞价K线
+     */
+    private Collection<KLineData> getBucketBars(NavigableMap<Long, KLineData> oneMinute, long bucketEnd, int period) {
+        List<KLineData> bars = new ArrayList<>(period + 1);
+        for (Map.Entry<Long, KLineData> entry :
+                oneMinute.subMap(bucketEnd - (period + 1) * MINUTE_MILLIS, false, bucketEnd, true).entrySet()) {
+            if (MinuteBarAggregator.bucketEnd(entry.getKey(), period) == bucketEnd) {
+                bars.add(entry.getValue());
+            }
+        }
+        return bars;
+    }
+
+    /**
+     * 只保留最近retainDays个交易日的数据
+     */
+    private void trim(Map<Integer, NavigableMap<Long, KLineData>> stockStore) {
+        NavigableMap<Long, KLineData> oneMinute = stockStore.get(1);
+        if (oneMinute == null || oneMinute.isEmpty()) {
+            return;
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate day = toLocalDate(oneMinute.lastKey(), zone);
+        for (int i = 1; i < retainDays; i++) {
+            Long previous = oneMinute.lowerKey(day.atStartOfDay(zone).toInstant().toEpochMilli());
+            if (previous == null) {
+                return;
+            }
+            day = toLocalDate(previous, zone);
+        }
+        long cutoff = day.atStartOfDay(zone).toInstant().toEpochMilli();
+        for (NavigableMap<Long, KLineData> periodStore : stockStore.values()) {
+            periodStore.headMap(cutoff, false).clear();
+        }
+    }
+
+    private static LocalDate toLocalDate(long millis, ZoneId zone) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+    }
+}
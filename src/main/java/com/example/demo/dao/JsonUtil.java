@@ -11,13 +11,36 @@ import java.util.List;
 public class JsonUtil {
 
     /**
-     * 对象转JSON字符串
+     * 对象转紧凑JSON字符串，K线及K线列表走KLineJsonWriter，不经过反射
      */
+    @SuppressWarnings("unchecked")
     public static String toJsonString(Object obj) {
+        if (obj instanceof KLineData) {
+            return KLineJsonWriter.toJson((KLineData) obj);
+        }
+        if (obj instanceof List && isKLineList((List<?>) obj)) {
+            return KLineJsonWriter.toJson((List<KLineData>) obj);
+        }
+        return JSON.toJSONString(obj, SerializerFeature.WriteDateUseDateFormat);
+    }
+
+    /**
+     * 对象转带缩进的JSON字符串，用于日志和调试
+     */
+    public static String toPrettyJsonString(Object obj) {
         return JSON.toJSONString(obj, SerializerFeature.PrettyFormat,
                 SerializerFeature.WriteDateUseDateFormat);
     }
 
+    private static boolean isKLineList(List<?> list) {
+        for (Object item : list) {
+            if (!(item instanceof KLineData)) {
+                return false;
+            }
+        }
+        return !list.isEmpty();
+    }
+
     /**
      * JSON字符串转对象
      */
@@ -0,0 +1,79 @@
+package com.example.demo.dao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * K线本地归档，每个(股票代码, 周期)一个列式压缩文件
+ */
+public class KLineArchive {
+
+    private static final String FILE_SUFFIX = ".klb";
+
+    private final Path directory;
+
+    /**
+     * @param directory 归档目录，为空时不启用
+     */
+    public KLineArchive(String directory) {
+        this.directory = (directory == null || directory.trim().isEmpty()) ? null : Path.of(directory.trim());
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * 读取归档，不存在时返回null
+     */
+    public SeriesSnapshot load(String stockCode, int klt) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Path file = getFile(stockCode, klt);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return KLineBlockCodec.decodeSnapshot(Files.readAllBytes(file));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 整体写入归档，先写临时文件再原子替换
+     */
+    public void save(String stockCode, int klt, SeriesSnapshot snapshot) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = getFile(stockCode, klt);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, KLineBlockCodec.encode(snapshot, klt));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void delete(String stockCode, int klt) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(getFile(stockCode, klt));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Path getFile(String stockCode, int klt) {
+        return directory.resolve(stockCode + "_" + klt + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,530 @@
+package com.example.demo.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * K线列式压缩编码
+ * 按列存储：日期用纪元日的二阶差分，价格按3位小数定点化后差分，
+ * 百分比字段按2位小数定点化，成交量用变长整数，成交额用Gorilla异或编码。
+ * 所有整数均以ZigZag变长整数写入。
+ * 带获取区间的数据块（KLB2）在条数之后记录序列已从上游完整获取过的日期区间，其余布局与KLB1相同。
+ * 定点化只对上游原始价格无损；复权后的价格、空字段需原样传递时（节点间转发）使用encodeExact。
+ */
+public class KLineBlockCodec {
+
+    private static final int MAGIC = 0x4B4C4231; // "KLB1"
+    private static final int MAGIC_WITH_COVERAGE = 0x4B4C4232; // "KLB2"
+    private static final int MAGIC_EXACT = 0x4B4C5831; // "KLX1"
+    private static final int EXACT_FIELD_COUNT = 10;    // 无损编码的double字段数
+    private static final double PRICE_SCALE = 1000.0;  // 接口 decimal=3
+    private static final double PERCENT_SCALE = 100.0;
+
+    private KLineBlockCodec() {}
+
+    /**
+     * 编码K线数据（内部按日期升序存储）
+     */
+    public static byte[] encode(List<KLineData> data, int klt) {
+        return encode(data, klt, null);
+    }
+
+    /**
+     * 编码快照的K线及其获取区间
+     */
+    public static byte[] encode(SeriesSnapshot snapshot, int klt) {
+        return encode(snapshot.ascending(), klt, snapshot.getCoverage());
+    }
+
+    private static byte[] encode(List<KLineData> data, int klt, DayRanges coverage) {
+        List<KLineData> sorted = new ArrayList<>(data);
+        sorted.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+        int count = sorted.size();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(count * 24 + 16);
+        writeInt(out, coverage == null ? MAGIC : MAGIC_WITH_COVERAGE);
+        writeVarLong(out, klt);
+        writeVarLong(out, count);
+        if (coverage != null) {
+            writeVarLong(out, coverage.size());
+            long prevEnd = 0;
+            for (int i = 0; i < coverage.size(); i++) {
+                writeVarLong(out, zigzag(coverage.startAt(i) - prevEnd));
+                writeVarLong(out, coverage.endAt(i) - coverage.startAt(i));
+                prevEnd = coverage.endAt(i);
+            }
+        }
+        if (count == 0) {
+            return out.toByteArray();
+        }
+
+        // 日期：首值、首差分，其余为二阶差分
+        long prevDay = 0;
+        long prevDelta = 0;
+        for (int i = 0; i < count; i++) {
+            long day = toEpochDay(sorted.get(i).getDate());
+            long delta = day - prevDay;
+            writeVarLong(out, zigzag(i == 0 ? day : (i == 1 ? delta : delta - prevDelta)));
+            prevDelta = delta;
+            prevDay = day;
+        }
+
+        // 价格：定点化后的一阶差分
+        writeDeltaColumn(out, sorted, 0);
+        writeDeltaColumn(out, sorted, 1);
+        writeDeltaColumn(out, sorted, 2);
+        writeDeltaColumn(out, sorted, 3);
+
+        // 涨跌额、振幅、涨跌幅、换手率：定点化原值
+        for (KLineData bar : sorted) {
+            writeVarLong(out, zigzag(Math.round(value(bar.getChangeAmount()) * PRICE_SCALE)));
+        }
+        for (KLineData bar : sorted) {
+            writeVarLong(out, zigzag(Math.round(value(bar.getAmplitude()) * PERCENT_SCALE)));
+        }
+        for (KLineData bar : sorted) {
+            writeVarLong(out, zigzag(Math.round(value(bar.getChangeRate()) * PERCENT_SCALE)));
+        }
+        for (KLineData bar : sorted) {
+            writeVarLong(out, zigzag(Math.round(value(bar.getTurnoverRate()) * PERCENT_SCALE)));
+        }
+
+        // 成交量：变长整数
+        for (KLineData bar : sorted) {
+            writeVarLong(out, bar.getVolume() == null ? 0 : bar.getVolume());
+        }
+
+        // 成交额：Gorilla异或编码
+        BitWriter bits = new BitWriter(count * 8);
+        long prevBits = 0;
+        int prevLeading = Integer.MAX_VALUE;
+        int prevTrailing = 0;
+        for (int i = 0; i < count; i++) {
+            long current = Double.doubleToRawLongBits(value(sorted.get(i).getAmount()));
+            if (i == 0) {
+                bits.write(current, 64);
+            } else {
+                long xor = current ^ prevBits;
+                if (xor == 0) {
+                    bits.write(0, 1);
+                } else {
+                    int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                    int trailing = Long.numberOfTrailingZeros(xor);
+                    if (prevLeading != Integer.MAX_VALUE && leading >= prevLeading && trailing >= prevTrailing) {
+                        bits.write(0b10, 2);
+                        bits.write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+                    } else {
+                        int significant = 64 - leading - trailing;
+                        bits.write(0b11, 2);
+                        bits.write(leading, 5);
+                        bits.write(significant - 1, 6);
+                        bits.write(xor >>> trailing, significant);
+                        prevLeading = leading;
+                        prevTrailing = trailing;
+                    }
+                }
+            }
+            prevBits = current;
+        }
+        byte[] amountBytes = bits.toByteArray();
+        writeVarLong(out, amountBytes.length);
+        out.write(amountBytes, 0, amountBytes.length);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码全部K线（日期升序）
+     */
+    public static List<KLineData> decode(byte[] block) {
+        return decode(block, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * 解码为快照，KLB1数据块没有获取区间
+     */
+    public static SeriesSnapshot decodeSnapshot(byte[] block) {
+        return SeriesSnapshot.of(decode(block), decodeCoverage(block));
+    }
+
+    /**
+     * 只读取数据块头部的获取区间
+     */
+    public static DayRanges decodeCoverage(byte[] block) {
+        ByteReader in = new ByteReader(block);
+        boolean withCoverage = readMagic(in);
+        in.readVarLong();
+        in.readVarLong();
+        return withCoverage ? readCoverage(in) : DayRanges.EMPTY;
+    }
+
+    /**
+     * 解码指定日期范围内的K线（日期升序），范围外的K线不创建对象
+     */
+    public static List<KLineData> decode(byte[] block, Date startDate, Date endDate) {
+        return decode(block, toEpochDay(startDate), toEpochDay(endDate));
+    }
+
+    private static List<KLineData> decode(byte[] block, long startDay, long endDay) {
+        ByteReader in = new ByteReader(block);
+        boolean withCoverage = readMagic(in);
+        int klt = (int) in.readVarLong();
+        int count = (int) in.readVarLong();
+        if (withCoverage) {
+            readCoverage(in);
+        }
+        if (count == 0) {
+            return new ArrayList<>();
+        }
+
+        long[] days = new long[count];
+        long prevDay = 0;
+        long prevDelta = 0;
+        for (int i = 0; i < count; i++) {
+            long v = unzigzag(in.readVarLong());
+            long delta = i == 0 ? v : (i == 1 ? v : prevDelta + v);
+            days[i] = i == 0 ? v : prevDay + delta;
+            prevDelta = delta;
+            prevDay = days[i];
+        }
+
+        // 定位范围，只为范围内的K线创建对象
+        int from = lowerBound(days, startDay);
+        int to = lowerBound(days, endDay == Long.MAX_VALUE ? endDay : endDay + 1);
+
+        long[] open = readDeltaColumn(in, count);
+        long[] close = readDeltaColumn(in, count);
+        long[] high = readDeltaColumn(in, count);
+        long[] low = readDeltaColumn(in, count);
+        long[] changeAmount = readColumn(in, count);
+        long[] amplitude = readColumn(in, count);
+        long[] changeRate = readColumn(in, count);
+        long[] turnoverRate = readColumn(in, count);
+        long[] volume = new long[count];
+        for (int i = 0; i < count; i++) {
+            volume[i] = in.readVarLong();
+        }
+
+        int amountLength = (int) in.readVarLong();
+        BitReader bits = new BitReader(block, in.position(), amountLength);
+        double[] amount = new double[count];
+        long prevBits = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < to; i++) {
+            long current;
+            if (i == 0) {
+                current = bits.read(64);
+            } else if (bits.read(1) == 0) {
+                current = prevBits;
+            } else {
+                if (bits.read(1) == 1) {
+                    leading = (int) bits.read(5);
+                    int significant = (int) bits.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                current = prevBits ^ (bits.read(64 - leading - trailing) << trailing);
+            }
+            amount[i] = Double.longBitsToDouble(current);
+            prevBits = current;
+        }
+
+        List<KLineData> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            KLineData bar = new KLineData();
+            bar.setDate(java.sql.Date.valueOf(LocalDate.ofEpochDay(days[i])));
+            bar.setOpen(open[i] / PRICE_SCALE);
+            bar.setClose(close[i] / PRICE_SCALE);
+            bar.setHigh(high[i] / PRICE_SCALE);
+            bar.setLow(low[i] / PRICE_SCALE);
+            bar.setChangeAmount(changeAmount[i] / PRICE_SCALE);
+            bar.setLastClose((close[i] - changeAmount[i]) / PRICE_SCALE);
+            bar.setAmplitude(amplitude[i] / PERCENT_SCALE);
+            bar.setChangeRate(changeRate[i] / PERCENT_SCALE);
+            bar.setTurnoverRate(turnoverRate[i] / PERCENT_SCALE);
+            bar.setVolume(volume[i]);
+            bar.setAmount(amount[i]);
+            bar.setKlt(klt);
+            result.add(bar);
+        }
+        return result;
+    }
+
+    /**
+     * 校验魔数，返回数据块是否带获取区间
+     */
+    private static boolean readMagic(ByteReader in) {
+        int magic = in.readInt();
+        if (magic != MAGIC && magic != MAGIC_WITH_COVERAGE) {
+            throw new IllegalArgumentException("不是有效的K线数据块");
+        }
+        return magic == MAGIC_WITH_COVERAGE;
+    }
+
+    private static DayRanges readCoverage(ByteReader in) {
+        int size = (int) in.readVarLong();
+        DayRanges coverage = DayRanges.EMPTY;
+        long prevEnd = 0;
+        for (int i = 0; i < size; i++) {
+            long start = prevEnd + unzigzag(in.readVarLong());
+            long end = start + in.readVarLong();
+            coverage = coverage.union((int) start, (int) end);
+            prevEnd = end;
+        }
+        return coverage;
+    }
+
+    /**
+     * 无损编码：逐条写入原始double和空字段标记，顺序与输入一致
+     */
+    public static byte[] encodeExact(List<KLineData> data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.size() * 64 + 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC_EXACT);
+            out.writeInt(data.size());
+            for (KLineData bar : data) {
+                out.writeLong(bar.getDate() == null ? Long.MIN_VALUE : bar.getDate().getTime());
+                out.writeInt(bar.getKlt() == null ? -1 : bar.getKlt());
+                Double[] values = exactValues(bar);
+                int mask = bar.getVolume() == null ? 0 : 1 << values.length;
+                for (int i = 0; i < values.length; i++) {
+                    mask |= values[i] == null ? 0 : 1 << i;
+                }
+                out.writeShort(mask);
+                for (Double value : values) {
+                    if (value != null) {
+                        out.writeDouble(value);
+                    }
+                }
+                if (bar.getVolume() != null) {
+                    out.writeLong(bar.getVolume());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码encodeExact的结果，顺序与编码时一致
+     */
+    public static List<KLineData> decodeExact(byte[] block) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(block))) {
+            if (in.readInt() != MAGIC_EXACT) {
+                throw new IllegalArgumentException("不是有效的K线数据块");
+            }
+            int count = in.readInt();
+            List<KLineData> result = new ArrayList<>(count);
+            for (int n = 0; n < count; n++) {
+                KLineData bar = new KLineData();
+                long time = in.readLong();
+                int klt = in.readInt();
+                bar.setKlt(klt < 0 ? null : klt);
+                if (time != Long.MIN_VALUE) {
+                    bar.setDate(klt >= 0 && klt < 101 ? new java.sql.Timestamp(time) : new java.sql.Date(time));
+                }
+                int mask = in.readUnsignedShort();
+                Double[] values = new Double[EXACT_FIELD_COUNT];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (mask & 1 << i) == 0 ? null : in.readDouble();
+                }
+                bar.setOpen(values[0]);
+                bar.setClose(values[1]);
+                bar.setHigh(values[2]);
+                bar.setLow(values[3]);
+                bar.setAmount(values[4]);
+                bar.setAmplitude(values[5]);
+                bar.setChangeRate(values[6]);
+                bar.setChangeAmount(values[7]);
+                bar.setLastClose(values[8]);
+                bar.setTurnoverRate(values[9]);
+                if ((mask & 1 << values.length) != 0) {
+                    bar.setVolume(in.readLong());
+                }
+                result.add(bar);
+            }
+            return result;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("K线数据块已截断", e);
+        }
+    }
+
+    private static Double[] exactValues(KLineData bar) {
+        return new Double[]{bar.getOpen(), bar.getClose(), bar.getHigh(), bar.getLow(), bar.getAmount(),
+                bar.getAmplitude(), bar.getChangeRate(), bar.getChangeAmount(), bar.getLastClose(),
+                bar.getTurnoverRate()};
+    }
+
+    public static long toEpochDay(Date date) {
+        return EpochDays.of(date);
+    }
+
+    private static void writeDeltaColumn(ByteArrayOutputStream out, List<KLineData> sorted, int field) {
+        long prev = 0;
+        for (KLineData bar : sorted) {
+            Double price = field == 0 ? bar.getOpen() : field == 1 ? bar.getClose()
+                    : field == 2 ? bar.getHigh() : bar.getLow();
+            long scaled = Math.round(value(price) * PRICE_SCALE);
+            writeVarLong(out, zigzag(scaled - prev));
+            prev = scaled;
+        }
+    }
+
+    private static long[] readDeltaColumn(ByteReader in, int count) {
+        long[] values = new long[count];
+        long prev = 0;
+        for (int i = 0; i < count; i++) {
+            prev += unzigzag(in.readVarLong());
+            values[i] = prev;
+        }
+        return values;
+    }
+
+    private static long[] readColumn(ByteReader in, int count) {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = unzigzag(in.readVarLong());
+        }
+        return values;
+    }
+
+    private static int lowerBound(long[] values, long key) {
+        int index = Arrays.binarySearch(values, key);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && values[index - 1] == key) {
+            index--;
+        }
+        return index;
+    }
+
+    private static double value(Double v) {
+        return v == null ? 0 : v;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    /**
+     * 字节读取器
+     */
+    private static class ByteReader {
+        private final byte[] buf;
+        private int pos;
+
+        ByteReader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int readInt() {
+            int v = ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16)
+                    | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+            pos += 4;
+            return v;
+        }
+
+        long readVarLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return v;
+        }
+
+        int position() {
+            return pos;
+        }
+    }
+
+    /**
+     * 位写入器（高位在前）
+     */
+    private static class BitWriter {
+        private byte[] buf;
+        private long bitCount;
+
+        BitWriter(int initialBytes) {
+            this.buf = new byte[Math.max(16, initialBytes)];
+        }
+
+        void write(long value, int width) {
+            for (int i = width - 1; i >= 0; i--) {
+                int byteIndex = (int) (bitCount >>> 3);
+                if (byteIndex == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                if (((value >>> i) & 1) != 0) {
+                    buf[byteIndex] |= (byte) (0x80 >>> (bitCount & 7));
+                }
+                bitCount++;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, (int) ((bitCount + 7) >>> 3));
+        }
+    }
+
+    /**
+     * 位读取器（高位在前）
+     */
+    private static class BitReader {
+        private final byte[] buf;
+        private long bitPos;
+        private final long bitEnd;
+
+        BitReader(byte[] buf, int offset, int length) {
+            this.buf = buf;
+            this.bitPos = (long) offset << 3;
+            this.bitEnd = (long) (offset + length) << 3;
+        }
+
+        long read(int width) {
+            if (bitPos + width > bitEnd) {
+                throw new IllegalArgumentException("K线数据块已截断");
+            }
+            long v = 0;
+            for (int i = 0; i < width; i++) {
+                int bit = (buf[(int) (bitPos >>> 3)] >>> (7 - (bitPos & 7))) & 1;
+                v = (v << 1) | bit;
+                bitPos++;
+            }
+            return v;
+        }
+    }
+}
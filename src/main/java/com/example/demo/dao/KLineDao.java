@@ -1,11 +1,15 @@
 package com.example.demo.dao;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * K线数据DAO接口
+ * 返回的K线列表最新的在前，且为缓存快照上的只读视图，调用方需要其他顺序时请用SeriesSnapshot.ascending，不要原地排序
  */
 public interface KLineDao {
 
@@ -19,9 +23,49 @@ public interface KLineDao {
     List<KLineData> getAllKLineData(String stockCode, int klt);
     KLineData getKLineDataByDate(String stockCode, Date date, int klt);
 
+    // 指定复权类型，未指定时默认前复权
+    List<KLineData> getKLineData(String stockCode, Date startDate, Date endDate, int klt, AdjustType adjustType);
+    List<KLineData> getAllKLineData(String stockCode, int klt, AdjustType adjustType);
+    KLineData getKLineDataByDate(String stockCode, Date date, int klt, AdjustType adjustType);
+
+    // 按交易日查询（含起止日），缓存以纪元日为键，无需转换时区和格式化；上面的Date方法保留兼容
+    List<KLineData> getKLineData(String stockCode, LocalDate startDate, LocalDate endDate, int klt);
+    List<KLineData> getKLineData(String stockCode, LocalDate startDate, LocalDate endDate, int klt, AdjustType adjustType);
+    KLineData getKLineDataByDate(String stockCode, LocalDate date, int klt);
+    KLineData getKLineDataByDate(String stockCode, LocalDate date, int klt, AdjustType adjustType);
+
+    // 获取复权因子序列
+    AdjustmentFactors getAdjustmentFactors(String stockCode, int klt);
+
     // 获取最近N条K线数据
     List<KLineData> getRecentKLineData(String stockCode, int klt, int count);
 
+    // 盘中实时更新：用今日日K线修正缓存中各周期的最新K线
+    void patchLatestBar(String stockCode, KLineData todayBar);
+
+    // 获取滚动均线指标
+    SeriesIndicators getIndicators(String stockCode, int klt);
+
+    // 已缓存的股票代码与K线（只读缓存，不访问上游，不复权，最新的在前）
+    Set<String> getCachedStockCodes();
+    List<KLineData> getCachedKLineData(String stockCode, int klt);
+    SeriesSnapshot getCachedSnapshot(String stockCode, int klt);
+
+    // 回填：确保内存/二级缓存/归档覆盖指定日K及以上周期的区间，缺失时从上游获取；返回区间内K线数，上游失败时抛出异常
+    int backfill(String stockCode, int klt, LocalDate startDate, LocalDate endDate) throws UpstreamException;
+
+    // 批量预加载：从二级缓存一次性读取内存中尚未缓存的序列，返回加载的序列数
+    int preload(Collection<String> stockCodes, int klt);
+
+    // 预热：把默认区间的完整序列装入内存，不计入访问次数；返回序列中的K线数，获取失败时返回0
+    int warmUp(String stockCode, int klt);
+
+    // 本节点是否负责获取和缓存该序列（集群模式下只有归属节点负责，预热、回填据此分片）
+    boolean isOwner(String stockCode, int klt);
+
+    // 各股票代码的访问次数（按天衰减，仅统计用户请求）
+    Map<String, Long> getAccessCounts();
+
     // 缓存管理
     void clearCache();
     void clearCache(String stockCode);
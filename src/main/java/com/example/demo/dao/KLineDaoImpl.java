@@ -2,27 +2,168 @@ package com.example.demo.dao;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.text.SimpleDateFormat;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * K线数据DAO实现类，支持多周期缓存
  */
 @Service
+@Lazy(false) // 含定时任务，开启懒加载时仍需启动时创建
 public class KLineDaoImpl implements KLineDao {
 
     /**
-     * 缓存数据结构：Map<股票代码, Map<周期, Map<日期, KLineData>>>
+     * 收盘时间，之后当天的日K线才完整
+     */
+    private static final LocalTime SESSION_CLOSE = LocalTime.of(15, 0);
+
+    /**
+     * 缓存数据结构：Map<股票代码, Map<周期, 序列快照>>，缓存的是不复权K线
+     * 快照按纪元日有序且不可变，更新时生成新版本整体替换，区间查询返回快照上的只读视图
       */
-    private final Map<String, Map<Integer, Map<String, KLineData>>> cacheMap = new ConcurrentHashMap<>();
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private final Map<String, Map<Integer, SeriesSnapshot>> cacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * 复权因子：Map<股票代码_周期, 复权因子序列>，读取时按需计算前/后复权价格
+     */
+    private final Map<String, AdjustmentFactors> factorMap = new ConcurrentHashMap<>();
+
+    /**
+     * 滚动指标：Map<股票代码_周期, 均线指标>，盘中更新时增量维护
+     */
+    private final Map<String, SeriesIndicators> indicatorMap = new ConcurrentHashMap<>();
+
+    /**
+     * 盘中实时更新的周期基准：Map<股票代码_周期, 今日之前的周期K线部分>
+     */
+    private final Map<String, LiveBarBase> liveBaseMap = new ConcurrentHashMap<>();
+
+    /**
+     * 各股票代码的访问次数，用于预热时按热度排序；每天减半衰减，预热读取不计入
+     */
+    private final Map<String, LongAdder> accessCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 访问次数最多记录的代码数，达到上限后新代码等下次衰减腾出位置再记录
+     */
+    @Value("${kline.access-counts.max-codes:20000}")
+    private int maxAccessCodes = 20000;
+
+    /**
+     * 本地证券列表文件路径，为空时不启用布隆过滤
+     */
+    @Value("${kline.security-list.path:}")
+    private String securityListPath;
+
+    /**
+     * 负缓存有效期（秒）
+     */
+    @Value("${kline.negative-cache.ttl-seconds:600}")
+    private long negativeCacheTtlSeconds = 600;
+
+    /**
+     * 本地列式归档目录，为空时不启用磁盘归档
+     */
+    @Value("${kline.archive.dir:}")
+    private String archiveDir;
+
+    /**
+     * 共享二级缓存（Redis）地址，为空时不启用
+     */
+    @Value("${kline.l2.redis-url:}")
+    private String l2RedisUrl;
+    @Value("${kline.l2.timeout-ms:1000}")
+    private int l2TimeoutMillis = 1000;
+    @Value("${kline.l2.ttl-seconds:604800}")
+    private int l2TtlSeconds = 604800;
+    @Value("${kline.l2.batch-size:100}")
+    private int l2BatchSize = 100;
+
+    /**
+     * 盘中今日K线有变化的序列，由flushLiveBars定期写回二级缓存并通知其他实例，元素为 股票代码_周期
+     */
+    private final Set<String> dirtyLiveSeries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 分钟K线保留的交易日数
+     */
+    @Value("${kline.intraday.retain-days:5}")
+    private int intradayRetainDays = 5;
+
+    /**
+     * 上游接口地址、重试、限流与熔断配置
+     */
+    @Value("${kline.upstream.base-url:https://push2his.eastmoney.com}")
+    private String upstreamBaseUrl = "https://push2his.eastmoney.com";
+    @Value("${kline.upstream.max-attempts:3}")
+    private int upstreamMaxAttempts = 3;
+    @Value("${kline.upstream.read-timeout-ms:10000}")
+    private int upstreamReadTimeoutMillis = 10000;
+    @Value("${kline.upstream.initial-rate:10}")
+    private double upstreamInitialRate = 10;
+    @Value("${kline.upstream.min-rate:1}")
+    private double upstreamMinRate = 1;
+    @Value("${kline.upstream.max-rate:50}")
+    private double upstreamMaxRate = 50;
+    @Value("${kline.upstream.latency-target-ms:2000}")
+    private long upstreamLatencyTargetMillis = 2000;
+    @Value("${kline.upstream.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold = 5;
+    @Value("${kline.upstream.breaker.open-seconds:30}")
+    private long breakerOpenSeconds = 30;
+
+    private final SecurityListFilter securityListFilter = new SecurityListFilter();
+    private NegativeCache negativeCache = new NegativeCache(negativeCacheTtlSeconds * 1000);
+    private KLineArchive archive = new KLineArchive(null);
+    private KLineL2Cache l2Cache = KLineL2Cache.NONE;
+    private IntradayBarStore intradayStore = new IntradayBarStore(intradayRetainDays);
+    private EastmoneyClient upstreamClient = createUpstreamClient();
+    private final LongAdder staleServeCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        negativeCache = new NegativeCache(negativeCacheTtlSeconds * 1000);
+        securityListFilter.load(securityListPath);
+        archive = new KLineArchive(archiveDir);
+        intradayStore = new IntradayBarStore(intradayRetainDays);
+        upstreamClient = createUpstreamClient();
+        if (l2RedisUrl != null && !l2RedisUrl.trim().isEmpty()) {
+            setL2Cache(new RedisKLineL2Cache(l2RedisUrl, l2TimeoutMillis, l2TtlSeconds, l2BatchSize));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushLiveBars();
+        l2Cache.close();
+    }
+
+    /**
+     * 设置二级缓存，并订阅其他实例发布的失效通知
+     */
+    public void setL2Cache(KLineL2Cache l2Cache) {
+        this.l2Cache.close();
+        this.l2Cache = l2Cache;
+        l2Cache.subscribe(this::evictSeries);
+    }
+
+    private EastmoneyClient createUpstreamClient() {
+        return new EastmoneyClient(upstreamBaseUrl, upstreamMaxAttempts, 5000, upstreamReadTimeoutMillis,
+                new AdaptiveRateLimiter(upstreamInitialRate, upstreamMinRate, upstreamMaxRate, upstreamLatencyTargetMillis),
+                new CircuitBreaker(breakerFailureThreshold, breakerOpenSeconds * 1000));
+    }
 
     // 默认获取日K线
     @Override
@@ -40,85 +181,326 @@ public class KLineDaoImpl implements KLineDao {
         return getKLineDataByDate(stockCode, date, 101);
     }
 
-    // 实现新增的多周期方法
+    // 实现新增的多周期方法，默认前复权
     @Override
     public List<KLineData> getKLineData(String stockCode, Date startDate, Date endDate, int klt) {
-        String stockKey = getStockKey(stockCode, klt);
+        return getKLineData(stockCode, startDate, endDate, klt, AdjustType.QFQ);
+    }
+
+    @Override
+    public List<KLineData> getKLineData(String stockCode, Date startDate, Date endDate, int klt,
+                                        AdjustType adjustType) {
+        recordAccess(stockCode);
+        if (IntradayBarStore.isIntraday(klt)) {
+            return getIntradayKLineData(stockCode, startDate, endDate, klt);
+        }
+        List<KLineData> rawData = getRawKLineData(stockCode, EpochDays.of(startDate), EpochDays.of(endDate), klt);
+        return adjust(stockCode, klt, rawData, adjustType);
+    }
+
+    @Override
+    public List<KLineData> getKLineData(String stockCode, LocalDate startDate, LocalDate endDate, int klt) {
+        return getKLineData(stockCode, startDate, endDate, klt, AdjustType.QFQ);
+    }
+
+    @Override
+    public List<KLineData> getKLineData(String stockCode, LocalDate startDate, LocalDate endDate, int klt,
+                                        AdjustType adjustType) {
+        if (IntradayBarStore.isIntraday(klt)) {
+            // 分钟K线取起止日的整日范围
+            return getKLineData(stockCode, EpochDays.toDate(startDate),
+                    new Date(EpochDays.toDate(endDate.plusDays(1)).getTime() - 1), klt, adjustType);
+        }
+        recordAccess(stockCode);
+        List<KLineData> rawData = getRawKLineData(stockCode, EpochDays.of(startDate), EpochDays.of(endDate), klt);
+        return adjust(stockCode, klt, rawData, adjustType);
+    }
 
-        // 检查缓存是否存在该股票该周期的数据
-        Map<String, KLineData> periodCache = getPeriodCache(stockCode, klt);
+    /**
+     * 获取不复权K线，优先读缓存，起止为纪元日（含）
+     */
+    private List<KLineData> getRawKLineData(String stockCode, int startDay, int endDay, int klt) {
+        SeriesSnapshot periodCache = loadPeriodCache(stockCode, klt);
         if (periodCache != null) {
-            // 从缓存中筛选指定日期范围的数据
-            List<KLineData> result = filterDataByDateRange(periodCache, startDate, endDate);
-            if (!result.isEmpty() && isCacheComplete(periodCache, startDate, endDate)) {
+            // 从同一个快照中筛选指定日期范围的数据并判断是否完整
+            List<KLineData> result = periodCache.range(startDay, endDay);
+            if (!result.isEmpty() && isCacheComplete(periodCache, startDay, endDay)) {
                 return result;
             }
         }
 
-        // 缓存未命中，从API获取数据
-        List<KLineData> klineData = fetchFromAPI(stockCode, startDate, endDate, klt);
-        if (klineData != null) {
-            // 更新缓存
-            updateCache(stockCode, klt, klineData);
+        // 证券列表或负缓存判定无数据，直接返回，不访问上游
+        if (!securityListFilter.mightContain(stockCode) || negativeCache.contains(stockCode)) {
+            return null;
+        }
+        String rangeKey = getRangeKey(stockCode, startDay, endDay, klt);
+        if (negativeCache.contains(rangeKey)) {
+            return Collections.emptyList();
         }
 
-        return klineData;
+        // 缓存未命中，从API获取数据；上游熔断或请求失败时返回缓存中的旧数据
+        if (!upstreamClient.isAvailable()) {
+            return serveStale(periodCache, startDay, endDay);
+        }
+        int[] fetchRange = getFetchRange(periodCache, startDay, endDay);
+        List<KLineData> klineData;
+        try {
+            klineData = fetchFromAPI(stockCode, fetchRange[0], fetchRange[1], klt);
+        } catch (UpstreamException e) {
+            return serveStale(periodCache, startDay, endDay);
+        }
+        if (klineData == null || klineData.isEmpty()) {
+            return klineData == null ? null : Collections.emptyList();
+        }
+        // 更新缓存并写回二级缓存和本地归档，返回新版本快照上的视图
+        return store(stockCode, klt, klineData, fetchRange[0], fetchRange[1]).range(startDay, endDay);
+    }
+
+    /**
+     * 计算需要向上游请求的区间
+     * 请求范围与最后一段获取区间不相连时，补齐两者之间的缺口，保证请求范围到最新K线之间的除权事件都能推导出来
+     */
+    private int[] getFetchRange(SeriesSnapshot periodCache, int startDay, int endDay) {
+        DayRanges coverage = periodCache == null ? DayRanges.EMPTY : periodCache.getCoverage();
+        if (coverage.isEmpty()) {
+            return new int[]{startDay, endDay};
+        }
+        int tailStart = coverage.startAt(coverage.size() - 1);
+        int tailEnd = coverage.endAt(coverage.size() - 1);
+        if (startDay >= tailStart) {
+            // 起始日已在最后一段内或在其之后，从最后一段的结束日接着获取
+            return new int[]{Math.min(startDay, tailEnd), endDay};
+        }
+        return new int[]{startDay, Math.max(endDay, tailStart)};
+    }
+
+    /**
+     * 读取内存中的序列，内存未命中时依次加载二级缓存和本地归档
+     */
+    private SeriesSnapshot loadPeriodCache(String stockCode, int klt) {
+        SeriesSnapshot periodCache = getPeriodCache(stockCode, klt);
+        if (periodCache == null) {
+            SeriesSnapshot loaded = l2Cache.load(stockCode, klt);
+            if ((loaded == null || loaded.isEmpty()) && archive.isEnabled()) {
+                loaded = archive.load(stockCode, klt);
+            }
+            if (loaded != null && !loaded.isEmpty()) {
+                periodCache = updateCache(stockCode, klt, loaded);
+            }
+        }
+        return periodCache;
+    }
+
+    /**
+     * 合并一次上游请求的结果到内存缓存，并写回二级缓存和本地归档
+     * 请求的结束日为今天或以后时，只有拿到今日K线才算覆盖到今天
+     */
+    private SeriesSnapshot store(String stockCode, int klt, List<KLineData> klineData, int startDay, int endDay) {
+        int today = EpochDays.of(LocalDate.now());
+        if (endDay >= today) {
+            boolean hasToday = false;
+            for (KLineData bar : klineData) {
+                hasToday |= bar.getEpochDay() >= today;
+            }
+            endDay = hasToday ? today : today - 1;
+        }
+        SeriesSnapshot published = updateCache(stockCode, klt,
+                SeriesSnapshot.of(klineData, DayRanges.of(startDay, endDay)));
+        l2Cache.save(stockCode, klt, published);
+        if (archive.isEnabled()) {
+            archive.save(stockCode, klt, published);
+        }
+        return published;
+    }
+
+    @Override
+    public int backfill(String stockCode, int klt, LocalDate startDate, LocalDate endDate) throws UpstreamException {
+        if (IntradayBarStore.isIntraday(klt)) {
+            throw new IllegalArgumentException("分钟K线不支持回填: " + klt);
+        }
+        int startDay = EpochDays.of(startDate);
+        int endDay = EpochDays.of(endDate);
+        boolean resident = getPeriodCache(stockCode, klt) != null;
+        try {
+            // 已有数据完整覆盖时不访问上游，中断后重跑的任务和每晚的增量回填大多在这里完成
+            SeriesSnapshot periodCache = loadPeriodCache(stockCode, klt);
+            if (isBackfillComplete(periodCache, startDay, endDay)) {
+                return periodCache.range(startDay, endDay).size();
+            }
+            if (!securityListFilter.mightContain(stockCode) || negativeCache.contains(stockCode)) {
+                return 0;
+            }
+            int[] fetchRange = getFetchRange(periodCache, startDay, endDay);
+            List<KLineData> klineData = fetchFromAPI(stockCode, fetchRange[0], fetchRange[1], klt);
+            if (klineData == null || klineData.isEmpty()) {
+                return 0;
+            }
+            return store(stockCode, klt, klineData, fetchRange[0], fetchRange[1]).range(startDay, endDay).size();
+        } finally {
+            // 全市场回填时只落二级缓存和归档，不让未被访问过的序列占满内存
+            if (!resident && (l2Cache.isEnabled() || archive.isEnabled())) {
+                evictSeries(stockCode, klt);
+            }
+        }
+    }
+
+    /**
+     * 上游不可用时返回缓存中的旧数据，没有缓存则返回null
+     */
+    private List<KLineData> serveStale(SeriesSnapshot periodCache, int startDay, int endDay) {
+        if (periodCache == null) {
+            return null;
+        }
+        staleServeCount.increment();
+        return periodCache.range(startDay, endDay);
     }
 
     @Override
     public List<KLineData> getAllKLineData(String stockCode, int klt) {
-        // 根据周期获取不同时间范围的数据
-        Calendar calendar = Calendar.getInstance();
-        Date endDate = calendar.getTime();
+        return getAllKLineData(stockCode, klt, AdjustType.QFQ);
+    }
 
+    @Override
+    public List<KLineData> getAllKLineData(String stockCode, int klt, AdjustType adjustType) {
+        // 根据周期获取不同时间范围的数据，分钟K线获取保留期内的数据
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = IntradayBarStore.isIntraday(klt)
+                ? endDate.minusDays(intradayRetainDays + 3) : defaultStartDate(klt, endDate);
+        return getKLineData(stockCode, startDate, endDate, klt, adjustType);
+    }
+
+    @Override
+    public int warmUp(String stockCode, int klt) {
+        LocalDate endDate = LocalDate.now();
+        List<KLineData> data = IntradayBarStore.isIntraday(klt)
+                ? getIntradayKLineData(stockCode, EpochDays.toDate(endDate.minusDays(intradayRetainDays + 3)),
+                        new Date(EpochDays.toDate(endDate.plusDays(1)).getTime() - 1), klt)
+                : getRawKLineData(stockCode, EpochDays.of(defaultStartDate(klt, endDate)), EpochDays.of(endDate), klt);
+        return data == null ? 0 : data.size();
+    }
+
+    /**
+     * 不晚于指定日期、且已收盘的最后一个交易日（按工作日计，不含节假日）
+     * 指定日期为今天且尚未收盘时取前一个交易日
+     */
+    public static int lastClosedTradingDay(int endDay, LocalDateTime now) {
+        int today = EpochDays.of(now.toLocalDate());
+        int day = Math.min(endDay, now.toLocalTime().isBefore(SESSION_CLOSE) ? today - 1 : today);
+        while (isWeekend(day)) {
+            day--;
+        }
+        return day;
+    }
+
+    private static boolean isWeekend(int epochDay) {
+        DayOfWeek dayOfWeek = LocalDate.ofEpochDay(epochDay).getDayOfWeek();
+        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * 日K及以上周期默认获取的起始日期
+     */
+    public static LocalDate defaultStartDate(int klt, LocalDate endDate) {
         switch (klt) {
-            case 101: // 日K - 获取最近一年
-                calendar.add(Calendar.YEAR, -1);
-                break;
             case 102: // 周K - 获取最近两年
-                calendar.add(Calendar.YEAR, -2);
-                break;
+                return endDate.minusYears(2);
             case 103: // 月K - 获取最近五年
-                calendar.add(Calendar.YEAR, -5);
-                break;
+                return endDate.minusYears(5);
             case 104: // 季K - 获取最近八年
-                calendar.add(Calendar.YEAR, -8);
-                break;
+                return endDate.minusYears(8);
             case 105: // 半年K - 获取最近十年
-                calendar.add(Calendar.YEAR, -10);
-                break;
+                return endDate.minusYears(10);
             case 106: // 年K - 获取最近二十年
-                calendar.add(Calendar.YEAR, -20);
-                break;
-            default:
-                calendar.add(Calendar.YEAR, -1);
+                return endDate.minusYears(20);
+            default: // 日K - 获取最近一年
+                return endDate.minusYears(1);
         }
-
-        Date startDate = calendar.getTime();
-        return getKLineData(stockCode, startDate, endDate, klt);
     }
 
     @Override
     public KLineData getKLineDataByDate(String stockCode, Date date, int klt) {
-        Map<String, KLineData> periodCache = getPeriodCache(stockCode, klt);
+        return getKLineDataByDate(stockCode, date, klt, AdjustType.QFQ);
+    }
+
+    @Override
+    public KLineData getKLineDataByDate(String stockCode, Date date, int klt, AdjustType adjustType) {
+        recordAccess(stockCode);
+        if (IntradayBarStore.isIntraday(klt)) {
+            KLineData bar = intradayStore.getBar(stockCode, klt, date);
+            if (bar == null && !intradayStore.covers(stockCode, date, date)) {
+                getIntradayKLineData(stockCode, date, date, klt);
+                bar = intradayStore.getBar(stockCode, klt, date);
+            }
+            return bar;
+        }
+        return adjust(stockCode, klt, getRawKLineDataByDate(stockCode, EpochDays.of(date), klt), adjustType);
+    }
+
+    @Override
+    public KLineData getKLineDataByDate(String stockCode, LocalDate date, int klt) {
+        return getKLineDataByDate(stockCode, date, klt, AdjustType.QFQ);
+    }
+
+    /**
+     * 分钟K线返回当日最后一根
+     */
+    @Override
+    public KLineData getKLineDataByDate(String stockCode, LocalDate date, int klt, AdjustType adjustType) {
+        if (IntradayBarStore.isIntraday(klt)) {
+            List<KLineData> bars = getKLineData(stockCode, date, date, klt, adjustType);
+            return bars == null || bars.isEmpty() ? null : bars.get(0);
+        }
+        recordAccess(stockCode);
+        return adjust(stockCode, klt, getRawKLineDataByDate(stockCode, EpochDays.of(date), klt), adjustType);
+    }
+
+    @Override
+    public AdjustmentFactors getAdjustmentFactors(String stockCode, int klt) {
+        return factorMap.get(getStockKey(stockCode, klt));
+    }
+
+    /**
+     * 获取分钟K线：只请求1分钟K线，其余周期由存储聚合得到
+     */
+    private List<KLineData> getIntradayKLineData(String stockCode, Date startTime, Date endTime, int klt) {
+        if (!intradayStore.covers(stockCode, startTime, endTime)) {
+            if (!securityListFilter.mightContain(stockCode) || negativeCache.contains(stockCode)) {
+                return null;
+            }
+            List<KLineData> minuteBars = null;
+            if (upstreamClient.isAvailable()) {
+                try {
+                    minuteBars = fetchFromAPI(stockCode, EpochDays.of(startTime), EpochDays.of(endTime), 1);
+                    if (minuteBars == null) {
+                        return null;
+                    }
+                } catch (UpstreamException e) {
+                    // 上游不可用，返回已存储的分钟K线
+                    staleServeCount.increment();
+                }
+            } else {
+                staleServeCount.increment();
+            }
+            intradayStore.putMinuteBars(stockCode, minuteBars);
+        }
+        return intradayStore.getBars(stockCode, klt, startTime, endTime);
+    }
+
+    /**
+     * 按纪元日获取不复权K线
+     */
+    private KLineData getRawKLineDataByDate(String stockCode, int day, int klt) {
+        SeriesSnapshot periodCache = getPeriodCache(stockCode, klt);
         if (periodCache != null) {
-            String dateKey = dateFormat.format(date);
-            return periodCache.get(dateKey);
+            return periodCache.get(day);
         }
 
         // 如果缓存中没有，尝试从API获取该日期附近的数据
         int daysOffset = getDaysOffsetByKlt(klt);
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.add(Calendar.DAY_OF_MONTH, -daysOffset);
-        Date startDate = calendar.getTime();
-        calendar.add(Calendar.DAY_OF_MONTH, daysOffset * 2);
-        Date endDate = calendar.getTime();
-
-        List<KLineData> data = getKLineData(stockCode, startDate, endDate, klt);
+        List<KLineData> data = getRawKLineData(stockCode, day - daysOffset, day + daysOffset, klt);
         if (data != null) {
             for (KLineData kline : data) {
-                if (dateFormat.format(kline.getDate()).equals(dateFormat.format(date))) {
+                if (kline.getEpochDay() == day) {
                     return kline;
                 }
             }
@@ -135,22 +517,220 @@ public class KLineDaoImpl implements KLineDao {
         return allData.subList(0, Math.min(count, allData.size()));
     }
 
+    @Override
+    public void patchLatestBar(String stockCode, KLineData todayBar) {
+        Map<Integer, SeriesSnapshot> stockCache = cacheMap.get(stockCode);
+        if (stockCache == null || todayBar == null) {
+            return;
+        }
+        int sessionDay = todayBar.getEpochDay();
+
+        for (Map.Entry<Integer, SeriesSnapshot> entry : stockCache.entrySet()) {
+            int klt = entry.getKey();
+            SeriesSnapshot periodCache = entry.getValue();
+            String stockKey = getStockKey(stockCode, klt);
+
+            KLineData patched;
+            Integer replacedKey = null;
+            if (klt == 101) {
+                patched = todayBar;
+            } else {
+                LiveBarBase base = liveBaseMap.get(stockKey);
+                if (base == null || base.getSessionDay() != sessionDay) {
+                    base = computeLiveBase(stockCode, klt, periodCache, todayBar);
+                    if (base == null) {
+                        continue;
+                    }
+                    liveBaseMap.put(stockKey, base);
+                }
+                patched = base.merge(todayBar, klt);
+                replacedKey = base.getReplacedKey();
+            }
+
+            // 生成新版本快照整体替换，读取方看到的要么是旧版本要么是新版本
+            KLineData previous = periodCache.get(sessionDay);
+            Integer removedDay = replacedKey;
+            SeriesSnapshot published = stockCache.computeIfPresent(klt,
+                    (k, current) -> current.withBar(patched, removedDay));
+            if (published == null) {
+                continue;
+            }
+
+            SeriesIndicators indicators = indicatorMap.get(stockKey);
+            if (indicators != null) {
+                if (previous != null || replacedKey != null) {
+                    indicators.replaceLast(patched);
+                } else {
+                    indicators.append(patched);
+                }
+            }
+            // 今日第一笔日K线可能是除权日，重算一次复权因子
+            if (klt == 101 && previous == null) {
+                factorMap.put(stockKey, rebuildFactors(stockKey, published));
+            }
+            // 今日K线有变化时标记，由flushLiveBars合并写回，避免每次行情都整体写入并广播
+            if (l2Cache.isEnabled() && !sameBar(previous, patched)) {
+                dirtyLiveSeries.add(stockKey);
+            }
+        }
+    }
+
+    /**
+     * 把盘中有变化的序列写回二级缓存，并通知其他实例丢弃旧序列；
+     * 同一序列在一个间隔内无论更新多少次只写一次
+     */
+    @Scheduled(fixedDelayString = "${kline.l2.live-flush-ms:5000}")
+    public void flushLiveBars() {
+        for (String stockKey : dirtyLiveSeries) {
+            if (!dirtyLiveSeries.remove(stockKey)) {
+                continue;
+            }
+            int separator = stockKey.lastIndexOf('_');
+            String stockCode = stockKey.substring(0, separator);
+            int klt = Integer.parseInt(stockKey.substring(separator + 1));
+            SeriesSnapshot current = getPeriodCache(stockCode, klt);
+            if (current != null) {
+                l2Cache.save(stockCode, klt, current);
+                l2Cache.publishInvalidation(stockCode, klt);
+            }
+        }
+    }
+
+    private static boolean sameBar(KLineData a, KLineData b) {
+        return a != null && Objects.equals(a.getDate(), b.getDate()) && Objects.equals(a.getClose(), b.getClose())
+                && Objects.equals(a.getHigh(), b.getHigh()) && Objects.equals(a.getLow(), b.getLow())
+                && Objects.equals(a.getVolume(), b.getVolume());
+    }
+
+    @Override
+    public boolean isOwner(String stockCode, int klt) {
+        return true;
+    }
+
+    @Override
+    public int preload(Collection<String> stockCodes, int klt) {
+        if (!l2Cache.isEnabled() || IntradayBarStore.isIntraday(klt)) {
+            return 0;
+        }
+        List<String> missing = new ArrayList<>();
+        for (String stockCode : stockCodes) {
+            if (getPeriodCache(stockCode, klt) == null) {
+                missing.add(stockCode);
+            }
+        }
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        int loaded = 0;
+        for (Map.Entry<String, SeriesSnapshot> entry : l2Cache.loadAll(missing, klt).entrySet()) {
+            if (!entry.getValue().isEmpty() && getPeriodCache(entry.getKey(), klt) == null) {
+                updateCache(entry.getKey(), klt, entry.getValue());
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 丢弃内存中的一个序列及其派生数据（收到其他实例的失效通知时调用）
+     */
+    private void evictSeries(String stockCode, int klt) {
+        Map<Integer, SeriesSnapshot> stockCache = cacheMap.get(stockCode);
+        if (stockCache == null || stockCache.remove(klt) == null) {
+            return;
+        }
+        String stockKey = getStockKey(stockCode, klt);
+        factorMap.remove(stockKey);
+        indicatorMap.remove(stockKey);
+        liveBaseMap.remove(stockKey);
+    }
+
+    @Override
+    public SeriesIndicators getIndicators(String stockCode, int klt) {
+        return indicatorMap.get(getStockKey(stockCode, klt));
+    }
+
+    @Override
+    public Map<String, Long> getAccessCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : accessCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    /**
+     * 访问次数减半，减到0的代码移除；热度只反映近几天的访问，不在的代码不会一直占着位置
+     */
+    @Scheduled(cron = "${kline.access-counts.decay-cron:0 0 18 * * *}")
+    public void decayAccessCounts() {
+        accessCounts.entrySet().removeIf(entry -> {
+            long halved = entry.getValue().sumThenReset() / 2;
+            entry.getValue().add(halved);
+            return halved == 0;
+        });
+    }
+
+    private void recordAccess(String stockCode) {
+        LongAdder count = accessCounts.get(stockCode);
+        if (count == null) {
+            if (accessCounts.size() >= maxAccessCodes) {
+                return;
+            }
+            count = accessCounts.computeIfAbsent(stockCode, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    @Override
+    public Set<String> getCachedStockCodes() {
+        return new HashSet<>(cacheMap.keySet());
+    }
+
+    @Override
+    public List<KLineData> getCachedKLineData(String stockCode, int klt) {
+        SeriesSnapshot periodCache = getPeriodCache(stockCode, klt);
+        return periodCache == null ? null : periodCache.descending();
+    }
+
+    @Override
+    public SeriesSnapshot getCachedSnapshot(String stockCode, int klt) {
+        return getPeriodCache(stockCode, klt);
+    }
+
     @Override
     public void clearCache() {
         cacheMap.clear();
+        factorMap.clear();
+        indicatorMap.clear();
+        liveBaseMap.clear();
+        intradayStore.clear();
+        negativeCache.clear();
     }
 
     @Override
     public void clearCache(String stockCode) {
         cacheMap.remove(stockCode);
+        intradayStore.clear(stockCode);
+        factorMap.keySet().removeIf(key -> key.startsWith(stockCode + "_"));
+        indicatorMap.keySet().removeIf(key -> key.startsWith(stockCode + "_"));
+        liveBaseMap.keySet().removeIf(key -> key.startsWith(stockCode + "_"));
+        negativeCache.remove(stockCode);
     }
 
     @Override
     public void clearCache(String stockCode, int klt) {
-        Map<Integer, Map<String, KLineData>> stockCache = cacheMap.get(stockCode);
+        Map<Integer, SeriesSnapshot> stockCache = cacheMap.get(stockCode);
         if (stockCache != null) {
             stockCache.remove(klt);
         }
+        factorMap.remove(getStockKey(stockCode, klt));
+        indicatorMap.remove(getStockKey(stockCode, klt));
+        liveBaseMap.remove(getStockKey(stockCode, klt));
+        if (IntradayBarStore.isIntraday(klt)) {
+            // 各分钟周期都由1分钟K线聚合，需一并清除
+            intradayStore.clear(stockCode);
+        }
     }
 
     @Override
@@ -161,8 +741,8 @@ public class KLineDaoImpl implements KLineDao {
         Map<String, Integer> periodStats = new HashMap<>();
         int totalDataPoints = 0;
 
-        for (Map.Entry<String, Map<Integer, Map<String, KLineData>>> stockEntry : cacheMap.entrySet()) {
-            for (Map.Entry<Integer, Map<String, KLineData>> periodEntry : stockEntry.getValue().entrySet()) {
+        for (Map.Entry<String, Map<Integer, SeriesSnapshot>> stockEntry : cacheMap.entrySet()) {
+            for (Map.Entry<Integer, SeriesSnapshot> periodEntry : stockEntry.getValue().entrySet()) {
                 String periodName = getPeriodName(periodEntry.getKey());
                 int dataCount = periodEntry.getValue().size();
                 periodStats.put(periodName, periodStats.getOrDefault(periodName, 0) + dataCount);
@@ -172,75 +752,109 @@ public class KLineDaoImpl implements KLineDao {
 
         stats.put("K线数量", totalDataPoints);
         stats.put("周期分布", periodStats);
+        stats.put("分钟K线数量", intradayStore.size());
+        stats.put("复权因子序列数", factorMap.size());
+        stats.put("上游限流速率", String.format("%.1f次/秒", upstreamClient.getCurrentRate()));
+        stats.put("上游熔断状态", upstreamClient.getCircuitState().name());
+        stats.put("熔断返回旧数据次数", staleServeCount.sum());
+        stats.put("负缓存数量", negativeCache.size());
+        stats.put("证券列表代码数", securityListFilter.isLoaded() ? securityListFilter.getCodeCount() : "未加载");
+        stats.putAll(l2Cache.getStats());
 
         return stats;
     }
 
     /**
      * 从东方财富API获取K线数据
+     * 两个市场前缀都确认无此代码时记入代码级负缓存，仅区间无成交时记入区间级负缓存；
+     * 没有拿到确定结果且存在请求失败时抛出异常，由调用方决定是否返回缓存旧数据
      */
-    private List<KLineData> fetchFromAPI(String stockCode, Date startDate, Date endDate, int klt) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
-            String beg = sdf.format(startDate);
-            String end = sdf.format(endDate);
-
-            // 尝试两种市场前缀
-            String[] marketPrefixes = {"1.", "0."}; // 1=沪市, 0=深市
-            List<KLineData> result = null;
-
-            for (String prefix : marketPrefixes) {
-                result = fetchWithMarketPrefix(prefix + stockCode, beg, end, klt);
-                if (result != null && !result.isEmpty()) {
-                    break;
+    private List<KLineData> fetchFromAPI(String stockCode, int startDay, int endDay, int klt)
+            throws UpstreamException {
+        String beg = EpochDays.formatBasic(startDay);
+        String end = EpochDays.formatBasic(endDay);
+
+        // 尝试两种市场前缀
+        String[] marketPrefixes = {"1.", "0."}; // 1=沪市, 0=深市
+        List<KLineData> result = null;
+        UpstreamException failure = null;
+
+        for (String prefix : marketPrefixes) {
+            try {
+                List<KLineData> prefixResult = fetchWithMarketPrefix(prefix + stockCode, beg, end, klt);
+                if (prefixResult != null) {
+                    result = prefixResult;
                 }
+            } catch (UpstreamException e) {
+                // 记录错误但继续尝试其他市场前缀
+                failure = e;
             }
+            if (result != null && !result.isEmpty()) {
+                break;
+            }
+        }
 
-            return result;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+        if (failure != null && (result == null || result.isEmpty())) {
+            throw failure;
+        }
+        if (result == null) {
+            negativeCache.put(stockCode);
+        } else if (result.isEmpty()) {
+            negativeCache.put(getRangeKey(stockCode, startDay, endDay, klt));
         }
+        return result;
     }
 
-    private List<KLineData> fetchWithMarketPrefix(String secid, String beg, String end, int klt) {
-        try {
-            String urlStr = "https://push2his.eastmoney.com/api/qt/stock/kline/get?" +
-                    "secid=" + secid +
-                    "&fields1=f1,f2,f3,f4,f5,f6" +
-                    "&fields2=f51,f52,f53,f54,f55,f56,f57,f58,f59,f60,f61" +
-                    "&klt=" + klt + // 101=日K线。102=周K线。103=月K线。104=季K 105=半年K 106=年K
-                    "&fqt=1" +   // 复权类型 1=前复权
-                    "&beg=" + beg +
-                    "&end=" + end;
-
-            URL url = new URL(urlStr);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(10000);
-
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream(), "UTF-8"));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+    /**
+     * 按指定复权类型请求某一天的K线，不记负缓存，没有时返回null
+     */
+    private KLineData fetchBar(String stockCode, int day, int klt, int fqt) throws UpstreamException {
+        String date = EpochDays.formatBasic(day);
+        for (String prefix : new String[]{"1.", "0."}) {
+            List<KLineData> bars = fetchWithMarketPrefix(prefix + stockCode, date, date, klt, fqt);
+            if (bars != null && !bars.isEmpty()) {
+                return bars.get(0);
             }
-            reader.close();
+        }
+        return null;
+    }
+
+    /**
+     * 按市场前缀请求K线，返回null表示该市场无此代码，空列表表示区间内无数据
+     */
+    private List<KLineData> fetchWithMarketPrefix(String secid, String beg, String end, int klt)
+            throws UpstreamException {
+        return fetchWithMarketPrefix(secid, beg, end, klt, 0);
+    }
+
+    private List<KLineData> fetchWithMarketPrefix(String secid, String beg, String end, int klt, int fqt)
+            throws UpstreamException {
+        String path = "/api/qt/stock/kline/get?" +
+                "secid=" + secid +
+                "&fields1=f1,f2,f3,f4,f5,f6" +
+                "&fields2=f51,f52,f53,f54,f55,f56,f57,f58,f59,f60,f61" +
+                "&klt=" + klt + // 1/5/15/30/60=分钟K线。101=日K线。102=周K线。103=月K线。104=季K 105=半年K 106=年K
+                "&fqt=" + fqt +   // 复权类型 0=不复权，复权价格由本地复权因子计算；2=后复权，仅用于锚定基准
+                "&beg=" + beg +
+                "&end=" + end;
 
-            JSONObject jsonResponse = JSON.parseObject(response.toString());
+        String response = upstreamClient.get(path);
+        try {
+            JSONObject jsonResponse = JSON.parseObject(response);
             if (jsonResponse.getInteger("rc") == 0) {
                 JSONObject data = jsonResponse.getJSONObject("data");
                 if (data != null) {
+                    if (data.getJSONArray("klines") == null) {
+                        return new ArrayList<>();
+                    }
                     List<String> klines = data.getJSONArray("klines").toJavaList(String.class);
                     return parseKLineData(klines, klt);
                 }
             }
-        } catch (Exception e) {
-            // 记录错误但继续尝试其他市场前缀
+            return null;
+        } catch (RuntimeException e) {
+            throw new UpstreamException("解析K线响应失败: " + e.getMessage(), e);
         }
-        return null;
     }
 
     /**
@@ -259,8 +873,8 @@ public class KLineDaoImpl implements KLineDao {
     /**
      * 获取周期的缓存
      */
-    private Map<String, KLineData> getPeriodCache(String stockCode, int klt) {
-        Map<Integer, Map<String, KLineData>> stockCache = cacheMap.get(stockCode);
+    private SeriesSnapshot getPeriodCache(String stockCode, int klt) {
+        Map<Integer, SeriesSnapshot> stockCache = cacheMap.get(stockCode);
         if (stockCache == null) {
             return null;
         }
@@ -268,65 +882,144 @@ public class KLineDaoImpl implements KLineDao {
     }
 
     /**
-     * 更新缓存
+     * 更新缓存：在当前快照上合并新K线及其获取区间得到新版本后整体替换，同一序列的写入由compute串行化
      */
-    private void updateCache(String stockCode, int klt, List<KLineData> newData) {
-        Map<Integer, Map<String, KLineData>> stockCache =
+    private SeriesSnapshot updateCache(String stockCode, int klt, SeriesSnapshot newData) {
+        Map<Integer, SeriesSnapshot> stockCache =
                 cacheMap.computeIfAbsent(stockCode, k -> new ConcurrentHashMap<>());
 
-        Map<String, KLineData> periodCache =
-                stockCache.computeIfAbsent(klt, k -> new ConcurrentHashMap<>());
+        SeriesSnapshot published = stockCache.compute(klt,
+                (k, current) -> (current == null ? SeriesSnapshot.EMPTY : current).merge(newData));
+
+        // 新K线可能带来除权事件，只需重算复权因子，历史K线无需重新获取
+        String stockKey = getStockKey(stockCode, klt);
+        factorMap.put(stockKey, rebuildFactors(stockKey, published));
+        indicatorMap.put(stockKey, SeriesIndicators.fromData(published.ascending()));
+        liveBaseMap.remove(stockKey);
+        return published;
+    }
 
-        for (KLineData data : newData) {
-            String dateKey = dateFormat.format(data.getDate());
-            periodCache.put(dateKey, data);
+    /**
+     * 按快照重算复权因子，锚定日仍在序列中时沿用已有的后复权锚定
+     */
+    private AdjustmentFactors rebuildFactors(String stockKey, SeriesSnapshot snapshot) {
+        AdjustmentFactors factors = AdjustmentFactors.fromSnapshot(snapshot);
+        AdjustmentFactors previous = factorMap.get(stockKey);
+        if (previous != null && previous.hasHfqAnchor() && snapshot.contains(previous.getHfqAnchorDay())) {
+            factors = factors.withHfqAnchor(previous.getHfqAnchorDay(), previous.getHfqAnchorFactor());
         }
+        return factors;
     }
 
     /**
-     * 从缓存中筛选指定日期范围的数据
+     * 计算当前周期K线中今日之前的部分
+     * 缓存中已有今日K线时（盘中获取过数据），其中已含今日成交，需改由日K线重新聚合；
+     * 日K线未覆盖本周期起始日时无法计算，返回null
      */
-    private List<KLineData> filterDataByDateRange(Map<String, KLineData> stockCache,
-                                                  Date startDate, Date endDate) {
-        List<KLineData> result = new ArrayList<>();
+    private LiveBarBase computeLiveBase(String stockCode, int klt, SeriesSnapshot periodCache,
+                                        KLineData todayBar) {
+        int sessionDay = todayBar.getEpochDay();
+        LocalDate today = LocalDate.ofEpochDay(sessionDay);
 
-        for (KLineData data : stockCache.values()) {
-            if (!data.getDate().before(startDate) && !data.getDate().after(endDate)) {
-                result.add(data);
+        KLineData previousBar = periodCache.lower(sessionDay);
+        boolean previousInPeriod = previousBar != null
+                && PeriodCalendar.isSamePeriod(previousBar.getLocalDate(), today, klt);
+
+        if (!periodCache.contains(sessionDay)) {
+            if (previousInPeriod) {
+                return LiveBarBase.fromPeriodBar(sessionDay, previousBar, previousBar.getEpochDay());
             }
+            return LiveBarBase.newPeriod(sessionDay);
         }
 
-        // 按日期排序（最新的在前）
-        result.sort((a, b) -> b.getDate().compareTo(a.getDate()));
-        return result;
+        int periodStart = EpochDays.of(PeriodCalendar.periodStart(today, klt));
+        SeriesSnapshot dailyCache = getPeriodCache(stockCode, 101);
+        if (dailyCache == null || dailyCache.isEmpty() || dailyCache.firstDay() > periodStart) {
+            return null;
+        }
+        List<KLineData> dailyBars = dailyCache.ascendingRange(periodStart, sessionDay);
+        double lastClose = (previousBar != null && !previousInPeriod) ? previousBar.getClose()
+                : (dailyBars.isEmpty() ? todayBar.getLastClose() : dailyBars.get(0).getLastClose());
+        return LiveBarBase.fromDailyBars(sessionDay, dailyBars, lastClose);
     }
 
     /**
-     * 检查缓存是否完整覆盖请求范围
+     * 按复权类型转换不复权K线
      */
-    private boolean isCacheComplete(Map<String, KLineData> stockCache, Date startDate, Date endDate) {
-        if (stockCache == null || stockCache.isEmpty()) {
-            return false;
-        }
+    private KLineData adjust(String stockCode, int klt, KLineData rawData, AdjustType adjustType) {
+        AdjustmentFactors factors = getFactors(stockCode, klt, adjustType);
+        return rawData == null || factors == null ? rawData : factors.apply(rawData, adjustType);
+    }
 
-        Date earliestCacheDate = null;
-        Date latestCacheDate = null;
+    private List<KLineData> adjust(String stockCode, int klt, List<KLineData> rawData, AdjustType adjustType) {
+        AdjustmentFactors factors = getFactors(stockCode, klt, adjustType);
+        if (rawData == null || factors == null || adjustType == AdjustType.NONE) {
+            return rawData;
+        }
+        List<KLineData> result = new ArrayList<>(rawData.size());
+        for (KLineData data : rawData) {
+            result.add(factors.apply(data, adjustType));
+        }
+        return Collections.unmodifiableList(result);
+    }
 
-        for (KLineData data : stockCache.values()) {
-            Date dataDate = data.getDate();
-            if (earliestCacheDate == null || dataDate.before(earliestCacheDate)) {
-                earliestCacheDate = dataDate;
-            }
-            if (latestCacheDate == null || dataDate.after(latestCacheDate)) {
-                latestCacheDate = dataDate;
+    /**
+     * 取复权因子，后复权首次使用时向上游取一根后复权K线锚定基准
+     */
+    private AdjustmentFactors getFactors(String stockCode, int klt, AdjustType adjustType) {
+        String stockKey = getStockKey(stockCode, klt);
+        AdjustmentFactors factors = factorMap.get(stockKey);
+        if (factors == null || adjustType != AdjustType.HFQ || factors.hasHfqAnchor()) {
+            return factors;
+        }
+        SeriesSnapshot periodCache = getPeriodCache(stockCode, klt);
+        if (periodCache == null || periodCache.isEmpty() || !upstreamClient.isAvailable()) {
+            return factors;
+        }
+        // 盘中的今日K线还在变化，锚定在今日之前最近的一根K线上
+        int today = EpochDays.of(LocalDate.now());
+        int index = periodCache.floorIndex(today - 1);
+        KLineData raw = periodCache.barAt(index >= 0 ? index : periodCache.size() - 1);
+        int anchorDay = raw.getEpochDay();
+        try {
+            KLineData hfq = fetchBar(stockCode, anchorDay, klt, 2);
+            if (hfq == null || hfq.getClose() == null || raw.getClose() == null || raw.getClose() <= 0) {
+                return factors;
             }
+            double anchorFactor = hfq.getClose() / raw.getClose();
+            AdjustmentFactors anchored = factorMap.computeIfPresent(stockKey,
+                    (k, current) -> current.withHfqAnchor(anchorDay, anchorFactor));
+            return anchored == null ? factors : anchored;
+        } catch (UpstreamException e) {
+            // 上游不可用时以序列首根K线为基准，下次读取再锚定
+            return factors;
         }
+    }
 
-        if (earliestCacheDate == null || latestCacheDate == null) {
+    /**
+     * 检查缓存是否完整覆盖请求范围：请求范围到最新K线之间都在同一段获取区间内
+     */
+    private boolean isCacheComplete(SeriesSnapshot stockCache, int startDay, int endDay) {
+        if (stockCache == null || stockCache.isEmpty()) {
             return false;
         }
+        return stockCache.getCoverage().covers(startDay, Math.max(endDay, stockCache.lastDay()));
+    }
 
-        return !startDate.before(earliestCacheDate) && !endDate.after(latestCacheDate);
+    /**
+     * 回填区间是否已有完整数据：起止日收窄到交易日，结束日取已收盘的最后一个交易日，
+     * 该交易日须在获取区间内且已有K线（开盘前获取的当天在获取区间内但还没有K线）
+     */
+    private boolean isBackfillComplete(SeriesSnapshot periodCache, int startDay, int endDay) {
+        int firstDay = startDay;
+        while (isWeekend(firstDay)) {
+            firstDay++;
+        }
+        int lastDay = lastClosedTradingDay(endDay, LocalDateTime.now());
+        if (lastDay < firstDay) {
+            return isCacheComplete(periodCache, startDay, endDay);
+        }
+        return isCacheComplete(periodCache, firstDay, lastDay) && periodCache.lastDay() >= lastDay;
     }
 
     /**
@@ -349,6 +1042,11 @@ public class KLineDaoImpl implements KLineDao {
      */
     private String getPeriodName(int klt) {
         switch (klt) {
+            case 1: return "1分钟K";
+            case 5: return "5分钟K";
+            case 15: return "15分钟K";
+            case 30: return "30分钟K";
+            case 60: return "60分钟K";
             case 101: return "日K";
             case 102: return "周K";
             case 103: return "月K";
@@ -359,6 +1057,13 @@ public class KLineDaoImpl implements KLineDao {
         }
     }
 
+    /**
+     * 生成负缓存的区间键
+     */
+    private String getRangeKey(String stockCode, int startDay, int endDay, int klt) {
+        return getStockKey(stockCode, klt) + "_" + startDay + "_" + endDay;
+    }
+
     /**
      * 生成股票缓存键
      */
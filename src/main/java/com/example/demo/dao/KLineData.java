@@ -1,10 +1,10 @@
 package com.example.demo.dao;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.annotation.JSONField;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDate;
 import java.util.Date;
 
 
@@ -63,7 +63,10 @@ public class KLineData {
     public KLineData(String klineStr, int klt) {
         String[] parts = klineStr.split(",");
         if (parts.length >= 11) {
-            this.date = java.sql.Date.valueOf(parts[0]);
+            // 分钟K线的日期带时分，如 2025-04-01 09:31
+            this.date = parts[0].length() > 10
+                    ? java.sql.Timestamp.valueOf(parts[0] + ":00")
+                    : java.sql.Date.valueOf(parts[0]);
             this.open = Double.parseDouble(parts[1]);
             this.close = Double.parseDouble(parts[2]);
             this.high = Double.parseDouble(parts[3]);
@@ -79,8 +82,26 @@ public class KLineData {
         }
     }
 
+    /**
+     * 所属交易日的纪元日，用作缓存键
+     */
+    @JSONField(serialize = false, deserialize = false)
+    public int getEpochDay() {
+        return EpochDays.of(date);
+    }
+
+    @JSONField(serialize = false, deserialize = false)
+    public LocalDate getLocalDate() {
+        return LocalDate.ofEpochDay(getEpochDay());
+    }
+
     public String getPeriodName() {
         switch (klt) {
+            case 1: return "1分钟K";
+            case 5: return "5分钟K";
+            case 15: return "15分钟K";
+            case 30: return "30分钟K";
+            case 60: return "60分钟K";
             case 101: return "日K";
             case 102: return "周K";
             case 103: return "月K";
@@ -93,6 +114,6 @@ public class KLineData {
 
     @Override
     public String toString() {
-        return JSON.toJSONString(this);
+        return KLineJsonWriter.toJson(this);
     }
 }
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.example.demo.dao;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * K线JSON序列化
+ * 按固定字段顺序直接写入线程内复用的StringBuilder，不经过反射；
+ * 输出与FastJson对KLineData的序列化结果一致（f51~f61字段名、按字段名排序、省略null），但没有缩进。
+ */
+public final class KLineJsonWriter {
+
+    private static final int MAX_POOLED_CAPACITY = 1 << 20;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+
+    private KLineJsonWriter() {
+    }
+
+    public static String toJson(KLineData data) {
+        StringBuilder out = borrow();
+        write(data, out);
+        return release(out);
+    }
+
+    public static String toJson(List<KLineData> data) {
+        StringBuilder out = borrow();
+        out.append('[');
+        for (int i = 0; i < data.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            write(data.get(i), out);
+        }
+        out.append(']');
+        return release(out);
+    }
+
+    public static void write(KLineData data, StringBuilder out) {
+        int start = out.length();
+        out.append('{');
+        if (data.getDate() != null) {
+            out.append("\"f51\":\"");
+            appendDate(data.getDate(), data.getKlt() != null && data.getKlt() < 101, out);
+            out.append("\",");
+        }
+        field(out, "f52", data.getOpen());
+        field(out, "f53", data.getClose());
+        field(out, "f54", data.getHigh());
+        field(out, "f55", data.getLow());
+        if (data.getVolume() != null) {
+            out.append("\"f56\":").append(data.getVolume().longValue()).append(',');
+        }
+        field(out, "f57", data.getAmount());
+        field(out, "f58", data.getAmplitude());
+        field(out, "f59", data.getChangeRate());
+        field(out, "f60", data.getChangeAmount());
+        field(out, "f61", data.getTurnoverRate());
+        if (data.getKlt() != null) {
+            out.append("\"klt\":").append(data.getKlt().intValue()).append(',');
+        }
+        field(out, "lastClose", data.getLastClose());
+        if (data.getKlt() != null) {
+            out.append("\"periodName\":\"").append(data.getPeriodName()).append("\",");
+        }
+        if (out.length() - start > 1) {
+            out.setLength(out.length() - 1);
+        }
+        out.append('}');
+    }
+
+    private static void field(StringBuilder out, String name, Double value) {
+        if (value != null) {
+            out.append('"').append(name).append("\":");
+            appendDouble(value, out);
+            out.append(',');
+        }
+    }
+
+    /**
+     * 写入浮点数，NaN和无穷写为null（与FastJson一致，保证输出是合法JSON）
+     */
+    public static void appendDouble(double value, StringBuilder out) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else {
+            out.append(value);
+        }
+    }
+
+    /**
+     * 写入带引号的字符串，转义引号、反斜杠和控制字符
+     */
+    public static void appendString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * 日K及以上写 yyyy-MM-dd，分钟K线写 yyyy-MM-dd HH:mm
+     */
+    private static void appendDate(Date date, boolean withTime, StringBuilder out) {
+        // java.sql.Date不支持toInstant，统一按毫秒数转换
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault());
+        out.append(time.getYear()).append('-');
+        twoDigits(time.getMonthValue(), out);
+        out.append('-');
+        twoDigits(time.getDayOfMonth(), out);
+        if (withTime) {
+            out.append(' ');
+            twoDigits(time.getHour(), out);
+            out.append(':');
+            twoDigits(time.getMinute(), out);
+        }
+    }
+
+    private static void twoDigits(int value, StringBuilder out) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static StringBuilder borrow() {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        return out;
+    }
+
+    /**
+     * 取出结果；超大的缓冲区不留在线程里，避免长期占用内存
+     */
+    private static String release(StringBuilder out) {
+        String result = out.toString();
+        if (out.capacity() > MAX_POOLED_CAPACITY) {
+            BUFFER.set(new StringBuilder(4096));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * K线二级缓存，多个实例共享
+ * 以(股票代码, 周期)为单位存取不复权的K线序列及其获取区间，内存缓存未命中时先查二级缓存再访问上游；
+ * 今日K线变化时定期写回并发布失效通知，其他实例收到后丢弃内存中的旧序列，下次读取时重新加载。
+ */
+public interface KLineL2Cache {
+
+    /**
+     * 未配置二级缓存
+     */
+    KLineL2Cache NONE = new KLineL2Cache() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public SeriesSnapshot load(String stockCode, int klt) {
+            return null;
+        }
+
+        @Override
+        public Map<String, SeriesSnapshot> loadAll(Collection<String> stockCodes, int klt) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void save(String stockCode, int klt, SeriesSnapshot snapshot) {
+        }
+
+        @Override
+        public void publishInvalidation(String stockCode, int klt) {
+        }
+
+        @Override
+        public void subscribe(BiConsumer<String, Integer> listener) {
+        }
+
+        @Override
+        public Map<String, Object> getStats() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    boolean isEnabled();
+
+    /**
+     * 读取整个序列，不存在或二级缓存不可用时返回null
+     */
+    SeriesSnapshot load(String stockCode, int klt);
+
+    /**
+     * 批量读取多个代码的同一周期，只返回存在的序列
+     */
+    Map<String, SeriesSnapshot> loadAll(Collection<String> stockCodes, int klt);
+
+    /**
+     * 写入序列：与已有序列合并，本次快照获取区间内的K线以本次为准，区间外保留已有K线
+     */
+    void save(String stockCode, int klt, SeriesSnapshot snapshot);
+
+    /**
+     * 通知其他实例该序列已变化
+     */
+    void publishInvalidation(String stockCode, int klt);
+
+    /**
+     * 接收其他实例发布的失效通知，回调参数为(股票代码, 周期)
+     */
+    void subscribe(BiConsumer<String, Integer> listener);
+
+    Map<String, Object> getStats();
+
+    void close();
+}
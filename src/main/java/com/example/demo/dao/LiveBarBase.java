@@ -0,0 +1,97 @@
+package com.example.demo.dao;
+
+import java.util.List;
+
+/**
+ * 盘中实时更新时，当前周期K线中今日之前的部分
+ * 每个交易日每个(股票代码, 周期)只计算一次，之后每次行情只需与今日K线合并。
+ */
+class LiveBarBase {
+
+    private final long sessionDay;   // 所属交易日（纪元日）
+    private final Integer replacedKey; // 合并后需移除的旧K线缓存键（纪元日），可为null
+    private final boolean hasBars;   // 本周期今日之前是否已有交易日
+    private double open;
+    private double high;
+    private double low;
+    private long volume;
+    private double amount;
+    private double turnoverRate;
+    private final double lastClose;  // 上一周期收盘价（新周期时取今日K线的昨收）
+
+    private LiveBarBase(long sessionDay, Integer replacedKey, boolean hasBars, double lastClose) {
+        this.sessionDay = sessionDay;
+        this.replacedKey = replacedKey;
+        this.hasBars = hasBars;
+        this.lastClose = lastClose;
+    }
+
+    /**
+     * 今日开启新的周期K线
+     */
+    static LiveBarBase newPeriod(long sessionDay) {
+        return new LiveBarBase(sessionDay, null, false, 0);
+    }
+
+    /**
+     * 以缓存中今日之前的周期K线为基础
+     */
+    static LiveBarBase fromPeriodBar(long sessionDay, KLineData bar, Integer replacedKey) {
+        LiveBarBase base = new LiveBarBase(sessionDay, replacedKey, true, bar.getLastClose());
+        base.open = bar.getOpen();
+        base.high = bar.getHigh();
+        base.low = bar.getLow();
+        base.volume = bar.getVolume();
+        base.amount = bar.getAmount();
+        base.turnoverRate = bar.getTurnoverRate();
+        return base;
+    }
+
+    /**
+     * 由本周期内今日之前的日K线（升序）聚合
+     */
+    static LiveBarBase fromDailyBars(long sessionDay, List<KLineData> dailyBars, double lastClose) {
+        if (dailyBars.isEmpty()) {
+            return newPeriod(sessionDay);
+        }
+        LiveBarBase base = new LiveBarBase(sessionDay, null, true, lastClose);
+        base.open = dailyBars.get(0).getOpen();
+        base.high = -Double.MAX_VALUE;
+        base.low = Double.MAX_VALUE;
+        for (KLineData bar : dailyBars) {
+            base.high = Math.max(base.high, bar.getHigh());
+            base.low = Math.min(base.low, bar.getLow());
+            base.volume += bar.getVolume();
+            base.amount += bar.getAmount();
+            base.turnoverRate += bar.getTurnoverRate();
+        }
+        return base;
+    }
+
+    /**
+     * 合并今日K线，得到当前周期K线
+     */
+    KLineData merge(KLineData todayBar, int klt) {
+        KLineData result = new KLineData();
+        result.setDate(todayBar.getDate());
+        result.setKlt(klt);
+        result.setClose(todayBar.getClose());
+        result.setOpen(hasBars ? open : todayBar.getOpen());
+        result.setHigh(hasBars ? Math.max(high, todayBar.getHigh()) : todayBar.getHigh());
+        result.setLow(hasBars ? Math.min(low, todayBar.getLow()) : todayBar.getLow());
+        result.setVolume(volume + todayBar.getVolume());
+        result.setAmount(amount + todayBar.getAmount());
+        result.setTurnoverRate(Math.round((turnoverRate + todayBar.getTurnoverRate()) * 100) / 100.0);
+
+        double prevClose = hasBars ? lastClose : todayBar.getLastClose();
+        result.setLastClose(prevClose);
+        result.setChangeAmount(Math.round((result.getClose() - prevClose) * 1000) / 1000.0);
+        result.setChangeRate(prevClose == 0 ? 0 : Math.round(result.getChangeAmount() / prevClose * 10000) / 100.0);
+        result.setAmplitude(prevClose == 0 ? 0
+                : Math.round((result.getHigh() - result.getLow()) / prevClose * 10000) / 100.0);
+        return result;
+    }
+
+    long getSessionDay() { return sessionDay; }
+    Integer getReplacedKey() { return replacedKey; }
+}
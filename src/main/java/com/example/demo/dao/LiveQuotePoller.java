@@ -0,0 +1,159 @@
+package com.example.demo.dao;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 盘中实时行情轮询
+ * 交易时段内批量拉取关注代码的最新行情，转换为今日日K线后交给DAO修正缓存中的最新K线，
+ * 每次行情只更新各序列的最后一根K线，无需重新下载历史数据。
+ */
+@Service
+@Lazy(false) // 含定时任务，开启懒加载时仍需启动时创建
+public class LiveQuotePoller {
+
+    private static final LocalTime SESSION_START = LocalTime.of(9, 15);
+    private static final LocalTime SESSION_END = LocalTime.of(15, 5);
+
+    @Autowired
+    private KLineDao kLineDao;
+
+    @Value("${kline.live.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 需要实时更新的代码，逗号分隔
+     */
+    @Value("${kline.live.codes:}")
+    private String codes;
+
+    @Scheduled(fixedDelayString = "${kline.live.interval-ms:3000}")
+    public void poll() {
+        if (!enabled || codes == null || codes.trim().isEmpty() || !isTradingTime(LocalDateTime.now())) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, KLineData> entry : fetchTodayBars(codes.split(",")).entrySet()) {
+                kLineDao.patchLatestBar(entry.getKey(), entry.getValue());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 批量获取最新行情并转换为今日日K线（不复权），返回Map<股票代码, 今日K线>
+     */
+    public Map<String, KLineData> fetchTodayBars(String[] stockCodes) throws Exception {
+        StringBuilder secids = new StringBuilder();
+        for (String code : stockCodes) {
+            if (code.trim().isEmpty()) {
+                continue;
+            }
+            if (secids.length() > 0) {
+                secids.append(',');
+            }
+            secids.append(getMarketPrefix(code.trim())).append(code.trim());
+        }
+
+        String urlStr = "https://push2.eastmoney.com/api/qt/ulist.np/get?" +
+                "fltt=2" +   // 返回实际价格而非放大后的整数
+                "&secids=" + secids +
+                // f12代码 f2最新价 f3涨跌幅 f4涨跌额 f5成交量 f6成交额 f7振幅 f8换手率
+                // f15最高 f16最低 f17今开 f18昨收 f124更新时间
+                "&fields=f12,f2,f3,f4,f5,f6,f7,f8,f15,f16,f17,f18,f124";
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(urlStr).openConnection();
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(3000);
+        connection.setReadTimeout(3000);
+
+        StringBuilder response = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                response.append(line);
+            }
+        }
+
+        Map<String, KLineData> result = new LinkedHashMap<>();
+        JSONObject data = JSON.parseObject(response.toString()).getJSONObject("data");
+        if (data == null || data.getJSONArray("diff") == null) {
+            return result;
+        }
+        JSONArray diff = data.getJSONArray("diff");
+        for (int i = 0; i < diff.size(); i++) {
+            KLineData bar = parseQuote(diff.getJSONObject(i));
+            if (bar != null) {
+                result.put(diff.getJSONObject(i).getString("f12"), bar);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 行情转换为今日K线，未开盘或停牌（字段为"-"）时返回null
+     */
+    private KLineData parseQuote(JSONObject quote) {
+        try {
+            KLineData bar = new KLineData();
+            LocalDate day = LocalDate.ofInstant(Instant.ofEpochSecond(quote.getLong("f124")), ZoneId.systemDefault());
+            bar.setDate(java.sql.Date.valueOf(day));
+            bar.setClose(quote.getDouble("f2"));
+            bar.setChangeRate(quote.getDouble("f3"));
+            bar.setChangeAmount(quote.getDouble("f4"));
+            bar.setVolume(quote.getLong("f5"));
+            bar.setAmount(quote.getDouble("f6"));
+            bar.setAmplitude(quote.getDouble("f7"));
+            bar.setTurnoverRate(quote.getDouble("f8"));
+            bar.setHigh(quote.getDouble("f15"));
+            bar.setLow(quote.getDouble("f16"));
+            bar.setOpen(quote.getDouble("f17"));
+            bar.setLastClose(quote.getDouble("f18"));
+            bar.setKlt(101);
+            return bar.getVolume() == null || bar.getVolume() == 0 ? null : bar;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按代码推断市场前缀：5/6/9开头为沪市，其余为深市
+     */
+    static String getMarketPrefix(String stockCode) {
+        char first = stockCode.charAt(0);
+        return (first == '5' || first == '6' || first == '9') ? "1." : "0.";
+    }
+
+    /**
+     * 是否处于交易时段（含集合竞价）
+     */
+    static boolean isTradingTime(LocalDateTime now) {
+        DayOfWeek day = now.getDayOfWeek();
+        if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY) {
+            return false;
+        }
+        LocalTime time = now.toLocalTime();
+        return !time.isBefore(SESSION_START) && !time.isAfter(SESSION_END);
+    }
+}
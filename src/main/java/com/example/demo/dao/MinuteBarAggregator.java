@@ -0,0 +1,78 @@
+package com.example.demo.dao;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Collection;
+
+/**
+ * 分钟K线聚合工具
+ * 按A股交易时段（09:30-11:30, 13:00-15:00）将1分钟K线聚合为5/15/30/60分钟K线，
+ * K线时间以周期结束时刻标记，与东方财富接口一致。
+ */
+public class MinuteBarAggregator {
+
+    private static final LocalTime MORNING_OPEN = LocalTime.of(9, 30);
+    private static final LocalTime AFTERNOON_OPEN = LocalTime.of(13, 0);
+    private static final LocalTime NOON = LocalTime.of(12, 0);
+
+    private MinuteBarAggregator() {}
+
+    /**
+     * 计算1分钟K线所属的N分钟K线结束时刻
+     */
+    public static long bucketEnd(long minuteTime, int period) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(minuteTime), zone);
+        LocalTime sessionOpen = time.toLocalTime().isBefore(NOON) ? MORNING_OPEN : AFTERNOON_OPEN;
+        LocalDateTime open = time.toLocalDate().atTime(sessionOpen);
+
+        // 开盘集合竞价K线（09:30）归入第一根
+        long minutes = Math.max(1, Duration.between(open, time).toMinutes());
+        long bucket = (minutes + period - 1) / period * period;
+        return open.plusMinutes(bucket).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 合并同一周期内的1分钟K线（需按时间升序）
+     */
+    public static KLineData merge(Collection<KLineData> minuteBars, long bucketEnd, int period) {
+        KLineData result = null;
+        for (KLineData bar : minuteBars) {
+            if (result == null) {
+                result = new KLineData();
+                result.setDate(new java.sql.Timestamp(bucketEnd));
+                result.setKlt(period);
+                result.setOpen(bar.getOpen());
+                result.setHigh(bar.getHigh());
+                result.setLow(bar.getLow());
+                result.setLastClose(bar.getLastClose());
+                result.setVolume(0L);
+                result.setAmount(0.0);
+                result.setTurnoverRate(0.0);
+            }
+            result.setClose(bar.getClose());
+            result.setHigh(Math.max(result.getHigh(), bar.getHigh()));
+            result.setLow(Math.min(result.getLow(), bar.getLow()));
+            result.setVolume(result.getVolume() + bar.getVolume());
+            result.setAmount(result.getAmount() + bar.getAmount());
+            result.setTurnoverRate(result.getTurnoverRate() + bar.getTurnoverRate());
+        }
+        if (result == null) {
+            return null;
+        }
+
+        double lastClose = result.getLastClose();
+        result.setChangeAmount(round(result.getClose() - lastClose, 1000));
+        result.setChangeRate(lastClose == 0 ? 0 : round(result.getChangeAmount() / lastClose * 100, 100));
+        result.setAmplitude(lastClose == 0 ? 0 : round((result.getHigh() - result.getLow()) / lastClose * 100, 100));
+        result.setTurnoverRate(round(result.getTurnoverRate(), 100));
+        return result;
+    }
+
+    private static double round(double value, double scale) {
+        return Math.round(value * scale) / scale;
+    }
+}
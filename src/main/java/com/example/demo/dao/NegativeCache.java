@@ -0,0 +1,53 @@
+package com.example.demo.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 负缓存：记录一段时间内确认无数据的请求，避免重复访问上游接口
+ */
+public class NegativeCache {
+
+    private final Map<String, Long> expiryMap = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    public NegativeCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 记录无数据的键
+     */
+    public void put(String key) {
+        if (ttlMillis > 0) {
+            expiryMap.put(key, System.currentTimeMillis() + ttlMillis);
+        }
+    }
+
+    /**
+     * 判断键是否处于负缓存有效期内，过期则顺带清除
+     */
+    public boolean contains(String key) {
+        Long expiry = expiryMap.get(key);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry < System.currentTimeMillis()) {
+            expiryMap.remove(key, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    public void remove(String key) {
+        expiryMap.remove(key);
+    }
+
+    public void clear() {
+        expiryMap.clear();
+    }
+
+    public int size() {
+        return expiryMap.size();
+    }
+}
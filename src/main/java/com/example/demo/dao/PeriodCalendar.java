@@ -0,0 +1,35 @@
+package com.example.demo.dao;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+
+/**
+ * K线周期日历工具，判断两个交易日是否属于同一根周期K线
+ */
+public class PeriodCalendar {
+
+    private PeriodCalendar() {}
+
+    /**
+     * 获取日期所在周期的起始日
+     */
+    public static LocalDate periodStart(LocalDate date, int klt) {
+        switch (klt) {
+            case 102: return date.with(DayOfWeek.MONDAY);
+            case 103: return date.withDayOfMonth(1);
+            case 104: return date.withMonth((date.getMonthValue() - 1) / 3 * 3 + 1).withDayOfMonth(1);
+            case 105: return date.withMonth(date.getMonthValue() <= 6 ? 1 : 7).withDayOfMonth(1);
+            case 106: return date.withDayOfYear(1);
+            default: return date;
+        }
+    }
+
+    public static boolean isSamePeriod(LocalDate a, LocalDate b, int klt) {
+        if (klt == 102) {
+            return a.get(IsoFields.WEEK_BASED_YEAR) == b.get(IsoFields.WEEK_BASED_YEAR)
+                    && a.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR) == b.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+        }
+        return periodStart(a, klt).equals(periodStart(b, klt));
+    }
+}
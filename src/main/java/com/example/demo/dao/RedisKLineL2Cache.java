@@ -0,0 +1,297 @@
+package com.example.demo.dao;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 基于Redis的K线二级缓存
+ * 每个(股票代码, 周期)一个键，值为KLineBlockCodec编码的列式二进制；写入时与已有序列合并（乐观事务），
+ * 批量读取按批次拆成MGET，
+ * 所有批次写入同一连接后一次发出（管道），只需一次网络往返。
+ * 失效通知通过PUBLISH发布，消息带发布方实例标识，实例忽略自己发布的通知。
+ * Redis不可用时读取返回null、写入忽略，由熔断器避免每次请求都等待超时。
+ */
+public class RedisKLineL2Cache implements KLineL2Cache {
+
+    public static final String KEY_PREFIX = "kline:";
+    public static final String INVALIDATION_CHANNEL = "kline:invalidate";
+    private static final int SAVE_ATTEMPTS = 3;
+
+    private final String host;
+    private final int port;
+    private final String password;
+    private final int database;
+    private final int timeoutMillis;
+    private final int ttlSeconds;
+    private final int batchSize;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final ConcurrentLinkedQueue<RespConnection> idleConnections = new ConcurrentLinkedQueue<>();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 10_000);
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+    private final LongAdder conflictCount = new LongAdder();
+    private volatile RespConnection subscription;
+    private volatile boolean closed;
+
+    /**
+     * @param url        redis://[:密码@]主机:端口[/库号]
+     * @param ttlSeconds 序列过期时间，0为不过期
+     * @param batchSize  每条MGET的键数
+     */
+    public RedisKLineL2Cache(String url, int timeoutMillis, int ttlSeconds, int batchSize) {
+        URI uri = URI.create(url.contains("://") ? url.trim() : "redis://" + url.trim());
+        this.host = uri.getHost();
+        this.port = uri.getPort() > 0 ? uri.getPort() : 6379;
+        String userInfo = uri.getUserInfo();
+        this.password = userInfo == null ? null : userInfo.substring(userInfo.indexOf(':') + 1);
+        String path = uri.getPath();
+        this.database = path == null || path.length() <= 1 ? 0 : Integer.parseInt(path.substring(1));
+        this.timeoutMillis = timeoutMillis;
+        this.ttlSeconds = ttlSeconds;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public SeriesSnapshot load(String stockCode, int klt) {
+        byte[] block = execute(connection -> (byte[]) connection.call("GET", key(stockCode, klt)));
+        return decode(block);
+    }
+
+    @Override
+    public Map<String, SeriesSnapshot> loadAll(Collection<String> stockCodes, int klt) {
+        List<String> codes = new ArrayList<>(stockCodes);
+        Map<String, SeriesSnapshot> result = new HashMap<>();
+        if (codes.isEmpty()) {
+            return result;
+        }
+        List<Object> replies = execute(connection -> {
+            for (int from = 0; from < codes.size(); from += batchSize) {
+                List<Object> args = new ArrayList<>();
+                args.add("MGET");
+                for (String code : codes.subList(from, Math.min(codes.size(), from + batchSize))) {
+                    args.add(key(code, klt));
+                }
+                connection.write(args.toArray());
+            }
+            connection.flush();
+            List<Object> values = new ArrayList<>(codes.size());
+            for (int from = 0; from < codes.size(); from += batchSize) {
+                values.addAll((List<?>) connection.read());
+            }
+            return values;
+        });
+        if (replies == null) {
+            return result;
+        }
+        for (int i = 0; i < codes.size(); i++) {
+            SeriesSnapshot data = decode((byte[]) replies.get(i));
+            if (data != null) {
+                result.put(codes.get(i), data);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 与已有序列合并后写入：WATCH键后读出已有序列，以本次快照为准合并，在MULTI/EXEC中写回；
+     * 期间键被其他实例修改时EXEC返回空，重新读取合并，最多重试SAVE_ATTEMPTS次
+     */
+    @Override
+    public void save(String stockCode, int klt, SeriesSnapshot snapshot) {
+        String key = key(stockCode, klt);
+        execute(connection -> {
+            for (int attempt = 0; attempt < SAVE_ATTEMPTS; attempt++) {
+                connection.call("WATCH", key);
+                SeriesSnapshot merged = snapshot;
+                byte[] existing = (byte[]) connection.call("GET", key);
+                if (existing != null) {
+                    try {
+                        merged = KLineBlockCodec.decodeSnapshot(existing).overlay(snapshot);
+                    } catch (RuntimeException e) {
+                        // 已有值无法解码时直接覆盖
+                        failureCount.increment();
+                    }
+                }
+                byte[] block = KLineBlockCodec.encode(merged, klt);
+                connection.call("MULTI");
+                if (ttlSeconds > 0) {
+                    connection.call("SET", key, block, "EX", ttlSeconds);
+                } else {
+                    connection.call("SET", key, block);
+                }
+                if (connection.call("EXEC") != null) {
+                    return null;
+                }
+                conflictCount.increment();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void publishInvalidation(String stockCode, int klt) {
+        execute(connection -> connection.call("PUBLISH", INVALIDATION_CHANNEL,
+                instanceId + " " + stockCode + " " + klt));
+    }
+
+    /**
+     * 启动后台线程订阅失效通知，连接断开后每秒重连一次
+     */
+    @Override
+    public void subscribe(BiConsumer<String, Integer> listener) {
+        Thread thread = new Thread(() -> {
+            while (!closed) {
+                try (RespConnection connection = connect()) {
+                    subscription = connection;
+                    connection.call("SUBSCRIBE", INVALIDATION_CHANNEL);
+                    connection.setReadTimeout(0);
+                    while (!closed) {
+                        onMessage(connection.read(), listener);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (!closed) {
+                        failureCount.increment();
+                        sleepQuietly(1000);
+                    }
+                }
+            }
+        }, "kline-l2-subscriber");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void onMessage(Object reply, BiConsumer<String, Integer> listener) {
+        if (!(reply instanceof List) || ((List<?>) reply).size() != 3
+                || !"message".equals(text(((List<?>) reply).get(0)))) {
+            return;
+        }
+        String[] parts = text(((List<?>) reply).get(2)).split(" ");
+        if (parts.length != 3 || parts[0].equals(instanceId)) {
+            return;
+        }
+        invalidationCount.increment();
+        listener.accept(parts[1], Integer.parseInt(parts[2]));
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("二级缓存地址", host + ":" + port + "/" + database);
+        stats.put("二级缓存命中", hitCount.sum());
+        stats.put("二级缓存未命中", missCount.sum());
+        stats.put("二级缓存失败", failureCount.sum());
+        stats.put("收到失效通知", invalidationCount.sum());
+        stats.put("二级缓存写入冲突", conflictCount.sum());
+        stats.put("二级缓存熔断状态", breaker.getState().name());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        RespConnection current = subscription;
+        if (current != null) {
+            current.close();
+        }
+        RespConnection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private interface RedisCall<T> {
+        T call(RespConnection connection) throws IOException;
+    }
+
+    /**
+     * 借用空闲连接执行命令，成功后归还；失败时关闭连接并返回null
+     */
+    private <T> T execute(RedisCall<T> call) {
+        if (closed || !breaker.allowRequest()) {
+            return null;
+        }
+        RespConnection connection = idleConnections.poll();
+        try {
+            if (connection == null) {
+                connection = connect();
+            }
+            T result = call.call(connection);
+            breaker.onSuccess();
+            idleConnections.offer(connection);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            failureCount.increment();
+            breaker.onFailure();
+            if (connection != null) {
+                connection.close();
+            }
+            return null;
+        }
+    }
+
+    private RespConnection connect() throws IOException {
+        RespConnection connection = new RespConnection(host, port, timeoutMillis);
+        try {
+            if (password != null && !password.isEmpty()) {
+                connection.call("AUTH", password);
+            }
+            if (database != 0) {
+                connection.call("SELECT", database);
+            }
+            return connection;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private SeriesSnapshot decode(byte[] block) {
+        if (block == null) {
+            missCount.increment();
+            return null;
+        }
+        try {
+            SeriesSnapshot data = KLineBlockCodec.decodeSnapshot(block);
+            hitCount.increment();
+            return data;
+        } catch (RuntimeException e) {
+            failureCount.increment();
+            return null;
+        }
+    }
+
+    private static String key(String stockCode, int klt) {
+        return KEY_PREFIX + stockCode + ":" + klt;
+    }
+
+    private static String text(Object value) {
+        return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于本地证券列表文件的代码过滤器
+ * 文件格式：每行一个代码，代码后可跟逗号或空白分隔的名称，#开头为注释
+ */
+public class SecurityListFilter {
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    private volatile BloomFilter bloomFilter;
+    private volatile int codeCount;
+
+    /**
+     * 从文件加载证券列表，文件不存在时过滤器保持关闭
+     */
+    public boolean load(String path) {
+        List<String> codes = readCodes(path);
+        if (codes == null) {
+            return false;
+        }
+        load(codes);
+        return true;
+    }
+
+    /**
+     * 读取代码列表文件，保持文件中的顺序；路径为空或文件不存在时返回null
+     */
+    public static List<String> readCodes(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            return null;
+        }
+        Path file = Path.of(path.trim());
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        List<String> codes = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String code = parseCode(line);
+                if (code != null) {
+                    codes.add(code);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return codes;
+    }
+
+    /**
+     * 直接从代码集合构建过滤器
+     */
+    public void load(List<String> codes) {
+        BloomFilter filter = new BloomFilter(codes.size(), FALSE_POSITIVE_RATE);
+        for (String code : codes) {
+            filter.put(code);
+        }
+        this.codeCount = codes.size();
+        this.bloomFilter = filter;
+    }
+
+    /**
+     * 未加载列表时一律放行；加载后不在列表中的代码必定无效
+     */
+    public boolean mightContain(String stockCode) {
+        BloomFilter filter = bloomFilter;
+        return filter == null || filter.mightContain(stockCode);
+    }
+
+    public boolean isLoaded() {
+        return bloomFilter != null;
+    }
+
+    public int getCodeCount() {
+        return codeCount;
+    }
+
+    private static String parseCode(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        int end = 0;
+        while (end < trimmed.length() && trimmed.charAt(end) != ',' && !Character.isWhitespace(trimmed.charAt(end))) {
+            end++;
+        }
+        return trimmed.substring(0, end);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.dao;
+
+import java.util.List;
+
+/**
+ * K线序列的滚动指标（收盘价与成交量的5/10/20周期均线）
+ * 保留最近20根K线的环形缓冲和各窗口累计和，追加新K线或修正最新K线均为O(1)。
+ */
+public class SeriesIndicators {
+
+    public static final int[] WINDOWS = {5, 10, 20};
+    private static final int CAPACITY = 20;
+
+    private final double[] closes = new double[CAPACITY];
+    private final long[] volumes = new long[CAPACITY];
+    private final double[] closeSums = new double[WINDOWS.length];
+    private final double[] volumeSums = new double[WINDOWS.length];
+    private long count;
+
+    /**
+     * 由按日期升序的K线重建指标
+     */
+    public static SeriesIndicators fromData(List<KLineData> ascendingData) {
+        SeriesIndicators indicators = new SeriesIndicators();
+        for (int i = Math.max(0, ascendingData.size() - CAPACITY); i < ascendingData.size(); i++) {
+            indicators.append(ascendingData.get(i));
+        }
+        return indicators;
+    }
+
+    /**
+     * 追加一根新K线
+     */
+    public synchronized void append(KLineData bar) {
+        double close = bar.getClose();
+        long volume = bar.getVolume();
+        for (int i = 0; i < WINDOWS.length; i++) {
+            closeSums[i] += close;
+            volumeSums[i] += volume;
+            if (count >= WINDOWS[i]) {
+                int evicted = (int) ((count - WINDOWS[i]) % CAPACITY);
+                closeSums[i] -= closes[evicted];
+                volumeSums[i] -= volumes[evicted];
+            }
+        }
+        int slot = (int) (count % CAPACITY);
+        closes[slot] = close;
+        volumes[slot] = volume;
+        count++;
+    }
+
+    /**
+     * 修正最新一根K线（盘中实时更新）
+     */
+    public synchronized void replaceLast(KLineData bar) {
+        if (count == 0) {
+            append(bar);
+            return;
+        }
+        int slot = (int) ((count - 1) % CAPACITY);
+        double closeDelta = bar.getClose() - closes[slot];
+        long volumeDelta = bar.getVolume() - volumes[slot];
+        for (int i = 0; i < WINDOWS.length; i++) {
+            closeSums[i] += closeDelta;
+            volumeSums[i] += volumeDelta;
+        }
+        closes[slot] = bar.getClose();
+        volumes[slot] = bar.getVolume();
+    }
+
+    /**
+     * 收盘价均线，数据不足一个窗口时返回NaN
+     */
+    public synchronized double getCloseMa(int window) {
+        int index = indexOf(window);
+        return count < window ? Double.NaN : closeSums[index] / window;
+    }
+
+    /**
+     * 成交量均线，数据不足一个窗口时返回NaN
+     */
+    public synchronized double getVolumeMa(int window) {
+        int index = indexOf(window);
+        return count < window ? Double.NaN : volumeSums[index] / window;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    private int indexOf(int window) {
+        for (int i = 0; i < WINDOWS.length; i++) {
+            if (WINDOWS[i] == window) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("不支持的均线窗口: " + window);
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.demo.dao;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 一个(股票代码, 周期)的K线序列快照
+ * 按纪元日升序存放在数组中，创建后不再修改；更新时生成新版本整体替换，
+ * 读取方拿到的始终是某个完整版本，不会看到合并到一半的数据，读取无需加锁。
+ * 区间查询返回数组上的只读视图，不复制、不排序。
+ * 同时记录已从上游完整获取过的日期区间，区间内相邻两根K线之间没有缺失。
+ */
+public final class SeriesSnapshot {
+
+    public static final SeriesSnapshot EMPTY =
+            new SeriesSnapshot(0, new int[0], new KLineData[0], DayRanges.EMPTY);
+
+    private final long version;
+    private final int[] days;
+    private final KLineData[] bars;
+    private final DayRanges coverage;
+    private final AtomicReferenceArray<double[]> columns = new AtomicReferenceArray<>(BarField.count());
+
+    private SeriesSnapshot(long version, int[] days, KLineData[] bars, DayRanges coverage) {
+        this.version = version;
+        this.days = days;
+        this.bars = bars;
+        this.coverage = coverage;
+    }
+
+    public static SeriesSnapshot of(Collection<KLineData> data) {
+        return EMPTY.merge(data);
+    }
+
+    public static SeriesSnapshot of(Collection<KLineData> data, DayRanges coverage) {
+        return EMPTY.merge(data, coverage);
+    }
+
+    /**
+     * 合并新K线（同一天的以新K线为准），返回下一个版本；获取区间不变
+     */
+    public SeriesSnapshot merge(Collection<KLineData> data) {
+        return merge(data, DayRanges.EMPTY);
+    }
+
+    /**
+     * 合并另一个快照的K线和获取区间，同一天的以另一个快照为准
+     */
+    public SeriesSnapshot merge(SeriesSnapshot other) {
+        return merge(other.ascending(), other.coverage);
+    }
+
+    /**
+     * 以newer为准合并两个快照：newer获取区间内的日期只保留newer的K线，区间外保留本快照的K线，获取区间取并集
+     * 用于写回共享的二级缓存，获取区间较短的实例不会覆盖掉其他实例回填的更早数据
+     */
+    public SeriesSnapshot overlay(SeriesSnapshot newer) {
+        List<KLineData> retained = new ArrayList<>();
+        for (int i = 0; i < days.length; i++) {
+            if (!newer.coverage.contains(days[i])) {
+                retained.add(bars[i]);
+            }
+        }
+        return EMPTY.merge(retained, coverage).merge(newer);
+    }
+
+    /**
+     * 合并一次上游请求的结果，covered为该请求完整覆盖的日期区间
+     */
+    public SeriesSnapshot merge(Collection<KLineData> data, DayRanges covered) {
+        KLineData[] incoming = data.toArray(new KLineData[0]);
+        int[] incomingDays = new int[incoming.length];
+        Integer[] order = new Integer[incoming.length];
+        for (int i = 0; i < incoming.length; i++) {
+            incomingDays[i] = incoming[i].getEpochDay();
+            order[i] = i;
+        }
+        // 同一天出现多次时保留靠后的一条
+        Arrays.sort(order, (a, b) -> incomingDays[a] != incomingDays[b]
+                ? Integer.compare(incomingDays[a], incomingDays[b]) : Integer.compare(b, a));
+
+        int[] mergedDays = new int[days.length + incoming.length];
+        KLineData[] mergedBars = new KLineData[mergedDays.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < days.length || j < order.length) {
+            if (j < order.length && j > 0 && incomingDays[order[j]] == incomingDays[order[j - 1]]) {
+                j++;
+                continue;
+            }
+            if (j == order.length || (i < days.length && days[i] < incomingDays[order[j]])) {
+                mergedDays[n] = days[i];
+                mergedBars[n++] = bars[i++];
+            } else {
+                int day = incomingDays[order[j]];
+                if (i < days.length && days[i] == day) {
+                    i++;
+                }
+                mergedDays[n] = day;
+                mergedBars[n++] = incoming[order[j++]];
+            }
+        }
+        return new SeriesSnapshot(version + 1, Arrays.copyOf(mergedDays, n), Arrays.copyOf(mergedBars, n),
+                coverage.union(covered));
+    }
+
+    /**
+     * 写入（或替换）一根K线，可同时移除另一天的K线，返回下一个版本
+     * 盘中K线所在日期并入获取区间，与已获取区间之间只隔周末时两者连成一段
+     */
+    public SeriesSnapshot withBar(KLineData bar, Integer removedDay) {
+        int day = bar.getEpochDay();
+        int removeIndex = removedDay == null || removedDay == day ? -1 : Arrays.binarySearch(days, removedDay);
+        int index = Arrays.binarySearch(days, day);
+        int size = days.length + (index < 0 ? 1 : 0) - (removeIndex >= 0 ? 1 : 0);
+        int[] newDays = new int[size];
+        KLineData[] newBars = new KLineData[size];
+        int n = 0;
+        boolean written = false;
+        for (int i = 0; i < days.length; i++) {
+            if (i == removeIndex) {
+                continue;
+            }
+            if (!written && days[i] >= day) {
+                newDays[n] = day;
+                newBars[n++] = bar;
+                written = true;
+                if (days[i] == day) {
+                    continue;
+                }
+            }
+            newDays[n] = days[i];
+            newBars[n++] = bars[i];
+        }
+        if (!written) {
+            newDays[n] = day;
+            newBars[n] = bar;
+        }
+        return new SeriesSnapshot(version + 1, newDays, newBars, coverage.union(day, day));
+    }
+
+    public KLineData get(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? bars[index] : null;
+    }
+
+    public boolean contains(int day) {
+        return Arrays.binarySearch(days, day) >= 0;
+    }
+
+    /**
+     * 指定日期之前最近的一根K线
+     */
+    public KLineData lower(int day) {
+        int index = lowerIndex(day);
+        return index >= 0 ? bars[index] : null;
+    }
+
+    /**
+     * 不晚于指定日期的最后一根K线的下标（升序），没有时返回-1
+     */
+    public int floorIndex(int day) {
+        return lowerIndex(day + 1);
+    }
+
+    private int lowerIndex(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return (index >= 0 ? index : -index - 1) - 1;
+    }
+
+    /**
+     * 起止纪元日（含）之间的K线，最新的在前
+     */
+    public List<KLineData> range(int startDay, int endDay) {
+        int from = lowerIndex(startDay) + 1;
+        int to = lowerIndex(endDay + 1) + 1;
+        return new View(bars, from, Math.max(from, to), true);
+    }
+
+    /**
+     * [startDay, endDay) 之间的K线，按时间升序
+     */
+    public List<KLineData> ascendingRange(int startDay, int endDayExclusive) {
+        int from = lowerIndex(startDay) + 1;
+        int to = lowerIndex(endDayExclusive) + 1;
+        return new View(bars, from, Math.max(from, to), false);
+    }
+
+    public List<KLineData> ascending() {
+        return new View(bars, 0, bars.length, false);
+    }
+
+    public List<KLineData> descending() {
+        return new View(bars, 0, bars.length, true);
+    }
+
+    /**
+     * DAO返回的最新在前列表的升序只读视图，不复制
+     */
+    public static List<KLineData> ascending(List<KLineData> newestFirst) {
+        if (newestFirst instanceof View) {
+            return ((View) newestFirst).reversed();
+        }
+        return new ReversedView(newestFirst);
+    }
+
+    /**
+     * 升序排列的字段列，首次访问时提取并随快照保留；快照不可变，并发提取的结果相同，先写入者胜出
+     */
+    public double[] column(BarField field) {
+        double[] column = columns.get(field.ordinal());
+        if (column == null) {
+            column = new double[bars.length];
+            for (int i = 0; i < bars.length; i++) {
+                column[i] = field.of(bars[i]);
+            }
+            if (!columns.compareAndSet(field.ordinal(), null, column)) {
+                column = columns.get(field.ordinal());
+            }
+        }
+        return column;
+    }
+
+    /**
+     * 升序下标处K线的纪元日
+     */
+    public int dayAt(int index) {
+        return days[index];
+    }
+
+    public KLineData barAt(int index) {
+        return bars[index];
+    }
+
+    public int firstDay() {
+        return days[0];
+    }
+
+    public int lastDay() {
+        return days[days.length - 1];
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public boolean isEmpty() {
+        return days.length == 0;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public DayRanges getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * 数组区间上的只读视图
+     */
+    private static final class View extends AbstractList<KLineData> implements RandomAccess {
+        private final KLineData[] bars;
+        private final int from;
+        private final int to;
+        private final boolean descending;
+
+        View(KLineData[] bars, int from, int to, boolean descending) {
+            this.bars = bars;
+            this.from = from;
+            this.to = to;
+            this.descending = descending;
+        }
+
+        @Override
+        public KLineData get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            }
+            return bars[descending ? to - 1 - index : from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        View reversed() {
+            return new View(bars, from, to, !descending);
+        }
+    }
+
+    /**
+     * 任意列表的逆序只读视图
+     */
+    private static final class ReversedView extends AbstractList<KLineData> implements RandomAccess {
+        private final List<KLineData> source;
+
+        ReversedView(List<KLineData> source) {
+            this.source = source;
+        }
+
+        @Override
+        public KLineData get(int index) {
+            return source.get(source.size() - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return source.size();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.dao;
+
+import java.io.IOException;
+
+/**
+ * 上游接口请求失败（重试耗尽、熔断打开或响应异常）
+ */
+public class UpstreamException extends IOException {
+
+    private final int statusCode;        // HTTP状态码，非HTTP错误时为-1
+    private final long retryAfterMillis; // 服务端要求的重试等待时间
+
+    public UpstreamException(String message, int statusCode) {
+        this(message, statusCode, 0);
+    }
+
+    public UpstreamException(String message, int statusCode, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public UpstreamException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = -1;
+        this.retryAfterMillis = 0;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -1,43 +1,251 @@
 package com.example.demo.service;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.List;
 
 /**
  * 分析统计结果
+ * 测试结果按列存放（日期、置信度为基本类型数组，预测/实际/正确为位图），不为每条结果创建对象；
+ * 准确率、混淆矩阵和按|置信度|分桶的校准统计随每次添加O(1)更新，运行中即可读取进度。
+ * 各线程可各自累计后用merge合并；明细行数超过spillThreshold时写入临时文件，内存中只保留聚合值。
  */
 public class AnalysisStatistics {
+
+    public static final int CALIBRATION_BUCKETS = 10;
+
     private int totalTests;          // 总测试次数
     private int correctPredictions;  // 正确预测次数
     private double accuracy;         // 准确率
     private String message;          // 统计信息
-    private List<TestResult> testResults; // 详细测试结果
+
+    // 混淆矩阵：以上涨为正类
+    private long truePositives;
+    private long falsePositives;
+    private long trueNegatives;
+    private long falseNegatives;
+    private final long[] calibrationCounts = new long[CALIBRATION_BUCKETS];
+    private final long[] calibrationCorrect = new long[CALIBRATION_BUCKETS];
+
+    // 明细列
+    private final boolean retainResults;
+    private final int spillThreshold;
+    private long[] dates = new long[16];
+    private float[] confidences = new float[16];
+    private final BitSet predictedBits = new BitSet();
+    private final BitSet actualBits = new BitSet();
+    private final BitSet correctBits = new BitSet();
+    private int rows;
+    private File spillFile;
+    private long spilledRows;
 
     public AnalysisStatistics() {
-        this.testResults = new ArrayList<>();
+        this(true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param retainResults  是否保留每条测试明细，false时只维护聚合值
+     * @param spillThreshold 内存中明细行数上限，超过后写入临时文件
+     */
+    public AnalysisStatistics(boolean retainResults, int spillThreshold) {
+        this.retainResults = retainResults;
+        this.spillThreshold = Math.max(1, spillThreshold);
     }
 
     // 添加测试结果
-    public void addTestResult(Date testDate, boolean predicted, boolean actual,
-                              double confidence, boolean isCorrect) {
-        testResults.add(new TestResult(testDate, predicted, actual, confidence, isCorrect));
+    public synchronized void addTestResult(Date testDate, boolean predicted, boolean actual,
+                                           double confidence, boolean isCorrect) {
+        addTestResult(testDate == null ? 0 : testDate.getTime(), predicted, actual, confidence, isCorrect);
+    }
+
+    public synchronized void addTestResult(long testTime, boolean predicted, boolean actual,
+                                           double confidence, boolean isCorrect) {
+        updateAggregates(predicted, actual, confidence, isCorrect);
+        if (retainResults) {
+            appendRow(testTime, predicted, actual, (float) confidence, isCorrect);
+        }
+    }
+
+    /**
+     * 合并另一个统计结果（多线程分别累计后合并）
+     */
+    public synchronized void merge(AnalysisStatistics other) {
+        synchronized (other) {
+            totalTests += other.totalTests;
+            correctPredictions += other.correctPredictions;
+            accuracy = totalTests == 0 ? 0 : (double) correctPredictions / totalTests * 100;
+            truePositives += other.truePositives;
+            falsePositives += other.falsePositives;
+            trueNegatives += other.trueNegatives;
+            falseNegatives += other.falseNegatives;
+            for (int b = 0; b < CALIBRATION_BUCKETS; b++) {
+                calibrationCounts[b] += other.calibrationCounts[b];
+                calibrationCorrect[b] += other.calibrationCorrect[b];
+            }
+            if (retainResults && other.retainResults) {
+                other.forEachRow((time, predicted, actual, confidence, correct) ->
+                        appendRow(time, predicted, actual, confidence, correct));
+            }
+        }
+    }
+
+    private void updateAggregates(boolean predicted, boolean actual, double confidence, boolean isCorrect) {
+        totalTests++;
+        if (isCorrect) {
+            correctPredictions++;
+        }
+        accuracy = (double) correctPredictions / totalTests * 100;
+        if (predicted) {
+            if (actual) {
+                truePositives++;
+            } else {
+                falsePositives++;
+            }
+        } else if (actual) {
+            falseNegatives++;
+        } else {
+            trueNegatives++;
+        }
+        int bucket = Math.min(CALIBRATION_BUCKETS - 1, (int) (Math.abs(confidence) * CALIBRATION_BUCKETS));
+        calibrationCounts[bucket]++;
+        if (isCorrect) {
+            calibrationCorrect[bucket]++;
+        }
+    }
+
+    private void appendRow(long time, boolean predicted, boolean actual, float confidence, boolean correct) {
+        if (rows == dates.length) {
+            dates = Arrays.copyOf(dates, rows * 2);
+            confidences = Arrays.copyOf(confidences, rows * 2);
+        }
+        dates[rows] = time;
+        confidences[rows] = confidence;
+        predictedBits.set(rows, predicted);
+        actualBits.set(rows, actual);
+        correctBits.set(rows, correct);
+        rows++;
+        if (rows >= spillThreshold) {
+            spill();
+        }
+    }
+
+    /**
+     * 内存中的明细追加到临时文件，每行：日期long、置信度float、标志位byte
+     */
+    private void spill() {
+        try {
+            if (spillFile == null) {
+                spillFile = File.createTempFile("analysis-statistics", ".bin");
+                spillFile.deleteOnExit();
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(spillFile, true)))) {
+                for (int i = 0; i < rows; i++) {
+                    out.writeLong(dates[i]);
+                    out.writeFloat(confidences[i]);
+                    out.writeByte(flags(i));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("测试明细写入临时文件失败", e);
+        }
+        spilledRows += rows;
+        rows = 0;
+        predictedBits.clear();
+        actualBits.clear();
+        correctBits.clear();
+    }
+
+    private int flags(int row) {
+        return (predictedBits.get(row) ? 1 : 0) | (actualBits.get(row) ? 2 : 0) | (correctBits.get(row) ? 4 : 0);
+    }
+
+    interface RowVisitor {
+        void visit(long time, boolean predicted, boolean actual, float confidence, boolean correct);
+    }
+
+    /**
+     * 按添加顺序遍历明细，先读临时文件再读内存
+     */
+    private void forEachRow(RowVisitor visitor) {
+        if (spillFile != null) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)))) {
+                for (long i = 0; i < spilledRows; i++) {
+                    long time = in.readLong();
+                    float confidence = in.readFloat();
+                    int flags = in.readByte();
+                    visitor.visit(time, (flags & 1) != 0, (flags & 2) != 0, confidence, (flags & 4) != 0);
+                }
+            } catch (EOFException e) {
+                throw new IllegalStateException("测试明细临时文件不完整", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取测试明细临时文件失败", e);
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            visitor.visit(dates[i], predictedBits.get(i), actualBits.get(i), confidences[i], correctBits.get(i));
+        }
     }
 
     // Getter和Setter
-    public int getTotalTests() { return totalTests; }
-    public void setTotalTests(int totalTests) { this.totalTests = totalTests; }
+    public synchronized int getTotalTests() { return totalTests; }
+    public synchronized void setTotalTests(int totalTests) { this.totalTests = totalTests; }
 
-    public int getCorrectPredictions() { return correctPredictions; }
-    public void setCorrectPredictions(int correctPredictions) { this.correctPredictions = correctPredictions; }
+    public synchronized int getCorrectPredictions() { return correctPredictions; }
+    public synchronized void setCorrectPredictions(int correctPredictions) { this.correctPredictions = correctPredictions; }
 
-    public double getAccuracy() { return accuracy; }
-    public void setAccuracy(double accuracy) { this.accuracy = accuracy; }
+    public synchronized double getAccuracy() { return accuracy; }
+    public synchronized void setAccuracy(double accuracy) { this.accuracy = accuracy; }
 
     public String getMessage() { return message; }
     public void setMessage(String message) { this.message = message; }
 
-    public List<TestResult> getTestResults() { return testResults; }
+    /**
+     * 混淆矩阵 [[预测涨且实际涨, 预测涨实际跌], [预测跌实际涨, 预测跌且实际跌]]
+     */
+    public synchronized long[][] getConfusionMatrix() {
+        return new long[][]{{truePositives, falsePositives}, {falseNegatives, trueNegatives}};
+    }
+
+    /**
+     * 按|置信度|分桶（桶宽0.1）的样本数
+     */
+    public synchronized long[] getCalibrationCounts() {
+        return calibrationCounts.clone();
+    }
+
+    /**
+     * 按|置信度|分桶的准确率
+     */
+    public synchronized double[] getCalibrationAccuracy() {
+        double[] result = new double[CALIBRATION_BUCKETS];
+        for (int b = 0; b < CALIBRATION_BUCKETS; b++) {
+            result[b] = calibrationCounts[b] == 0 ? 0 : (double) calibrationCorrect[b] / calibrationCounts[b];
+        }
+        return result;
+    }
+
+    /**
+     * 详细测试结果，按需由列数据生成
+     */
+    public synchronized List<TestResult> getTestResults() {
+        List<TestResult> results = new ArrayList<>();
+        forEachRow((time, predicted, actual, confidence, correct) ->
+                results.add(new TestResult(new Date(time), predicted, actual, confidence, correct)));
+        return results;
+    }
 
     /**
      * 单次测试结果
@@ -65,4 +273,4 @@ public class AnalysisStatistics {
         public double getConfidence() { return confidence; }
         public boolean isCorrect() { return correct; }
     }
-}
\ No newline at end of file
+}
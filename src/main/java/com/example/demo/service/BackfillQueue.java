@@ -0,0 +1,203 @@
+package com.example.demo.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 持久化的回填任务队列
+ * queue.txt 保存一个作业的全部任务，创建作业时先写临时文件再原子替换；
+ * journal.txt 是追加写入的检查点，首行为作业标识，之后每个任务结束时记一行（OK/FAILED、K线数、说明）。
+ * 进程中断后重新打开，以队列中没有OK检查点的任务作为待执行任务，失败过的任务会重试；
+ * 作业标识与队列不一致的检查点属于上一个作业（创建新作业时在替换队列之后才重置检查点），直接忽略。
+ */
+public class BackfillQueue implements AutoCloseable {
+
+    private static final String QUEUE_FILE = "queue.txt";
+    private static final String JOURNAL_FILE = "journal.txt";
+    private static final String HEADER = "# backfill ";
+
+    private final Path directory;
+    private final String jobId;
+    private final long createdAt;
+    private final List<BackfillTask> tasks;
+    private final Map<String, Boolean> outcomes = new HashMap<>(); // 任务标识 -> 最近一次是否成功
+    private int completedCount;
+    private long barCount;
+    private BufferedWriter journal;
+
+    private BackfillQueue(Path directory, String jobId, long createdAt, List<BackfillTask> tasks) {
+        this.directory = directory;
+        this.jobId = jobId;
+        this.createdAt = createdAt;
+        this.tasks = tasks;
+    }
+
+    /**
+     * 创建新作业，替换目录中原有的队列和检查点
+     */
+    public static BackfillQueue create(String directory, String jobId, List<BackfillTask> tasks) throws IOException {
+        Path dir = Path.of(directory);
+        Files.createDirectories(dir);
+        long createdAt = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>(tasks.size() + 1);
+        lines.add(HEADER + jobId + " " + createdAt);
+        for (BackfillTask task : tasks) {
+            lines.add(task.toLine());
+        }
+        // 先替换队列再重置检查点，中途中断时要么仍是原作业和它的检查点，要么是新作业和一份会被忽略的旧检查点
+        replace(dir.resolve(QUEUE_FILE), lines);
+        replace(dir.resolve(JOURNAL_FILE), Collections.singletonList(HEADER + jobId));
+        return new BackfillQueue(dir, jobId, createdAt, new ArrayList<>(tasks));
+    }
+
+    private static void replace(Path file, List<String> lines) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 打开目录中已有的作业并重放检查点，没有作业时返回null
+     */
+    public static BackfillQueue open(String directory) throws IOException {
+        Path dir = Path.of(directory);
+        Path file = dir.resolve(QUEUE_FILE);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).startsWith(HEADER)) {
+            return null;
+        }
+        String[] header = lines.get(0).substring(HEADER.length()).split(" ");
+        List<BackfillTask> tasks = new ArrayList<>(lines.size());
+        for (String line : lines.subList(1, lines.size())) {
+            BackfillTask task = BackfillTask.parse(line);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        BackfillQueue queue = new BackfillQueue(dir, header[0],
+                header.length > 1 ? Long.parseLong(header[1]) : 0, tasks);
+
+        Path journalFile = dir.resolve(JOURNAL_FILE);
+        List<String> checkpoints = Files.isRegularFile(journalFile)
+                ? Files.readAllLines(journalFile, StandardCharsets.UTF_8) : Collections.emptyList();
+        if (!checkpoints.isEmpty() && checkpoints.get(0).equals(HEADER + queue.jobId)) {
+            for (String line : checkpoints.subList(1, checkpoints.size())) {
+                // 状态 \t 任务(4列) \t K线数 \t 说明；中断时写了一半的行直接忽略
+                String[] parts = line.split("\t", 7);
+                if (parts.length < 6 || !(parts[0].equals("OK") || parts[0].equals("FAILED"))) {
+                    continue;
+                }
+                queue.record(String.join("\t", parts[1], parts[2], parts[3], parts[4]),
+                        parts[0].equals("OK"), parseInt(parts[5]));
+            }
+        } else {
+            // 没有本作业的检查点，重新开始记录
+            replace(journalFile, Collections.singletonList(HEADER + queue.jobId));
+        }
+        return queue;
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void record(String key, boolean success, int bars) {
+        boolean succeeded = Boolean.TRUE.equals(outcomes.put(key, success));
+        if (success && !succeeded) {
+            completedCount++;
+            barCount += bars;
+        } else if (!success && succeeded) {
+            completedCount--;
+        }
+    }
+
+    /**
+     * 记录任务结束，写入检查点后才返回
+     */
+    public synchronized void checkpoint(BackfillTask task, boolean success, int bars, String message)
+            throws IOException {
+        if (journal == null) {
+            journal = Files.newBufferedWriter(directory.resolve(JOURNAL_FILE), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        String note = message == null ? "" : message.replace('\t', ' ').replace('\n', ' ');
+        journal.write((success ? "OK" : "FAILED") + "\t" + task.toLine() + "\t" + bars + "\t" + note);
+        journal.newLine();
+        journal.flush();
+        record(task.toLine(), success, bars);
+    }
+
+    /**
+     * 尚未成功的任务（含失败过的任务），按队列顺序
+     */
+    public synchronized List<BackfillTask> pending() {
+        List<BackfillTask> result = new ArrayList<>();
+        for (BackfillTask task : tasks) {
+            if (!Boolean.TRUE.equals(outcomes.get(task.toLine()))) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    public synchronized boolean isSucceeded(BackfillTask task) {
+        return Boolean.TRUE.equals(outcomes.get(task.toLine()));
+    }
+
+    public synchronized int getCompletedCount() {
+        return completedCount;
+    }
+
+    public synchronized int getFailedCount() {
+        return outcomes.size() - completedCount;
+    }
+
+    public synchronized long getBarCount() {
+        return barCount;
+    }
+
+    public synchronized boolean isComplete() {
+        return completedCount == tasks.size();
+    }
+
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            journal = null;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineDao;
+import com.example.demo.dao.KLineDaoImpl;
+import com.example.demo.dao.SecurityListFilter;
+import com.example.demo.dao.UpstreamException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 全市场K线回填作业
+ * 任务队列和检查点持久化在磁盘上，进程中断或上游故障后续跑时只执行尚未成功的任务；
+ * 固定数量的工作线程并发执行，上游失败按指数退避重试，重试耗尽记为失败，下次续跑时再试。
+ * 回填结果写入内存缓存、二级缓存和本地归档，全局请求速率仍由上游限流器控制。
+ */
+@Service
+@Lazy(false) // 含定时任务，开启懒加载时仍需启动时创建
+public class BackfillService {
+
+    private static final int MAX_RECENT_ERRORS = 20;
+
+    @Autowired
+    private KLineDao kLineDao;
+
+    @Value("${kline.backfill.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 队列与检查点目录
+     */
+    @Value("${kline.backfill.dir:backfill}")
+    private String directory = "backfill";
+
+    /**
+     * 全市场代码列表文件，默认使用证券列表
+     */
+    @Value("${kline.backfill.codes-file:${kline.security-list.path:}}")
+    private String codesFile;
+
+    @Value("${kline.backfill.periods:101,102,103,104,105,106}")
+    private String periods = "101,102,103,104,105,106";
+
+    @Value("${kline.backfill.threads:8}")
+    private int threads = 8;
+
+    @Value("${kline.backfill.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${kline.backfill.retry-delay-ms:5000}")
+    private long retryDelayMillis = 5000;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean stopRequested;
+    private final BackfillStatus status = new BackfillStatus();
+    private final Deque<String> recentErrors = new ArrayDeque<>();
+    private int completedAtStart;
+
+    public BackfillService() {
+    }
+
+    /**
+     * 不经过Spring装配时使用
+     */
+    public BackfillService(KLineDao kLineDao, String directory, String periods, int threads, int maxAttempts,
+                           long retryDelayMillis) {
+        this.kLineDao = kLineDao;
+        this.directory = directory;
+        this.periods = periods;
+        this.threads = threads;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * 启动时续跑未完成的作业
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (enabled) {
+            resume("启动续跑");
+        }
+    }
+
+    @Scheduled(cron = "${kline.backfill.cron:0 30 1 * * *}")
+    public void nightly() {
+        if (enabled) {
+            start("夜间", null, null);
+        }
+    }
+
+    /**
+     * 创建新作业并在后台执行，已有作业在执行时返回false
+     *
+     * @param codes 代码列表，为空时使用全市场代码列表文件
+     * @param klts  周期，为空时使用配置的周期
+     */
+    public boolean start(String trigger, List<String> codes, int[] klts) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            List<String> stockCodes = codes == null || codes.isEmpty() ? SecurityListFilter.readCodes(codesFile) : codes;
+            if (stockCodes == null || stockCodes.isEmpty()) {
+                addError("没有可回填的代码，请配置 kline.backfill.codes-file");
+                running.set(false);
+                return false;
+            }
+            int[] periodList = klts == null || klts.length == 0 ? parsePeriods() : klts;
+
+            // 同一代码的各周期相邻，中断时已完成的代码是完整的；集群模式下各节点只回填自己归属的代码
+            LocalDate today = LocalDate.now();
+            List<BackfillTask> tasks = new ArrayList<>();
+            for (String stockCode : new LinkedHashSet<>(stockCodes)) {
+                for (int klt : periodList) {
+                    if (!kLineDao.isOwner(stockCode, klt)) {
+                        continue;
+                    }
+                    tasks.add(new BackfillTask(stockCode, klt,
+                            EpochDays.of(KLineDaoImpl.defaultStartDate(klt, today)), EpochDays.of(today)));
+                }
+            }
+            String jobId = today.format(DateTimeFormatter.BASIC_ISO_DATE) + "-" + System.currentTimeMillis() % 100000;
+            BackfillQueue queue = BackfillQueue.create(directory, jobId, tasks);
+            runInBackground(trigger, queue);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            addError("创建作业失败: " + e.getMessage());
+            running.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * 续跑目录中未完成的作业，没有未完成作业或已在执行时返回false
+     */
+    public boolean resume(String trigger) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            BackfillQueue queue = BackfillQueue.open(directory);
+            if (queue == null || queue.isComplete()) {
+                running.set(false);
+                return false;
+            }
+            runInBackground(trigger, queue);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            addError("读取作业失败: " + e.getMessage());
+            running.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * 请求停止：正在执行的任务完成后退出，未执行的任务留待续跑
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stop();
+    }
+
+    private void runInBackground(String trigger, BackfillQueue queue) {
+        stopRequested = false;
+        Thread thread = new Thread(() -> run(trigger, queue), "kline-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 工作线程从共享队列中取任务，直到队列为空或请求停止
+     */
+    private void run(String trigger, BackfillQueue queue) {
+        try {
+            Queue<BackfillTask> work = new ConcurrentLinkedQueue<>(queue.pending());
+            synchronized (status) {
+                status.setJobId(queue.getJobId());
+                status.setRunning(true);
+                status.setTrigger(trigger);
+                status.setTotalTasks(queue.getTaskCount());
+                status.setCompletedTasks(queue.getCompletedCount());
+                status.setFailedTasks(0);
+                status.setBarCount(queue.getBarCount());
+                status.setRetryCount(0);
+                status.setStartTime(new Date());
+                status.setFinishTime(null);
+                completedAtStart = queue.getCompletedCount();
+            }
+
+            int workerCount = Math.max(1, Math.min(threads, work.size()));
+            CountDownLatch latch = new CountDownLatch(workerCount);
+            AtomicInteger retries = new AtomicInteger();
+            AtomicInteger failures = new AtomicInteger();
+            for (int i = 0; i < workerCount; i++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        BackfillTask task;
+                        while (!stopRequested && (task = work.poll()) != null) {
+                            execute(task, queue, retries, failures);
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }, "kline-backfill-worker");
+                worker.setDaemon(true);
+                worker.start();
+            }
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queue.close();
+            synchronized (status) {
+                status.setRunning(false);
+                status.setFinishTime(new Date());
+                status.setElapsedMillis(status.getFinishTime().getTime() - status.getStartTime().getTime());
+            }
+            running.set(false);
+        }
+    }
+
+    /**
+     * 执行一个任务：上游失败时按指数退避重试（服务端要求的等待时间更长时以其为准），成功或重试耗尽后写检查点
+     */
+    private void execute(BackfillTask task, BackfillQueue queue, AtomicInteger retries, AtomicInteger failures) {
+        while (true) {
+            int attempt = task.nextAttempt();
+            try {
+                int bars = kLineDao.backfill(task.getStockCode(), task.getKlt(),
+                        LocalDate.ofEpochDay(task.getStartDay()), LocalDate.ofEpochDay(task.getEndDay()));
+                queue.checkpoint(task, true, bars, null);
+                break;
+            } catch (UpstreamException e) {
+                if (attempt >= maxAttempts || stopRequested) {
+                    fail(task, queue, e);
+                    break;
+                }
+                retries.incrementAndGet();
+                long delay = Math.max(retryDelayMillis << (attempt - 1), e.getRetryAfterMillis());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    fail(task, queue, e);
+                    break;
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(task, queue, e);
+                break;
+            }
+        }
+        if (!queue.isSucceeded(task)) {
+            failures.incrementAndGet();
+        }
+        updateProgress(queue, retries.get(), failures.get());
+    }
+
+    private void fail(BackfillTask task, BackfillQueue queue, Exception cause) {
+        addError(task + ": " + cause.getMessage());
+        try {
+            queue.checkpoint(task, false, 0, cause.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void addError(String message) {
+        synchronized (recentErrors) {
+            recentErrors.addFirst(message);
+            while (recentErrors.size() > MAX_RECENT_ERRORS) {
+                recentErrors.removeLast();
+            }
+        }
+    }
+
+    private void updateProgress(BackfillQueue queue, int retries, int failures) {
+        synchronized (status) {
+            status.setCompletedTasks(queue.getCompletedCount());
+            status.setFailedTasks(failures);
+            status.setBarCount(queue.getBarCount());
+            status.setRetryCount(retries);
+        }
+    }
+
+    /**
+     * 获取进度快照，按本次运行的吞吐估计剩余时间
+     */
+    public BackfillStatus getStatus() {
+        BackfillStatus snapshot = new BackfillStatus();
+        synchronized (status) {
+            snapshot.setJobId(status.getJobId());
+            snapshot.setRunning(status.isRunning());
+            snapshot.setTrigger(status.getTrigger());
+            snapshot.setTotalTasks(status.getTotalTasks());
+            snapshot.setCompletedTasks(status.getCompletedTasks());
+            snapshot.setFailedTasks(status.getFailedTasks());
+            snapshot.setRetryCount(status.getRetryCount());
+            snapshot.setBarCount(status.getBarCount());
+            snapshot.setStartTime(status.getStartTime());
+            snapshot.setFinishTime(status.getFinishTime());
+            snapshot.setElapsedMillis(status.isRunning() && status.getStartTime() != null
+                    ? System.currentTimeMillis() - status.getStartTime().getTime() : status.getElapsedMillis());
+
+            int doneThisRun = status.getCompletedTasks() - completedAtStart + status.getFailedTasks();
+            int remaining = status.getTotalTasks() - status.getCompletedTasks() - status.getFailedTasks();
+            double minutes = snapshot.getElapsedMillis() / 60000.0;
+            snapshot.setTasksPerMinute(minutes > 0 ? doneThisRun / minutes : 0);
+            snapshot.setEtaMillis(!status.isRunning() ? 0
+                    : doneThisRun > 0 ? (long) (snapshot.getElapsedMillis() * (double) remaining / doneThisRun) : -1);
+        }
+        synchronized (recentErrors) {
+            snapshot.setRecentErrors(new ArrayList<>(recentErrors));
+        }
+        return snapshot;
+    }
+
+    private int[] parsePeriods() {
+        return Arrays.stream(periods.split(","))
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 回填作业进度
+ */
+@Getter
+@Setter
+public class BackfillStatus {
+    private String jobId;             // 作业标识
+    private boolean running;          // 是否正在执行
+    private String trigger;           // 触发方式：夜间/手动/启动续跑
+    private int totalTasks;           // 作业任务数（代码 x 周期）
+    private int completedTasks;       // 已成功的任务数（含之前运行完成的）
+    private int failedTasks;          // 本次运行中重试耗尽仍失败的任务数（续跑时重试）
+    private int retryCount;           // 本次运行的重试次数
+    private long barCount;            // 已回填的K线数
+    private Date startTime;           // 本次运行开始时间
+    private Date finishTime;          // 本次运行结束时间
+    private long elapsedMillis;       // 本次运行耗时
+    private double tasksPerMinute;    // 本次运行的任务吞吐
+    private long etaMillis;           // 预计剩余时间，无法估计时为-1
+    private List<String> recentErrors = new ArrayList<>(); // 最近的失败原因
+
+    /**
+     * 完成百分比
+     */
+    public double getProgress() {
+        return totalTasks == 0 ? 0 : (completedTasks + failedTasks) * 100.0 / totalTasks;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.EpochDays;
+
+/**
+ * 回填任务：一个(股票代码, 周期, 日期区间)，区间为纪元日（含起止）
+ */
+public class BackfillTask {
+
+    private final String stockCode;
+    private final int klt;
+    private final int startDay;
+    private final int endDay;
+    private int attempts;
+
+    public BackfillTask(String stockCode, int klt, int startDay, int endDay) {
+        this.stockCode = stockCode;
+        this.klt = klt;
+        this.startDay = startDay;
+        this.endDay = endDay;
+    }
+
+    /**
+     * 解析队列文件中的一行，格式不正确时返回null
+     */
+    public static BackfillTask parse(String line) {
+        String[] parts = line.split("\t");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            return new BackfillTask(parts[0], Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 队列文件中的一行，同时作为检查点中的任务标识
+     */
+    public String toLine() {
+        return stockCode + "\t" + klt + "\t" + startDay + "\t" + endDay;
+    }
+
+    public String getStockCode() {
+        return stockCode;
+    }
+
+    public int getKlt() {
+        return klt;
+    }
+
+    public int getStartDay() {
+        return startDay;
+    }
+
+    public int getEndDay() {
+        return endDay;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public int nextAttempt() {
+        return ++attempts;
+    }
+
+    @Override
+    public String toString() {
+        return stockCode + "/" + klt + " " + EpochDays.format(startDay) + "~" + EpochDays.format(endDay);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.KLineDao;
+import com.example.demo.dao.SecurityListFilter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存预热服务
+ * 启动完成后和每个交易日开盘前，按访问热度顺序并行加载关注列表中各代码的多周期K线，
+ * 避免首个用户请求承担远程获取的耗时。
+ * 启动、定时和手动触发的预热都提交到同一个单线程执行器，同一时刻最多一轮，进行中时再次触发直接忽略。
+ */
+@Service
+@Lazy(false) // 含定时任务，开启懒加载时仍需启动时创建
+public class CacheWarmupService {
+
+    @Autowired
+    private KLineDao kLineDao;
+
+    @Value("${kline.warmup.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 关注列表文件（每行一个代码，格式同证券列表）
+     */
+    @Value("${kline.warmup.watchlist-file:}")
+    private String watchlistFile;
+
+    /**
+     * 关注代码，逗号分隔，与文件中的代码合并
+     */
+    @Value("${kline.warmup.codes:}")
+    private String watchlistCodes;
+
+    @Value("${kline.warmup.periods:101,102,103}")
+    private String periods;
+
+    @Value("${kline.warmup.threads:4}")
+    private int threads;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final WarmupStatus status = new WarmupStatus();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kline-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExecutorService executor;
+
+    public CacheWarmupService() {
+    }
+
+    /**
+     * 不经过Spring装配时使用，codes为逗号分隔的关注代码
+     */
+    public CacheWarmupService(KLineDao kLineDao, String codes, String periods, int threads) {
+        this.kLineDao = kLineDao;
+        this.enabled = true;
+        this.watchlistCodes = codes;
+        this.periods = periods;
+        this.threads = threads;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (enabled) {
+            startWarmUp("启动");
+        }
+    }
+
+    @Scheduled(cron = "${kline.warmup.cron:0 45 8 * * MON-FRI}")
+    public void warmUpBeforeOpen() {
+        if (enabled) {
+            // 不占用定时任务线程
+            startWarmUp("开盘前");
+        }
+    }
+
+    /**
+     * 在后台开始一轮预热，已有预热在进行时直接返回false
+     */
+    public boolean startWarmUp(String trigger) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            runner.execute(() -> runWarmUp(trigger));
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * 在当前线程执行一轮预热，已有预热在进行时直接返回false
+     */
+    public boolean warmUp(String trigger) {
+        return running.compareAndSet(false, true) && runWarmUp(trigger);
+    }
+
+    private boolean runWarmUp(String trigger) {
+        try {
+            List<String> codes = getPrioritizedCodes();
+            int[] klts = parsePeriods();
+            // 先从共享二级缓存批量装入，已装入的序列在下面的任务中直接命中内存
+            for (int klt : klts) {
+                kLineDao.preload(codes, klt);
+            }
+            List<Runnable> tasks = new ArrayList<>();
+            AtomicInteger completed = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            AtomicLong taskMillis = new AtomicLong();
+
+            // 按代码优先，同一代码的各周期相邻，热门代码的全部周期最先完成；集群模式下只预热本节点归属的代码
+            for (String code : codes) {
+                for (int klt : klts) {
+                    if (!kLineDao.isOwner(code, klt)) {
+                        continue;
+                    }
+                    tasks.add(() -> {
+                        long start = System.currentTimeMillis();
+                        try {
+                            // 预热读取不计入访问次数，不影响下一轮的热度排序
+                            (kLineDao.warmUp(code, klt) == 0 ? failed : completed).incrementAndGet();
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        } finally {
+                            taskMillis.addAndGet(System.currentTimeMillis() - start);
+                            updateProgress(completed.get(), failed.get(), taskMillis.get());
+                        }
+                    });
+                }
+            }
+
+            synchronized (status) {
+                status.setRunning(true);
+                status.setTrigger(trigger);
+                status.setTotalTasks(tasks.size());
+                status.setCompletedTasks(0);
+                status.setFailedTasks(0);
+                status.setAvgTaskMillis(0);
+                status.setStartTime(new Date());
+                status.setFinishTime(null);
+            }
+
+            CountDownLatch latch = new CountDownLatch(tasks.size());
+            ExecutorService pool = getExecutor();
+            for (Runnable task : tasks) {
+                pool.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+
+            synchronized (status) {
+                status.setFinishTime(new Date());
+                status.setElapsedMillis(status.getFinishTime().getTime() - status.getStartTime().getTime());
+                status.setRunCount(status.getRunCount() + 1);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            synchronized (status) {
+                status.setRunning(false);
+            }
+            running.set(false);
+        }
+    }
+
+    /**
+     * 获取预热状态快照
+     */
+    public WarmupStatus getStatus() {
+        synchronized (status) {
+            WarmupStatus snapshot = new WarmupStatus();
+            snapshot.setRunning(status.isRunning());
+            snapshot.setTrigger(status.getTrigger());
+            snapshot.setTotalTasks(status.getTotalTasks());
+            snapshot.setCompletedTasks(status.getCompletedTasks());
+            snapshot.setFailedTasks(status.getFailedTasks());
+            snapshot.setStartTime(status.getStartTime());
+            snapshot.setFinishTime(status.getFinishTime());
+            snapshot.setElapsedMillis(status.isRunning() && status.getStartTime() != null
+                    ? System.currentTimeMillis() - status.getStartTime().getTime() : status.getElapsedMillis());
+            snapshot.setAvgTaskMillis(status.getAvgTaskMillis());
+            snapshot.setRunCount(status.getRunCount());
+            return snapshot;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 关注列表按访问次数降序排列，次数相同保持列表顺序
+     */
+    private List<String> getPrioritizedCodes() {
+        Set<String> codes = new LinkedHashSet<>();
+        List<String> fileCodes = SecurityListFilter.readCodes(watchlistFile);
+        if (fileCodes != null) {
+            codes.addAll(fileCodes);
+        }
+        if (watchlistCodes != null) {
+            for (String code : watchlistCodes.split(",")) {
+                if (!code.trim().isEmpty()) {
+                    codes.add(code.trim());
+                }
+            }
+        }
+
+        Map<String, Long> accessCounts = kLineDao.getAccessCounts();
+        List<String> sorted = new ArrayList<>(codes);
+        sorted.sort((a, b) -> Long.compare(accessCounts.getOrDefault(b, 0L), accessCounts.getOrDefault(a, 0L)));
+        return sorted;
+    }
+
+    private int[] parsePeriods() {
+        return Arrays.stream(periods.split(","))
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+
+    private void updateProgress(int completed, int failed, long totalMillis) {
+        synchronized (status) {
+            status.setCompletedTasks(completed);
+            status.setFailedTasks(failed);
+            int done = completed + failed;
+            status.setAvgTaskMillis(done == 0 ? 0 : (double) totalMillis / done);
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+                Thread thread = new Thread(runnable, "kline-warmup-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
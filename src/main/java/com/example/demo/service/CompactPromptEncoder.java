@@ -0,0 +1,266 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineData;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 紧凑提示词编码
+ * 价格以相对昨收的涨跌百分比表示，成交量以相对窗口均量的倍数表示，去掉周期、成交额等冗余列；
+ * 在token预算内先保证最少K线条数，再按优先级加入预先计算好的指标，剩余预算尽量多放K线。
+ */
+public class CompactPromptEncoder {
+
+    /**
+     * 无论预算多紧都至少保留的K线条数
+     */
+    static final int MIN_BARS = 10;
+
+    // 行日期列：分钟K为日时分，周/日K为月日，月K及以上为年月
+    private static final DateTimeFormatter MINUTE_ROW_FORMAT = DateTimeFormatter.ofPattern("ddHHmm");
+    private static final DateTimeFormatter DAY_ROW_FORMAT = DateTimeFormatter.ofPattern("MMdd");
+    private static final DateTimeFormatter MONTH_ROW_FORMAT = DateTimeFormatter.ofPattern("yyMM");
+
+    private final int tokenBudget;
+
+    public CompactPromptEncoder(int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * 编码结果
+     */
+    public static class Encoded {
+        private final String prompt;
+        private final int barCount;
+        private final int featureCount;
+        private final int tokenCount;
+
+        Encoded(String prompt, int barCount, int featureCount) {
+            this.prompt = prompt;
+            this.barCount = barCount;
+            this.featureCount = featureCount;
+            this.tokenCount = PromptTokenCounter.count(prompt);
+        }
+
+        public String getPrompt() {
+            return prompt;
+        }
+
+        /**
+         * 实际放入的K线条数（取最新的若干条）
+         */
+        public int getBarCount() {
+            return barCount;
+        }
+
+        public int getFeatureCount() {
+            return featureCount;
+        }
+
+        public int getTokenCount() {
+            return tokenCount;
+        }
+    }
+
+    public Encoded encode(String stockCode, Date targetDate, int klt, String periodName,
+                          List<KLineData> candidates) {
+        return encode(stockCode, targetDate, klt, periodName, candidates, null);
+    }
+
+    /**
+     * @param candidates 候选K线，最新的在前
+     * @param patterns   全市场相似形态，可为空
+     */
+    public Encoded encode(String stockCode, Date targetDate, int klt, String periodName,
+                          List<KLineData> candidates, PatternMatchResult patterns) {
+        KLineData latest = candidates.get(0);
+
+        StringBuilder header = new StringBuilder();
+        header.append("你是一个数学专业出身的股票实盘大赛冠军，请分析以下股票历史数据，预测下一个").append(periodName).append("周期的涨跌情况：\n\n");
+        header.append("股票代码：").append(stockCode).append("，周期：").append(periodName)
+                .append("，分析日期：").append(EpochDays.formatBar(targetDate, klt)).append("\n");
+        header.append("最新收盘价：").append(format(latest.getClose(), 3)).append("\n");
+
+        StringBuilder instructions = new StringBuilder();
+        PromptGenerationService.appendAnalysisRequirements(instructions);
+
+        // 行数据：最新的在前，便于从新到旧按预算截取
+        List<String> rows = encodeRows(candidates, klt);
+        List<String> features = encodeFeatures(candidates);
+        if (patterns != null && !patterns.getMatches().isEmpty()) {
+            features.add("相似形态" + patterns.getMatches().size() + "例下一周期上涨比例："
+                    + format(patterns.getRiseRatio(), 2) + "，均涨跌%：" + format(patterns.getAverageNextChangeRate(), 2) + "\n");
+        }
+
+        int remaining = tokenBudget - PromptTokenCounter.count(header) - PromptTokenCounter.count(instructions)
+                - PromptTokenCounter.count(legend(klt, rows.size()));
+        int minBars = Math.min(MIN_BARS, rows.size());
+        int reserved = 0;
+        for (int i = 0; i < minBars; i++) {
+            reserved += PromptTokenCounter.count(rows.get(i));
+        }
+
+        // 指标按优先级放入，但不能挤占最少K线条数的预算
+        List<String> selectedFeatures = new ArrayList<>();
+        for (String feature : features) {
+            int cost = PromptTokenCounter.count(feature);
+            if (cost <= remaining - reserved) {
+                selectedFeatures.add(feature);
+                remaining -= cost;
+            }
+        }
+
+        int barCount = minBars;
+        remaining -= reserved;
+        while (barCount < rows.size()) {
+            int cost = PromptTokenCounter.count(rows.get(barCount));
+            if (cost > remaining) {
+                break;
+            }
+            remaining -= cost;
+            barCount++;
+        }
+
+        StringBuilder prompt = new StringBuilder(header);
+        if (!selectedFeatures.isEmpty()) {
+            prompt.append("指标：\n");
+            for (String feature : selectedFeatures) {
+                prompt.append(feature);
+            }
+        }
+        prompt.append(legend(klt, barCount));
+        // 按时间正序输出
+        for (int i = barCount - 1; i >= 0; i--) {
+            prompt.append(rows.get(i));
+        }
+        prompt.append(instructions);
+
+        return new Encoded(prompt.toString(), barCount, selectedFeatures.size());
+    }
+
+    private String legend(int klt, int barCount) {
+        String dateColumn = klt < 101 ? "日时分" : (klt >= 103 ? "年月" : "月日");
+        return "最近" + barCount + "条，按时间正序，每行：" + dateColumn
+                + ",开,高,低,收(相对昨收%),量(相对均量倍数)\n";
+    }
+
+    private List<String> encodeRows(List<KLineData> candidates, int klt) {
+        DateTimeFormatter rowFormat = klt < 101 ? MINUTE_ROW_FORMAT : (klt >= 103 ? MONTH_ROW_FORMAT : DAY_ROW_FORMAT);
+        double volumeSum = 0;
+        for (KLineData data : candidates) {
+            volumeSum += data.getVolume();
+        }
+        double averageVolume = volumeSum / candidates.size();
+
+        List<String> rows = new ArrayList<>(candidates.size());
+        for (KLineData data : candidates) {
+            double base = data.getLastClose();
+            rows.add(EpochDays.toLocalDateTime(data.getDate()).format(rowFormat)
+                    + "," + relative(data.getOpen(), base)
+                    + "," + relative(data.getHigh(), base)
+                    + "," + relative(data.getLow(), base)
+                    + "," + relative(data.getClose(), base)
+                    + "," + (averageVolume > 0 ? format(data.getVolume() / averageVolume, 1) : "0")
+                    + "\n");
+        }
+        return rows;
+    }
+
+    /**
+     * 预先计算的指标，按优先级排列
+     */
+    private List<String> encodeFeatures(List<KLineData> candidates) {
+        List<String> features = new ArrayList<>();
+        double close = candidates.get(0).getClose();
+
+        StringBuilder maLine = new StringBuilder();
+        for (int period : new int[]{5, 10, 20}) {
+            if (candidates.size() >= period) {
+                maLine.append(maLine.length() == 0 ? "" : ",")
+                        .append("MA").append(period).append(":").append(relative(close, closeMa(candidates, period)));
+            }
+        }
+        if (maLine.length() > 0) {
+            features.add("收盘相对均线%：" + maLine + "\n");
+        }
+
+        if (candidates.size() >= 20) {
+            double ma = closeMa(candidates, 20);
+            double variance = 0;
+            for (int i = 0; i < 20; i++) {
+                double diff = candidates.get(i).getClose() - ma;
+                variance += diff * diff;
+            }
+            double std = Math.sqrt(variance / 20);
+            double percentB = std > 0 ? (close - (ma - 2 * std)) / (4 * std) : 0.5;
+            features.add("布林%b(20,2)：" + format(percentB, 2) + "\n");
+        }
+
+        if (candidates.size() >= 5) {
+            double volumeMa = 0;
+            for (int i = 0; i < 5; i++) {
+                volumeMa += candidates.get(i).getVolume();
+            }
+            volumeMa /= 5;
+            if (volumeMa > 0) {
+                features.add("量比(对5周期均量)：" + format(candidates.get(0).getVolume() / volumeMa, 2) + "\n");
+            }
+        }
+
+        int rangeCount = Math.min(20, candidates.size());
+        double high = Double.NEGATIVE_INFINITY;
+        double low = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < rangeCount; i++) {
+            high = Math.max(high, candidates.get(i).getHigh());
+            low = Math.min(low, candidates.get(i).getLow());
+        }
+        if (high > low) {
+            features.add(rangeCount + "周期区间位置：" + format((close - low) / (high - low), 2) + "\n");
+        }
+
+        if (candidates.size() > 5) {
+            features.add("5周期涨跌%：" + relative(close, candidates.get(5).getClose()) + "\n");
+        }
+        return features;
+    }
+
+    private double closeMa(List<KLineData> candidates, int period) {
+        double sum = 0;
+        for (int i = 0; i < period; i++) {
+            sum += candidates.get(i).getClose();
+        }
+        return sum / period;
+    }
+
+    private String relative(double value, double base) {
+        return base > 0 ? format((value / base - 1) * 100, 2) : "0";
+    }
+
+    /**
+     * 去掉末尾的0和多余的正号、前导0，减少token数
+     */
+    static String format(double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "0";
+        }
+        BigDecimal decimal = BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP).stripTrailingZeros();
+        if (decimal.signum() == 0) {
+            return "0";
+        }
+        String text = decimal.toPlainString();
+        if (text.startsWith("0.")) {
+            return text.substring(1);
+        }
+        if (text.startsWith("-0.")) {
+            return "-" + text.substring(2);
+        }
+        return text;
+    }
+}
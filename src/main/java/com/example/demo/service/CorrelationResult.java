@@ -0,0 +1,22 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 滚动相关系数矩阵结果
+ */
+@Getter
+@Setter
+public class CorrelationResult {
+    private List<String> codes;     // 矩阵行列对应的代码
+    private Date asOf;              // 窗口最后一天
+    private int window;             // 窗口长度
+    private int days;               // 窗口内实际天数
+    private boolean incremental;    // 是否由上次结果增量更新得到
+    private long elapsedMillis;
+    private double[][] matrix;
+}
@@ -0,0 +1,153 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.KLineDao;
+import com.example.demo.dao.KLineData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多代码滚动收益率相关性服务
+ * 各代码按交易日历（所有代码K线日期的并集）对齐，停牌日收益率记为0；
+ * 同一组代码、周期、窗口的矩阵被保留，之后出现新的交易日时用滚动和增量更新，
+ * 当天K线被盘中行情修正时替换最后一天；累计一定次数的增量更新后全量重算一次，消除浮点误差。
+ */
+@Service
+public class CorrelationService {
+
+    private static final int REBUILD_INTERVAL = 250;
+    private static final int MAX_ENGINES = 16;
+
+    @Autowired
+    private KLineDao kLineDao;
+
+    @Value("${correlation.window:60}")
+    private int defaultWindow = 60;
+
+    private final Map<String, Engine> engines = new ConcurrentHashMap<>();
+
+    private static class Engine {
+        RollingCorrelation rolling;
+        long lastTime;
+        int updatesSinceRebuild;
+    }
+
+    public int getDefaultWindow() {
+        return defaultWindow;
+    }
+
+    /**
+     * 计算代码间的滚动相关系数矩阵，codes为空时使用缓存中的全部代码
+     */
+    public CorrelationResult getCorrelation(List<String> codes, int klt, int window) {
+        long start = System.currentTimeMillis();
+        List<String> sortedCodes = new ArrayList<>(codes == null || codes.isEmpty()
+                ? kLineDao.getCachedStockCodes() : new TreeSet<>(codes));
+        Collections.sort(sortedCodes);
+        kLineDao.preload(sortedCodes, klt);
+
+        // 按交易日历对齐各代码的收益率
+        List<Map<Long, Double>> returnsByCode = new ArrayList<>(sortedCodes.size());
+        NavigableSet<Long> calendar = new TreeSet<>();
+        for (String code : sortedCodes) {
+            Map<Long, Double> returns = loadReturns(code, klt);
+            returnsByCode.add(returns);
+            calendar.addAll(returns.keySet());
+        }
+
+        CorrelationResult result = new CorrelationResult();
+        result.setCodes(sortedCodes);
+        result.setWindow(window);
+        if (calendar.isEmpty()) {
+            result.setMatrix(new double[0][0]);
+            return result;
+        }
+
+        if (engines.size() > MAX_ENGINES) {
+            engines.clear();
+        }
+        String key = klt + ":" + window + ":" + String.join(",", sortedCodes);
+        Engine engine = engines.computeIfAbsent(key, k -> new Engine());
+        synchronized (engine) {
+            NavigableSet<Long> newDays = engine.rolling == null ? calendar : calendar.tailSet(engine.lastTime, false);
+            boolean incremental = engine.rolling != null && calendar.contains(engine.lastTime)
+                    && newDays.size() < window && engine.updatesSinceRebuild < REBUILD_INTERVAL;
+            if (incremental) {
+                double[] last = alignedReturns(returnsByCode, engine.lastTime);
+                if (!Arrays.equals(last, engine.rolling.getLast())) {
+                    engine.rolling.replaceLast(last);
+                    engine.updatesSinceRebuild++;
+                }
+                for (Long day : newDays) {
+                    engine.rolling.push(alignedReturns(returnsByCode, day));
+                    engine.updatesSinceRebuild++;
+                }
+            } else {
+                List<Long> recentDays = new ArrayList<>(calendar.descendingSet()).subList(0, Math.min(window, calendar.size()));
+                Collections.reverse(recentDays);
+                double[][] returns = new double[recentDays.size()][];
+                for (int d = 0; d < returns.length; d++) {
+                    returns[d] = alignedReturns(returnsByCode, recentDays.get(d));
+                }
+                engine.rolling = new RollingCorrelation(sortedCodes.size(), window);
+                engine.rolling.rebuild(returns);
+                engine.updatesSinceRebuild = 0;
+            }
+            engine.lastTime = calendar.last();
+
+            double[][] matrix = engine.rolling.correlationMatrix();
+            for (double[] row : matrix) {
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = BigDecimal.valueOf(row[j]).setScale(4, RoundingMode.HALF_UP).doubleValue();
+                }
+            }
+            result.setMatrix(matrix);
+            result.setDays(engine.rolling.getCount());
+            result.setIncremental(incremental);
+        }
+        result.setAsOf(new Date(calendar.last()));
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 读取代码的收益率（收盘价相对交易所昨收，不受除权影响），优先使用缓存
+     */
+    private Map<Long, Double> loadReturns(String code, int klt) {
+        List<KLineData> bars = kLineDao.getCachedKLineData(code, klt);
+        if (bars == null) {
+            bars = kLineDao.getAllKLineData(code, klt);
+        }
+        Map<Long, Double> returns = new HashMap<>();
+        if (bars == null) {
+            return returns;
+        }
+        for (KLineData bar : bars) {
+            if (bar.getClose() != null && bar.getLastClose() != null && bar.getLastClose() > 0) {
+                returns.put(bar.getDate().getTime(), bar.getClose() / bar.getLastClose() - 1);
+            }
+        }
+        return returns;
+    }
+
+    private double[] alignedReturns(List<Map<Long, Double>> returnsByCode, long day) {
+        double[] returns = new double[returnsByCode.size()];
+        for (int i = 0; i < returns.length; i++) {
+            returns[i] = returnsByCode.get(i).getOrDefault(day, 0.0);
+        }
+        return returns;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64位内容指纹（FNV-1a），用于判断生成结果的输入是否变化
+ */
+public class Fingerprint {
+
+    private long hash = 0xcbf29ce484222325L;
+
+    public Fingerprint add(long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return this;
+    }
+
+    public Fingerprint add(Double value) {
+        return add(value == null ? Long.MIN_VALUE : Double.doubleToLongBits(value));
+    }
+
+    public Fingerprint add(Long value) {
+        return add(value == null ? Long.MIN_VALUE : value.longValue());
+    }
+
+    public Fingerprint add(String value) {
+        if (value == null) {
+            return add(Long.MIN_VALUE);
+        }
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return add(value.length());
+    }
+
+    public long get() {
+        return hash;
+    }
+
+    public String toHex() {
+        return String.format("%016x", hash);
+    }
+}
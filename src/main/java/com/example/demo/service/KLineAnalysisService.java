@@ -1,12 +1,16 @@
 package com.example.demo.service;
 
+import com.example.demo.dao.EpochDays;
 import com.example.demo.dao.KLineDao;
 import com.example.demo.dao.KLineData;
+import com.example.demo.dao.SeriesSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 /**
  * K线分析服务层
@@ -17,24 +21,38 @@ public class KLineAnalysisService {
     @Autowired
     private KLineDao kLineDao;
 
-    private static final double T1_WEIGHT = 0.8;    // T-1权重
-    private static final double T2_TO_T5_WEIGHT = 0.2; // T-2到T-5总权重
-    private static final double SINGLE_DAY_WEIGHT = T2_TO_T5_WEIGHT / 4; // T-2到T-5单日权重
+    @Autowired
+    private PatternSearchService patternSearchService;
+
+    static final double T1_WEIGHT = 0.8;    // T-1权重
+    static final double T2_TO_T5_WEIGHT = 0.2; // T-2到T-5总权重
+    static final double SINGLE_DAY_WEIGHT = T2_TO_T5_WEIGHT / 4; // T-2到T-5单日权重
 
     /**
      * 分析指定日期的K线数据，预测次日涨跌
      */
     public TrendAnalysisResult analyzeNextDayTrend(String stockCode, Date targetDate) {
+        return analyzeNextDayTrend(stockCode, EpochDays.toLocalDate(targetDate));
+    }
+
+    public TrendAnalysisResult analyzeNextDayTrend(String stockCode, LocalDate targetDate) {
+        return analyzeNextDayTrend(stockCode, targetDate, null);
+    }
+
+    /**
+     * @param ascending 调用方已读取的日K线升序序列，用于查找相似形态；为null时按需读取
+     */
+    private TrendAnalysisResult analyzeNextDayTrend(String stockCode, LocalDate targetDate, List<KLineData> ascending) {
         try {
             // 1. 检查目标日期数据是否存在
-            KLineData targetData = kLineDao.getKLineDataByDate(stockCode, targetDate);
+            KLineData targetData = kLineDao.getKLineDataByDate(stockCode, targetDate, 101);
             if (targetData == null) {
                 return new TrendAnalysisResult(false, false, 0,
-                        "目标日期数据不存在", "无法获取" + new SimpleDateFormat("yyyy-MM-dd").format(targetDate) + "的数据");
+                        "目标日期数据不存在", "无法获取" + targetDate + "的数据");
             }
 
             // 2. 获取T-1到T-5的数据
-            List<DailyAnalysis> dailyAnalyses = getHistoricalAnalyses(stockCode, targetDate);
+            List<DailyAnalysis> dailyAnalyses = getHistoricalAnalyses(stockCode, targetData, targetDate);
             if (dailyAnalyses.isEmpty()) {
                 return new TrendAnalysisResult(false, false, 0,
                         "历史数据不足，无法进行分析", "需要至少T-1的数据进行分析");
@@ -44,6 +62,20 @@ public class KLineAnalysisService {
             TrendAnalysisResult result = calculateWeightedSignal(dailyAnalyses, targetDate);
             result.setAnalysisDetails(generateAnalysisDetails(dailyAnalyses, result));
 
+            // 4. 附加全市场相似形态的后续表现（按配置开启），供参考，不参与加权
+            if (patternSearchService != null && patternSearchService.isEnrichPrompts()) {
+                if (ascending == null) {
+                    List<KLineData> series = kLineDao.getAllKLineData(stockCode);
+                    ascending = series == null ? Collections.emptyList() : SeriesSnapshot.ascending(series);
+                }
+                int endIndex = PatternSearchService.floorIndex(ascending, targetData.getEpochDay());
+                PatternMatchResult patterns = patternSearchService.findSimilarIfReady(stockCode, 101, ascending, endIndex);
+                if (patterns != null && !patterns.getMatches().isEmpty()) {
+                    result.setSimilarPatterns(patterns);
+                    result.setAnalysisDetails(result.getAnalysisDetails() + "\n" + patterns.describe());
+                }
+            }
+
             return result;
 
         } catch (Exception e) {
@@ -55,25 +87,12 @@ public class KLineAnalysisService {
     /**
      * 获取T-1到T-5的历史数据分析结果
      */
-    private List<DailyAnalysis> getHistoricalAnalyses(String stockCode, Date targetDate) {
+    private List<DailyAnalysis> getHistoricalAnalyses(String stockCode, KLineData targetDayData, LocalDate targetDate) {
         List<DailyAnalysis> analyses = new ArrayList<>();
-        Calendar calendar = Calendar.getInstance();
-
-
-
-        KLineData targetDayData = kLineDao.getKLineDataByDate(stockCode, targetDate);
-        if (targetDayData == null) {
-            return analyses;
-        }
 
         for (int i = 1; i <= 7; i++) {
-            // 计算T-n日期
-            calendar.setTime(targetDate);
-            calendar.add(Calendar.DAY_OF_MONTH, -i);
-            Date nextDate = calendar.getTime();
-
             // 获取T-n和T-(n+1)的数据
-            KLineData nextDayData = kLineDao.getKLineDataByDate(stockCode, nextDate);
+            KLineData nextDayData = kLineDao.getKLineDataByDate(stockCode, targetDate.minusDays(i), 101);
             if (nextDayData == null) continue;
 
             // 分析单日数据
@@ -147,7 +166,7 @@ public class KLineAnalysisService {
     /**
      * 计算加权信号
      */
-    private TrendAnalysisResult calculateWeightedSignal(List<DailyAnalysis> analyses, Date targetDate) {
+    private TrendAnalysisResult calculateWeightedSignal(List<DailyAnalysis> analyses, LocalDate targetDate) {
         double weightedSum = 0;
         double totalWeight = 0;
 
@@ -162,7 +181,7 @@ public class KLineAnalysisService {
         boolean predictedRise = confidence > 0;
 
         String message = String.format("分析日期: %s, 预测次日: %s, 置信度: %.2f%%",
-                new SimpleDateFormat("yyyy-MM-dd").format(targetDate),
+                targetDate,
                 predictedRise ? "上涨" : "下跌",
                 Math.abs(confidence) * 100);
 
@@ -197,6 +216,16 @@ public class KLineAnalysisService {
      * 批量分析测试方法，过去多少天
      */
     public AnalysisStatistics batchAnalysisTest(String stockCode, int testCount) {
+        return streamBatchAnalysis(stockCode, testCount, result -> true);
+    }
+
+    /**
+     * 批量回测，每完成一个日期的预测和验证立即交给回调（结果中带目标日期和实际涨跌）
+     *
+     * @param onResult 回调返回false（如客户端已断开）时停止，统计只包含已完成的日期
+     */
+    public AnalysisStatistics streamBatchAnalysis(String stockCode, int testCount,
+                                                  Predicate<TrendAnalysisResult> onResult) {
         AnalysisStatistics stats = new AnalysisStatistics();
 
         // 获取所有有数据的日期
@@ -207,10 +236,10 @@ public class KLineAnalysisService {
         }
 
         // 选择测试日期（排除最后一天，因为需要后一天的真实数据验证）
-        int correctPredictions = 0;
-        int totalTests = testCount;
+        List<KLineData> ascending = SeriesSnapshot.ascending(allData);
 
-        for (int i = 1; i < testCount; i++) {
+        int lastIndex = Math.min(testCount, allData.size());
+        for (int i = 1; i < lastIndex; i++) {
             // 选择测试日期（可以确保有T-1到T-5的数据）
             Date testDate = allData.get(i).getDate();
 
@@ -222,40 +251,59 @@ public class KLineAnalysisService {
             if (nextDayData == null) continue;
 
             // 进行分析预测
-            TrendAnalysisResult prediction = analyzeNextDayTrend(stockCode, testDate);
+            TrendAnalysisResult prediction = analyzeNextDayTrend(stockCode, EpochDays.toLocalDate(testDate), ascending);
             if (!prediction.isCanAnalyze()) continue;
 
             // 验证预测准确性
             boolean actualRise = nextDayData.getChangeRate() > 0;
             boolean isCorrect = (prediction.isPredictedRise() == actualRise);
 
-            if (isCorrect) correctPredictions++;
-
             stats.addTestResult(testDate, prediction.isPredictedRise(), actualRise,
                     prediction.getConfidence(), isCorrect);
+
+            prediction.setTargetDate(testDate);
+            prediction.setActualRise(actualRise);
+            if (!onResult.test(prediction)) {
+                break;
+            }
         }
 
-        // 计算统计结果
-        double accuracy = (totalTests > 0) ? (double) correctPredictions / totalTests * 100 : 0;
-        stats.setTotalTests(totalTests);
-        stats.setCorrectPredictions(correctPredictions);
-        stats.setAccuracy(accuracy);
+        // 准确率随每条结果实时更新，总数只计实际完成的测试
         stats.setMessage(String.format("测试完成: 总数%d, 正确%d, 准确率%.2f%%",
-                totalTests, correctPredictions, accuracy));
+                stats.getTotalTests(), stats.getCorrectPredictions(), stats.getAccuracy()));
 
         return stats;
     }
 
     /**
-     * 获取下一个交易日
+     * 滚动前推评估：每个代码的完整序列切成连续的训练段和测试段，
+     * 训练段上选T-1权重，测试段上评估准确率和置信度校准；codes为空时使用缓存中的全部代码。
+     * 回看T-1~T-5按交易日计，不按自然日。
      */
-    private Date getNextTradeDay(List<KLineData> allData, Date currentDate) {
-        // 按日期排序
-        allData.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+    public WalkForwardResult walkForwardTest(List<String> stockCodes, int klt, int trainSize, int testSize) {
+        // 先校验参数，再读取序列
+        WalkForwardEvaluator evaluator = new WalkForwardEvaluator(trainSize, testSize);
+        String[] codes = (stockCodes == null || stockCodes.isEmpty()
+                ? new TreeSet<>(kLineDao.getCachedStockCodes()) : new LinkedHashSet<>(stockCodes)).toArray(new String[0]);
+
+        TrendRuleFeatures[] features = new TrendRuleFeatures[codes.length];
+        IntStream.range(0, codes.length).parallel().forEach(i -> {
+            List<KLineData> bars = kLineDao.getAllKLineData(codes[i], klt);
+            features[i] = TrendRuleFeatures.fromBars(
+                    bars == null ? Collections.emptyList() : SeriesSnapshot.ascending(bars));
+        });
+
+        return evaluator.evaluate(codes, features);
+    }
 
-        for (int i = 0; i < allData.size() - 1; i++) {
-            if (allData.get(i).getDate().equals(currentDate)) {
-                return allData.get(i + 1).getDate();
+    /**
+     * 获取下一个交易日，allData为DAO返回的最新在前列表
+     */
+    private Date getNextTradeDay(List<KLineData> allData, Date currentDate) {
+        int currentDay = EpochDays.of(currentDate);
+        for (int i = 1; i < allData.size(); i++) {
+            if (allData.get(i).getEpochDay() == currentDay) {
+                return allData.get(i - 1).getDate();
             }
         }
         return null;
@@ -0,0 +1,20 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全市场扫描结果
+ */
+@Getter
+@Setter
+public class MarketScanResult {
+    private int scannedCount;     // 扫描代码数
+    private int matchedCount;     // 通过过滤条件的代码数
+    private long elapsedMillis;   // 耗时
+    private List<ScanHit> bullish = new ArrayList<>(); // 看涨信号最强的前K个
+    private List<ScanHit> bearish = new ArrayList<>(); // 看跌信号最强的前K个
+}
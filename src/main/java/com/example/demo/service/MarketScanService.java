@@ -0,0 +1,165 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.KLineDao;
+import com.example.demo.dao.KLineData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * 全市场横截面扫描服务
+ * 对缓存中的全部代码并行计算量价信号（与KLineAnalysisService相同的缩量/放量规则），
+ * 各分片维护定长堆，最后合并出看涨、看跌信号最强的前K个代码。
+ */
+@Service
+public class MarketScanService {
+
+    private static final int CHUNK_SIZE = 64;
+    private static final int LOOKBACK = 5; // T-1到T-5
+
+    @Autowired
+    private KLineDao kLineDao;
+
+    /**
+     * 扫描缓存中的全部代码，不触发远程获取
+     */
+    public MarketScanResult scan(ScanCriteria criteria) {
+        long start = System.currentTimeMillis();
+        String[] codes = kLineDao.getCachedStockCodes().toArray(new String[0]);
+        int chunkCount = (codes.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        AtomicInteger matched = new AtomicInteger();
+
+        // 每个分片独立的看涨/看跌堆，避免线程间竞争
+        TopKHeap[][] chunkHeaps = new TopKHeap[chunkCount][];
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            TopKHeap bullish = new TopKHeap(criteria.getTopK());
+            TopKHeap bearish = new TopKHeap(criteria.getTopK());
+            double[] signal = new double[2];
+            int end = Math.min(codes.length, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                if (!evaluate(codes[i], criteria, signal)) {
+                    continue;
+                }
+                matched.incrementAndGet();
+                if (signal[0] > 0) {
+                    bullish.offer(signal[0], signal[1], i);
+                } else if (signal[0] < 0) {
+                    bearish.offer(-signal[0], signal[1], i);
+                }
+            }
+            chunkHeaps[chunk] = new TopKHeap[]{bullish, bearish};
+        });
+
+        TopKHeap bullish = new TopKHeap(criteria.getTopK());
+        TopKHeap bearish = new TopKHeap(criteria.getTopK());
+        for (TopKHeap[] heaps : chunkHeaps) {
+            bullish.merge(heaps[0]);
+            bearish.merge(heaps[1]);
+        }
+
+        MarketScanResult result = new MarketScanResult();
+        result.setScannedCount(codes.length);
+        result.setMatchedCount(matched.get());
+        result.setBullish(toHits(codes, bullish.drainDescending(), criteria));
+        result.setBearish(toHits(codes, bearish.drainDescending(), criteria));
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 计算单个代码的信号，结果写入signal[0]=置信度、signal[1]=量比；不满足条件时返回false
+     */
+    private boolean evaluate(String stockCode, ScanCriteria criteria, double[] signal) {
+        return evaluate(kLineDao.getCachedKLineData(stockCode, criteria.getKlt()), criteria, signal);
+    }
+
+    private boolean evaluate(List<KLineData> bars, ScanCriteria criteria, double[] signal) {
+        if (bars == null) {
+            return false;
+        }
+        int targetIndex = findTargetIndex(bars, criteria);
+        if (targetIndex < 0 || targetIndex + 1 >= bars.size()) {
+            return false;
+        }
+        KLineData target = bars.get(targetIndex);
+        if (!passesFilters(target, criteria) || target.getVolume() == null || target.getVolume() == 0) {
+            return false;
+        }
+
+        boolean isRise = target.getClose() >= target.getOpen();
+        double weightedSum = 0;
+        double totalWeight = 0;
+        int last = Math.min(bars.size() - 1, targetIndex + LOOKBACK);
+        for (int i = targetIndex + 1; i <= last; i++) {
+            Long volume = bars.get(i).getVolume();
+            if (volume == null) {
+                continue;
+            }
+            // 缩量涨->继续涨，缩量跌->继续跌；放量则反转
+            boolean isVolumeShrink = target.getVolume() < volume;
+            boolean signalRise = isVolumeShrink == isRise;
+            double weight = (i == targetIndex + 1) ? KLineAnalysisService.T1_WEIGHT
+                    : KLineAnalysisService.SINGLE_DAY_WEIGHT;
+            weightedSum += signalRise ? weight : -weight;
+            totalWeight += weight;
+        }
+        if (totalWeight == 0) {
+            return false;
+        }
+
+        Long previousVolume = bars.get(targetIndex + 1).getVolume();
+        signal[0] = weightedSum / totalWeight;
+        signal[1] = previousVolume == null ? 0 : (double) previousVolume / target.getVolume();
+        return true;
+    }
+
+    private int findTargetIndex(List<KLineData> bars, ScanCriteria criteria) {
+        if (criteria.getTargetDate() == null) {
+            return 0;
+        }
+        for (int i = 0; i < bars.size(); i++) {
+            if (!bars.get(i).getDate().after(criteria.getTargetDate())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean passesFilters(KLineData bar, ScanCriteria criteria) {
+        return inRange(bar.getTurnoverRate(), criteria.getMinTurnoverRate(), criteria.getMaxTurnoverRate())
+                && inRange(bar.getAmplitude(), criteria.getMinAmplitude(), criteria.getMaxAmplitude())
+                && inRange(bar.getChangeRate(), criteria.getMinChangeRate(), criteria.getMaxChangeRate());
+    }
+
+    private boolean inRange(Double value, Double min, Double max) {
+        if (min == null && max == null) {
+            return true;
+        }
+        if (value == null) {
+            return false;
+        }
+        return (min == null || value >= min) && (max == null || value <= max);
+    }
+
+    /**
+     * 只为进入前K名的代码创建结果对象
+     */
+    private List<ScanHit> toHits(String[] codes, int[] ids, ScanCriteria criteria) {
+        List<ScanHit> hits = new ArrayList<>(ids.length);
+        double[] signal = new double[2];
+        for (int id : ids) {
+            List<KLineData> bars = kLineDao.getCachedKLineData(codes[id], criteria.getKlt());
+            if (!evaluate(bars, criteria, signal)) {
+                continue;
+            }
+            KLineData target = bars.get(findTargetIndex(bars, criteria));
+            hits.add(new ScanHit(codes[id], target.getDate(), signal[0], signal[1],
+                    target.getChangeRate(), target.getTurnoverRate(), target.getAmplitude()));
+        }
+        return hits;
+    }
+}
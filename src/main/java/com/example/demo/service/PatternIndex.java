@@ -0,0 +1,279 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.KLineData;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * K线形态相似度索引
+ * 每个窗口由N根K线的累计对数收益和对数成交量组成，两个通道分别做z标准化，按欧氏距离比较。
+ * 窗口向量按分片平铺在float数组中（每片CHUNK_SIZE个窗口，全市场的窗口数乘以维数会超出单个数组的上限）；
+ * 另存每通道10段的分段均值（PAA），查询时先用PAA下界剔除不可能进入前K的窗口，
+ * 再对剩余窗口计算完整距离并提前终止，按分片并行扫描。
+ * 构建后只读，可被多个线程同时查询。
+ */
+public class PatternIndex {
+
+    static final int SEGMENTS = 10;
+    private static final int CHUNK_BITS = 15;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int window;
+    private final int dimension;
+    private final String[] seriesCodes;
+    private final Map<String, Integer> seriesIdMap = new HashMap<>();
+    private final int[] seriesIds;      // 窗口所属序列，无效窗口为-1
+    private final long[] endTimes;
+    private final long[] outcomeTimes;  // 下一根K线的时间，查询时只使用结果早于目标时间的窗口
+    private final float[] nextChanges;  // 下一根K线涨跌幅（%）
+    private final float[][] vectors;    // [分片][片内序号 * dimension]
+    private final float[][] paa;        // [分片][片内序号 * SEGMENTS * 2]
+    private long version;               // 由各序列的代码、长度和最后一根K线计算，输入不变时重建后版本不变
+
+    private PatternIndex(int window, String[] seriesCodes, int count) {
+        this.window = window;
+        this.dimension = window * 2;
+        this.seriesCodes = seriesCodes;
+        for (int s = 0; s < seriesCodes.length; s++) {
+            seriesIdMap.put(seriesCodes[s], s);
+        }
+        this.seriesIds = new int[count];
+        this.endTimes = new long[count];
+        this.outcomeTimes = new long[count];
+        this.nextChanges = new float[count];
+        int chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.vectors = new float[chunkCount][];
+        this.paa = new float[chunkCount][];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int size = Math.min(CHUNK_SIZE, count - chunk * CHUNK_SIZE);
+            vectors[chunk] = new float[size * dimension];
+            paa[chunk] = new float[size * SEGMENTS * 2];
+        }
+    }
+
+    /**
+     * 从多个升序K线序列构建索引，各序列并行计算窗口向量
+     */
+    public static PatternIndex build(int window, List<String> codes, List<List<KLineData>> ascendingSeries) {
+        int seriesCount = codes.size();
+        long[] offsets = new long[seriesCount + 1];
+        for (int s = 0; s < seriesCount; s++) {
+            // 窗口末端需要有下一根K线作为结果
+            offsets[s + 1] = offsets[s] + Math.max(0, ascendingSeries.get(s).size() - window);
+        }
+        if (offsets[seriesCount] > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("窗口数超出上限: " + offsets[seriesCount]);
+        }
+
+        PatternIndex index = new PatternIndex(window, codes.toArray(new String[0]), (int) offsets[seriesCount]);
+        Fingerprint fingerprint = new Fingerprint().add(window);
+        for (int s = 0; s < seriesCount; s++) {
+            List<KLineData> bars = ascendingSeries.get(s);
+            KLineData last = bars.isEmpty() ? null : bars.get(bars.size() - 1);
+            fingerprint.add(codes.get(s)).add(bars.size())
+                    .add(last == null ? 0 : last.getDate().getTime()).add(last == null ? null : last.getClose());
+        }
+        index.version = fingerprint.get();
+        IntStream.range(0, seriesCount).parallel().forEach(s -> {
+            List<KLineData> bars = ascendingSeries.get(s);
+            int slot = (int) offsets[s];
+            for (int end = window - 1; end < bars.size() - 1; end++, slot++) {
+                KLineData next = bars.get(end + 1);
+                float[] chunkVectors = index.vectors[slot >>> CHUNK_BITS];
+                int local = slot & CHUNK_MASK;
+                boolean valid = next.getClose() != null && next.getLastClose() != null && next.getLastClose() > 0
+                        && toVector(bars, end, window, chunkVectors, local * index.dimension);
+                index.seriesIds[slot] = valid ? s : -1;
+                if (!valid) {
+                    continue;
+                }
+                index.endTimes[slot] = bars.get(end).getDate().getTime();
+                index.outcomeTimes[slot] = next.getDate().getTime();
+                index.nextChanges[slot] = (float) ((next.getClose() / next.getLastClose() - 1) * 100);
+                computePaa(chunkVectors, local * index.dimension, window,
+                        index.paa[slot >>> CHUNK_BITS], local * SEGMENTS * 2);
+            }
+        });
+        return index;
+    }
+
+    /**
+     * 计算以endIndex结尾的窗口向量，数据不完整时返回false
+     * 收盘价通道使用相对昨收的累计对数收益，不受除权除息跳空影响。
+     */
+    public static boolean toVector(List<KLineData> ascending, int endIndex, int window, float[] out, int offset) {
+        int start = endIndex - window + 1;
+        if (start < 0 || endIndex >= ascending.size()) {
+            return false;
+        }
+        double cumulative = 0;
+        for (int i = 0; i < window; i++) {
+            KLineData bar = ascending.get(start + i);
+            if (bar.getClose() == null || bar.getLastClose() == null || bar.getVolume() == null
+                    || bar.getClose() <= 0 || bar.getLastClose() <= 0) {
+                return false;
+            }
+            cumulative += Math.log(bar.getClose() / bar.getLastClose());
+            out[offset + i] = (float) cumulative;
+            out[offset + window + i] = (float) Math.log1p(Math.max(0, bar.getVolume()));
+        }
+        zNormalize(out, offset, window);
+        zNormalize(out, offset + window, window);
+        return true;
+    }
+
+    private static void zNormalize(float[] values, int offset, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += values[offset + i];
+        }
+        double mean = sum / length;
+        double variance = 0;
+        for (int i = 0; i < length; i++) {
+            double diff = values[offset + i] - mean;
+            variance += diff * diff;
+        }
+        double std = Math.sqrt(variance / length);
+        for (int i = 0; i < length; i++) {
+            // 走平的窗口标准化后全为0
+            values[offset + i] = std < 1e-9 ? 0f : (float) ((values[offset + i] - mean) / std);
+        }
+    }
+
+    /**
+     * 每个通道按SEGMENTS段求均值
+     */
+    static void computePaa(float[] vector, int offset, int window, float[] out, int outOffset) {
+        for (int channel = 0; channel < 2; channel++) {
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                int from = segment * window / SEGMENTS;
+                int to = (segment + 1) * window / SEGMENTS;
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += vector[offset + channel * window + i];
+                }
+                out[outOffset + channel * SEGMENTS + segment] = (float) (sum / Math.max(1, to - from));
+            }
+        }
+    }
+
+    /**
+     * 查询最相似的k个窗口
+     *
+     * @param query          toVector生成的查询向量
+     * @param excludeSeries  查询所在序列的编号，与查询窗口重叠的同序列窗口不参与比较；-1表示不排除
+     * @param queryStartTime 查询窗口第一根K线的时间
+     * @param maxOutcomeTime 只使用结果不晚于该时间的窗口，避免用到未来数据
+     */
+    public PatternMatchResult search(float[] query, int excludeSeries, long queryStartTime, long maxOutcomeTime, int k) {
+        long start = System.nanoTime();
+        float[] queryPaa = new float[SEGMENTS * 2];
+        computePaa(query, 0, window, queryPaa, 0);
+        // 段长不等时取最短段长，下界仍然成立
+        int segmentLength = window / SEGMENTS;
+
+        int count = seriesIds.length;
+        int chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        TopKHeap[] chunkHeaps = new TopKHeap[chunkCount];
+        AtomicLong pruned = new AtomicLong();
+        AtomicLong compared = new AtomicLong();
+
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            TopKHeap heap = new TopKHeap(k);
+            long chunkPruned = 0;
+            long chunkCompared = 0;
+            float[] chunkPaa = paa[chunk];
+            int end = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                int series = seriesIds[i];
+                if (series < 0 || outcomeTimes[i] > maxOutcomeTime
+                        || (series == excludeSeries && endTimes[i] >= queryStartTime)) {
+                    continue;
+                }
+                double bestSoFar = heap.size() < k ? Double.POSITIVE_INFINITY : -heap.lowestScore();
+
+                // PAA下界：segmentLength * Σ(段均值差)² ≤ 完整距离²
+                double lowerBound = 0;
+                int paaOffset = (i & CHUNK_MASK) * SEGMENTS * 2;
+                for (int j = 0; j < SEGMENTS * 2; j++) {
+                    double diff = queryPaa[j] - chunkPaa[paaOffset + j];
+                    lowerBound += diff * diff;
+                }
+                if (lowerBound * segmentLength >= bestSoFar) {
+                    chunkPruned++;
+                    continue;
+                }
+
+                chunkCompared++;
+                double distance = distance(query, i, bestSoFar);
+                if (distance < bestSoFar) {
+                    heap.offer(-distance, 0, i);
+                }
+            }
+            pruned.addAndGet(chunkPruned);
+            compared.addAndGet(chunkCompared);
+            chunkHeaps[chunk] = heap;
+        });
+
+        TopKHeap heap = new TopKHeap(k);
+        for (TopKHeap chunkHeap : chunkHeaps) {
+            heap.merge(chunkHeap);
+        }
+
+        List<PatternMatch> matches = new ArrayList<>();
+        for (int id : heap.drainDescending()) {
+            matches.add(new PatternMatch(seriesCodes[seriesIds[id]], new Date(endTimes[id]),
+                    Math.sqrt(distance(query, id, Double.POSITIVE_INFINITY)), nextChanges[id]));
+        }
+
+        PatternMatchResult result = new PatternMatchResult(window, matches);
+        result.setIndexedWindows(count);
+        result.setPrunedWindows(pruned.get());
+        result.setComparedWindows(compared.get());
+        result.setElapsedMicros((System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * 距离平方，超过阈值后提前终止
+     */
+    private double distance(float[] query, int id, double threshold) {
+        float[] chunkVectors = vectors[id >>> CHUNK_BITS];
+        int offset = (id & CHUNK_MASK) * dimension;
+        double sum = 0;
+        for (int j = 0; j < dimension; j++) {
+            double diff = query[j] - chunkVectors[offset + j];
+            sum += diff * diff;
+            if (sum >= threshold) {
+                return sum;
+            }
+        }
+        return sum;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int size() {
+        return seriesIds.length;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 代码在索引中的序列编号，不存在时返回-1
+     */
+    public int seriesIdOf(String stockCode) {
+        return seriesIdMap.getOrDefault(stockCode, -1);
+    }
+}
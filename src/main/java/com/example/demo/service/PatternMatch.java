@@ -0,0 +1,23 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 相似历史窗口
+ */
+@Getter
+public class PatternMatch {
+    private final String stockCode;
+    private final Date endDate;         // 窗口最后一根K线的日期
+    private final double distance;      // z标准化后的欧氏距离
+    private final double nextChangeRate; // 窗口后下一根K线的涨跌幅（%）
+
+    public PatternMatch(String stockCode, Date endDate, double distance, double nextChangeRate) {
+        this.stockCode = stockCode;
+        this.endDate = endDate;
+        this.distance = distance;
+        this.nextChangeRate = nextChangeRate;
+    }
+}
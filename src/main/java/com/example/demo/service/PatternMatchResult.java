@@ -0,0 +1,53 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.EpochDays;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 相似形态查询结果
+ */
+@Getter
+@Setter
+public class PatternMatchResult {
+    private int window;                // 窗口长度
+    private int indexedWindows;        // 索引中的窗口数
+    private long prunedWindows;        // 被下界剔除的窗口数
+    private long comparedWindows;      // 计算完整距离的窗口数
+    private long elapsedMicros;        // 查询耗时（微秒）
+    private List<PatternMatch> matches; // 按距离从近到远
+    private double riseRatio;          // 相似窗口下一周期上涨的比例
+    private double averageNextChangeRate; // 相似窗口下一周期平均涨跌幅（%）
+
+    public PatternMatchResult(int window, List<PatternMatch> matches) {
+        this.window = window;
+        this.matches = matches;
+        int rises = 0;
+        double sum = 0;
+        for (PatternMatch match : matches) {
+            if (match.getNextChangeRate() > 0) {
+                rises++;
+            }
+            sum += match.getNextChangeRate();
+        }
+        this.riseRatio = matches.isEmpty() ? 0 : (double) rises / matches.size();
+        this.averageNextChangeRate = matches.isEmpty() ? 0 : sum / matches.size();
+    }
+
+    /**
+     * 生成可附加到提示词或分析报告中的文字描述
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("全市场最相似的%d个%d周期形态：下一周期上涨比例%.0f%%，平均涨跌幅%.2f%%\n",
+                matches.size(), window, riseRatio * 100, averageNextChangeRate));
+        for (PatternMatch match : matches) {
+            text.append(String.format("%s %s 距离%.2f 下一周期%.2f%%\n",
+                    match.getStockCode(), EpochDays.toLocalDateTime(match.getEndDate()).format(EpochDays.DATE_MINUTE),
+                    match.getDistance(), match.getNextChangeRate()));
+        }
+        return text.toString();
+    }
+}
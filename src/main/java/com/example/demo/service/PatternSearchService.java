@@ -0,0 +1,183 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineDao;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.SeriesSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 历史相似形态检索服务
+ * 按周期从DAO缓存中的全部代码构建PatternIndex，之后定时整体重建；只使用缓存数据，不触发远程获取。
+ * 显式的相似形态查询在索引未建好时等待构建；附加到提示词和分析结果的查询默认关闭，
+ * 开启后索引未建好时在后台构建、本次不附加，不占用请求线程。
+ */
+@Service
+@Lazy(false) // 含定时任务，开启懒加载时仍需启动时创建
+public class PatternSearchService {
+
+    /**
+     * 索引尚未建好时的版本标记
+     */
+    public static final long NO_INDEX = -1;
+
+    @Autowired
+    private KLineDao kLineDao;
+
+    @Value("${pattern.window:20}")
+    private int window = 20;
+
+    @Value("${pattern.k:10}")
+    private int defaultK = 10;
+
+    /**
+     * 是否在默认提示词和次日涨跌分析中附加相似形态
+     */
+    @Value("${pattern.enrich-prompts:false}")
+    private boolean enrichPrompts;
+
+    private final Map<Integer, PatternIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Integer, Boolean> building = new ConcurrentHashMap<>();
+    private final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pattern-index-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public boolean isEnrichPrompts() {
+        return enrichPrompts;
+    }
+
+    /**
+     * 查询目标日期（含）之前最近一个窗口的相似历史窗口，只使用结果早于目标日期的窗口
+     */
+    public PatternMatchResult findSimilar(String stockCode, int klt, Date targetDate) {
+        List<KLineData> series = kLineDao.getAllKLineData(stockCode, klt);
+        if (series == null) {
+            return new PatternMatchResult(window, Collections.emptyList());
+        }
+        List<KLineData> ascending = SeriesSnapshot.ascending(series);
+        return findSimilar(stockCode, klt, ascending, floorIndex(ascending, EpochDays.of(targetDate)));
+    }
+
+    /**
+     * 以升序序列中endIndex结尾的窗口为查询，索引未建好时等待构建
+     */
+    public PatternMatchResult findSimilar(String stockCode, int klt, List<KLineData> ascending, int endIndex) {
+        return search(getIndex(klt), stockCode, ascending, endIndex);
+    }
+
+    /**
+     * 同findSimilar，但索引未建好时提交后台构建并返回null，用于附加到提示词和分析结果
+     */
+    public PatternMatchResult findSimilarIfReady(String stockCode, int klt, List<KLineData> ascending, int endIndex) {
+        PatternIndex index = indexes.get(klt);
+        if (index == null) {
+            buildInBackground(klt);
+            return null;
+        }
+        return search(index, stockCode, ascending, endIndex);
+    }
+
+    /**
+     * 升序序列中不晚于指定纪元日的最后一根K线的下标，没有时返回-1
+     */
+    public static int floorIndex(List<KLineData> ascending, int day) {
+        int low = 0;
+        int high = ascending.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ascending.get(mid).getEpochDay() <= day) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private PatternMatchResult search(PatternIndex index, String stockCode, List<KLineData> ascending, int endIndex) {
+        float[] query = new float[window * 2];
+        if (endIndex < 0 || !PatternIndex.toVector(ascending, endIndex, window, query, 0)) {
+            return new PatternMatchResult(window, Collections.emptyList());
+        }
+        long queryStartTime = ascending.get(endIndex - window + 1).getDate().getTime();
+        long targetTime = ascending.get(endIndex).getDate().getTime();
+        return index.search(query, index.seriesIdOf(stockCode), queryStartTime, targetTime, defaultK);
+    }
+
+    /**
+     * 周期索引的版本，索引内容变化（新代码、新K线）时改变；
+     * 索引尚未建好时提交后台构建并返回NO_INDEX（此时提示词不附加相似形态），不在请求线程上构建
+     */
+    public long getIndexVersion(int klt) {
+        PatternIndex index = indexes.get(klt);
+        if (index == null) {
+            buildInBackground(klt);
+            return NO_INDEX;
+        }
+        return index.getVersion();
+    }
+
+    public PatternIndex getIndex(int klt) {
+        return indexes.computeIfAbsent(klt, this::buildIndex);
+    }
+
+    private void buildInBackground(int klt) {
+        if (building.putIfAbsent(klt, Boolean.TRUE) != null) {
+            return;
+        }
+        buildExecutor.execute(() -> {
+            try {
+                indexes.computeIfAbsent(klt, this::buildIndex);
+            } finally {
+                building.remove(klt);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    /**
+     * 定时重建已使用过的周期的索引，纳入新缓存的代码和新K线
+     */
+    @Scheduled(fixedDelayString = "${pattern.rebuild-interval-ms:600000}",
+            initialDelayString = "${pattern.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        for (Integer klt : new ArrayList<>(indexes.keySet())) {
+            indexes.put(klt, buildIndex(klt));
+        }
+    }
+
+    private PatternIndex buildIndex(int klt) {
+        List<String> codes = new ArrayList<>();
+        List<List<KLineData>> series = new ArrayList<>();
+        for (String stockCode : kLineDao.getCachedStockCodes()) {
+            List<KLineData> bars = kLineDao.getCachedKLineData(stockCode, klt);
+            if (bars == null || bars.size() <= window) {
+                continue;
+            }
+            // 缓存返回最新在前，索引需要升序
+            codes.add(stockCode);
+            series.add(SeriesSnapshot.ascending(bars));
+        }
+        return PatternIndex.build(window, codes, series);
+    }
+}
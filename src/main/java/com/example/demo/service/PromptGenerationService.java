@@ -1,12 +1,26 @@
 package com.example.demo.service;
 
+import com.example.demo.dao.EpochDays;
 import com.example.demo.dao.KLineDao;
 import com.example.demo.dao.KLineData;
+import com.example.demo.dao.PeriodCalendar;
+import com.example.demo.dao.SeriesSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 多周期提示词生成服务
@@ -17,10 +31,18 @@ public class PromptGenerationService {
     @Autowired
     private KLineDao kLineDao;
 
+    @Autowired
+    private PatternSearchService patternSearchService;
+
     private static final int RANDOM_DAYS_COUNT = 10;
     private static final Map<Integer, Integer> HISTORICAL_COUNT_MAP = new HashMap<>();
 
     static {
+        HISTORICAL_COUNT_MAP.put(1, 30);    // 1分钟K: 30分钟
+        HISTORICAL_COUNT_MAP.put(5, 30);    // 5分钟K: 约一个上午
+        HISTORICAL_COUNT_MAP.put(15, 30);   // 15分钟K: 约两个交易日
+        HISTORICAL_COUNT_MAP.put(30, 30);   // 30分钟K: 约四个交易日
+        HISTORICAL_COUNT_MAP.put(60, 20);   // 60分钟K: 五个交易日（分钟数据只保留最近几天）
         HISTORICAL_COUNT_MAP.put(101, 30);  // 日K: 30个交易日
         HISTORICAL_COUNT_MAP.put(102, 30);  // 周K: 12周（约3个月）
         HISTORICAL_COUNT_MAP.put(103, 30);   // 月K: 6个月
@@ -31,6 +53,73 @@ public class PromptGenerationService {
 
     private final Random random = new Random();
 
+    private static final int MAX_SAMPLE_COUNT = 10000;
+    private static final int VOLATILITY_WINDOW = 20;
+    private static final String[] REGIME_NAMES = {"低波动", "常态", "高波动"};
+
+    /**
+     * 分层抽样的默认随机种子，固定种子使数据集可复现
+     */
+    @Value("${prompt.sample.seed:20240601}")
+    private long sampleSeed = 20240601;
+
+    /**
+     * 提示词排版：table为原有定宽表格，compact为按token预算编码的紧凑格式
+     */
+    @Value("${prompt.format:table}")
+    private String promptFormat = "table";
+
+    @Value("${prompt.compact.token-budget:1200}")
+    private int compactTokenBudget = 1200;
+
+    /**
+     * 紧凑格式下最多提供给预算选择的K线条数
+     */
+    @Value("${prompt.compact.max-bars:60}")
+    private int compactMaxBars = 60;
+
+    /**
+     * 批量生成提示词时并行读取K线的线程数
+     */
+    @Value("${prompt.batch.threads:8}")
+    private int batchThreads = 8;
+
+    /**
+     * 一次批量请求最多的代码数
+     */
+    @Value("${prompt.batch.max-codes:200}")
+    private int batchMaxCodes = 200;
+
+    /**
+     * 一次流式请求最多生成的提示词数
+     */
+    @Value("${prompt.stream.max-count:500}")
+    private int streamMaxCount = 500;
+
+    private ExecutorService batchExecutor;
+
+    public PromptGenerationService() {
+    }
+
+    /**
+     * 不经过Spring装配时使用，不附加相似形态
+     */
+    public PromptGenerationService(KLineDao kLineDao, int batchThreads, int batchMaxCodes) {
+        this.kLineDao = kLineDao;
+        this.batchThreads = batchThreads;
+        this.batchMaxCodes = batchMaxCodes;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        batchExecutor = Executors.newFixedThreadPool(Math.max(1, batchThreads), runnable -> {
+            Thread thread = new Thread(runnable, "prompt-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     // 原有的日K方法保持不变
     public List<StockAnalysisPrompt> generateDefaultPrompts(String stockCode) {
         return generateMultiplePrompts(stockCode, 101, RANDOM_DAYS_COUNT);
@@ -46,18 +135,9 @@ public class PromptGenerationService {
     public List<StockAnalysisPrompt> generateMultiplePrompts(String stockCode, int klt, int count) {
         List<StockAnalysisPrompt> prompts = new ArrayList<>();
 
-        // 获取所有可用的日期
-        List<Date> availableDates = getAvailableDatesWithSufficientHistory(stockCode, klt);
-        if (availableDates.size() < count) {
-            count = availableDates.size();
-        }
-
-        // 随机选择日期
-        Collections.shuffle(availableDates);
-        List<Date> selectedDates = availableDates.subList(0, Math.min(count, availableDates.size()));
-
-        for (Date targetDate : selectedDates) {
-            StockAnalysisPrompt prompt = generateSinglePrompt(stockCode, targetDate, klt);
+        SeriesMemo series = new SeriesMemo();
+        for (Date targetDate : selectRandomDates(stockCode, klt, count, series)) {
+            StockAnalysisPrompt prompt = generateSinglePrompt(stockCode, targetDate, klt, series);
             if (prompt != null) {
                 prompts.add(prompt);
             }
@@ -66,14 +146,207 @@ public class PromptGenerationService {
         return prompts;
     }
 
+    /**
+     * 随机选择有足够历史数据和后续验证数据的日期，蓄水池抽样，不收集全部可用日期
+     */
+    private List<Date> selectRandomDates(String stockCode, int klt, int count, SeriesMemo series) {
+        List<KLineData> allData = series.get(stockCode, klt);
+        int requiredCount = HISTORICAL_COUNT_MAP.getOrDefault(klt, 30);
+        if (allData == null || allData.size() - 1 <= requiredCount) {
+            return Collections.emptyList();
+        }
+        // 确保有足够的历史数据和后续验证数据；蓄水池容量不超过候选数和抽样上限
+        List<KLineData> ascending = SeriesSnapshot.ascending(allData);
+        int candidates = ascending.size() - 1 - requiredCount;
+        StratifiedSampler<Date> sampler = new StratifiedSampler<>(1,
+                Math.min(count, Math.min(candidates, MAX_SAMPLE_COUNT)), random.nextLong());
+        for (int i = requiredCount; i < ascending.size() - 1; i++) {
+            int slot = sampler.admit(0);
+            if (slot >= 0) {
+                sampler.put(0, slot, ascending.get(i).getDate());
+            }
+        }
+        return sampler.select();
+    }
+
+    public long getSampleSeed() {
+        return sampleSeed;
+    }
+
+    /**
+     * 跨代码、跨周期的分层抽样：按 下一周期涨跌 × 周期 × 波动状态 分层，各层做蓄水池抽样后均衡分配名额，
+     * 使涨跌样本和各周期、各波动状态尽量均衡。逐个序列流式扫描，只为入选的候选创建对象。
+     * 波动状态由目标K线及之前的数据计算：近20根涨跌幅的均方根相对序列截至目标时的长期均方根，
+     * 低于0.75倍为低波动，高于1.33倍为高波动。
+     *
+     * @param stockCodes 代码列表，为null时使用已缓存的全部代码且只读缓存，不访问上游
+     */
+    public PromptSamplePlan sampleStratified(List<String> stockCodes, List<Integer> klts, int count, long seed) {
+        List<Integer> periods = new ArrayList<>(new LinkedHashSet<>(klts));
+        boolean cachedOnly = stockCodes == null;
+        List<String> codes = new ArrayList<>(cachedOnly
+                ? kLineDao.getCachedStockCodes() : new LinkedHashSet<>(stockCodes));
+        if (cachedOnly) {
+            Collections.sort(codes); // 保证候选顺序固定，结果可复现
+        }
+
+        StratifiedSampler<PromptSample> sampler = new StratifiedSampler<>(
+                periods.size() * REGIME_NAMES.length * 2, Math.min(count, MAX_SAMPLE_COUNT), seed);
+        int seriesCount = 0;
+        for (String stockCode : codes) {
+            for (int p = 0; p < periods.size(); p++) {
+                int klt = periods.get(p);
+                List<KLineData> series = cachedOnly ? kLineDao.getCachedKLineData(stockCode, klt)
+                        : kLineDao.getAllKLineData(stockCode, klt);
+                if (series != null && !series.isEmpty()) {
+                    seriesCount++;
+                    offerSeries(sampler, stockCode, klt, p, series);
+                }
+            }
+        }
+
+        PromptSamplePlan plan = new PromptSamplePlan();
+        plan.setSeed(seed);
+        plan.setSeriesCount(seriesCount);
+        plan.setSamples(sampler.select());
+        long candidates = 0;
+        for (int stratum = 0; stratum < sampler.getStrataCount(); stratum++) {
+            candidates += sampler.getSeen(stratum);
+            plan.getStrata().add(new PromptSampleStratum(periods.get(stratum / (REGIME_NAMES.length * 2)),
+                    stratum % 2 == 1, REGIME_NAMES[stratum / 2 % REGIME_NAMES.length],
+                    sampler.getSeen(stratum), sampler.getSelected(stratum)));
+        }
+        plan.setCandidateCount(candidates);
+        return plan;
+    }
+
+    /**
+     * 扫描一个序列的全部候选日期，增量维护滚动波动率，逐个交给分层蓄水池
+     */
+    private void offerSeries(StratifiedSampler<PromptSample> sampler, String stockCode, int klt, int periodIndex,
+                             List<KLineData> series) {
+        List<KLineData> ascending = SeriesSnapshot.ascending(series);
+        int start = Math.max(HISTORICAL_COUNT_MAP.getOrDefault(klt, 30), VOLATILITY_WINDOW);
+        double[] window = new double[VOLATILITY_WINDOW];
+        double windowSum = 0;
+        double totalSum = 0;
+        for (int i = 0; i < ascending.size() - 1; i++) {
+            KLineData bar = ascending.get(i);
+            double change = bar.getChangeRate() == null ? 0 : bar.getChangeRate();
+            double squared = change * change;
+            windowSum += squared - window[i % VOLATILITY_WINDOW];
+            window[i % VOLATILITY_WINDOW] = squared;
+            totalSum += squared;
+            if (i < start) {
+                continue;
+            }
+            KLineData next = ascending.get(i + 1);
+            if (next.getClose() == null || next.getLastClose() == null) {
+                continue;
+            }
+            boolean rise = next.getClose() > next.getLastClose();
+            int regime = volatilityRegime(Math.max(0, windowSum) / VOLATILITY_WINDOW, totalSum / (i + 1));
+            int stratum = (periodIndex * REGIME_NAMES.length + regime) * 2 + (rise ? 1 : 0);
+            int slot = sampler.admit(stratum);
+            if (slot >= 0) {
+                sampler.put(stratum, slot, new PromptSample(stockCode, bar.getDate(), klt, rise, REGIME_NAMES[regime]));
+            }
+        }
+    }
+
+    private static int volatilityRegime(double recentVariance, double longTermVariance) {
+        if (longTermVariance <= 0) {
+            return 1;
+        }
+        double ratio = Math.sqrt(recentVariance / longTermVariance);
+        return ratio < 0.75 ? 0 : ratio > 1.33 ? 2 : 1;
+    }
+
+    /**
+     * 按抽样计划流式生成提示词，每完成一个立即交给回调
+     */
+    public int streamSampledPrompts(PromptSamplePlan plan, Predicate<StockAnalysisPrompt> onPrompt) {
+        List<Supplier<StockAnalysisPrompt>> tasks = new ArrayList<>(plan.getSamples().size());
+        SeriesMemo series = new SeriesMemo();
+        for (PromptSample sample : plan.getSamples()) {
+            tasks.add(() -> generateSinglePrompt(sample.getStockCode(), sample.getDate(), sample.getKlt(), series));
+        }
+        return streamPrompts(tasks, onPrompt);
+    }
+
+    /**
+     * 流式生成随机日期的提示词：各日期并行生成，每完成一个立即交给回调，不等待全部完成
+     *
+     * @param onPrompt 回调返回false（如客户端已断开）时取消尚未开始的生成
+     * @return 已交付的提示词数
+     */
+    public int streamMultiplePrompts(String stockCode, int klt, int count, Predicate<StockAnalysisPrompt> onPrompt) {
+        checkStreamCount(count);
+        List<Supplier<StockAnalysisPrompt>> tasks = new ArrayList<>();
+        SeriesMemo series = new SeriesMemo();
+        for (Date targetDate : selectRandomDates(stockCode, klt, count, series)) {
+            tasks.add(() -> generateSinglePrompt(stockCode, targetDate, klt, series));
+        }
+        return streamPrompts(tasks, onPrompt);
+    }
+
+    /**
+     * 流式生成多个代码、多个周期的提示词，按完成先后交给回调
+     */
+    public int streamBatchPrompts(List<String> stockCodes, List<Integer> klts, Date targetDate,
+                                  Predicate<StockAnalysisPrompt> onPrompt) {
+        checkBatchSize(stockCodes);
+        List<Supplier<StockAnalysisPrompt>> tasks = new ArrayList<>();
+        SeriesMemo series = new SeriesMemo();
+        for (String stockCode : new LinkedHashSet<>(stockCodes)) {
+            for (Integer klt : new LinkedHashSet<>(klts)) {
+                tasks.add(() -> generateSinglePrompt(stockCode, targetDate, klt, series));
+            }
+        }
+        return streamPrompts(tasks, onPrompt);
+    }
+
+    /**
+     * 在批量线程池上执行生成任务，回调串行调用；取消后未开始的任务直接跳过。阻塞到所有任务结束
+     */
+    private int streamPrompts(List<Supplier<StockAnalysisPrompt>> tasks, Predicate<StockAnalysisPrompt> onPrompt) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger delivered = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size());
+        for (Supplier<StockAnalysisPrompt> task : tasks) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                if (cancelled.get()) {
+                    return;
+                }
+                StockAnalysisPrompt prompt = task.get();
+                if (prompt == null) {
+                    return;
+                }
+                synchronized (onPrompt) {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    if (onPrompt.test(prompt)) {
+                        delivered.incrementAndGet();
+                    } else {
+                        cancelled.set(true);
+                    }
+                }
+            }, batchExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return delivered.get();
+    }
+
     /**
      * 生成多周期的分析提示词（指定目标日期）
      */
     public List<StockAnalysisPrompt> generateMultiplePrompts(String stockCode, int klt, Date targetDate, int count) {
         List<StockAnalysisPrompt> prompts = new ArrayList<>();
 
+        SeriesMemo series = new SeriesMemo();
         for (int i = 0; i < count; i++) {
-            StockAnalysisPrompt prompt = generateSinglePrompt(stockCode, targetDate, klt);
+            StockAnalysisPrompt prompt = generateSinglePrompt(stockCode, targetDate, klt, series);
             if (prompt != null) {
                 prompts.add(prompt);
             }
@@ -86,27 +359,12 @@ public class PromptGenerationService {
      * 生成单个日期的多周期分析提示词
      */
     public StockAnalysisPrompt generateSinglePrompt(String stockCode, Date targetDate, int klt) {
-        try {
-            int historicalCount = HISTORICAL_COUNT_MAP.getOrDefault(klt, 35);
-
-            // 获取目标日期前N个周期的历史数据
-            List<KLineData> historicalData = getHistoricalData(stockCode, targetDate, klt, historicalCount);
-            if (historicalData == null || historicalData.size() < historicalCount) {
-                return null;
-            }
-
-            // 获取下一个周期的实际数据（用于验证）
-            KLineData nextPeriodData = getNextPeriodData(stockCode, targetDate, klt);
-            boolean actualRise = nextPeriodData != null &&
-                    nextPeriodData.getClose() > nextPeriodData.getLastClose();
-
-            // 构建提示词
-            String prompt = buildAnalysisPrompt(stockCode, targetDate, historicalData, klt);
-
-            return new StockAnalysisPrompt(
-                    stockCode, targetDate, historicalData, prompt, actualRise, klt
-            );
+        return generateSinglePrompt(stockCode, targetDate, klt, new SeriesMemo());
+    }
 
+    private StockAnalysisPrompt generateSinglePrompt(String stockCode, Date targetDate, int klt, SeriesMemo series) {
+        try {
+            return generatePromptFromSeries(stockCode, targetDate, klt, series.get(stockCode, klt));
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -114,74 +372,208 @@ public class PromptGenerationService {
     }
 
     /**
-     * 获取目标日期前N个周期的历史数据
+     * 一次生成请求内已读取的K线序列，同一(代码, 周期)只向DAO读取一次（含复权），
+     * 多个日期、多个样本共用；并发请求同一序列时后到者等待先到者的结果
      */
-    private List<KLineData> getHistoricalData(String stockCode, Date targetDate, int klt, int periods) {
-        return kLineDao.getRecentKLineData(stockCode, klt, periods * 2).stream()
-                .filter(data -> !data.getDate().after(targetDate))
-                .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-                .limit(periods)
-                .collect(java.util.stream.Collectors.toList());
+    private final class SeriesMemo {
+        private final Map<String, CompletableFuture<List<KLineData>>> loaded = new ConcurrentHashMap<>();
+
+        List<KLineData> get(String stockCode, int klt) {
+            CompletableFuture<List<KLineData>> loading = new CompletableFuture<>();
+            CompletableFuture<List<KLineData>> existing = loaded.putIfAbsent(stockCode + "_" + klt, loading);
+            if (existing != null) {
+                return existing.join();
+            }
+            try {
+                loading.complete(kLineDao.getAllKLineData(stockCode, klt));
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e);
+            }
+            return loading.join();
+        }
     }
 
     /**
-     * 获取下一个周期的数据
+     * 计算提示词版本而不生成提示词：对提示词用到的K线、相似形态索引版本和排版配置取指纹，
+     * 数据不足以生成提示词时返回null
      */
-    private KLineData getNextPeriodData(String stockCode, Date targetDate, int klt) {
-        List<KLineData> allData = kLineDao.getAllKLineData(stockCode, klt);
-        if (allData == null || allData.isEmpty()) {
+    public PromptVersion getPromptVersion(String stockCode, Date targetDate, int klt) {
+        List<KLineData> series = kLineDao.getAllKLineData(stockCode, klt);
+        if (series == null || series.isEmpty()) {
+            return null;
+        }
+        List<KLineData> ascending = SeriesSnapshot.ascending(series);
+        int historicalCount = HISTORICAL_COUNT_MAP.getOrDefault(klt, 35);
+        boolean compact = "compact".equalsIgnoreCase(promptFormat);
+        List<KLineData> bars = getHistoricalData(ascending, targetDate,
+                compact ? Math.max(historicalCount, compactMaxBars) : historicalCount);
+        if (bars.size() < historicalCount) {
             return null;
         }
 
-        // 按日期排序
-        allData.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+        // 提示词只输出分析日期（按K线粒度格式化），未指定日期时当前时间的毫秒数不参与计算
+        Fingerprint fingerprint = new Fingerprint().add(stockCode).add(klt).add(EpochDays.formatBar(targetDate, klt))
+                .add(compact ? "compact:" + compactTokenBudget + ":" + compactMaxBars : "table");
+        for (KLineData bar : bars) {
+            fingerprint.add(bar.getDate().getTime()).add(bar.getOpen()).add(bar.getClose())
+                    .add(bar.getLastClose()).add(bar.getHigh()).add(bar.getLow())
+                    .add(bar.getVolume()).add(bar.getAmount()).add(bar.getChangeRate());
+        }
+        if (patternSearchService != null && patternSearchService.isEnrichPrompts()) {
+            fingerprint.add(patternSearchService.getIndexVersion(klt));
+        }
 
-        for (int i = 0; i < allData.size() - 1; i++) {
-            if (allData.get(i).getDate().equals(targetDate)) {
-                return allData.get(i + 1);
+        // 目标K线之后已有K线，或日K及以上周期的目标K线不在当前周期内，说明该周期已结束
+        KLineData targetBar = bars.get(0);
+        boolean closed = targetBar != ascending.get(ascending.size() - 1)
+                || (klt >= 101 && !PeriodCalendar.isSamePeriod(targetBar.getLocalDate(), LocalDate.now(), klt));
+        return new PromptVersion("\"" + fingerprint.toHex() + "\"", closed);
+    }
+
+    /**
+     * 批量生成多个代码、多个周期的提示词
+     * 每个(代码, 周期)只读取一次K线序列，历史数据和下一周期验证数据都从同一序列中截取；
+     * 各序列并行读取，总耗时取决于最慢的一次获取。结果按代码、周期顺序排列，数据不足的组合被跳过。
+     * 代码数超过上限时抛出IllegalArgumentException
+     */
+    public List<StockAnalysisPrompt> generateBatchPrompts(List<String> stockCodes, List<Integer> klts, Date targetDate) {
+        checkBatchSize(stockCodes);
+        List<CompletableFuture<StockAnalysisPrompt>> futures = new ArrayList<>();
+        SeriesMemo series = new SeriesMemo();
+        for (String stockCode : new LinkedHashSet<>(stockCodes)) {
+            for (Integer klt : new LinkedHashSet<>(klts)) {
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> generateSinglePrompt(stockCode, targetDate, klt, series), batchExecutor));
             }
         }
 
-        return null;
+        List<StockAnalysisPrompt> prompts = new ArrayList<>();
+        for (CompletableFuture<StockAnalysisPrompt> future : futures) {
+            StockAnalysisPrompt prompt = future.join();
+            if (prompt != null) {
+                prompts.add(prompt);
+            }
+        }
+        return prompts;
     }
 
     /**
-     * 获取所有有足够历史数据的可用日期
+     * 批量请求的代码数（去重后）不得超过prompt.batch.max-codes
      */
-    private List<Date> getAvailableDatesWithSufficientHistory(String stockCode, int klt) {
-        List<Date> availableDates = new ArrayList<>();
+    public void checkBatchSize(List<String> stockCodes) {
+        int count = new HashSet<>(stockCodes).size();
+        if (count > batchMaxCodes) {
+            throw new IllegalArgumentException("代码数 " + count + " 超过上限 " + batchMaxCodes);
+        }
+    }
 
-        // 获取所有数据
-        List<KLineData> allData = kLineDao.getAllKLineData(stockCode, klt);
-        int requiredCount = HISTORICAL_COUNT_MAP.getOrDefault(klt, 30);
+    /**
+     * 流式请求的提示词数须在1到prompt.stream.max-count之间
+     */
+    public void checkStreamCount(int count) {
+        if (count < 1 || count > streamMaxCount) {
+            throw new IllegalArgumentException("提示词数 " + count + " 须在1到" + streamMaxCount + "之间");
+        }
+    }
 
-        if (allData == null || allData.size() <= requiredCount) {
-            return availableDates;
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * 从完整K线序列生成提示词
+     */
+    private StockAnalysisPrompt generatePromptFromSeries(String stockCode, Date targetDate, int klt,
+                                                        List<KLineData> series) {
+        if (series == null || series.isEmpty()) {
+            return null;
+        }
+        int historicalCount = HISTORICAL_COUNT_MAP.getOrDefault(klt, 35);
+
+        // DAO返回最新在前的只读列表，取其升序视图
+        List<KLineData> ascending = SeriesSnapshot.ascending(series);
+
+        // 获取目标日期前N个周期的历史数据（最新的在前）
+        List<KLineData> historicalData = getHistoricalData(ascending, targetDate, historicalCount);
+        if (historicalData.size() < historicalCount) {
+            return null;
+        }
+
+        // 获取下一个周期的实际数据（用于验证）
+        KLineData nextPeriodData = getNextPeriodData(ascending, targetDate);
+        boolean actualRise = nextPeriodData != null &&
+                nextPeriodData.getClose() > nextPeriodData.getLastClose();
+
+        // 全市场相似形态（按配置开启），只使用目标日期之前已有结果的窗口
+        PatternMatchResult patterns = null;
+        if (patternSearchService != null && patternSearchService.isEnrichPrompts()) {
+            int endIndex = PatternSearchService.floorIndex(ascending, historicalData.get(0).getEpochDay());
+            patterns = patternSearchService.findSimilarIfReady(stockCode, klt, ascending, endIndex);
         }
 
-        // 按日期排序（从早到晚）
-        allData.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+        // 构建提示词
+        String prompt;
+        if ("compact".equalsIgnoreCase(promptFormat)) {
+            List<KLineData> candidates = getHistoricalData(ascending, targetDate,
+                    Math.max(historicalCount, compactMaxBars));
+            CompactPromptEncoder.Encoded encoded = new CompactPromptEncoder(compactTokenBudget)
+                    .encode(stockCode, targetDate, klt, getPeriodName(klt), candidates, patterns);
+            prompt = encoded.getPrompt();
+            historicalData = new ArrayList<>(candidates.subList(0, encoded.getBarCount()));
+        } else {
+            prompt = buildAnalysisPrompt(stockCode, targetDate, historicalData, klt, patterns);
+        }
+
+        return new StockAnalysisPrompt(
+                stockCode, targetDate, historicalData, prompt, actualRise, klt
+        );
+    }
 
-        // 确保有足够的历史数据和后续验证数据
-        for (int i = requiredCount; i < allData.size() - 1; i++) {
-            availableDates.add(allData.get(i).getDate());
+    /**
+     * 获取目标日期前N个周期的历史数据
+     */
+    private List<KLineData> getHistoricalData(List<KLineData> ascending, Date targetDate, int periods) {
+        List<KLineData> result = new ArrayList<>(periods);
+        for (int i = ascending.size() - 1; i >= 0 && result.size() < periods; i--) {
+            if (!ascending.get(i).getDate().after(targetDate)) {
+                result.add(ascending.get(i));
+            }
         }
+        return result;
+    }
 
-        return availableDates;
+    /**
+     * 获取下一个周期的数据
+     */
+    private KLineData getNextPeriodData(List<KLineData> ascending, Date targetDate) {
+        for (int i = 0; i < ascending.size() - 1; i++) {
+            if (ascending.get(i).getDate().equals(targetDate)) {
+                return ascending.get(i + 1);
+            }
+        }
+        return null;
     }
 
     /**
      * 构建多周期分析提示词
      */
-    private String buildAnalysisPrompt(String stockCode, Date targetDate,
-                                       List<KLineData> historicalData, int klt) {
+    public String buildAnalysisPrompt(String stockCode, Date targetDate,
+                                      List<KLineData> historicalData, int klt) {
+        return buildAnalysisPrompt(stockCode, targetDate, historicalData, klt, null);
+    }
+
+    /**
+     * 构建多周期分析提示词，附带全市场相似形态的后续表现
+     */
+    public String buildAnalysisPrompt(String stockCode, Date targetDate, List<KLineData> historicalData,
+                                      int klt, PatternMatchResult patterns) {
         StringBuilder prompt = new StringBuilder();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         String periodName = getPeriodName(klt);
 
         prompt.append("你是一个数学专业出身的股票实盘大赛冠军，请分析以下股票历史数据，预测下一个").append(periodName).append("周期的涨跌情况：\n\n");
         prompt.append("股票代码：").append(stockCode).append("\n");
-        prompt.append("分析日期：").append(sdf.format(targetDate)).append("\n");
+        prompt.append("分析日期：").append(EpochDays.formatBar(targetDate, klt)).append("\n");
         prompt.append("K线周期：").append(periodName).append("\n");
         prompt.append("历史数据（最近").append(historicalData.size()).append("个").append(periodName).append("）：\n");
 
@@ -196,7 +588,7 @@ public class PromptGenerationService {
 
         for (KLineData data : reversedData) {
             prompt.append(String.format("%-12s %-8.3f %-8.3f %-8.3f %-8.3f %-8.3f %-12d %-12.0f %-6.2f%% %-8s\n",
-                    sdf.format(data.getDate()),
+                    EpochDays.formatBar(data.getDate(), klt),
                     data.getOpen(),
                     data.getClose(),
                     data.getLastClose(),
@@ -208,6 +600,19 @@ public class PromptGenerationService {
                     data.getPeriodName()));
         }
 
+        if (patterns != null && !patterns.getMatches().isEmpty()) {
+            prompt.append("\n").append(patterns.describe());
+        }
+
+        appendAnalysisRequirements(prompt);
+
+        return prompt.toString();
+    }
+
+    /**
+     * 分析要求与回复格式，表格和紧凑两种排版共用
+     */
+    static void appendAnalysisRequirements(StringBuilder prompt) {
         prompt.append("\n分析要求：\n");
         prompt.append("1. 重点关注并计算移动平均线、布林线等技术指标在下一个交易日因时间窗口滑动而产生的动态变化（例如，关键价格K线进出5/10/20均线[剔除假期]计算窗口指标对阻力拐点方向的影响）\n");
         prompt.append("2. 重点关注价格趋势、成交量变化和波动率变化\n");
@@ -219,12 +624,15 @@ public class PromptGenerationService {
         prompt.append("预测结果：[上涨/下跌/上影线横盘/下影线横盘]\n");
         prompt.append("置信度：[0-100]%\n");
         prompt.append("分析理由：[简要说明分析依据]\n");
-
-        return prompt.toString();
     }
 
     private String getPeriodName(int klt) {
         switch (klt) {
+            case 1: return "1分钟K线";
+            case 5: return "5分钟K线";
+            case 15: return "15分钟K线";
+            case 30: return "30分钟K线";
+            case 60: return "60分钟K线";
             case 101: return "日K线";
             case 102: return "周K线";
             case 103: return "月K线";
@@ -0,0 +1,25 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 抽样选中的提示词样本：(代码, 日期, 周期) 及其分层标签
+ */
+@Getter
+public class PromptSample {
+    private final String stockCode;
+    private final Date date;
+    private final int klt;
+    private final boolean nextPeriodRise; // 下一周期涨跌（标签）
+    private final String regime;          // 波动状态
+
+    public PromptSample(String stockCode, Date date, int klt, boolean nextPeriodRise, String regime) {
+        this.stockCode = stockCode;
+        this.date = date;
+        this.klt = klt;
+        this.nextPeriodRise = nextPeriodRise;
+        this.regime = regime;
+    }
+}
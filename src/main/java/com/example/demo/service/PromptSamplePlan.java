@@ -0,0 +1,20 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层抽样计划：选中的样本和各层统计，同一种子、同一数据下结果相同
+ */
+@Getter
+@Setter
+public class PromptSamplePlan {
+    private long seed;
+    private int seriesCount;        // 参与抽样的(代码, 周期)序列数
+    private long candidateCount;    // 候选样本总数
+    private List<PromptSample> samples = new ArrayList<>();
+    private List<PromptSampleStratum> strata = new ArrayList<>();
+}
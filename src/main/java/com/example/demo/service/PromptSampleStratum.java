@@ -0,0 +1,23 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+
+/**
+ * 一个抽样分层（标签 × 周期 × 波动状态）的候选数与入选数
+ */
+@Getter
+public class PromptSampleStratum {
+    private final int klt;
+    private final boolean nextPeriodRise;
+    private final String regime;
+    private final long candidates;
+    private final int selected;
+
+    public PromptSampleStratum(int klt, boolean nextPeriodRise, String regime, long candidates, int selected) {
+        this.klt = klt;
+        this.nextPeriodRise = nextPeriodRise;
+        this.regime = regime;
+        this.candidates = candidates;
+        this.selected = selected;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.service;
+
+/**
+ * 提示词token数估算
+ * 近似cl100k一类BPE分词器的切分规则：汉字按1个token计，连续字母约4个一组，
+ * 连续数字最多3位一组，连续空白合并为1个（单个空格并入后一个词），其余符号各占1个。
+ * 只用于比较不同排版的相对开销和预算控制，不追求与具体模型完全一致。
+ */
+public final class PromptTokenCounter {
+
+    private PromptTokenCounter() {
+    }
+
+    public static int count(CharSequence text) {
+        int tokens = 0;
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                int start = i;
+                while (i < length && Character.isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+                // 单个空格与后面的词合并，不单独计数
+                if (i - start > 1 || c != ' ' || i == length) {
+                    tokens++;
+                }
+            } else if (c >= '0' && c <= '9') {
+                int start = i;
+                while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else if (c < 0x80 && Character.isLetter(c)) {
+                int start = i;
+                while (i < length && text.charAt(i) < 0x80 && Character.isLetter(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 3) / 4;
+            } else {
+                tokens++;
+                i++;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+
+/**
+ * 提示词版本：由生成提示词所用的K线、相似形态索引和排版配置计算，输入不变时版本不变
+ */
+@Getter
+public class PromptVersion {
+
+    private final String etag;
+
+    /**
+     * 目标日期所在周期是否已结束（K线不再变化）
+     */
+    private final boolean closed;
+
+    public PromptVersion(String etag, boolean closed) {
+        this.etag = etag;
+        this.closed = closed;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.demo.service;
+
+import java.util.stream.IntStream;
+
+/**
+ * 滚动窗口相关系数矩阵
+ * 维护最近window天各代码收益率的和、平方和以及两两乘积和（上三角），
+ * 新的一天只需加上新一天、减去移出窗口那天的贡献，O(代码数²)完成更新，不必重算整个窗口。
+ * 全量计算时按代码分块，每块内对连续存放的收益率序列做点积，块之间并行。
+ * 非线程安全，由调用方加锁。
+ */
+public class RollingCorrelation {
+
+    private static final int TILE = 64;
+
+    private final int size;
+    private final int window;
+    private final double[][] days;   // 环形缓冲区，days[槽位][代码]
+    private final double[] sums;
+    private final double[] crossSums; // 上三角，含对角线（平方和）
+    private int count;
+    private int head;                 // 最早一天所在槽位
+
+    public RollingCorrelation(int size, int window) {
+        this.size = size;
+        this.window = window;
+        this.days = new double[window][];
+        this.sums = new double[size];
+        this.crossSums = new double[size * (size + 1) / 2];
+    }
+
+    /**
+     * 用最近window天的收益率全量计算，returns[天][代码]，按时间升序
+     */
+    public void rebuild(double[][] returns) {
+        int from = Math.max(0, returns.length - window);
+        count = returns.length - from;
+        head = 0;
+        for (int d = 0; d < count; d++) {
+            days[d] = returns[from + d].clone();
+        }
+
+        // 转置为每个代码一段连续数组，点积时顺序访问
+        double[][] columns = new double[size][count];
+        for (int d = 0; d < count; d++) {
+            for (int i = 0; i < size; i++) {
+                columns[i][d] = days[d][i];
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            double sum = 0;
+            for (int d = 0; d < count; d++) {
+                sum += columns[i][d];
+            }
+            sums[i] = sum;
+        }
+
+        int tiles = (size + TILE - 1) / TILE;
+        IntStream.range(0, tiles).parallel().forEach(tileRow -> {
+            int rowEnd = Math.min(size, (tileRow + 1) * TILE);
+            for (int tileColumn = tileRow; tileColumn < tiles; tileColumn++) {
+                int columnEnd = Math.min(size, (tileColumn + 1) * TILE);
+                for (int i = tileRow * TILE; i < rowEnd; i++) {
+                    double[] x = columns[i];
+                    for (int j = Math.max(i, tileColumn * TILE); j < columnEnd; j++) {
+                        double[] y = columns[j];
+                        double dot = 0;
+                        for (int d = 0; d < count; d++) {
+                            dot += x[d] * y[d];
+                        }
+                        crossSums[index(i, j)] = dot;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 追加新一天的收益率，窗口已满时移出最早一天
+     */
+    public void push(double[] returns) {
+        double[] removed = null;
+        if (count == window) {
+            removed = days[head];
+            days[head] = returns.clone();
+            head = (head + 1) % window;
+        } else {
+            days[(head + count) % window] = returns.clone();
+            count++;
+        }
+        update(returns, removed);
+    }
+
+    /**
+     * 替换最新一天的收益率（盘中最新K线被修正时）
+     */
+    public void replaceLast(double[] returns) {
+        int last = (head + count - 1) % window;
+        double[] previous = days[last];
+        days[last] = returns.clone();
+        update(returns, previous);
+    }
+
+    private void update(double[] added, double[] removed) {
+        IntStream.range(0, size).parallel().forEach(i -> {
+            double a = added[i];
+            double r = removed == null ? 0 : removed[i];
+            sums[i] += a - r;
+            int base = index(i, i);
+            for (int j = i; j < size; j++) {
+                double delta = a * added[j];
+                if (removed != null) {
+                    delta -= r * removed[j];
+                }
+                crossSums[base + j - i] += delta;
+            }
+        });
+    }
+
+    /**
+     * 最新一天的收益率
+     */
+    public double[] getLast() {
+        return count == 0 ? null : days[(head + count - 1) % window];
+    }
+
+    public double covariance(int i, int j) {
+        if (count == 0) {
+            return 0;
+        }
+        int a = Math.min(i, j);
+        int b = Math.max(i, j);
+        return (crossSums[index(a, b)] - sums[a] * sums[b] / count) / count;
+    }
+
+    /**
+     * 相关系数，任一序列在窗口内无波动时返回0
+     */
+    public double correlation(int i, int j) {
+        double varianceI = covariance(i, i);
+        double varianceJ = covariance(j, j);
+        if (varianceI <= 1e-18 || varianceJ <= 1e-18) {
+            return 0;
+        }
+        double value = covariance(i, j) / Math.sqrt(varianceI * varianceJ);
+        return Math.max(-1, Math.min(1, value));
+    }
+
+    public double[][] correlationMatrix() {
+        double[][] matrix = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            matrix[i][i] = covariance(i, i) > 1e-18 ? 1 : 0;
+            for (int j = i + 1; j < size; j++) {
+                matrix[i][j] = matrix[j][i] = correlation(i, j);
+            }
+        }
+        return matrix;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    private int index(int i, int j) {
+        // 第i行之前共有 i*size - i*(i-1)/2 个元素
+        return i * size - i * (i - 1) / 2 + (j - i);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * 全市场扫描条件，过滤条件为null时不限制
+ */
+@Getter
+@Setter
+public class ScanCriteria {
+    private int klt = 101;             // K线周期
+    private int topK = 50;             // 看涨、看跌各取前K个
+    private Date targetDate;           // 扫描日期，为null时取各代码最新K线
+    private Double minTurnoverRate;    // 最小换手率（%）
+    private Double maxTurnoverRate;    // 最大换手率（%）
+    private Double minAmplitude;       // 最小振幅（%）
+    private Double maxAmplitude;       // 最大振幅（%）
+    private Double minChangeRate;      // 最小涨跌幅（%）
+    private Double maxChangeRate;      // 最大涨跌幅（%）
+}
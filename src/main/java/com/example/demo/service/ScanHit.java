@@ -0,0 +1,32 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 扫描命中结果
+ */
+@Getter
+public class ScanHit {
+    private final String stockCode;
+    private final Date date;
+    private final boolean predictedRise;
+    private final double confidence;    // 置信度 (-1 到 1)
+    private final double volumeRatio;   // T-1成交量 / T日成交量，大于1为缩量
+    private final Double changeRate;
+    private final Double turnoverRate;
+    private final Double amplitude;
+
+    public ScanHit(String stockCode, Date date, double confidence, double volumeRatio,
+                   Double changeRate, Double turnoverRate, Double amplitude) {
+        this.stockCode = stockCode;
+        this.date = date;
+        this.predictedRise = confidence > 0;
+        this.confidence = confidence;
+        this.volumeRatio = volumeRatio;
+        this.changeRate = changeRate;
+        this.turnoverRate = turnoverRate;
+        this.amplitude = amplitude;
+    }
+}
@@ -0,0 +1,736 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.BarField;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 选股条件表达式
+ * 表达式只解析一次，编译成按节点特化的lambda树，求值时直接读取升序的基本类型字段列，不创建对象。
+ * 语法示例：turnover > 5% and amplitude < 2 and close > ma(close, 20) and falling(volume, 3)
+ * <ul>
+ *   <li>字段：open close high low volume amount amplitude change changeamount lastclose turnover，
+ *       x[n] 表示n根之前的值，如 close[1]、ma(close, 5)[1]</li>
+ *   <li>运算：+ - * /，比较 &gt; &gt;= &lt; &lt;= == !=，逻辑 and or not（或 &amp;&amp; || !），数字后可带%（字段本身即为百分数）</li>
+ *   <li>函数：ma/sum/max/min(x, n) 最近n根的均值/和/最大/最小值，ref(x, n) n根之前的值，abs(x)，
+ *       rising/falling(x, n) 连续n根上升/下降，count(条件, n) 最近n根满足条件的根数</li>
+ * </ul>
+ * 历史不足时相关项为NaN，比较结果为假，取反（not）后仍为假。and连接的条件按估算开销从低到高重排，便宜的条件先短路。
+ */
+public final class ScreenExpression {
+
+    /**
+     * 数值节点：columns按BarField序号排列，index为升序下标
+     */
+    @FunctionalInterface
+    interface Num {
+        double eval(double[][] columns, int index);
+    }
+
+    @FunctionalInterface
+    interface Bool {
+        boolean test(double[][] columns, int index);
+    }
+
+    private final String source;
+    private final Bool predicate;
+    private final Num value;
+    private final Set<BarField> fields;
+
+    private ScreenExpression(String source, Node root, Set<BarField> fields) {
+        this.source = source;
+        this.predicate = root.bool;
+        this.value = root.num;
+        this.fields = Collections.unmodifiableSet(fields);
+    }
+
+    /**
+     * 解析并编译表达式，语法错误时抛出IllegalArgumentException
+     */
+    public static ScreenExpression compile(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("表达式为空");
+        }
+        Parser parser = new Parser(source);
+        Node root = parser.parseExpression();
+        parser.expectEnd();
+        return new ScreenExpression(source, root, parser.fields);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 是否为条件表达式（否则为数值表达式）
+     */
+    public boolean isPredicate() {
+        return predicate != null;
+    }
+
+    /**
+     * 表达式用到的字段，求值前只需准备这些列
+     */
+    public Set<BarField> getFields() {
+        return fields;
+    }
+
+    public boolean test(double[][] columns, int index) {
+        return predicate.test(columns, index);
+    }
+
+    public double evaluate(double[][] columns, int index) {
+        return value.eval(columns, index);
+    }
+
+    /**
+     * 编译后的节点：num与bool二者有一，cost为估算的列读取次数，constant非NaN时为常量
+     * 条件节点同时编译其否定negated：涉及NaN的比较无论是否取反都为假，not直接换用negated
+     */
+    private static final class Node {
+        final Num num;
+        final Bool bool;
+        final Bool negated;
+        final int cost;
+        final double constant;
+        final int field; // 当前K线的字段读取时为字段序号，否则为-1
+
+        private Node(Num num, Bool bool, Bool negated, int cost, double constant, int field) {
+            this.num = num;
+            this.bool = bool;
+            this.negated = negated;
+            this.cost = cost;
+            this.constant = constant;
+            this.field = field;
+        }
+
+        static Node num(Num num, int cost) {
+            return new Node(num, null, null, cost, Double.NaN, -1);
+        }
+
+        static Node bool(Bool bool, Bool negated, int cost) {
+            return new Node(null, bool, negated, cost, Double.NaN, -1);
+        }
+
+        static Node constant(double value) {
+            return new Node((c, i) -> value, null, null, 0, value, -1);
+        }
+
+        static Node field(BarField field) {
+            int f = field.ordinal();
+            return new Node((c, i) -> c[f][i], null, null, 1, Double.NaN, f);
+        }
+
+        boolean isConstant() {
+            return !Double.isNaN(constant);
+        }
+    }
+
+    private static final class Parser {
+        private final String text;
+        private final Set<BarField> fields = EnumSet.noneOf(BarField.class);
+        private int pos;
+        private int argumentDepth;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        // expression := and ('or' and)*
+        Node parseExpression() {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseAnd());
+            while (acceptWord("or") || accept("||")) {
+                operands.add(parseAnd());
+            }
+            if (operands.size() == 1) {
+                return operands.get(0);
+            }
+            List<Node> sorted = sortedByCost(operands);
+            int cost = operands.stream().mapToInt(n -> n.cost).sum();
+            // not (a or b) == not a and not b
+            return Node.bool(anyOf(bools(sorted, false)), allOf(bools(sorted, true)), cost);
+        }
+
+        // and := not ('and' not)*，函数参数之外的逗号也视为and
+        private Node parseAnd() {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseNot());
+            while (acceptWord("and") || accept("&&") || (argumentDepth == 0 && accept(","))) {
+                operands.add(parseNot());
+            }
+            if (operands.size() == 1) {
+                return operands.get(0);
+            }
+            List<Node> sorted = sortedByCost(operands);
+            int cost = operands.stream().mapToInt(n -> n.cost).sum();
+            // not (a and b) == not a or not b
+            return Node.bool(allOf(bools(sorted, false)), anyOf(bools(sorted, true)), cost);
+        }
+
+        private List<Node> sortedByCost(List<Node> operands) {
+            List<Node> sorted = new ArrayList<>(operands);
+            sorted.sort(Comparator.comparingInt(n -> n.cost));
+            for (Node node : sorted) {
+                requireBool(node, pos);
+            }
+            return sorted;
+        }
+
+        private static Bool[] bools(List<Node> nodes, boolean negated) {
+            Bool[] parts = new Bool[nodes.size()];
+            for (int k = 0; k < parts.length; k++) {
+                parts[k] = negated ? nodes.get(k).negated : nodes.get(k).bool;
+            }
+            return parts;
+        }
+
+        private static Bool anyOf(Bool[] parts) {
+            if (parts.length == 2) {
+                Bool a = parts[0];
+                Bool b = parts[1];
+                return (c, i) -> a.test(c, i) || b.test(c, i);
+            }
+            return (c, i) -> {
+                for (Bool part : parts) {
+                    if (part.test(c, i)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        private static Bool allOf(Bool[] parts) {
+            if (parts.length == 2) {
+                Bool a = parts[0];
+                Bool b = parts[1];
+                return (c, i) -> a.test(c, i) && b.test(c, i);
+            }
+            return (c, i) -> {
+                for (Bool part : parts) {
+                    if (!part.test(c, i)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+
+        // not := ('not' | '!') not | comparison
+        private Node parseNot() {
+            int start = pos;
+            if (acceptWord("not") || accept("!")) {
+                Node inner = parseNot();
+                requireBool(inner, start);
+                return Node.bool(inner.negated, inner.bool, inner.cost);
+            }
+            return parseComparison();
+        }
+
+        // comparison := sum (op sum)?
+        private Node parseComparison() {
+            Node left = parseSum();
+            int start = pos;
+            String op = acceptAny(">=", "<=", "==", "!=", ">", "<", "=");
+            if (op == null) {
+                return left;
+            }
+            Node right = parseSum();
+            requireNum(left, start);
+            requireNum(right, start);
+            return compare(left, op, right);
+        }
+
+        /**
+         * 比较及其否定；否定取互补的比较符，任一侧为NaN时两者都为假
+         */
+        private static Node compare(Node left, String op, Node right) {
+            return Node.bool(comparison(left, op, right), comparison(left, complement(op), right),
+                    left.cost + right.cost);
+        }
+
+        private static String complement(String op) {
+            switch (op) {
+                case ">":
+                    return "<=";
+                case ">=":
+                    return "<";
+                case "<":
+                    return ">=";
+                case "<=":
+                    return ">";
+                case "!=":
+                    return "==";
+                default:
+                    return "!=";
+            }
+        }
+
+        private static Bool comparison(Node left, String op, Node right) {
+            // 最常见的“当前字段 比较 常量”形式直接读列，省去一层调用
+            if (left.field >= 0 && right.isConstant()) {
+                int f = left.field;
+                double k = right.constant;
+                switch (op) {
+                    case ">":
+                        return (c, i) -> c[f][i] > k;
+                    case ">=":
+                        return (c, i) -> c[f][i] >= k;
+                    case "<":
+                        return (c, i) -> c[f][i] < k;
+                    case "<=":
+                        return (c, i) -> c[f][i] <= k;
+                    case "!=":
+                        return (c, i) -> { double v = c[f][i]; return v == v && v != k; };
+                    default:
+                        return (c, i) -> c[f][i] == k;
+                }
+            }
+            if (right.isConstant()) {
+                Num a = left.num;
+                double k = right.constant;
+                switch (op) {
+                    case ">":
+                        return (c, i) -> a.eval(c, i) > k;
+                    case ">=":
+                        return (c, i) -> a.eval(c, i) >= k;
+                    case "<":
+                        return (c, i) -> a.eval(c, i) < k;
+                    case "<=":
+                        return (c, i) -> a.eval(c, i) <= k;
+                    case "!=":
+                        return (c, i) -> { double v = a.eval(c, i); return v == v && v != k; };
+                    default:
+                        return (c, i) -> a.eval(c, i) == k;
+                }
+            }
+            Num a = left.num;
+            Num b = right.num;
+            switch (op) {
+                case ">":
+                    return (c, i) -> a.eval(c, i) > b.eval(c, i);
+                case ">=":
+                    return (c, i) -> a.eval(c, i) >= b.eval(c, i);
+                case "<":
+                    return (c, i) -> a.eval(c, i) < b.eval(c, i);
+                case "<=":
+                    return (c, i) -> a.eval(c, i) <= b.eval(c, i);
+                case "!=":
+                    return (c, i) -> {
+                        double x = a.eval(c, i);
+                        double y = b.eval(c, i);
+                        return x == x && y == y && x != y;
+                    };
+                default:
+                    return (c, i) -> a.eval(c, i) == b.eval(c, i);
+            }
+        }
+
+        // sum := product (('+' | '-') product)*
+        private Node parseSum() {
+            Node left = parseProduct();
+            while (true) {
+                int start = pos;
+                String op = acceptAny("+", "-");
+                if (op == null) {
+                    return left;
+                }
+                Node right = parseProduct();
+                left = arithmetic(requireNum(left, start), op.charAt(0), requireNum(right, start));
+            }
+        }
+
+        // product := unary (('*' | '/') unary)*
+        private Node parseProduct() {
+            Node left = parseUnary();
+            while (true) {
+                int start = pos;
+                String op = acceptAny("*", "/");
+                if (op == null) {
+                    return left;
+                }
+                Node right = parseUnary();
+                left = arithmetic(requireNum(left, start), op.charAt(0), requireNum(right, start));
+            }
+        }
+
+        private static Node arithmetic(Node left, char op, Node right) {
+            if (left.isConstant() && right.isConstant()) {
+                double x = left.constant;
+                double y = right.constant;
+                double folded = op == '+' ? x + y : op == '-' ? x - y : op == '*' ? x * y : x / y;
+                if (!Double.isNaN(folded)) {
+                    return Node.constant(folded);
+                }
+            }
+            Num a = left.num;
+            Num b = right.num;
+            int cost = left.cost + right.cost;
+            switch (op) {
+                case '+':
+                    return Node.num((c, i) -> a.eval(c, i) + b.eval(c, i), cost);
+                case '-':
+                    return Node.num((c, i) -> a.eval(c, i) - b.eval(c, i), cost);
+                case '*':
+                    return Node.num((c, i) -> a.eval(c, i) * b.eval(c, i), cost);
+                default:
+                    return Node.num((c, i) -> a.eval(c, i) / b.eval(c, i), cost);
+            }
+        }
+
+        // unary := '-' unary | primary
+        private Node parseUnary() {
+            int start = pos;
+            if (accept("-")) {
+                Node operand = requireNum(parseUnary(), start);
+                if (operand.isConstant()) {
+                    return Node.constant(-operand.constant);
+                }
+                Num a = operand.num;
+                return Node.num((c, i) -> -a.eval(c, i), operand.cost);
+            }
+            return parsePrimary();
+        }
+
+        // primary := atom ('[' int ']')*
+        private Node parsePrimary() {
+            int start = pos;
+            Node node = parseAtom();
+            while (accept("[")) {
+                int offset = readInt();
+                expect("]");
+                node = shift(requireNum(node, start), offset);
+            }
+            return node;
+        }
+
+        // atom := number '%'? | '(' expression ')' | name '(' args ')' | name
+        private Node parseAtom() {
+            skipSpaces();
+            int start = pos;
+            if (accept("(")) {
+                Node inner = parseExpression();
+                expect(")");
+                return inner;
+            }
+            if (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                    pos++;
+                }
+                double number;
+                try {
+                    number = Double.parseDouble(text.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    throw error(start, "无效的数字: " + text.substring(start, pos));
+                }
+                accept("%");
+                return Node.constant(number);
+            }
+            String name = readWord();
+            if (name == null) {
+                throw error(start, pos < text.length() ? "意外的字符 '" + text.charAt(pos) + "'" : "表达式不完整");
+            }
+            if (accept("(")) {
+                argumentDepth++;
+                Node node = parseFunction(name.toLowerCase(Locale.ROOT), start);
+                argumentDepth--;
+                return node;
+            }
+            BarField field = BarField.fromName(name);
+            if (field == null) {
+                throw error(start, "未知字段: " + name);
+            }
+            fields.add(field);
+            return Node.field(field);
+        }
+
+        private Node parseFunction(String name, int start) {
+            switch (name) {
+                case "abs": {
+                    Node x = requireNum(parseExpression(), start);
+                    expect(")");
+                    Num a = x.num;
+                    return Node.num((c, i) -> Math.abs(a.eval(c, i)), x.cost);
+                }
+                case "ref": {
+                    Node x = requireNum(parseExpression(), start);
+                    expect(",");
+                    int n = readInt();
+                    expect(")");
+                    return shift(x, n);
+                }
+                case "ma":
+                case "sum":
+                case "max":
+                case "min": {
+                    Node x = requireNum(parseExpression(), start);
+                    expect(",");
+                    int n = readWindow();
+                    expect(")");
+                    return window(name, x, n);
+                }
+                case "rising":
+                case "falling": {
+                    Node x = requireNum(parseExpression(), start);
+                    expect(",");
+                    int n = readWindow();
+                    expect(")");
+                    return monotonic(name.equals("rising"), x, n);
+                }
+                case "count": {
+                    Node condition = parseExpression();
+                    Bool cond = requireBool(condition, start);
+                    int cost = condition.cost;
+                    expect(",");
+                    int n = readWindow();
+                    expect(")");
+                    return Node.num((c, i) -> {
+                        if (i - n + 1 < 0) {
+                            return Double.NaN;
+                        }
+                        int matched = 0;
+                        for (int k = i - n + 1; k <= i; k++) {
+                            if (cond.test(c, k)) {
+                                matched++;
+                            }
+                        }
+                        return matched;
+                    }, cost * n);
+                }
+                default:
+                    throw error(start, "未知函数: " + name);
+            }
+        }
+
+        /**
+         * 取n根之前的值，历史不足时为NaN
+         */
+        private static Node shift(Node x, int n) {
+            if (n == 0 || x.isConstant()) {
+                return x;
+            }
+            if (x.field >= 0) {
+                int f = x.field;
+                return Node.num((c, i) -> i >= n ? c[f][i - n] : Double.NaN, 1);
+            }
+            Num a = x.num;
+            return Node.num((c, i) -> i >= n ? a.eval(c, i - n) : Double.NaN, x.cost);
+        }
+
+        private static Node window(String name, Node x, int n) {
+            int cost = x.cost * n;
+            if (x.field >= 0) {
+                // 直接遍历列
+                int f = x.field;
+                switch (name) {
+                    case "ma":
+                    case "sum": {
+                        boolean average = name.equals("ma");
+                        return Node.num((c, i) -> {
+                            if (i - n + 1 < 0) {
+                                return Double.NaN;
+                            }
+                            double[] column = c[f];
+                            double total = 0;
+                            for (int k = i - n + 1; k <= i; k++) {
+                                total += column[k];
+                            }
+                            return average ? total / n : total;
+                        }, cost);
+                    }
+                    default: {
+                        boolean max = name.equals("max");
+                        return Node.num((c, i) -> {
+                            if (i - n + 1 < 0) {
+                                return Double.NaN;
+                            }
+                            double[] column = c[f];
+                            double best = column[i];
+                            for (int k = i - n + 1; k < i; k++) {
+                                best = max ? Math.max(best, column[k]) : Math.min(best, column[k]);
+                            }
+                            return best;
+                        }, cost);
+                    }
+                }
+            }
+            Num a = x.num;
+            boolean average = name.equals("ma");
+            boolean total = name.equals("sum") || average;
+            boolean max = name.equals("max");
+            return Node.num((c, i) -> {
+                if (i - n + 1 < 0) {
+                    return Double.NaN;
+                }
+                double result = a.eval(c, i);
+                for (int k = i - n + 1; k < i; k++) {
+                    double v = a.eval(c, k);
+                    result = total ? result + v : max ? Math.max(result, v) : Math.min(result, v);
+                }
+                return average ? result / n : result;
+            }, cost);
+        }
+
+        /**
+         * 连续n根严格上升/下降：x[i] 与 x[i-1] … x[i-n+1] 与 x[i-n] 逐一比较，需要n+1根K线
+         */
+        private static Node monotonic(boolean rising, Node x, int n) {
+            int cost = x.cost * (n + 1);
+            Bool test = monotonicTest(rising, x, n);
+            // 否定：历史足够且各值都不是NaN时才可能为真
+            Num a = x.num;
+            Bool negated = (c, i) -> {
+                if (i - n < 0) {
+                    return false;
+                }
+                for (int k = i; k >= i - n; k--) {
+                    if (Double.isNaN(a.eval(c, k))) {
+                        return false;
+                    }
+                }
+                return !test.test(c, i);
+            };
+            return Node.bool(test, negated, cost);
+        }
+
+        private static Bool monotonicTest(boolean rising, Node x, int n) {
+            if (x.field >= 0) {
+                int f = x.field;
+                return (c, i) -> {
+                    if (i - n < 0) {
+                        return false;
+                    }
+                    double[] column = c[f];
+                    for (int k = i; k > i - n; k--) {
+                        if (rising ? !(column[k] > column[k - 1]) : !(column[k] < column[k - 1])) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+            Num a = x.num;
+            return (c, i) -> {
+                if (i - n < 0) {
+                    return false;
+                }
+                double current = a.eval(c, i);
+                for (int k = i - 1; k >= i - n; k--) {
+                    double previous = a.eval(c, k);
+                    if (rising ? !(current > previous) : !(current < previous)) {
+                        return false;
+                    }
+                    current = previous;
+                }
+                return true;
+            };
+        }
+
+        private Node requireNum(Node node, int start) {
+            if (node.num == null) {
+                throw error(start, "此处需要数值，得到的是条件");
+            }
+            return node;
+        }
+
+        private Bool requireBool(Node node, int start) {
+            if (node.bool == null) {
+                throw error(start, "此处需要条件，得到的是数值");
+            }
+            return node.bool;
+        }
+
+        private int readWindow() {
+            int start = pos;
+            int n = readInt();
+            if (n < 1) {
+                throw error(start, "窗口长度必须大于0");
+            }
+            return n;
+        }
+
+        private int readInt() {
+            skipSpaces();
+            int start = pos;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error(start, "此处需要整数");
+            }
+            try {
+                return Integer.parseInt(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error(start, "整数过大");
+            }
+        }
+
+        private String readWord() {
+            skipSpaces();
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            return start == pos ? null : text.substring(start, pos);
+        }
+
+        private boolean acceptWord(String word) {
+            skipSpaces();
+            int end = pos + word.length();
+            if (end <= text.length() && text.regionMatches(true, pos, word, 0, word.length())
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean accept(String token) {
+            skipSpaces();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private String acceptAny(String... tokens) {
+            for (String token : tokens) {
+                if (accept(token)) {
+                    return token;
+                }
+            }
+            return null;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error(pos, "此处需要 '" + token + "'");
+            }
+        }
+
+        void expectEnd() {
+            skipSpaces();
+            if (pos < text.length()) {
+                throw error(pos, "多余的内容: " + text.substring(pos));
+            }
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(int position, String message) {
+            return new IllegalArgumentException("表达式错误（位置 " + (position + 1) + "）: " + message);
+        }
+    }
+}
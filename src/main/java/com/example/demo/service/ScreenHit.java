@@ -0,0 +1,30 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 条件选股命中结果
+ */
+@Getter
+public class ScreenHit {
+    private final String stockCode;
+    private final Date date;
+    private final Double close;
+    private final Double changeRate;
+    private final Double turnoverRate;
+    private final Double amplitude;
+    private final Double rankValue;   // 排序表达式的值，未指定排序时为null
+
+    public ScreenHit(String stockCode, Date date, Double close, Double changeRate,
+                     Double turnoverRate, Double amplitude, Double rankValue) {
+        this.stockCode = stockCode;
+        this.date = date;
+        this.close = close;
+        this.changeRate = changeRate;
+        this.turnoverRate = turnoverRate;
+        this.amplitude = amplitude;
+        this.rankValue = rankValue;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 条件选股结果
+ */
+@Getter
+@Setter
+public class ScreenResult {
+    private String expression;    // 筛选条件
+    private String rank;          // 排序表达式，为null时按代码排序
+    private int klt;
+    private int scannedCount;     // 扫描代码数
+    private int matchedCount;     // 满足条件的代码数
+    private long elapsedMillis;   // 耗时
+    private List<ScreenHit> hits = new ArrayList<>(); // 前limit个命中
+}
@@ -0,0 +1,190 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.AdjustType;
+import com.example.demo.dao.AdjustmentFactors;
+import com.example.demo.dao.BarField;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineDao;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.SeriesSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * 条件选股服务
+ * 对缓存中的全部代码按分片并行求值编译后的条件表达式；字段列随序列快照缓存，
+ * 序列未更新时重复筛选不再从K线对象中提取。可选的排序表达式通过各分片的定长堆取前K个。
+ * 价格字段按前复权计算（与接口默认的复权方式一致），均线等跨除权日的条件不会因除权缺口误判。
+ */
+@Service
+public class ScreenService {
+
+    private static final int CHUNK_SIZE = 64;
+    private static final int MAX_COMPILED = 256;
+
+    @Autowired
+    private KLineDao kLineDao;
+
+    // 已编译的表达式，相同表达式只解析一次；超过上限时淘汰最久未使用的
+    private final Map<String, ScreenExpression> compiled = Collections.synchronizedMap(
+            new LinkedHashMap<String, ScreenExpression>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ScreenExpression> eldest) {
+                    return size() > MAX_COMPILED;
+                }
+            });
+
+    /**
+     * 按条件筛选缓存中的代码，不触发远程获取
+     *
+     * @param expression 条件表达式
+     * @param rank       排序表达式（数值），为null时按代码顺序取前limit个
+     * @param targetDate 筛选日期，为null时取各代码最新K线
+     */
+    public ScreenResult screen(String expression, String rank, int klt, Date targetDate, int limit) {
+        long start = System.currentTimeMillis();
+        ScreenExpression filter = compile(expression);
+        if (!filter.isPredicate()) {
+            throw new IllegalArgumentException("筛选表达式必须是条件，例如 close > ma(close, 20)");
+        }
+        ScreenExpression ranking = rank == null || rank.isBlank() ? null : compile(rank);
+        if (ranking != null && ranking.isPredicate()) {
+            throw new IllegalArgumentException("排序表达式必须是数值，例如 turnover");
+        }
+        Set<BarField> fieldSet = EnumSet.noneOf(BarField.class);
+        fieldSet.addAll(filter.getFields());
+        if (ranking != null) {
+            fieldSet.addAll(ranking.getFields());
+        }
+        BarField[] fields = fieldSet.toArray(new BarField[0]);
+        int targetDay = targetDate == null ? Integer.MAX_VALUE : EpochDays.of(targetDate);
+        int capacity = Math.max(1, limit);
+
+        String[] codes = kLineDao.getCachedStockCodes().toArray(new String[0]);
+        Arrays.sort(codes);
+        int chunkCount = (codes.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        AtomicInteger matched = new AtomicInteger();
+
+        // 未排序时各分片按代码顺序保留前limit个，排序时各分片维护定长堆
+        int[][] chunkMatches = new int[chunkCount][];
+        TopKHeap[] chunkHeaps = new TopKHeap[chunkCount];
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            double[][] columns = new double[BarField.count()][];
+            TopKHeap heap = ranking == null ? null : new TopKHeap(capacity);
+            int[] ids = new int[Math.min(capacity, CHUNK_SIZE)];
+            int idCount = 0;
+            int end = Math.min(codes.length, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                SeriesSnapshot snapshot = kLineDao.getCachedSnapshot(codes[i], klt);
+                int index = targetIndex(snapshot, targetDay);
+                if (index < 0) {
+                    continue;
+                }
+                loadColumns(columns, snapshot, kLineDao.getAdjustmentFactors(codes[i], klt), fields);
+                if (!filter.test(columns, index)) {
+                    continue;
+                }
+                matched.incrementAndGet();
+                if (heap != null) {
+                    double score = ranking.evaluate(columns, index);
+                    if (!Double.isNaN(score)) {
+                        heap.offer(score, -i, i);
+                    }
+                } else if (idCount < ids.length) {
+                    ids[idCount++] = i;
+                }
+            }
+            chunkMatches[chunk] = Arrays.copyOf(ids, idCount);
+            chunkHeaps[chunk] = heap;
+        });
+
+        int[] selected;
+        if (ranking != null) {
+            TopKHeap heap = new TopKHeap(capacity);
+            for (TopKHeap chunkHeap : chunkHeaps) {
+                heap.merge(chunkHeap);
+            }
+            selected = heap.drainDescending();
+        } else {
+            selected = Arrays.stream(chunkMatches).flatMapToInt(Arrays::stream).limit(capacity).toArray();
+        }
+
+        ScreenResult result = new ScreenResult();
+        result.setExpression(expression);
+        result.setRank(ranking == null ? null : rank);
+        result.setKlt(klt);
+        result.setScannedCount(codes.length);
+        result.setMatchedCount(matched.get());
+        result.setHits(toHits(codes, selected, ranking, fields, klt, targetDay));
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 编译表达式，语法错误时抛出IllegalArgumentException
+     */
+    public ScreenExpression compile(String expression) {
+        ScreenExpression cached = compiled.get(expression);
+        if (cached != null) {
+            return cached;
+        }
+        ScreenExpression compiledExpression = ScreenExpression.compile(expression);
+        compiled.put(expression, compiledExpression);
+        return compiledExpression;
+    }
+
+    /**
+     * 准备表达式用到的列，价格字段取前复权列
+     */
+    private static void loadColumns(double[][] columns, SeriesSnapshot snapshot, AdjustmentFactors factors,
+                                    BarField[] fields) {
+        for (BarField field : fields) {
+            columns[field.ordinal()] = factors == null ? snapshot.column(field) : factors.qfqColumn(snapshot, field);
+        }
+    }
+
+    private static int targetIndex(SeriesSnapshot snapshot, int targetDay) {
+        if (snapshot == null || snapshot.isEmpty()) {
+            return -1;
+        }
+        return targetDay == Integer.MAX_VALUE ? snapshot.size() - 1 : snapshot.floorIndex(targetDay);
+    }
+
+    /**
+     * 只为选中的代码创建结果对象
+     */
+    private List<ScreenHit> toHits(String[] codes, int[] ids, ScreenExpression ranking, BarField[] fields,
+                                   int klt, int targetDay) {
+        List<ScreenHit> hits = new ArrayList<>(ids.length);
+        double[][] columns = new double[BarField.count()][];
+        for (int id : ids) {
+            SeriesSnapshot snapshot = kLineDao.getCachedSnapshot(codes[id], klt);
+            int index = targetIndex(snapshot, targetDay);
+            if (index < 0) {
+                continue;
+            }
+            AdjustmentFactors factors = kLineDao.getAdjustmentFactors(codes[id], klt);
+            Double rankValue = null;
+            if (ranking != null) {
+                loadColumns(columns, snapshot, factors, fields);
+                rankValue = ranking.evaluate(columns, index);
+            }
+            KLineData bar = factors == null ? snapshot.barAt(index) : factors.apply(snapshot.barAt(index), AdjustType.QFQ);
+            hits.add(new ScreenHit(codes[id], bar.getDate(), bar.getClose(), bar.getChangeRate(),
+                    bar.getTurnoverRate(), bar.getAmplitude(), rankValue));
+        }
+        return hits;
+    }
+}
@@ -1,10 +1,10 @@
 package com.example.demo.service;
 
+import com.example.demo.dao.EpochDays;
 import com.example.demo.dao.KLineData;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 
@@ -57,6 +57,11 @@ public class StockAnalysisPrompt {
      */
     public String getPeriodName() {
         switch (klt) {
+            case 1: return "1分钟K";
+            case 5: return "5分钟K";
+            case 15: return "15分钟K";
+            case 30: return "30分钟K";
+            case 60: return "60分钟K";
             case 101: return "日K";
             case 102: return "周K";
             case 103: return "月K";
@@ -71,7 +76,7 @@ public class StockAnalysisPrompt {
     public String toString() {
         return "StockAnalysisPrompt{\n" +
                 "stockCode='" + stockCode + "'\n" +
-                "analysisDate=" + new SimpleDateFormat("yyyy-MM-dd").format(analysisDate) + "\n" +
+                "analysisDate=" + EpochDays.format(analysisDate) + "\n" +
                 "period=" + getPeriodName() + "\n" +
                 "historicalDataCount=" + (historicalData != null ? historicalData.size() : 0) + "\n" +
                 "actualNextPeriodRise=" + actualNextPeriodRise + "\n" +
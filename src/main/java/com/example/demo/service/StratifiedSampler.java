@@ -0,0 +1,131 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 分层蓄水池抽样
+ * 每层独立做蓄水池抽样（Algorithm R），候选逐个流过，只保留被抽中的元素，不需要先收集全部候选；
+ * 结束时按注水法在各层间平均分配名额，样本不足的层全部入选，其余名额由样本充足的层均分。
+ * 所有随机性来自同一个带种子的Random，候选顺序相同时结果可复现。
+ */
+public class StratifiedSampler<T> {
+
+    private final int total;
+    private final Random random;
+    private final Object[][] reservoirs;
+    private final long[] seen;
+    private int[] selected;
+
+    /**
+     * @param strata 层数，层编号为 0 到 strata-1
+     * @param total  总样本数，也是每层蓄水池的容量（某层可能独占全部名额）
+     */
+    public StratifiedSampler(int strata, int total, long seed) {
+        this.total = Math.max(0, total);
+        this.random = new Random(seed);
+        this.reservoirs = new Object[strata][];
+        this.seen = new long[strata];
+    }
+
+    /**
+     * 登记一个候选，返回它在该层蓄水池中的位置，未被抽中时返回-1；
+     * 被抽中后调用put写入，未被抽中的候选无需创建对象
+     */
+    public int admit(int stratum) {
+        long n = seen[stratum]++;
+        if (n < total) {
+            return (int) n;
+        }
+        long slot = (long) (random.nextDouble() * (n + 1));
+        return slot < total ? (int) slot : -1;
+    }
+
+    public void put(int stratum, int slot, T item) {
+        if (reservoirs[stratum] == null) {
+            reservoirs[stratum] = new Object[total];
+        }
+        reservoirs[stratum][slot] = item;
+    }
+
+    /**
+     * 该层已登记的候选数
+     */
+    public long getSeen(int stratum) {
+        return seen[stratum];
+    }
+
+    public int getStrataCount() {
+        return seen.length;
+    }
+
+    /**
+     * select之后该层的入选数
+     */
+    public int getSelected(int stratum) {
+        return selected == null ? 0 : selected[stratum];
+    }
+
+    /**
+     * 按注水法分配各层名额
+     */
+    private int[] allocate() {
+        int strata = seen.length;
+        int[] available = new int[strata];
+        int remaining = 0;
+        List<Integer> open = new ArrayList<>();
+        for (int s = 0; s < strata; s++) {
+            available[s] = (int) Math.min(seen[s], total);
+            if (available[s] > 0) {
+                open.add(s);
+                remaining += available[s];
+            }
+        }
+        remaining = Math.min(remaining, total);
+
+        int[] quota = new int[strata];
+        while (remaining > 0 && !open.isEmpty()) {
+            // 名额除不尽时余数随机落在某些层上
+            Collections.shuffle(open, random);
+            int share = Math.max(1, remaining / open.size());
+            List<Integer> stillOpen = new ArrayList<>(open.size());
+            for (int s : open) {
+                int give = Math.min(Math.min(share, available[s] - quota[s]), remaining);
+                quota[s] += give;
+                remaining -= give;
+                if (quota[s] < available[s]) {
+                    stillOpen.add(s);
+                }
+            }
+            open = stillOpen;
+        }
+        return quota;
+    }
+
+    /**
+     * 抽样结果：各层按名额从打乱后的蓄水池中取前若干个，再整体打乱，使各层交错出现
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> select() {
+        int[] quota = allocate();
+        selected = quota;
+        List<T> result = new ArrayList<>();
+        for (int s = 0; s < seen.length; s++) {
+            if (quota[s] == 0) {
+                continue;
+            }
+            int size = (int) Math.min(seen[s], total);
+            List<T> reservoir = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                reservoir.add((T) reservoirs[s][i]);
+            }
+            // 蓄水池中靠前的位置偏向早出现的候选，先打乱再截取
+            Collections.shuffle(reservoir, random);
+            result.addAll(reservoir.subList(0, quota[s]));
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+/**
+ * 定长Top-K小顶堆，用基本类型数组保存分值和编号，避免为每个候选创建对象
+ * 分值相同时按次级分值比较，保留分值最大的K个。
+ */
+public class TopKHeap {
+
+    private final int capacity;
+    private final double[] scores;
+    private final double[] tieBreakers;
+    private final int[] ids;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.scores = new double[this.capacity];
+        this.tieBreakers = new double[this.capacity];
+        this.ids = new int[this.capacity];
+    }
+
+    /**
+     * 候选能否进入堆，可在创建结果对象前先行判断
+     */
+    public boolean accepts(double score, double tieBreaker) {
+        return size < capacity || greater(score, tieBreaker, scores[0], tieBreakers[0]);
+    }
+
+    public void offer(double score, double tieBreaker, int id) {
+        if (size < capacity) {
+            scores[size] = score;
+            tieBreakers[size] = tieBreaker;
+            ids[size] = id;
+            siftUp(size++);
+        } else if (greater(score, tieBreaker, scores[0], tieBreakers[0])) {
+            scores[0] = score;
+            tieBreakers[0] = tieBreaker;
+            ids[0] = id;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 合并另一个堆（多线程分片各自维护堆，最后合并）
+     */
+    public void merge(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], other.tieBreakers[i], other.ids[i]);
+        }
+    }
+
+    /**
+     * 按分值从高到低返回编号，调用后堆被清空
+     */
+    public int[] drainDescending() {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = ids[0];
+            size--;
+            scores[0] = scores[size];
+            tieBreakers[0] = tieBreakers[size];
+            ids[0] = ids[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    /**
+     * 堆中最小的分值，堆满时即为进入堆的门槛
+     */
+    public double lowestScore() {
+        return scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean greater(double score, double tie, double otherScore, double otherTie) {
+        return score > otherScore || (score == otherScore && tie > otherTie);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!greater(scores[parent], tieBreakers[parent], scores[index], tieBreakers[index])) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = index * 2 + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && greater(scores[left], tieBreakers[left], scores[right], tieBreakers[right])) {
+                smallest = right;
+            }
+            if (!greater(scores[index], tieBreakers[index], scores[smallest], tieBreakers[smallest])) {
+                break;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        double tie = tieBreakers[a];
+        tieBreakers[a] = tieBreakers[b];
+        tieBreakers[b] = tie;
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+}
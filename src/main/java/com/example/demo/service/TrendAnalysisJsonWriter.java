@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.KLineJsonWriter;
+
+import java.util.List;
+
+/**
+ * 涨跌分析结果的JSON序列化
+ * 按字段名顺序直接拼接，不经过反射；输出与FastJson默认序列化一致（省略null、日期写毫秒数、NaN写null）。
+ */
+public final class TrendAnalysisJsonWriter {
+
+    private TrendAnalysisJsonWriter() {
+    }
+
+    public static String toJson(TrendAnalysisResult result) {
+        StringBuilder out = new StringBuilder(256);
+        write(result, out);
+        return out.toString();
+    }
+
+    public static void write(TrendAnalysisResult result, StringBuilder out) {
+        out.append('{');
+        if (result.getActualRise() != null) {
+            out.append("\"actualRise\":").append(result.getActualRise().booleanValue()).append(',');
+        }
+        if (result.getAnalysisDetails() != null) {
+            out.append("\"analysisDetails\":");
+            KLineJsonWriter.appendString(result.getAnalysisDetails(), out);
+            out.append(',');
+        }
+        out.append("\"canAnalyze\":").append(result.isCanAnalyze()).append(',');
+        out.append("\"confidence\":");
+        KLineJsonWriter.appendDouble(result.getConfidence(), out);
+        out.append(',');
+        if (result.getMessage() != null) {
+            out.append("\"message\":");
+            KLineJsonWriter.appendString(result.getMessage(), out);
+            out.append(',');
+        }
+        out.append("\"predictedRise\":").append(result.isPredictedRise());
+        if (result.getSimilarPatterns() != null) {
+            out.append(",\"similarPatterns\":");
+            write(result.getSimilarPatterns(), out);
+        }
+        if (result.getTargetDate() != null) {
+            out.append(",\"targetDate\":").append(result.getTargetDate().getTime());
+        }
+        out.append('}');
+    }
+
+    private static void write(PatternMatchResult patterns, StringBuilder out) {
+        out.append("{\"averageNextChangeRate\":");
+        KLineJsonWriter.appendDouble(patterns.getAverageNextChangeRate(), out);
+        out.append(",\"comparedWindows\":").append(patterns.getComparedWindows());
+        out.append(",\"elapsedMicros\":").append(patterns.getElapsedMicros());
+        out.append(",\"indexedWindows\":").append(patterns.getIndexedWindows());
+        List<PatternMatch> matches = patterns.getMatches();
+        if (matches != null) {
+            out.append(",\"matches\":[");
+            for (int i = 0; i < matches.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                write(matches.get(i), out);
+            }
+            out.append(']');
+        }
+        out.append(",\"prunedWindows\":").append(patterns.getPrunedWindows());
+        out.append(",\"riseRatio\":");
+        KLineJsonWriter.appendDouble(patterns.getRiseRatio(), out);
+        out.append(",\"window\":").append(patterns.getWindow());
+        out.append('}');
+    }
+
+    private static void write(PatternMatch match, StringBuilder out) {
+        out.append("{\"distance\":");
+        KLineJsonWriter.appendDouble(match.getDistance(), out);
+        if (match.getEndDate() != null) {
+            out.append(",\"endDate\":").append(match.getEndDate().getTime());
+        }
+        out.append(",\"nextChangeRate\":");
+        KLineJsonWriter.appendDouble(match.getNextChangeRate(), out);
+        if (match.getStockCode() != null) {
+            out.append(",\"stockCode\":");
+            KLineJsonWriter.appendString(match.getStockCode(), out);
+        }
+        out.append('}');
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.demo.service;
 
-import com.alibaba.fastjson.JSON;
+import java.util.Date;
 
 /**
  * 涨跌分析结果
@@ -11,6 +11,9 @@ public class TrendAnalysisResult {
     private double confidence;           // 置信度 (-1 到 1)
     private String message;             // 分析结果描述
     private String analysisDetails;      // 详细分析过程
+    private PatternMatchResult similarPatterns; // 全市场相似形态及其后续表现
+    private Date targetDate;            // 分析日期（批量回测时填写）
+    private Boolean actualRise;         // 实际次日是否上涨（批量回测时填写）
 
     // 构造方法
     public TrendAnalysisResult() {}
@@ -40,8 +43,17 @@ public class TrendAnalysisResult {
     public String getAnalysisDetails() { return analysisDetails; }
     public void setAnalysisDetails(String analysisDetails) { this.analysisDetails = analysisDetails; }
 
+    public PatternMatchResult getSimilarPatterns() { return similarPatterns; }
+    public void setSimilarPatterns(PatternMatchResult similarPatterns) { this.similarPatterns = similarPatterns; }
+
+    public Date getTargetDate() { return targetDate; }
+    public void setTargetDate(Date targetDate) { this.targetDate = targetDate; }
+
+    public Boolean getActualRise() { return actualRise; }
+    public void setActualRise(Boolean actualRise) { this.actualRise = actualRise; }
+
     @Override
     public String toString() {
-        return JSON.toJSONString(this);
+        return TrendAnalysisJsonWriter.toJson(this);
     }
 }
\ No newline at end of file
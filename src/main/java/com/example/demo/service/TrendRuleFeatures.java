@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import com.example.demo.dao.KLineData;
+
+import java.util.List;
+
+/**
+ * 量价趋势规则的预计算特征，按时间升序存放在基本类型数组中，构建后只读
+ * 规则与KLineAnalysisService一致：缩量涨/跌延续，放量涨/跌反转，T-1与T-2~T-5分别加权；
+ * 每根K线预先算好T-1的信号方向和T-2~T-5的信号和，任意权重下的置信度都可O(1)求出。
+ */
+public class TrendRuleFeatures {
+
+    static final int LOOKBACK = 5;
+
+    private final long[] times;
+    private final byte[] lag1Signals;   // T-1信号：1看涨，-1看跌，0无数据
+    private final byte[] restSignals;   // T-2~T-5信号之和
+    private final byte[] restCounts;    // T-2~T-5有效天数
+    private final byte[] actualRises;   // 下一根K线：1上涨，0未上涨，-1无数据
+
+    private TrendRuleFeatures(int size) {
+        times = new long[size];
+        lag1Signals = new byte[size];
+        restSignals = new byte[size];
+        restCounts = new byte[size];
+        actualRises = new byte[size];
+    }
+
+    public static TrendRuleFeatures fromBars(List<KLineData> ascending) {
+        int size = ascending.size();
+        TrendRuleFeatures features = new TrendRuleFeatures(size);
+        for (int t = 0; t < size; t++) {
+            KLineData current = ascending.get(t);
+            features.times[t] = current.getDate().getTime();
+            features.actualRises[t] = -1;
+            if (t + 1 < size && ascending.get(t + 1).getChangeRate() != null) {
+                features.actualRises[t] = (byte) (ascending.get(t + 1).getChangeRate() > 0 ? 1 : 0);
+            }
+            if (current.getVolume() == null || current.getClose() == null || current.getOpen() == null) {
+                continue;
+            }
+
+            boolean isRise = current.getClose() >= current.getOpen();
+            for (int lag = 1; lag <= LOOKBACK && t - lag >= 0; lag++) {
+                Long previousVolume = ascending.get(t - lag).getVolume();
+                if (previousVolume == null) {
+                    continue;
+                }
+                boolean isVolumeShrink = current.getVolume() < previousVolume;
+                byte signal = (byte) (isVolumeShrink == isRise ? 1 : -1);
+                if (lag == 1) {
+                    features.lag1Signals[t] = signal;
+                } else {
+                    features.restSignals[t] += signal;
+                    features.restCounts[t]++;
+                }
+            }
+        }
+        return features;
+    }
+
+    /**
+     * T-1权重为t1Weight、其余权重平分到T-2~T-5时的置信度 (-1 到 1)
+     */
+    public double confidence(int t, double t1Weight) {
+        double restWeight = (1 - t1Weight) / (LOOKBACK - 1);
+        double totalWeight = (lag1Signals[t] != 0 ? t1Weight : 0) + restWeight * restCounts[t];
+        if (totalWeight == 0) {
+            return 0;
+        }
+        return (t1Weight * lag1Signals[t] + restWeight * restSignals[t]) / totalWeight;
+    }
+
+    /**
+     * 该位置能否参与评估：有T-1信号且有下一根K线
+     */
+    public boolean isEvaluable(int t) {
+        return lag1Signals[t] != 0 && actualRises[t] >= 0;
+    }
+
+    public boolean isActualRise(int t) {
+        return actualRises[t] == 1;
+    }
+
+    public long getTime(int t) {
+        return times[t];
+    }
+
+    public int size() {
+        return times.length;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 量价趋势规则的滚动前推（walk-forward）评估
+ * 每个序列切成连续的“训练段+测试段”，窗口每次前移一个测试段长度；
+ * 训练段上网格搜索T-1权重，用最优权重和默认权重分别评估紧随其后的测试段。
+ * 所有序列的全部折作为独立任务并行执行，只读取共享的预计算特征数组。
+ */
+public class WalkForwardEvaluator {
+
+    static final double[] WEIGHT_GRID = {0.0, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0};
+
+    private final int trainSize;
+    private final int testSize;
+
+    /**
+     * 训练段和测试段长度必须为正，否则抛出IllegalArgumentException
+     */
+    public WalkForwardEvaluator(int trainSize, int testSize) {
+        if (trainSize <= 0 || testSize <= 0) {
+            throw new IllegalArgumentException("训练段和测试段长度必须大于0: train=" + trainSize + ", test=" + testSize);
+        }
+        this.trainSize = trainSize;
+        this.testSize = testSize;
+    }
+
+    public WalkForwardResult evaluate(String[] codes, TrendRuleFeatures[] features) {
+        long start = System.currentTimeMillis();
+
+        // 展开为(序列, 折)任务
+        List<int[]> tasks = new ArrayList<>();
+        for (int s = 0; s < features.length; s++) {
+            int fold = 0;
+            for (int testStart = trainSize; testStart < features[s].size(); testStart += testSize) {
+                tasks.add(new int[]{s, fold++, testStart - trainSize, testStart});
+            }
+        }
+
+        // 每折独立累计测试段结果，最后合并
+        WalkForwardFold[] folds = new WalkForwardFold[tasks.size()];
+        AnalysisStatistics[] foldStatistics = new AnalysisStatistics[tasks.size()];
+        IntStream.range(0, tasks.size()).parallel().forEach(i -> {
+            int[] task = tasks.get(i);
+            foldStatistics[i] = new AnalysisStatistics(false, Integer.MAX_VALUE);
+            folds[i] = evaluateFold(codes[task[0]], features[task[0]], task[1], task[2], task[3], foldStatistics[i]);
+        });
+
+        WalkForwardResult result = new WalkForwardResult();
+        result.setTrainSize(trainSize);
+        result.setTestSize(testSize);
+        result.setCodeCount(codes.length);
+        AnalysisStatistics total = new AnalysisStatistics(false, Integer.MAX_VALUE);
+        double defaultCorrect = 0;
+        for (int i = 0; i < folds.length; i++) {
+            if (folds[i].getTestCount() == 0) {
+                continue;
+            }
+            result.getFolds().add(folds[i]);
+            total.merge(foldStatistics[i]);
+            defaultCorrect += folds[i].getDefaultTestAccuracy() * folds[i].getTestCount();
+        }
+        int testCount = total.getTotalTests();
+        result.setTestCount(testCount);
+        result.setTestAccuracy(testCount == 0 ? 0 : (double) total.getCorrectPredictions() / testCount);
+        result.setDefaultTestAccuracy(testCount == 0 ? 0 : defaultCorrect / testCount);
+        result.setCalibrationCounts(total.getCalibrationCounts());
+        result.setCalibrationAccuracy(total.getCalibrationAccuracy());
+        result.setConfusionMatrix(total.getConfusionMatrix());
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private WalkForwardFold evaluateFold(String code, TrendRuleFeatures features, int foldIndex,
+                                         int trainStart, int testStart, AnalysisStatistics statistics) {
+        int testEnd = Math.min(features.size(), testStart + testSize);
+
+        // 训练段网格搜索，准确率相同时取更接近默认值的权重
+        double bestWeight = KLineAnalysisService.T1_WEIGHT;
+        double bestAccuracy = -1;
+        for (double weight : WEIGHT_GRID) {
+            double accuracy = accuracy(features, trainStart, testStart, weight);
+            if (accuracy > bestAccuracy || (accuracy == bestAccuracy
+                    && Math.abs(weight - KLineAnalysisService.T1_WEIGHT) < Math.abs(bestWeight - KLineAnalysisService.T1_WEIGHT))) {
+                bestAccuracy = accuracy;
+                bestWeight = weight;
+            }
+        }
+
+        int defaultCorrect = 0;
+        for (int t = testStart; t < testEnd; t++) {
+            if (!features.isEvaluable(t)) {
+                continue;
+            }
+            double confidence = features.confidence(t, bestWeight);
+            boolean actualRise = features.isActualRise(t);
+            statistics.addTestResult(features.getTime(t), confidence > 0, actualRise, confidence,
+                    (confidence > 0) == actualRise);
+            if ((features.confidence(t, KLineAnalysisService.T1_WEIGHT) > 0) == actualRise) {
+                defaultCorrect++;
+            }
+        }
+        int count = statistics.getTotalTests();
+
+        WalkForwardFold fold = new WalkForwardFold();
+        fold.setStockCode(code);
+        fold.setFoldIndex(foldIndex);
+        fold.setTrainStart(new Date(features.getTime(trainStart)));
+        fold.setTestStart(new Date(features.getTime(testStart)));
+        fold.setTestEnd(new Date(features.getTime(testEnd - 1)));
+        fold.setBestT1Weight(bestWeight);
+        fold.setTrainAccuracy(Math.max(0, bestAccuracy));
+        fold.setTestCount(count);
+        fold.setTestAccuracy(count == 0 ? 0 : (double) statistics.getCorrectPredictions() / count);
+        fold.setDefaultTestAccuracy(count == 0 ? 0 : (double) defaultCorrect / count);
+        fold.setCalibrationCounts(statistics.getCalibrationCounts());
+        fold.setCalibrationAccuracy(statistics.getCalibrationAccuracy());
+        return fold;
+    }
+
+    private double accuracy(TrendRuleFeatures features, int from, int to, double t1Weight) {
+        int count = 0;
+        int correct = 0;
+        for (int t = from; t < to; t++) {
+            if (!features.isEvaluable(t)) {
+                continue;
+            }
+            count++;
+            if ((features.confidence(t, t1Weight) > 0) == features.isActualRise(t)) {
+                correct++;
+            }
+        }
+        return count == 0 ? 0 : (double) correct / count;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * 单个滚动窗口（训练段+测试段）的评估结果
+ */
+@Getter
+@Setter
+public class WalkForwardFold {
+    private String stockCode;
+    private int foldIndex;
+    private Date trainStart;
+    private Date testStart;
+    private Date testEnd;
+    private double bestT1Weight;          // 训练段上准确率最高的T-1权重
+    private double trainAccuracy;         // 训练段准确率（最优权重）
+    private int testCount;                // 测试段样本数
+    private double testAccuracy;          // 测试段准确率（最优权重）
+    private double defaultTestAccuracy;   // 测试段准确率（默认权重）
+    private long[] calibrationCounts;     // 测试段按|置信度|分桶的样本数
+    private double[] calibrationAccuracy; // 测试段各桶准确率
+}
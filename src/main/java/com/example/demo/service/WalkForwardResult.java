@@ -0,0 +1,26 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 滚动前推评估结果
+ */
+@Getter
+@Setter
+public class WalkForwardResult {
+    private int trainSize;
+    private int testSize;
+    private int codeCount;
+    private int testCount;                 // 全部测试段样本数
+    private double testAccuracy;           // 全部测试段准确率（各折最优权重）
+    private double defaultTestAccuracy;    // 全部测试段准确率（默认权重）
+    private double[] calibrationAccuracy;  // 按|置信度|分桶的准确率，桶宽0.1
+    private long[] calibrationCounts;
+    private long[][] confusionMatrix;      // 各折最优权重下的混淆矩阵
+    private long elapsedMillis;
+    private List<WalkForwardFold> folds = new ArrayList<>();
+}
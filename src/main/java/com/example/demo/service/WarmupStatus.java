@@ -0,0 +1,31 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * 缓存预热进度与耗时统计
+ */
+@Getter
+@Setter
+public class WarmupStatus {
+    private boolean running;          // 是否正在预热
+    private String trigger;           // 触发方式：启动/开盘前/手动
+    private int totalTasks;           // 本轮任务数（代码 x 周期）
+    private int completedTasks;       // 已完成任务数
+    private int failedTasks;          // 获取失败的任务数
+    private Date startTime;           // 本轮开始时间
+    private Date finishTime;          // 本轮结束时间
+    private long elapsedMillis;       // 本轮耗时
+    private double avgTaskMillis;     // 单个任务平均耗时
+    private int runCount;             // 累计预热轮数
+
+    /**
+     * 完成百分比
+     */
+    public double getProgress() {
+        return totalTasks == 0 ? 0 : (completedTasks + failedTasks) * 100.0 / totalTasks;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import com.example.demo.dao.AdjustType;
+import com.example.demo.dao.AdjustmentFactors;
+import com.example.demo.dao.BarField;
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.SeriesSnapshot;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 复权因子测试类
+ */
+public class AdjustmentFactorsTest {
+
+    // 2025-01-03 为10送10除权日，交易所昨收由10.000调整为5.000
+    private final List<KLineData> rawData = Arrays.asList(
+            new KLineData("2025-01-02,9.900,10.000,10.100,9.800,1000,10000.000,3.00,1.01,0.100,1.00"),
+            new KLineData("2025-01-03,5.000,5.100,5.200,4.950,2000,10200.000,5.00,2.00,0.100,2.00"),
+            new KLineData("2025-01-06,5.100,5.050,5.150,5.000,1500,7600.000,2.94,-0.98,-0.050,1.50"));
+
+    @Test
+    public void testFactorsFromRawData() {
+        AdjustmentFactors factors = AdjustmentFactors.fromRawData(rawData);
+        assertEquals(1, factors.getEventCount());
+        assertEquals(2.0, factors.getLatestFactor(), 1e-9);
+        assertEquals(1.0, factors.getFactor(rawData.get(0).getDate()), 1e-9);
+        assertEquals(2.0, factors.getFactor(rawData.get(2).getDate()), 1e-9);
+    }
+
+    @Test
+    public void testApplyAdjustTypes() {
+        AdjustmentFactors factors = AdjustmentFactors.fromRawData(rawData);
+
+        // 前复权：除权前价格按最新因子折算
+        KLineData qfq = factors.apply(rawData.get(0), AdjustType.QFQ);
+        assertEquals(5.0, qfq.getClose(), 1e-9);
+        assertEquals(rawData.get(0).getChangeRate(), qfq.getChangeRate(), 1e-9);
+        assertSame(rawData.get(2), factors.apply(rawData.get(2), AdjustType.QFQ));
+
+        // 后复权：除权后价格按累计因子放大
+        KLineData hfq = factors.apply(rawData.get(1), AdjustType.HFQ);
+        assertEquals(10.2, hfq.getClose(), 1e-9);
+        assertEquals(10.0, hfq.getLastClose(), 1e-9);
+
+        assertSame(rawData.get(0), factors.apply(rawData.get(0), AdjustType.NONE));
+    }
+
+    @Test
+    public void testQfqColumn() {
+        SeriesSnapshot snapshot = SeriesSnapshot.of(rawData, DayRanges.of(
+                EpochDays.of(LocalDate.of(2025, 1, 2)), EpochDays.of(LocalDate.of(2025, 1, 6))));
+        AdjustmentFactors factors = AdjustmentFactors.fromSnapshot(snapshot);
+
+        double[] close = factors.qfqColumn(snapshot, BarField.CLOSE);
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(factors.apply(snapshot.barAt(i), AdjustType.QFQ).getClose(), close[i], 1e-9);
+        }
+        assertEquals(5.0, close[0], 1e-9);
+        assertSame(close, factors.qfqColumn(snapshot, BarField.CLOSE));
+
+        // 成交量等非价格字段不复权
+        assertSame(snapshot.column(BarField.VOLUME), factors.qfqColumn(snapshot, BarField.VOLUME));
+    }
+
+    @Test
+    public void testGapBetweenFetchesIsNotAnEvent() {
+        int jan2 = EpochDays.of(LocalDate.of(2025, 1, 2));
+        int jan6 = EpochDays.of(LocalDate.of(2025, 1, 6));
+        // 两次获取之间缺了1月3日，1月6日的昨收与1月2日收盘不一致不能当作除权
+        SeriesSnapshot gapped = SeriesSnapshot.of(Collections.singletonList(rawData.get(0)), DayRanges.of(jan2, jan2))
+                .merge(Collections.singletonList(rawData.get(2)), DayRanges.of(jan6, jan6));
+        assertEquals(2, gapped.getCoverage().size());
+        AdjustmentFactors factors = AdjustmentFactors.fromSnapshot(gapped);
+        assertEquals(0, factors.getEventCount());
+        assertSame(rawData.get(0), factors.apply(rawData.get(0), AdjustType.QFQ));
+
+        // 补齐缺口后两段连成一段，除权事件可以推导出来
+        SeriesSnapshot filled = gapped.merge(Collections.singletonList(rawData.get(1)), DayRanges.of(jan2 + 1, jan6));
+        assertEquals(1, filled.getCoverage().size());
+        assertEquals(1, AdjustmentFactors.fromSnapshot(filled).getEventCount());
+    }
+
+    @Test
+    public void testHfqAnchoredToUpstreamFactor() {
+        int jan6 = EpochDays.of(LocalDate.of(2025, 1, 6));
+        // 上游后复权价在1月6日为不复权价的4倍（更早的历史上还有一次除权）
+        AdjustmentFactors factors = AdjustmentFactors.fromRawData(rawData).withHfqAnchor(jan6, 4.0);
+        assertEquals(20.2, factors.apply(rawData.get(2), AdjustType.HFQ).getClose(), 1e-9);
+        assertEquals(20.0, factors.apply(rawData.get(0), AdjustType.HFQ).getClose(), 1e-9);
+        // 前复权不受锚定影响
+        assertEquals(5.0, factors.apply(rawData.get(0), AdjustType.QFQ).getClose(), 1e-9);
+
+        // 没有除权事件的序列锚定后同样按上游因子放大
+        AdjustmentFactors flat = AdjustmentFactors.fromRawData(rawData.subList(1, 3)).withHfqAnchor(jan6, 4.0);
+        assertEquals(20.2, flat.apply(rawData.get(2), AdjustType.HFQ).getClose(), 1e-9);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import com.example.demo.service.AnalysisStatistics;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分析统计结果累计测试类
+ */
+public class AnalysisStatisticsTest {
+
+    private void addSamples(AnalysisStatistics stats, int from, int to) {
+        for (int i = from; i < to; i++) {
+            boolean predicted = i % 2 == 0;
+            boolean actual = i % 3 == 0;
+            stats.addTestResult(new Date(i * 1000L), predicted, actual, (i % 10) / 10.0 + 0.05, predicted == actual);
+        }
+    }
+
+    @Test
+    public void testRunningAggregates() {
+        AnalysisStatistics stats = new AnalysisStatistics();
+        addSamples(stats, 0, 6);
+        // 0:涨/涨 1:跌/跌 2:涨/跌 3:跌/涨 4:涨/跌 5:跌/跌
+        assertEquals(6, stats.getTotalTests());
+        assertEquals(3, stats.getCorrectPredictions());
+        assertEquals(50.0, stats.getAccuracy(), 1e-9);
+        assertArrayEquals(new long[]{1, 2}, stats.getConfusionMatrix()[0]);
+        assertArrayEquals(new long[]{1, 2}, stats.getConfusionMatrix()[1]);
+        assertEquals(1, stats.getCalibrationCounts()[0]);
+        assertEquals(1.0, stats.getCalibrationAccuracy()[0], 1e-9);
+
+        List<AnalysisStatistics.TestResult> results = stats.getTestResults();
+        assertEquals(6, results.size());
+        assertEquals(3000L, results.get(3).getTestDate().getTime());
+        assertFalse(results.get(3).isPredictedRise());
+        assertTrue(results.get(3).isActualRise());
+        assertEquals(0.35, results.get(3).getConfidence(), 1e-6);
+    }
+
+    @Test
+    public void testMergeAndSpill() {
+        AnalysisStatistics single = new AnalysisStatistics();
+        addSamples(single, 0, 1000);
+
+        // 两个线程各自累计，明细超过100行即写入临时文件
+        AnalysisStatistics first = new AnalysisStatistics(true, 100);
+        AnalysisStatistics second = new AnalysisStatistics(true, 100);
+        addSamples(first, 0, 450);
+        addSamples(second, 450, 1000);
+        first.merge(second);
+
+        assertEquals(single.getTotalTests(), first.getTotalTests());
+        assertEquals(single.getCorrectPredictions(), first.getCorrectPredictions());
+        assertEquals(single.getAccuracy(), first.getAccuracy(), 1e-9);
+        assertArrayEquals(single.getCalibrationCounts(), first.getCalibrationCounts());
+
+        List<AnalysisStatistics.TestResult> results = first.getTestResults();
+        assertEquals(1000, results.size());
+        for (int i = 0; i < results.size(); i += 37) {
+            assertEquals(i * 1000L, results.get(i).getTestDate().getTime());
+            assertEquals(i % 2 == 0, results.get(i).isPredictedRise());
+            assertEquals(i % 3 == 0, results.get(i).isActualRise());
+        }
+
+        // 只保留聚合值
+        AnalysisStatistics aggregateOnly = new AnalysisStatistics(false, Integer.MAX_VALUE);
+        addSamples(aggregateOnly, 0, 1000);
+        assertEquals(single.getCorrectPredictions(), aggregateOnly.getCorrectPredictions());
+        assertTrue(aggregateOnly.getTestResults().isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo;
+
+import com.example.demo.service.BackfillQueue;
+import com.example.demo.service.BackfillTask;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 回填任务队列测试类
+ */
+public class BackfillQueueTest {
+
+    private List<BackfillTask> tasks() {
+        List<BackfillTask> tasks = new ArrayList<>();
+        for (String code : new String[]{"510300", "510500", "159915"}) {
+            for (int klt : new int[]{101, 102}) {
+                tasks.add(new BackfillTask(code, klt, 19000, 20000));
+            }
+        }
+        return tasks;
+    }
+
+    @Test
+    public void testResumeFromCheckpoints() throws Exception {
+        Path dir = Files.createTempDirectory("backfill");
+        assertNull(BackfillQueue.open(dir.toString()));
+
+        List<BackfillTask> tasks = tasks();
+        try (BackfillQueue queue = BackfillQueue.create(dir.toString(), "job1", tasks)) {
+            queue.checkpoint(tasks.get(0), true, 240, null);
+            queue.checkpoint(tasks.get(1), true, 52, null);
+            queue.checkpoint(tasks.get(2), false, 0, "上游熔断中");
+        }
+        // 模拟进程中断时写了一半的检查点
+        Files.write(dir.resolve("journal.txt"), "OK\t159915\t10".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        try (BackfillQueue resumed = BackfillQueue.open(dir.toString())) {
+            assertEquals("job1", resumed.getJobId());
+            assertEquals(6, resumed.getTaskCount());
+            assertEquals(2, resumed.getCompletedCount());
+            assertEquals(1, resumed.getFailedCount());
+            assertEquals(292, resumed.getBarCount());
+
+            // 失败过的任务和未执行的任务都待执行，已成功的不再执行
+            List<BackfillTask> pending = resumed.pending();
+            assertEquals(4, pending.size());
+            assertEquals(tasks.get(2).toLine(), pending.get(0).toLine());
+            assertFalse(resumed.isComplete());
+
+            for (BackfillTask task : pending) {
+                resumed.checkpoint(task, true, 10, null);
+            }
+            assertTrue(resumed.isComplete());
+            assertEquals(0, resumed.getFailedCount());
+        }
+
+        // 新建作业替换原有队列和检查点
+        try (BackfillQueue next = BackfillQueue.create(dir.toString(), "job2", tasks.subList(0, 2))) {
+            assertEquals(2, next.pending().size());
+        }
+        assertEquals(0, BackfillQueue.open(dir.toString()).getCompletedCount());
+    }
+
+    @Test
+    public void testCreateInterruptedBeforeJournalReset() throws Exception {
+        Path dir = Files.createTempDirectory("backfill");
+        List<BackfillTask> tasks = tasks();
+        try (BackfillQueue queue = BackfillQueue.create(dir.toString(), "job1", tasks)) {
+            queue.checkpoint(tasks.get(0), true, 240, null);
+        }
+        byte[] oldJournal = Files.readAllBytes(dir.resolve("journal.txt"));
+
+        // 写完新队列后、重置检查点前中断：旧作业的检查点不能算到新作业上
+        BackfillQueue.create(dir.toString(), "job2", tasks).close();
+        Files.write(dir.resolve("journal.txt"), oldJournal);
+        try (BackfillQueue reopened = BackfillQueue.open(dir.toString())) {
+            assertEquals("job2", reopened.getJobId());
+            assertEquals(0, reopened.getCompletedCount());
+            assertEquals(6, reopened.pending().size());
+            reopened.checkpoint(tasks.get(1), true, 52, null);
+        }
+        try (BackfillQueue reopened = BackfillQueue.open(dir.toString())) {
+            assertEquals(1, reopened.getCompletedCount());
+            assertEquals(52, reopened.getBarCount());
+        }
+
+        // 写新队列的临时文件时中断：原作业和它的检查点不受影响
+        Files.write(dir.resolve("queue.txt.tmp"), "# backfill job3".getBytes(StandardCharsets.UTF_8));
+        try (BackfillQueue reopened = BackfillQueue.open(dir.toString())) {
+            assertEquals("job2", reopened.getJobId());
+            assertEquals(1, reopened.getCompletedCount());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo;
+
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineDaoImpl;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.KLineL2Cache;
+import com.example.demo.dao.SeriesSnapshot;
+import com.example.demo.dao.UpstreamException;
+import com.example.demo.service.BackfillService;
+import com.example.demo.service.BackfillStatus;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 全市场回填作业测试类，DAO的回填按代码模拟成功或上游失败
+ */
+public class BackfillServiceTest {
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final Map<String, Integer> failuresBeforeSuccess = new ConcurrentHashMap<>();
+
+    private KLineDaoImpl dao() {
+        return new KLineDaoImpl() {
+            @Override
+            public int backfill(String stockCode, int klt, LocalDate startDate, LocalDate endDate)
+                    throws UpstreamException {
+                int call = calls.computeIfAbsent(stockCode, k -> new AtomicInteger()).incrementAndGet();
+                if (call <= failuresBeforeSuccess.getOrDefault(stockCode, 0)) {
+                    throw new UpstreamException("上游限流", 429);
+                }
+                return 100;
+            }
+        };
+    }
+
+    private static void awaitFinish(BackfillService service) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (service.getStatus().isRunning() || service.getStatus().getFinishTime() == null) {
+            assertTrue("回填未在10秒内结束", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testRetryCheckpointAndResume() throws Exception {
+        String dir = Files.createTempDirectory("backfill").toString();
+        failuresBeforeSuccess.put("600002", 1);
+        failuresBeforeSuccess.put("600003", 100);
+        BackfillService service = new BackfillService(dao(), dir, "101", 2, 3, 1);
+
+        assertTrue(service.start("手动", Arrays.asList("600001", "600002", "600003"), null));
+        awaitFinish(service);
+        BackfillStatus status = service.getStatus();
+        assertEquals(3, status.getTotalTasks());
+        assertEquals(2, status.getCompletedTasks());
+        assertEquals(1, status.getFailedTasks());
+        assertEquals(3, status.getRetryCount());
+        assertEquals(200, status.getBarCount());
+        assertEquals(3, calls.get("600003").get());
+        assertEquals(1, status.getRecentErrors().size());
+
+        // 续跑只执行失败过的任务，新的实例从磁盘上的检查点恢复
+        failuresBeforeSuccess.put("600003", 0);
+        BackfillService resumed = new BackfillService(dao(), dir, "101", 2, 3, 1);
+        assertTrue(resumed.resume("续跑"));
+        awaitFinish(resumed);
+        assertEquals(3, resumed.getStatus().getCompletedTasks());
+        assertEquals(300, resumed.getStatus().getBarCount());
+        assertEquals(1, calls.get("600001").get());
+        assertEquals(2, calls.get("600002").get());
+        assertEquals(4, calls.get("600003").get());
+
+        // 作业已完成，不再续跑
+        assertFalse(resumed.resume("续跑"));
+    }
+
+    @Test
+    public void testStopLeavesTasksForResume() throws Exception {
+        String dir = Files.createTempDirectory("backfill").toString();
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            codes.add(String.format("6%05d", i));
+        }
+        BackfillService service = new BackfillService(new KLineDaoImpl() {
+            @Override
+            public int backfill(String stockCode, int klt, LocalDate startDate, LocalDate endDate) {
+                calls.computeIfAbsent(stockCode, k -> new AtomicInteger()).incrementAndGet();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 10;
+            }
+        }, dir, "101,102", 1, 3, 1);
+
+        assertTrue(service.start("手动", codes, null));
+        assertFalse(service.start("手动", codes, null));
+        Thread.sleep(100);
+        service.stop();
+        awaitFinish(service);
+        int done = service.getStatus().getCompletedTasks();
+        assertTrue(String.valueOf(done), done > 0 && done < 100);
+
+        BackfillService resumed = new BackfillService(dao(), dir, "101,102", 4, 3, 1);
+        assertTrue(resumed.resume("续跑"));
+        awaitFinish(resumed);
+        assertEquals(100, resumed.getStatus().getCompletedTasks());
+    }
+
+    @Test
+    public void testLastClosedTradingDay() {
+        LocalDate monday = LocalDate.of(2025, 6, 2);
+        assertEquals(DayOfWeek.MONDAY, monday.getDayOfWeek());
+        int friday = EpochDays.of(monday.minusDays(3));
+
+        // 夜间回填在开盘前执行，结束日为今天时以上一个交易日为准
+        assertEquals(friday, KLineDaoImpl.lastClosedTradingDay(EpochDays.of(monday), monday.atTime(1, 30)));
+        assertEquals(EpochDays.of(monday), KLineDaoImpl.lastClosedTradingDay(EpochDays.of(monday), monday.atTime(16, 0)));
+        assertEquals(EpochDays.of(monday) + 1,
+                KLineDaoImpl.lastClosedTradingDay(EpochDays.of(monday) + 1, monday.plusDays(1).atTime(15, 0)));
+        // 结束日是周末时取之前的周五
+        assertEquals(friday, KLineDaoImpl.lastClosedTradingDay(friday + 2, LocalDateTime.of(2025, 6, 10, 12, 0)));
+    }
+
+    @Test
+    public void testBackfillSkipsCoveredRangeWithWeekendEndpoints() throws Exception {
+        // 2025-03-03(周一)至2025-05-30(周五)每个工作日一根K线，获取区间相同
+        LocalDate first = LocalDate.of(2025, 3, 3);
+        LocalDate last = LocalDate.of(2025, 5, 30);
+        List<KLineData> bars = new ArrayList<>();
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                bars.add(new KLineData(String.format(Locale.ROOT, "%s,10.000,10.000,10.100,9.900,1000,10000,1.00,0.00,0.000,0.50",
+                        day), 101));
+            }
+        }
+        SeriesSnapshot snapshot = SeriesSnapshot.of(bars, DayRanges.of(EpochDays.of(first), EpochDays.of(last)));
+        AtomicInteger saves = new AtomicInteger();
+        KLineDaoImpl dao = new KLineDaoImpl();
+        dao.setL2Cache(new KLineL2Cache() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public SeriesSnapshot load(String stockCode, int klt) {
+                return snapshot;
+            }
+
+            @Override
+            public Map<String, SeriesSnapshot> loadAll(Collection<String> stockCodes, int klt) {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void save(String stockCode, int klt, SeriesSnapshot data) {
+                saves.incrementAndGet();
+            }
+
+            @Override
+            public void publishInvalidation(String stockCode, int klt) {
+            }
+
+            @Override
+            public void subscribe(BiConsumer<String, Integer> listener) {
+            }
+
+            @Override
+            public Map<String, Object> getStats() {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        // 起止日都是周末，覆盖的交易日都已有K线，不访问上游
+        assertEquals(bars.size(), dao.backfill("600001", 101, first.minusDays(2), last.plusDays(2)));
+        assertEquals(0, saves.get());
+        // 回填后不常驻内存
+        assertNull(dao.getCachedSnapshot("600001", 101));
+    }
+}
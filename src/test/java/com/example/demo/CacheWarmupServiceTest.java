@@ -0,0 +1,194 @@
+package com.example.demo;
+
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineDaoImpl;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.KLineL2Cache;
+import com.example.demo.dao.SeriesSnapshot;
+import com.example.demo.service.CacheWarmupService;
+import com.example.demo.service.WarmupStatus;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 缓存预热测试类，K线从内存中的二级缓存加载，不访问上游
+ */
+public class CacheWarmupServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final List<String> warmed = Collections.synchronizedList(new ArrayList<>());
+    private volatile CountDownLatch gate;
+    private CacheWarmupService service;
+
+    @After
+    public void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * 最近800个自然日每天一根K线
+     */
+    private static SeriesSnapshot series(int klt) {
+        List<KLineData> bars = new ArrayList<>();
+        for (int i = 0; i <= 800; i++) {
+            double close = 10 + i % 7 * 0.1;
+            bars.add(new KLineData(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.3f,%.3f,%d,%.0f,%.2f,%.2f,%.3f,%.2f",
+                    TODAY.minusDays(i), close, close, close + 0.05, close - 0.05, 1000 + i, close * 1000,
+                    1.0, 0.1, 0.01, 0.5), klt));
+        }
+        return SeriesSnapshot.of(bars, DayRanges.of(EpochDays.of(TODAY.minusDays(800)), EpochDays.of(TODAY)));
+    }
+
+    /**
+     * 记录预热顺序，设置了gate时预热任务等待放行
+     */
+    private KLineDaoImpl dao() {
+        KLineDaoImpl dao = new KLineDaoImpl() {
+            @Override
+            public int warmUp(String stockCode, int klt) {
+                CountDownLatch current = gate;
+                if (current != null) {
+                    try {
+                        current.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                warmed.add(stockCode + "_" + klt);
+                return super.warmUp(stockCode, klt);
+            }
+        };
+        dao.setL2Cache(new KLineL2Cache() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public SeriesSnapshot load(String stockCode, int klt) {
+                return series(klt);
+            }
+
+            @Override
+            public Map<String, SeriesSnapshot> loadAll(Collection<String> stockCodes, int klt) {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void save(String stockCode, int klt, SeriesSnapshot snapshot) {
+            }
+
+            @Override
+            public void publishInvalidation(String stockCode, int klt) {
+            }
+
+            @Override
+            public void subscribe(BiConsumer<String, Integer> listener) {
+            }
+
+            @Override
+            public Map<String, Object> getStats() {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return dao;
+    }
+
+    private void awaitRuns(int runs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (service.getStatus().isRunning() || service.getStatus().getRunCount() < runs) {
+            assertTrue("预热未在10秒内结束", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testWarmUpByAccessOrder() {
+        KLineDaoImpl dao = dao();
+        dao.getAllKLineData("600003", 101);
+        dao.getAllKLineData("600003", 101);
+        dao.getAllKLineData("600002", 101);
+        dao.clearCache();
+        service = new CacheWarmupService(dao, "600001,600002,600003", "101,102", 1);
+
+        assertTrue(service.warmUp("手动"));
+
+        // 访问多的代码先预热，同一代码的各周期相邻
+        assertEquals(Arrays.asList("600003_101", "600003_102", "600002_101", "600002_102",
+                "600001_101", "600001_102"), warmed);
+        WarmupStatus status = service.getStatus();
+        assertFalse(status.isRunning());
+        assertEquals(6, status.getTotalTasks());
+        assertEquals(6, status.getCompletedTasks());
+        assertEquals(0, status.getFailedTasks());
+        assertEquals(1, status.getRunCount());
+        assertNotNull(dao.getCachedSnapshot("600001", 102));
+
+        // 预热读取不计入访问次数
+        assertEquals(Long.valueOf(2), dao.getAccessCounts().get("600003"));
+        assertEquals(Long.valueOf(1), dao.getAccessCounts().get("600002"));
+        assertNull(dao.getAccessCounts().get("600001"));
+    }
+
+    @Test
+    public void testOneWarmUpAtATime() throws InterruptedException {
+        gate = new CountDownLatch(1);
+        service = new CacheWarmupService(dao(), "600001", "101", 2);
+
+        assertTrue(service.startWarmUp("启动"));
+        // 进行中再次触发直接忽略，不会并发执行
+        assertFalse(service.startWarmUp("手动"));
+        assertFalse(service.warmUp("开盘前"));
+        gate.countDown();
+        awaitRuns(1);
+        assertEquals(Collections.singletonList("600001_101"), warmed);
+        assertEquals("启动", service.getStatus().getTrigger());
+
+        gate = null;
+        assertTrue(service.startWarmUp("手动"));
+        awaitRuns(2);
+        assertEquals(2, warmed.size());
+    }
+
+    @Test
+    public void testAccessCountsDecay() {
+        KLineDaoImpl dao = dao();
+        for (int i = 0; i < 5; i++) {
+            dao.getAllKLineData("600001", 101);
+        }
+        dao.getAllKLineData("600002", 101);
+
+        dao.decayAccessCounts();
+        assertEquals(Long.valueOf(2), dao.getAccessCounts().get("600001"));
+        // 减到0的代码移除，不再占用位置
+        assertFalse(dao.getAccessCounts().containsKey("600002"));
+        dao.decayAccessCounts();
+        dao.decayAccessCounts();
+        assertTrue(dao.getAccessCounts().isEmpty());
+    }
+}
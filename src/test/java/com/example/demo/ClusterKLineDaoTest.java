@@ -0,0 +1,277 @@
+package com.example.demo;
+
+import com.example.demo.dao.AdjustType;
+import com.example.demo.dao.ClusterKLineDao;
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineBlockCodec;
+import com.example.demo.dao.KLineDaoImpl;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.KLineL2Cache;
+import com.example.demo.dao.SeriesSnapshot;
+import com.example.demo.service.BackfillService;
+import com.example.demo.service.CacheWarmupService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 集群转发测试类，使用本地桩服务模拟归属节点
+ */
+public class ClusterKLineDaoTest {
+
+    private static final String SECRET = "test-secret";
+    private static final String SELF = "http://127.0.0.1:1";
+
+    private HttpServer server;
+    private String owner;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile String lastSecret;
+    private volatile String lastQuery;
+    private final List<KLineData> ownerBars = bars(3.1234, true);
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(ClusterKLineDao.INTERNAL_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            lastSecret = exchange.getRequestHeaders().getFirst(ClusterKLineDao.SECRET_HEADER);
+            lastQuery = exchange.getRequestURI().getQuery();
+            byte[] body = KLineBlockCodec.encodeExact(ownerBars);
+            exchange.sendResponseHeaders(status, status == 200 ? body.length : -1);
+            if (status == 200) {
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        owner = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * 最近400个自然日的K线（最新在前），复权后的价格带4位小数，可选地缺换手率
+     */
+    private static List<KLineData> bars(double base, boolean withNulls) {
+        List<KLineData> bars = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i <= 400; i++) {
+            KLineData bar = new KLineData();
+            bar.setDate(EpochDays.toDate(today.minusDays(i)));
+            bar.setOpen(base + i * 0.0001);
+            bar.setClose(base + i * 0.0003);
+            bar.setHigh(base + 0.05);
+            bar.setLow(base - 0.05);
+            bar.setLastClose(base + i * 0.0003 - 0.0111);
+            bar.setChangeAmount(0.0111);
+            bar.setChangeRate(0.356);
+            bar.setAmplitude(3.2);
+            bar.setAmount(1234567.891);
+            bar.setVolume(1000L + i);
+            bar.setTurnoverRate(withNulls && i % 2 == 0 ? null : 1.23);
+            bars.add(bar);
+        }
+        return bars;
+    }
+
+    /**
+     * 本地DAO从内存中的二级缓存加载，不访问上游
+     */
+    private KLineDaoImpl localDao(List<KLineData> data) {
+        LocalDate today = LocalDate.now();
+        SeriesSnapshot snapshot = SeriesSnapshot.of(data,
+                DayRanges.of(EpochDays.of(today.minusDays(400)), EpochDays.of(today)));
+        KLineDaoImpl dao = new KLineDaoImpl();
+        dao.setL2Cache(new KLineL2Cache() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public SeriesSnapshot load(String stockCode, int klt) {
+                return snapshot;
+            }
+
+            @Override
+            public Map<String, SeriesSnapshot> loadAll(Collection<String> stockCodes, int klt) {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void save(String stockCode, int klt, SeriesSnapshot data) {
+            }
+
+            @Override
+            public void publishInvalidation(String stockCode, int klt) {
+            }
+
+            @Override
+            public void subscribe(BiConsumer<String, Integer> listener) {
+            }
+
+            @Override
+            public Map<String, Object> getStats() {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return dao;
+    }
+
+    private ClusterKLineDao clusterDao() {
+        return new ClusterKLineDao(localDao(bars(9, false)), SELF, owner + "," + SELF, SECRET, 1000);
+    }
+
+    /**
+     * 找一个归属于桩节点的代码
+     */
+    private static String codeOwnedBy(ClusterKLineDao dao, String address) {
+        for (int i = 0; i < 1000; i++) {
+            String code = String.format("6%05d", i);
+            if (dao.ownerOf(code).equals(address)) {
+                return code;
+            }
+        }
+        throw new AssertionError("没有归属于 " + address + " 的代码");
+    }
+
+    @Test
+    public void testForwardIsLossless() {
+        ClusterKLineDao dao = clusterDao();
+        String code = codeOwnedBy(dao, owner);
+
+        List<KLineData> forwarded = dao.getAllKLineData(code, 101, AdjustType.QFQ);
+        assertEquals(1, requestCount.get());
+        assertEquals(SECRET, lastSecret);
+        assertTrue(lastQuery, lastQuery.contains("code=" + code) && lastQuery.contains("fqt=1"));
+
+        // 复权后的价格和空字段原样到达，顺序与归属节点一致
+        assertEquals(ownerBars.size(), forwarded.size());
+        for (int i = 0; i < ownerBars.size(); i++) {
+            KLineData expected = ownerBars.get(i);
+            KLineData actual = forwarded.get(i);
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getOpen(), actual.getOpen());
+            assertEquals(expected.getClose(), actual.getClose());
+            assertEquals(expected.getLastClose(), actual.getLastClose());
+            assertEquals(expected.getChangeAmount(), actual.getChangeAmount());
+            assertEquals(expected.getVolume(), actual.getVolume());
+            assertEquals(expected.getTurnoverRate(), actual.getTurnoverRate());
+            assertEquals(expected.getKlt(), actual.getKlt());
+        }
+
+        // 归属节点无此代码
+        status = 404;
+        assertNull(dao.getAllKLineData(code, 101, AdjustType.QFQ));
+    }
+
+    @Test
+    public void testFallbackToLocalWhenOwnerFails() {
+        ClusterKLineDao dao = clusterDao();
+        String code = codeOwnedBy(dao, owner);
+        status = 500;
+
+        for (int i = 0; i < 5; i++) {
+            List<KLineData> data = dao.getAllKLineData(code, 101, AdjustType.NONE);
+            assertEquals(9.0, data.get(0).getClose(), 1e-9);
+        }
+        // 连续失败3次后熔断，不再请求归属节点
+        assertEquals(3, requestCount.get());
+
+        // 本节点负责的代码不转发
+        String localCode = codeOwnedBy(dao, SELF);
+        assertEquals(9.0, dao.getKLineDataByDate(localCode, LocalDate.now(), 101, AdjustType.NONE).getClose(), 1e-9);
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    public void testWarmUpAndBackfillOnlyOwnedCodes() throws Exception {
+        Set<String> backfilled = ConcurrentHashMap.newKeySet();
+        KLineDaoImpl local = localDao(bars(9, false));
+        KLineDaoImpl recording = new KLineDaoImpl() {
+            @Override
+            public int backfill(String stockCode, int klt, LocalDate startDate, LocalDate endDate) {
+                backfilled.add(stockCode);
+                return 1;
+            }
+        };
+        ClusterKLineDao dao = new ClusterKLineDao(local, SELF, owner + "," + SELF, SECRET, 1000);
+        String localCode = codeOwnedBy(dao, SELF);
+        String remoteCode = codeOwnedBy(dao, owner);
+        assertTrue(dao.isOwner(localCode, 101));
+        assertFalse(dao.isOwner(remoteCode, 101));
+
+        // 预热只装入本节点归属的代码，非归属代码既不获取也不缓存
+        CacheWarmupService warmup = new CacheWarmupService(dao, localCode + "," + remoteCode, "101", 1);
+        try {
+            assertTrue(warmup.warmUp("手动"));
+            assertEquals(1, warmup.getStatus().getTotalTasks());
+            assertEquals(1, warmup.getStatus().getCompletedTasks());
+        } finally {
+            warmup.shutdown();
+        }
+        assertNotNull(local.getCachedSnapshot(localCode, 101));
+        assertNull(local.getCachedSnapshot(remoteCode, 101));
+        assertEquals(0, dao.warmUp(remoteCode, 101));
+        assertNull(local.getCachedSnapshot(remoteCode, 101));
+        assertEquals(0, requestCount.get());
+
+        // 回填作业只为归属代码建任务
+        ClusterKLineDao backfillDao = new ClusterKLineDao(recording, SELF, owner + "," + SELF, SECRET, 1000);
+        BackfillService backfill = new BackfillService(backfillDao,
+                Files.createTempDirectory("backfill").toString(), "101", 1, 1, 1);
+        assertTrue(backfill.start("手动", List.of(localCode, remoteCode), null));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (backfill.getStatus().isRunning() || backfill.getStatus().getFinishTime() == null) {
+            assertTrue("回填未在10秒内结束", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(1, backfill.getStatus().getTotalTasks());
+        assertEquals(Collections.singleton(localCode), backfilled);
+        assertEquals(0, backfillDao.backfill(remoteCode, 101, LocalDate.now().minusDays(30), LocalDate.now()));
+        assertEquals(Collections.singleton(localCode), backfilled);
+    }
+
+    @Test
+    public void testSecretRequired() {
+        ClusterKLineDao dao = clusterDao();
+        assertTrue(dao.isEnabled());
+        assertTrue(dao.isAuthorized(SECRET));
+        assertFalse(dao.isAuthorized("wrong"));
+        assertFalse(dao.isAuthorized(null));
+
+        // 未配置密钥时不开启集群模式，内部接口一律拒绝
+        ClusterKLineDao unsecured = new ClusterKLineDao(localDao(bars(9, false)), SELF, owner + "," + SELF, "", 1000);
+        assertFalse(unsecured.isEnabled());
+        assertFalse(unsecured.isAuthorized(""));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo;
+
+import com.example.demo.dao.KLineData;
+import com.example.demo.service.CompactPromptEncoder;
+import com.example.demo.service.PromptGenerationService;
+import com.example.demo.service.PromptTokenCounter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 紧凑提示词编码测试类，同时对比两种排版的token数
+ */
+public class CompactPromptEncoderTest {
+
+    /**
+     * 生成最新在前的模拟日K数据
+     */
+    private List<KLineData> sampleBars(int count) {
+        Random random = new Random(7);
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, Calendar.JANUARY, 2, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        List<KLineData> ascending = new ArrayList<>();
+        double lastClose = 5.812;
+        for (int i = 0; i < count; i++) {
+            double open = lastClose * (1 + (random.nextDouble() - 0.5) * 0.01);
+            double close = lastClose * (1 + (random.nextDouble() - 0.5) * 0.04);
+            KLineData data = new KLineData();
+            data.setDate(calendar.getTime());
+            data.setOpen(open);
+            data.setClose(close);
+            data.setLastClose(lastClose);
+            data.setHigh(Math.max(open, close) * 1.005);
+            data.setLow(Math.min(open, close) * 0.995);
+            data.setVolume(3_000_000L + random.nextInt(2_000_000));
+            data.setAmount(data.getVolume() * close);
+            data.setChangeRate((close / lastClose - 1) * 100);
+            data.setKlt(101);
+            ascending.add(data);
+            lastClose = close;
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        List<KLineData> newestFirst = new ArrayList<>();
+        for (int i = ascending.size() - 1; i >= 0; i--) {
+            newestFirst.add(ascending.get(i));
+        }
+        return newestFirst;
+    }
+
+    @Test
+    public void testTokenCounter() {
+        assertEquals(0, PromptTokenCounter.count(""));
+        assertEquals(2, PromptTokenCounter.count("上涨"));
+        // 数字按3位一组，小数点单独计：1234 . 5
+        assertEquals(4, PromptTokenCounter.count("1234.5"));
+        // 连续空白合并
+        assertEquals(3, PromptTokenCounter.count("a    b"));
+    }
+
+    @Test
+    public void testCompactLayoutUsesFewerTokens() {
+        List<KLineData> bars = sampleBars(30);
+        Date targetDate = bars.get(0).getDate();
+
+        String table = new PromptGenerationService().buildAnalysisPrompt("510500", targetDate, bars, 101);
+        CompactPromptEncoder.Encoded compact = new CompactPromptEncoder(100_000)
+                .encode("510500", targetDate, 101, "日K线", bars);
+
+        int tableTokens = PromptTokenCounter.count(table);
+        System.out.println("表格排版: " + tableTokens + " tokens, 紧凑排版: " + compact.getTokenCount()
+                + " tokens, 比例: " + String.format("%.2f", compact.getTokenCount() / (double) tableTokens));
+
+        assertEquals(30, compact.getBarCount());
+        assertEquals(5, compact.getFeatureCount());
+        assertTrue(compact.getTokenCount() < tableTokens * 0.7);
+    }
+
+    @Test
+    public void testBudgetLimitsBarsAndFeatures() {
+        List<KLineData> bars = sampleBars(60);
+        Date targetDate = bars.get(0).getDate();
+
+        CompactPromptEncoder.Encoded loose = new CompactPromptEncoder(100_000)
+                .encode("510500", targetDate, 101, "日K线", bars);
+        assertEquals(60, loose.getBarCount());
+
+        int budget = loose.getTokenCount() - 200;
+        CompactPromptEncoder.Encoded tight = new CompactPromptEncoder(budget)
+                .encode("510500", targetDate, 101, "日K线", bars);
+        assertTrue(tight.getBarCount() < 60);
+        assertTrue(tight.getTokenCount() <= budget);
+        // 指标优先于更早的K线
+        assertEquals(5, tight.getFeatureCount());
+
+        // 预算不足时仍保留最少的K线条数，指标被舍弃
+        CompactPromptEncoder.Encoded minimal = new CompactPromptEncoder(10)
+                .encode("510500", targetDate, 101, "日K线", bars);
+        assertEquals(10, minimal.getBarCount());
+        assertEquals(0, minimal.getFeatureCount());
+        assertFalse(minimal.getPrompt().contains("指标："));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo;
+
+import com.example.demo.dao.ConsistentHashRing;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 一致性哈希环测试类
+ */
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 20000;
+
+    private String code(int i) {
+        return String.format("%06d", i * 7 % 1000000);
+    }
+
+    @Test
+    public void testBalance() {
+        List<String> members = Arrays.asList("http://127.0.0.1:8081", "http://127.0.0.1:8082",
+                "http://127.0.0.1:8083", "http://127.0.0.1:8084");
+        ConsistentHashRing ring = new ConsistentHashRing(members, 160);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.ownerOf(code(i)), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            // 每个成员分到约1/4，偏差不超过20%
+            assertTrue("分布不均: " + counts, Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2);
+        }
+        // 相同成员列表（顺序无关）得到相同归属
+        ConsistentHashRing same = new ConsistentHashRing(Arrays.asList(members.get(3), members.get(1),
+                members.get(0), members.get(2)), 160);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.ownerOf(code(i)), same.ownerOf(code(i)));
+        }
+    }
+
+    @Test
+    public void testAddMemberMovesOnlyToNewMember() {
+        List<String> members = Arrays.asList("a:1", "a:2", "a:3", "a:4");
+        ConsistentHashRing before = new ConsistentHashRing(members, 160);
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a:1", "a:2", "a:3", "a:4", "a:5"), 160);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String oldOwner = before.ownerOf(code(i));
+            String newOwner = after.ownerOf(code(i));
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals("a:5", newOwner);
+                moved++;
+            }
+        }
+        // 约1/5的键迁移到新成员
+        assertTrue("迁移数: " + moved, Math.abs(moved - KEYS / 5) < KEYS / 5 * 0.25);
+    }
+
+    @Test
+    public void testEmptyRing() {
+        assertNull(new ConsistentHashRing(Arrays.<String>asList(), 160).ownerOf("510300"));
+    }
+}
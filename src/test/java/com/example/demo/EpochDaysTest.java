@@ -0,0 +1,53 @@
+package com.example.demo;
+
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineData;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 纪元日换算测试类
+ */
+public class EpochDaysTest {
+
+    @Test
+    public void testMatchesLocalDateConversion() {
+        ZoneId zone = ZoneId.systemDefault();
+        long start = java.sql.Date.valueOf("1990-01-01").getTime();
+        long end = java.sql.Date.valueOf("2030-01-01").getTime();
+        // 每隔约7小时取一个时刻，覆盖一天内各时段
+        for (long millis = start; millis < end; millis += 7 * 3600 * 1000L + 123) {
+            LocalDate expected = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+            assertEquals(expected.toEpochDay(), EpochDays.of(millis));
+        }
+    }
+
+    @Test
+    public void testKLineDataDay() {
+        KLineData daily = new KLineData("2025-04-01,1,1,1,1,100,100,0,0,0,0", 101);
+        assertEquals(LocalDate.of(2025, 4, 1), daily.getLocalDate());
+        assertEquals(EpochDays.of(LocalDate.of(2025, 4, 1)), daily.getEpochDay());
+
+        KLineData minute = new KLineData("2025-04-01 14:59,1,1,1,1,100,100,0,0,0,0", 1);
+        assertEquals(daily.getEpochDay(), minute.getEpochDay());
+        assertEquals("2025-04-01 14:59", EpochDays.formatBar(minute.getDate(), 1));
+        assertEquals("2025-04-01", EpochDays.formatBar(minute.getDate(), 101));
+    }
+
+    @Test
+    public void testRoundTripAndFormat() {
+        LocalDate day = LocalDate.of(2024, 2, 29);
+        int epochDay = EpochDays.of(day);
+        Date date = EpochDays.toDate(epochDay);
+        assertEquals(epochDay, EpochDays.of(date));
+        assertEquals(day, EpochDays.toLocalDate(date));
+        assertEquals("2024-02-29", EpochDays.format(epochDay));
+        assertEquals("20240229", EpochDays.formatBasic(epochDay));
+    }
+}
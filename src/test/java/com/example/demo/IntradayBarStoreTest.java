@@ -0,0 +1,87 @@
+package com.example.demo;
+
+import com.example.demo.dao.IntradayBarStore;
+import com.example.demo.dao.KLineData;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 分钟K线存储与聚合测试类
+ */
+public class IntradayBarStoreTest {
+
+    /**
+     * 生成一个交易日的1分钟K线（含09:30集合竞价K线），每根收盘价递增0.001
+     */
+    private List<KLineData> generateDay(LocalDate day) {
+        List<KLineData> bars = new ArrayList<>();
+        double close = 4.000;
+        List<LocalDateTime> times = new ArrayList<>();
+        times.add(day.atTime(9, 30));
+        for (LocalDateTime t = day.atTime(9, 31); !t.toLocalTime().isAfter(LocalTime.of(11, 30)); t = t.plusMinutes(1)) {
+            times.add(t);
+        }
+        for (LocalDateTime t = day.atTime(13, 1); !t.toLocalTime().isAfter(LocalTime.of(15, 0)); t = t.plusMinutes(1)) {
+            times.add(t);
+        }
+        for (LocalDateTime t : times) {
+            double open = close;
+            close = close + 0.001;
+            bars.add(new KLineData(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.3f,%.3f,%d,%.3f,%.2f,%.2f,%.3f,%.2f",
+                    t.toString().replace('T', ' '), open, close, close, open, 100, 40000.0,
+                    0.03, 0.03, 0.001, 0.01), 1));
+        }
+        return bars;
+    }
+
+    @Test
+    public void testAggregation() {
+        IntradayBarStore store = new IntradayBarStore(5);
+        LocalDate day = LocalDate.of(2025, 4, 1);
+        store.putMinuteBars("510300", generateDay(day));
+
+        // 241根1分钟K线 -> 48根5分钟、8根30分钟、4根60分钟
+        Timestamp start = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(day.atTime(23, 59));
+        assertEquals(241, store.getBars("510300", 1, start, end).size());
+        assertEquals(48, store.getBars("510300", 5, start, end).size());
+        assertEquals(16, store.getBars("510300", 15, start, end).size());
+        assertEquals(8, store.getBars("510300", 30, start, end).size());
+        assertEquals(4, store.getBars("510300", 60, start, end).size());
+
+        // 首根5分钟K线包含集合竞价和09:31-09:35共6根
+        KLineData first = store.getBar("510300", 5, Timestamp.valueOf(day.atTime(9, 35)));
+        assertNotNull(first);
+        assertEquals(600L, (long) first.getVolume());
+        assertEquals(4.000, first.getOpen(), 1e-9);
+        assertEquals(4.006, first.getClose(), 1e-9);
+
+        // 下午第一根60分钟K线为14:00
+        assertNotNull(store.getBar("510300", 60, Timestamp.valueOf(day.atTime(14, 0))));
+        assertNull(store.getBar("510300", 60, Timestamp.valueOf(day.atTime(12, 30))));
+    }
+
+    @Test
+    public void testRetainDays() {
+        IntradayBarStore store = new IntradayBarStore(2);
+        store.putMinuteBars("510300", generateDay(LocalDate.of(2025, 4, 3)));
+        store.putMinuteBars("510300", generateDay(LocalDate.of(2025, 4, 7)));
+        store.putMinuteBars("510300", generateDay(LocalDate.of(2025, 4, 8)));
+
+        Timestamp start = Timestamp.valueOf(LocalDate.of(2025, 4, 1).atStartOfDay());
+        Timestamp end = Timestamp.valueOf(LocalDate.of(2025, 4, 9).atStartOfDay());
+        assertEquals(241 * 2, store.getBars("510300", 1, start, end).size());
+        assertEquals(8, store.getBars("510300", 60, start, end).size());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo;
+
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.KLineBlockCodec;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.SeriesSnapshot;
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * K线列式压缩编码测试类
+ */
+public class KLineBlockCodecTest {
+
+    // 取自 日K.json 的沪深300ETF样例数据
+    private static final String[] SAMPLE_LINES = {
+            "2025-04-01,3.900,3.894,3.915,3.891,6150155,2452333015.000,0.62,-0.05,-0.002,0.68",
+            "2025-04-02,3.895,3.891,3.908,3.883,6291176,2505793835.000,0.64,-0.08,-0.003,0.70",
+            "2025-04-03,3.860,3.871,3.892,3.855,11143308,4411676416.000,0.95,-0.51,-0.020,1.23",
+            "2025-04-07,3.712,3.607,3.752,3.516,65609880,24314516116.000,6.10,-6.82,-0.264,7.27",
+            "2025-04-08,3.610,3.642,3.651,3.583,58535333,21668647143.000,1.89,0.97,0.035,6.49",
+            "2025-04-09,3.607,3.678,3.686,3.590,16982014,6334479041.000,2.64,0.99,0.036,1.88",
+            "2025-04-10,3.729,3.741,3.759,3.710,14296317,5465041115.000,1.33,1.71,0.063,1.58",
+            "2025-04-11,3.722,3.752,3.763,3.712,8619842,3298517131.000,1.36,0.29,0.011,0.96",
+            "2025-04-14,3.771,3.760,3.777,3.754,9415710,3627429751.000,0.61,0.21,0.008,1.04",
+            "2025-04-15,3.756,3.763,3.769,3.737,9817935,3773853446.000,0.85,0.08,0.003,1.09",
+            "2025-04-16,3.753,3.772,3.781,3.723,21771337,8373466072.000,1.54,0.24,0.009,2.41"
+    };
+
+    /**
+     * 在样例数据基础上按随机游走生成较长的日K序列
+     */
+    private List<String> loadSampleLines() {
+        List<String> lines = new ArrayList<>(Arrays.asList(SAMPLE_LINES));
+        Random random = new Random(42);
+        LocalDate date = LocalDate.parse("2025-04-17");
+        double close = 3.772;
+        for (int i = 0; i < 500; i++) {
+            date = date.plusDays(date.getDayOfWeek() == DayOfWeek.FRIDAY ? 3 : 1);
+            double open = close * (1 + random.nextGaussian() * 0.003);
+            double newClose = open * (1 + random.nextGaussian() * 0.01);
+            double high = Math.max(open, newClose) * (1 + random.nextDouble() * 0.005);
+            double low = Math.min(open, newClose) * (1 - random.nextDouble() * 0.005);
+            long volume = 5000000 + random.nextInt(20000000);
+            lines.add(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.3f,%.3f,%d,%.3f,%.2f,%.2f,%.3f,%.2f",
+                    date, open, newClose, high, low, volume, volume * newClose * 100,
+                    (high - low) / close * 100, (newClose - close) / close * 100, newClose - close,
+                    volume / 9000000.0));
+            close = Double.parseDouble(String.format(Locale.ROOT, "%.3f", newClose));
+        }
+        return lines;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        List<String> lines = loadSampleLines();
+        List<KLineData> data = new ArrayList<>();
+        for (String line : lines) {
+            data.add(new KLineData(line, 101));
+        }
+
+        byte[] block = KLineBlockCodec.encode(data, 101);
+        List<KLineData> decoded = KLineBlockCodec.decode(block);
+
+        assertEquals(data.size(), decoded.size());
+        for (int i = 0; i < data.size(); i++) {
+            KLineData expected = data.get(i);
+            KLineData actual = decoded.get(i);
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getOpen(), actual.getOpen(), 1e-9);
+            assertEquals(expected.getClose(), actual.getClose(), 1e-9);
+            assertEquals(expected.getHigh(), actual.getHigh(), 1e-9);
+            assertEquals(expected.getLow(), actual.getLow(), 1e-9);
+            assertEquals(expected.getLastClose(), actual.getLastClose(), 1e-9);
+            assertEquals(expected.getVolume(), actual.getVolume());
+            assertEquals(expected.getAmount(), actual.getAmount(), 0);
+            assertEquals(expected.getChangeRate(), actual.getChangeRate(), 1e-9);
+            assertEquals(expected.getTurnoverRate(), actual.getTurnoverRate(), 1e-9);
+        }
+
+        int rawSize = 0;
+        for (String line : lines) {
+            rawSize += line.length();
+        }
+        System.out.printf("K线数量: %d, 原始文本: %d字节, 压缩后: %d字节 (%.1f%%)%n",
+                lines.size(), rawSize, block.length, block.length * 100.0 / rawSize);
+        assertTrue(block.length * 3 < rawSize);
+    }
+
+    @Test
+    public void testRangeDecode() {
+        List<KLineData> data = new ArrayList<>();
+        for (String line : loadSampleLines()) {
+            data.add(new KLineData(line, 101));
+        }
+        byte[] block = KLineBlockCodec.encode(data, 101);
+
+        List<KLineData> range = KLineBlockCodec.decode(block,
+                java.sql.Date.valueOf("2025-04-07"), java.sql.Date.valueOf("2025-04-11"));
+        assertEquals(5, range.size());
+        assertEquals(java.sql.Date.valueOf("2025-04-07"), range.get(0).getDate());
+        assertEquals(3.752, range.get(4).getClose(), 1e-9);
+    }
+
+    @Test
+    public void testCoverageRoundTrip() {
+        List<KLineData> data = new ArrayList<>();
+        for (String line : loadSampleLines()) {
+            data.add(new KLineData(line, 101));
+        }
+        int first = data.get(0).getEpochDay();
+        DayRanges coverage = DayRanges.of(first - 30, first + 10).union(first + 40, first + 400);
+        SeriesSnapshot snapshot = SeriesSnapshot.of(data, coverage);
+
+        byte[] block = KLineBlockCodec.encode(snapshot, 101);
+        assertEquals(coverage, KLineBlockCodec.decodeCoverage(block));
+        SeriesSnapshot decoded = KLineBlockCodec.decodeSnapshot(block);
+        assertEquals(snapshot.size(), decoded.size());
+        assertEquals(coverage, decoded.getCoverage());
+        assertEquals(snapshot.barAt(3).getClose(), decoded.barAt(3).getClose(), 1e-9);
+
+        // 不带获取区间的旧数据块仍可读取
+        assertTrue(KLineBlockCodec.decodeCoverage(KLineBlockCodec.encode(data, 101)).isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo;
+
+import com.example.demo.dao.JsonUtil;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.KLineJsonWriter;
+import com.example.demo.service.PatternMatch;
+import com.example.demo.service.PatternMatchResult;
+import com.example.demo.service.TrendAnalysisResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * K线JSON序列化测试类
+ */
+public class KLineJsonWriterTest {
+
+    @Test
+    public void testDailyBar() {
+        KLineData data = new KLineData("2025-04-01,5.812,5.851,5.860,5.790,10234567,5987654321.00,1.20,0.67,0.039,3.21");
+        assertEquals("{\"f51\":\"2025-04-01\",\"f52\":5.812,\"f53\":5.851,\"f54\":5.86,\"f55\":5.79,"
+                        + "\"f56\":10234567,\"f57\":5.987654321E9,\"f58\":1.2,\"f59\":0.67,\"f60\":0.039,\"f61\":3.21,"
+                        + "\"klt\":101,\"lastClose\":" + (5.851 - 0.039) + ",\"periodName\":\"日K\"}",
+                KLineJsonWriter.toJson(data));
+    }
+
+    @Test
+    public void testMinuteBarAndNulls() {
+        KLineData data = new KLineData("2025-04-01 09:35,5.812,5.815,5.816,5.810,1200,697000.00,0.10,0.05,0.003,0.01", 5);
+        data.setAmount(null);
+        String json = KLineJsonWriter.toJson(Collections.singletonList(data));
+        assertEquals("[{\"f51\":\"2025-04-01 09:35\",", json.substring(0, 27));
+        assertEquals(-1, json.indexOf("f57"));
+
+        KLineData empty = new KLineData();
+        empty.setKlt(null);
+        assertEquals("{}", KLineJsonWriter.toJson(empty));
+    }
+
+    @Test
+    public void testJsonUtilUsesWriterForBars() {
+        KLineData first = new KLineData("2025-04-01,5.812,5.851,5.860,5.790,10234567,5987654321.00,1.20,0.67,0.039,3.21");
+        KLineData second = new KLineData("2025-04-02,5.851,5.870,5.880,5.840,9234567,5387654321.00,0.70,0.32,0.019,2.91");
+        assertEquals("[" + first + "," + second + "]", JsonUtil.toJsonString(Arrays.asList(first, second)));
+    }
+
+    @Test
+    public void testNonFiniteAndEscaping() {
+        KLineData data = new KLineData("2025-04-01,5.812,5.851,5.860,5.790,10234567,5987654321.00,1.20,0.67,0.039,3.21");
+        data.setChangeRate(Double.NaN);
+        data.setAmplitude(Double.POSITIVE_INFINITY);
+        String json = KLineJsonWriter.toJson(data);
+        assertTrue(json, json.contains("\"f58\":null,\"f59\":null,"));
+
+        StringBuilder out = new StringBuilder();
+        KLineJsonWriter.appendString("a\"b\\c\nd\u0001", out);
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", out.toString());
+    }
+
+    @Test
+    public void testTrendAnalysisResult() {
+        TrendAnalysisResult result = new TrendAnalysisResult(true, false, Double.NaN, "预测\"跌\"", null);
+        result.setTargetDate(new Date(86400000L));
+        assertEquals("{\"canAnalyze\":true,\"confidence\":null,\"message\":\"预测\\\"跌\\\"\","
+                + "\"predictedRise\":false,\"targetDate\":86400000}", result.toString());
+
+        result.setActualRise(true);
+        result.setSimilarPatterns(new PatternMatchResult(20,
+                Collections.singletonList(new PatternMatch("600000", new Date(0), 0.5, 1.25))));
+        assertEquals("{\"actualRise\":true,\"canAnalyze\":true,\"confidence\":null,\"message\":\"预测\\\"跌\\\"\","
+                + "\"predictedRise\":false,\"similarPatterns\":{\"averageNextChangeRate\":1.25,\"comparedWindows\":0,"
+                + "\"elapsedMicros\":0,\"indexedWindows\":0,\"matches\":[{\"distance\":0.5,\"endDate\":0,"
+                + "\"nextChangeRate\":1.25,\"stockCode\":\"600000\"}],\"prunedWindows\":0,\"riseRatio\":1.0,"
+                + "\"window\":20},\"targetDate\":86400000}", result.toString());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo;
+
+import com.example.demo.dao.BloomFilter;
+import com.example.demo.dao.NegativeCache;
+import com.example.demo.dao.SecurityListFilter;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 负缓存与证券列表布隆过滤测试类
+ */
+public class NegativeCacheTest {
+
+    @Test
+    public void testBloomFilterNoFalseNegative() {
+        BloomFilter filter = new BloomFilter(10000, 0.001);
+        for (int i = 0; i < 10000; i++) {
+            filter.put(String.format("%06d", i));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain(String.format("%06d", i)));
+        }
+
+        // 误判率应接近设定值
+        int falsePositives = 0;
+        for (int i = 100000; i < 200000; i++) {
+            if (filter.mightContain(String.valueOf(i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue("误判数: " + falsePositives, falsePositives < 500);
+    }
+
+    @Test
+    public void testSecurityListFilter() {
+        SecurityListFilter filter = new SecurityListFilter();
+        // 未加载时全部放行
+        assertTrue(filter.mightContain("999999"));
+
+        filter.load(Arrays.asList("510300", "510500", "000001"));
+        assertTrue(filter.isLoaded());
+        assertTrue(filter.mightContain("510300"));
+        assertFalse(filter.mightContain("51O300"));
+    }
+
+    @Test
+    public void testNegativeCacheExpiry() throws Exception {
+        NegativeCache cache = new NegativeCache(50);
+        cache.put("000000");
+        assertTrue(cache.contains("000000"));
+        Thread.sleep(80);
+        assertFalse(cache.contains("000000"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo;
+
+import com.example.demo.dao.KLineData;
+import com.example.demo.service.PatternIndex;
+import com.example.demo.service.PatternMatch;
+import com.example.demo.service.PatternMatchResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 相似形态索引测试类
+ */
+public class PatternIndexTest {
+
+    private static final int WINDOW = 20;
+    private static final long DAY = 24L * 3600 * 1000;
+
+    private List<KLineData> randomSeries(Random random, int count) {
+        List<KLineData> bars = new ArrayList<>();
+        double lastClose = 10;
+        for (int i = 0; i < count; i++) {
+            double close = lastClose * (1 + (random.nextDouble() - 0.5) * 0.06);
+            KLineData data = new KLineData();
+            data.setDate(new Date(i * DAY));
+            data.setClose(close);
+            data.setLastClose(lastClose);
+            data.setVolume(1_000_000L + random.nextInt(1_000_000));
+            bars.add(data);
+            lastClose = close;
+        }
+        return bars;
+    }
+
+    private PatternIndex buildIndex(Random random, int seriesCount, int length, List<List<KLineData>> series) {
+        List<String> codes = new ArrayList<>();
+        for (int s = 0; s < seriesCount; s++) {
+            codes.add(String.valueOf(600000 + s));
+            series.add(randomSeries(random, length));
+        }
+        return PatternIndex.build(WINDOW, codes, series);
+    }
+
+    private double distance(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += (a[i] - b[i]) * (a[i] - b[i]);
+        }
+        return Math.sqrt(sum);
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(11);
+        List<List<KLineData>> series = new ArrayList<>();
+        // 窗口数超过一个分片（32768），覆盖跨分片的读写
+        PatternIndex index = buildIndex(random, 120, 300, series);
+        assertEquals(120 * (300 - WINDOW), index.size());
+
+        List<KLineData> querySeries = randomSeries(random, WINDOW);
+        float[] query = new float[WINDOW * 2];
+        assertTrue(PatternIndex.toVector(querySeries, WINDOW - 1, WINDOW, query, 0));
+
+        PatternMatchResult result = index.search(query, -1, Long.MIN_VALUE, Long.MAX_VALUE, 5);
+
+        // 暴力计算全部窗口距离
+        List<Double> all = new ArrayList<>();
+        float[] candidate = new float[WINDOW * 2];
+        for (List<KLineData> bars : series) {
+            for (int end = WINDOW - 1; end < bars.size() - 1; end++) {
+                PatternIndex.toVector(bars, end, WINDOW, candidate, 0);
+                all.add(distance(query, candidate));
+            }
+        }
+        all.sort(Double::compare);
+
+        assertEquals(5, result.getMatches().size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(all.get(i), result.getMatches().get(i).getDistance(), 1e-4);
+        }
+        System.out.println("pruned=" + result.getPrunedWindows() + " compared=" + result.getComparedWindows());
+        // 下界剔除了大部分窗口
+        assertTrue(result.getPrunedWindows() > result.getComparedWindows());
+    }
+
+    @Test
+    public void testFindsIdenticalWindowAndRespectsCutoff() {
+        Random random = new Random(3);
+        List<List<KLineData>> series = new ArrayList<>();
+        PatternIndex index = buildIndex(random, 10, 200, series);
+
+        // 以第3个序列中第100根结尾的窗口为查询，排除同序列重叠窗口后不应返回自身
+        List<KLineData> bars = series.get(3);
+        float[] query = new float[WINDOW * 2];
+        PatternIndex.toVector(bars, 100, WINDOW, query, 0);
+        long queryStart = bars.get(100 - WINDOW + 1).getDate().getTime();
+
+        PatternMatchResult all = index.search(query, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        assertEquals(0.0, all.getMatches().get(0).getDistance(), 1e-4);
+
+        PatternMatchResult excluded = index.search(query, index.seriesIdOf("600003"), queryStart, Long.MAX_VALUE, 3);
+        for (PatternMatch match : excluded.getMatches()) {
+            assertTrue(match.getDistance() > 1e-4);
+        }
+
+        // 只使用结果在第50天之前的窗口
+        long cutoff = 50 * DAY;
+        PatternMatchResult early = index.search(query, -1, Long.MIN_VALUE, cutoff, 10);
+        for (PatternMatch match : early.getMatches()) {
+            assertTrue(match.getEndDate().getTime() < cutoff);
+        }
+        assertEquals(10, early.getMatches().size());
+    }
+
+    @Test
+    public void testSummary() {
+        List<PatternMatch> matches = Arrays.asList(
+                new PatternMatch("600000", new Date(0), 0.5, 1.0),
+                new PatternMatch("600001", new Date(0), 0.6, -2.0),
+                new PatternMatch("600002", new Date(0), 0.7, 3.0),
+                new PatternMatch("600003", new Date(0), 0.8, 2.0));
+        PatternMatchResult result = new PatternMatchResult(WINDOW, matches);
+        assertEquals(0.75, result.getRiseRatio(), 1e-9);
+        assertEquals(1.0, result.getAverageNextChangeRate(), 1e-9);
+    }
+}
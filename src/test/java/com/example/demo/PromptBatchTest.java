@@ -0,0 +1,209 @@
+package com.example.demo;
+
+import com.example.demo.controller.HelloController;
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineDaoImpl;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.KLineL2Cache;
+import com.example.demo.dao.SeriesSnapshot;
+import com.example.demo.service.PromptGenerationService;
+import com.example.demo.service.StockAnalysisPrompt;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 批量生成提示词测试类，K线从内存中的二级缓存加载，不访问上游
+ */
+public class PromptBatchTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+    private PromptGenerationService service;
+
+    @After
+    public void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * 日K每个自然日一根，周K每7天一根，获取区间覆盖最近800天
+     */
+    private static SeriesSnapshot series(int klt) {
+        int step = klt == 101 ? 1 : 7;
+        List<KLineData> bars = new ArrayList<>();
+        for (int i = 0; i <= 800; i += step) {
+            double close = 10 + i % 9 * 0.1;
+            bars.add(new KLineData(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.3f,%.3f,%d,%.0f,%.2f,%.2f,%.3f,%.2f",
+                    TODAY.minusDays(i), close, close, close + 0.05, close - 0.05, 1000 + i, close * 1000,
+                    1.0, 0.1, 0.01, 0.5), klt));
+        }
+        return SeriesSnapshot.of(bars, DayRanges.of(EpochDays.of(TODAY.minusDays(800)), EpochDays.of(TODAY)));
+    }
+
+    /**
+     * 记录每个(代码, 周期)向DAO读取完整序列的次数
+     */
+    private KLineDaoImpl countingDao() {
+        KLineDaoImpl dao = new KLineDaoImpl() {
+            @Override
+            public List<KLineData> getAllKLineData(String stockCode, int klt) {
+                loads.computeIfAbsent(stockCode + "_" + klt, k -> new AtomicInteger()).incrementAndGet();
+                return super.getAllKLineData(stockCode, klt);
+            }
+        };
+        dao.setL2Cache(new KLineL2Cache() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public SeriesSnapshot load(String stockCode, int klt) {
+                return series(klt);
+            }
+
+            @Override
+            public Map<String, SeriesSnapshot> loadAll(Collection<String> stockCodes, int klt) {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void save(String stockCode, int klt, SeriesSnapshot snapshot) {
+            }
+
+            @Override
+            public void publishInvalidation(String stockCode, int klt) {
+            }
+
+            @Override
+            public void subscribe(BiConsumer<String, Integer> listener) {
+            }
+
+            @Override
+            public Map<String, Object> getStats() {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return dao;
+    }
+
+    private int totalLoads() {
+        int total = 0;
+        for (AtomicInteger count : loads.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    @Test
+    public void testBatchLoadsEachSeriesOnce() {
+        service = new PromptGenerationService(countingDao(), 4, 10);
+        Date targetDate = EpochDays.toDate(TODAY.minusDays(63));
+
+        List<StockAnalysisPrompt> prompts = service.generateBatchPrompts(
+                Arrays.asList("600001", "600002", "600001"), Arrays.asList(101, 102, 101), targetDate);
+
+        // 按代码、周期顺序排列，重复的代码和周期只生成一次
+        assertEquals(4, prompts.size());
+        assertEquals("600001", prompts.get(0).getStockCode());
+        assertEquals(Integer.valueOf(101), prompts.get(0).getKlt());
+        assertEquals(Integer.valueOf(102), prompts.get(1).getKlt());
+        assertEquals("600002", prompts.get(2).getStockCode());
+        assertEquals(30, prompts.get(0).getHistoricalData().size());
+        assertEquals(4, loads.size());
+        assertEquals(4, totalLoads());
+    }
+
+    @Test
+    public void testMultipleDatesShareSeries() {
+        service = new PromptGenerationService(countingDao(), 4, 10);
+
+        // 抽样日期和每个日期的提示词共用同一次读取
+        AtomicInteger received = new AtomicInteger();
+        int delivered = service.streamMultiplePrompts("600003", 101, 20, prompt -> {
+            received.incrementAndGet();
+            return true;
+        });
+        assertEquals(20, delivered);
+        assertEquals(20, received.get());
+        assertEquals(1, totalLoads());
+
+        assertEquals(5, service.generateMultiplePrompts("600003", 102, 5).size());
+        assertEquals(2, totalLoads());
+    }
+
+    @Test
+    public void testHugeCountLimitedByCandidates() {
+        service = new PromptGenerationService(countingDao(), 4, 10);
+        // 日K取最近一年每天一根，前30根历史不足、最后一根无验证数据；蓄水池按候选数分配
+        int bars = (int) ChronoUnit.DAYS.between(TODAY.minusYears(1), TODAY) + 1;
+        assertEquals(bars - 31, service.generateMultiplePrompts("600004", 101, Integer.MAX_VALUE).size());
+        assertEquals(1, totalLoads());
+    }
+
+    @Test
+    public void testRejectsTooManyCodes() {
+        service = new PromptGenerationService(countingDao(), 2, 2);
+        try {
+            service.generateBatchPrompts(Arrays.asList("600001", "600002", "600003"),
+                    Collections.singletonList(101), new Date());
+            fail("超过代码数上限");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("上限"));
+        }
+        assertEquals(0, totalLoads());
+    }
+
+    @Test
+    public void testRejectsStreamCountOutOfRange() {
+        service = new PromptGenerationService(countingDao(), 2, 2);
+        service.checkStreamCount(500);
+        for (int count : new int[]{0, -1, 501, Integer.MAX_VALUE}) {
+            try {
+                service.streamMultiplePrompts("600001", 101, count, prompt -> true);
+                fail("提示词数超出范围: " + count);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("500"));
+            }
+        }
+        assertEquals(0, totalLoads());
+    }
+
+    @Test
+    public void testSampleStreamRejectsCountOutOfRange() {
+        service = new PromptGenerationService(countingDao(), 2, 2);
+        HelloController controller = new HelloController(service);
+        // 抽样流与其他流式接口共用提示词数上限，超出时不启动流
+        for (int count : new int[]{0, 501, 10000}) {
+            assertEquals(HttpStatus.BAD_REQUEST, controller.sampleStream("600001", "101", count, 1L).getStatusCode());
+        }
+        assertEquals(0, totalLoads());
+    }
+}
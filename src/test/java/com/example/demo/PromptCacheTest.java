@@ -0,0 +1,179 @@
+package com.example.demo;
+
+import com.example.demo.controller.HelloController;
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineDaoImpl;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.KLineL2Cache;
+import com.example.demo.dao.SeriesSnapshot;
+import com.example.demo.service.PromptGenerationService;
+import com.example.demo.service.PromptVersion;
+import com.example.demo.service.StockAnalysisPrompt;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 提示词版本与HTTP缓存测试类，K线从内存中的二级缓存加载，不访问上游
+ */
+public class PromptCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final AtomicInteger generated = new AtomicInteger();
+    private PromptGenerationService service;
+    private HelloController controller;
+
+    /**
+     * 最近400个自然日每天一根日K线
+     */
+    private static SeriesSnapshot series() {
+        List<KLineData> bars = new ArrayList<>();
+        for (int i = 0; i <= 400; i++) {
+            double close = 10 + i % 11 * 0.1;
+            bars.add(new KLineData(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.3f,%.3f,%d,%.0f,%.2f,%.2f,%.3f,%.2f",
+                    TODAY.minusDays(i), close, close, close + 0.05, close - 0.05, 1000 + i, close * 1000,
+                    1.0, 0.1, 0.01, 0.5), 101));
+        }
+        return SeriesSnapshot.of(bars, DayRanges.of(EpochDays.of(TODAY.minusDays(400)), EpochDays.of(TODAY)));
+    }
+
+    @Before
+    public void setUp() {
+        KLineDaoImpl dao = new KLineDaoImpl();
+        dao.setL2Cache(new KLineL2Cache() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public SeriesSnapshot load(String stockCode, int klt) {
+                return series();
+            }
+
+            @Override
+            public Map<String, SeriesSnapshot> loadAll(Collection<String> stockCodes, int klt) {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void save(String stockCode, int klt, SeriesSnapshot snapshot) {
+            }
+
+            @Override
+            public void publishInvalidation(String stockCode, int klt) {
+            }
+
+            @Override
+            public void subscribe(BiConsumer<String, Integer> listener) {
+            }
+
+            @Override
+            public Map<String, Object> getStats() {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        service = new PromptGenerationService(dao, 2, 10) {
+            @Override
+            public StockAnalysisPrompt generateSinglePrompt(String stockCode, Date targetDate, int klt) {
+                generated.incrementAndGet();
+                return super.generateSinglePrompt(stockCode, targetDate, klt);
+            }
+        };
+        controller = new HelloController(service);
+    }
+
+    @After
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void testPromptVersion() {
+        Date pastDate = EpochDays.toDate(TODAY.minusDays(63));
+        PromptVersion version = service.getPromptVersion("600001", pastDate, 101);
+        assertNotNull(version);
+        // 目标K线之后已有K线，周期已结束；版本只由输入决定，可作为强ETag
+        assertTrue(version.isClosed());
+        assertTrue(version.getEtag().startsWith("\"") && version.getEtag().endsWith("\""));
+        assertEquals(version.getEtag(), service.getPromptVersion("600001", pastDate, 101).getEtag());
+        assertFalse(version.getEtag().equals(service.getPromptVersion("600002", pastDate, 101).getEtag()));
+
+        // 最新一根K线所在周期尚未结束
+        assertFalse(service.getPromptVersion("600001", EpochDays.toDate(TODAY), 101).isClosed());
+        // 历史不足时没有版本
+        assertNull(service.getPromptVersion("600001", EpochDays.toDate(TODAY.minusDays(390)), 101));
+        assertEquals(0, generated.get());
+    }
+
+    @Test
+    public void testNotModifiedSkipsGeneration() throws Exception {
+        String date = TODAY.minusDays(63).toString();
+        ResponseEntity<String> first = controller.home(date, "600001", 101, null);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(first.getBody());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        // 已结束周期只短期缓存，过期后必须重新验证
+        String cacheControl = first.getHeaders().getCacheControl();
+        assertTrue(cacheControl, cacheControl.contains("max-age=300") && cacheControl.contains("must-revalidate"));
+        assertEquals(1, generated.get());
+
+        // ETag匹配时返回304且不生成提示词，支持多个值和弱校验前缀
+        ResponseEntity<String> second = controller.home(date, "600001", 101, etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertEquals(etag, second.getHeaders().getETag());
+        assertNull(second.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                controller.home(date, "600001", 101, "\"stale\", W/" + etag).getStatusCode());
+        assertEquals(1, generated.get());
+
+        // ETag不匹配时重新生成
+        ResponseEntity<String> third = controller.home(date, "600001", 101, "\"stale\"");
+        assertEquals(HttpStatus.OK, third.getStatusCode());
+        assertEquals(first.getBody(), third.getBody());
+        assertEquals(2, generated.get());
+    }
+
+    @Test
+    public void testUndatedRequestRevalidates() throws Exception {
+        ResponseEntity<String> first = controller.home(null, "600001", 101, null);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        Thread.sleep(5);
+
+        // 未指定日期时ETag按分析日期计算，不随请求时刻变化
+        ResponseEntity<String> second = controller.home(null, "600001", 101, null);
+        assertEquals(etag, second.getHeaders().getETag());
+        ResponseEntity<String> third = controller.home(null, "600001", 101, etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, third.getStatusCode());
+        assertNull(third.getBody());
+        assertEquals(2, generated.get());
+    }
+}
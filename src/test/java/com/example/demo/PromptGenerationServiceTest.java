@@ -1,6 +1,9 @@
 package com.example.demo;
 
 import com.example.demo.service.PromptGenerationService;
+import com.example.demo.service.PromptSample;
+import com.example.demo.service.PromptSamplePlan;
+import com.example.demo.service.PromptVersion;
 import com.example.demo.service.StockAnalysisPrompt;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -9,9 +12,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
 /**
  * 提示词生成服务测试类
  */
@@ -72,4 +81,67 @@ public class PromptGenerationServiceTest {
             System.out.println("提示词生成失败，可能数据不足");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPromptVersion() throws Exception {
+        String stockCode = "510500";
+        Date targetDate = new SimpleDateFormat("yyyy-MM-dd").parse("2025-10-17");
+
+        PromptVersion version = promptGenerationService.getPromptVersion(stockCode, targetDate, 101);
+        // 离线时取不到K线，跳过而不是算作通过；离线可运行的版本测试见PromptCacheTest
+        assumeTrue("无法获取K线，跳过", version != null);
+        // 已结束周期的版本稳定，可作为强ETag
+        assertTrue(version.isClosed());
+        assertTrue(version.getEtag().startsWith("\"") && version.getEtag().endsWith("\""));
+        assertEquals(version.getEtag(),
+                promptGenerationService.getPromptVersion(stockCode, targetDate, 101).getEtag());
+        System.out.println("提示词版本: " + version.getEtag());
+    }
+
+    @Test
+    public void testStreamMultiplePrompts() {
+        String stockCode = "510500";
+        long start = System.currentTimeMillis();
+        long[] firstMillis = {-1};
+        List<StockAnalysisPrompt> received = new ArrayList<>();
+
+        int delivered = promptGenerationService.streamMultiplePrompts(stockCode, 101, 10, prompt -> {
+            if (firstMillis[0] < 0) {
+                firstMillis[0] = System.currentTimeMillis() - start;
+            }
+            received.add(prompt);
+            return true;
+        });
+        assertEquals(received.size(), delivered);
+        System.out.println(String.format("流式生成%d个提示词, 首个耗时%dms, 总耗时%dms",
+                delivered, firstMillis[0], System.currentTimeMillis() - start));
+
+        // 回调返回false后不再交付
+        int cancelled = promptGenerationService.streamMultiplePrompts(stockCode, 101, 10, prompt -> false);
+        assertEquals(0, cancelled);
+    }
+
+    @Test
+    public void testSampleStratified() {
+        List<String> codes = Arrays.asList("510500", "510300");
+        List<Integer> klts = Arrays.asList(101, 102);
+        PromptSamplePlan plan = promptGenerationService.sampleStratified(codes, klts, 40, 7);
+        assumeTrue("无法获取K线，跳过", plan.getCandidateCount() > 0);
+        assertEquals(Math.min(40, plan.getCandidateCount()), plan.getSamples().size());
+
+        // 涨跌均衡取决于实时行情，由StratifiedSamplerTest在固定数据上验证，这里只输出
+        long rises = plan.getSamples().stream().filter(PromptSample::isNextPeriodRise).count();
+        System.out.println(String.format("分层抽样: 候选%d, 入选%d, 上涨%d",
+                plan.getCandidateCount(), plan.getSamples().size(), rises));
+
+        // 同一种子结果相同
+        PromptSamplePlan again = promptGenerationService.sampleStratified(codes, klts, 40, 7);
+        for (int i = 0; i < plan.getSamples().size(); i++) {
+            assertEquals(plan.getSamples().get(i).getDate(), again.getSamples().get(i).getDate());
+            assertEquals(plan.getSamples().get(i).getStockCode(), again.getSamples().get(i).getStockCode());
+        }
+
+        int delivered = promptGenerationService.streamSampledPrompts(plan, prompt -> true);
+        assertTrue(delivered > 0);
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.demo;
+
+import com.example.demo.dao.AdjustType;
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineDaoImpl;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.RedisKLineL2Cache;
+import com.example.demo.dao.SeriesSnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Redis二级缓存测试类
+ * 默认使用内嵌的简易RESP服务（只支持用到的命令）；指定 -Dredis.url=redis://127.0.0.1:6379 时改用本地Redis
+ */
+public class RedisKLineL2CacheTest {
+
+    private MiniRedis server;
+    private String url;
+    private final List<RedisKLineL2Cache> caches = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        url = System.getProperty("redis.url");
+        if (url == null) {
+            server = new MiniRedis();
+            url = "redis://127.0.0.1:" + server.getPort();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (RedisKLineL2Cache cache : caches) {
+            cache.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private RedisKLineL2Cache newCache() {
+        RedisKLineL2Cache cache = new RedisKLineL2Cache(url, 1000, 600, 2);
+        caches.add(cache);
+        return cache;
+    }
+
+    /**
+     * 最近400个自然日的日K线，最后一根为今天，获取区间覆盖全部日期
+     */
+    private SeriesSnapshot series(double base) {
+        LocalDate today = LocalDate.now();
+        return SeriesSnapshot.of(bars(base), DayRanges.of(EpochDays.of(today.minusDays(400)), EpochDays.of(today)));
+    }
+
+    private List<KLineData> bars(double base) {
+        List<KLineData> bars = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 400; i >= 0; i--) {
+            double close = base + i % 7 * 0.01;
+            bars.add(new KLineData(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.3f,%.3f,%d,%.0f,%.2f,%.2f,%.3f,%.2f",
+                    today.minusDays(i), close, close, close + 0.05, close - 0.05, 1000 + i, close * 1000,
+                    1.0, 0.1, 0.001, 0.5), 101));
+        }
+        return bars;
+    }
+
+    @Test
+    public void testSaveLoadAndPipelinedLoadAll() {
+        RedisKLineL2Cache cache = newCache();
+        assertNull(cache.load("l2test1", 101));
+        SeriesSnapshot data = series(5);
+        cache.save("l2test1", 101, data);
+        cache.save("l2test2", 101, series(6));
+        cache.save("l2test3", 101, series(7));
+
+        SeriesSnapshot loaded = cache.load("l2test1", 101);
+        assertEquals(data.size(), loaded.size());
+        assertEquals(data.barAt(data.size() - 1).getClose(), loaded.barAt(loaded.size() - 1).getClose(), 1e-9);
+        assertEquals(data.getCoverage(), loaded.getCoverage());
+
+        int before = server == null ? 0 : server.mgetCount.get();
+        Map<String, SeriesSnapshot> all = cache.loadAll(Arrays.asList("l2test1", "l2test2", "l2test3", "l2none"), 101);
+        assertEquals(3, all.size());
+        assertEquals(6.0, all.get("l2test2").barAt(0).getClose(), 0.1);
+        if (server != null) {
+            // 每批2个键，4个代码拆成2条MGET，在同一连接上一次发出
+            assertEquals(2, server.mgetCount.get() - before);
+        }
+    }
+
+    @Test
+    public void testSaveMergesWithExistingSeries() {
+        RedisKLineL2Cache cache = newCache();
+        // 回填实例写入400天，另一实例只获取了最近30天（收盘价不同）
+        cache.save("l2merge", 101, series(5));
+        LocalDate today = LocalDate.now();
+        List<KLineData> recent = bars(6).subList(370, 401);
+        newCache().save("l2merge", 101, SeriesSnapshot.of(recent,
+                DayRanges.of(EpochDays.of(today.minusDays(30)), EpochDays.of(today))));
+
+        SeriesSnapshot loaded = cache.load("l2merge", 101);
+        assertEquals(401, loaded.size());
+        assertEquals(DayRanges.of(EpochDays.of(today.minusDays(400)), EpochDays.of(today)), loaded.getCoverage());
+        assertEquals(5.0, loaded.barAt(0).getClose(), 0.1);
+        assertEquals(6.0, loaded.barAt(400).getClose(), 0.1);
+        assertEquals(6.0, loaded.barAt(370).getClose(), 0.1);
+        assertEquals(5.0, loaded.barAt(369).getClose(), 0.1);
+    }
+
+    @Test
+    public void testPeerWarmupAndInvalidation() throws Exception {
+        KLineDaoImpl first = new KLineDaoImpl();
+        first.setL2Cache(newCache());
+        KLineDaoImpl second = new KLineDaoImpl();
+        second.setL2Cache(newCache());
+        newCache().save("l2peer", 101, series(5));
+        newCache().save("l2peer2", 101, series(8));
+
+        // 两个实例都从二级缓存加载，不访问上游
+        assertEquals(2, second.preload(Arrays.asList("l2peer", "l2peer2", "l2none"), 101));
+        assertNotNull(second.getCachedKLineData("l2peer", 101));
+        List<KLineData> fromFirst = first.getAllKLineData("l2peer", 101);
+        assertNotNull(fromFirst);
+        assertTrue(fromFirst.size() > 200);
+
+        // 第一个实例今日K线变化：写回二级缓存并通知第二个实例丢弃旧序列
+        Thread.sleep(200); // 等待订阅建立
+        KLineData today = bars(5).get(400);
+        today.setClose(9.99);
+        today.setHigh(9.99);
+        first.patchLatestBar("l2peer", today);
+        today.setClose(9.98);
+        first.patchLatestBar("l2peer", today);
+        // 盘中更新先合并，定时写回时才写入并通知
+        Thread.sleep(100);
+        assertNotNull(second.getCachedKLineData("l2peer", 101));
+        int sets = server == null ? 0 : server.setCount.get();
+        first.flushLiveBars();
+        if (server != null) {
+            assertEquals(1, server.setCount.get() - sets);
+        }
+
+        long deadline = System.currentTimeMillis() + 3000;
+        while (second.getCachedKLineData("l2peer", 101) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(second.getCachedKLineData("l2peer", 101));
+        assertNotNull(second.getCachedKLineData("l2peer2", 101));
+        assertEquals(9.98, second.getKLineDataByDate("l2peer", LocalDate.now(), 101,
+                AdjustType.NONE).getClose(), 1e-9);
+    }
+
+    /**
+     * 内嵌的简易Redis，支持 GET/SET/MGET/DEL/PUBLISH/SUBSCRIBE/PING/WATCH/MULTI/EXEC
+     */
+    static class MiniRedis implements AutoCloseable {
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+        private final List<OutputStream> subscribers = new CopyOnWriteArrayList<>();
+        private final List<Socket> clients = new CopyOnWriteArrayList<>();
+        final AtomicInteger mgetCount = new AtomicInteger();
+        final AtomicInteger setCount = new AtomicInteger();
+        final AtomicInteger execAborts = new AtomicInteger();
+
+        MiniRedis() throws IOException {
+            Thread acceptor = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        clients.add(socket);
+                        Thread handler = new Thread(() -> handle(socket));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void handle(Socket socket) {
+            try (Socket s = socket) {
+                InputStream in = new BufferedInputStream(s.getInputStream());
+                OutputStream out = s.getOutputStream();
+                List<byte[]> command;
+                Transaction transaction = new Transaction();
+                while ((command = readCommand(in)) != null) {
+                    ByteArrayOutputStream reply = new ByteArrayOutputStream();
+                    transact(command, transaction, reply, out);
+                    synchronized (out) {
+                        out.write(reply.toByteArray());
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                // 连接关闭
+            }
+        }
+
+        /**
+         * 每个连接的事务状态：WATCH时记下键的当前值，EXEC时任一键的值已被替换则放弃执行
+         */
+        private static class Transaction {
+            private final Map<String, byte[]> watched = new HashMap<>();
+            private List<List<byte[]>> queued;
+        }
+
+        private void transact(List<byte[]> command, Transaction transaction, ByteArrayOutputStream reply,
+                              OutputStream out) throws IOException {
+            String name = text(command.get(0)).toUpperCase(Locale.ROOT);
+            switch (name) {
+                case "WATCH":
+                    transaction.watched.put(text(command.get(1)), data.get(text(command.get(1))));
+                    reply.write("+OK\r\n".getBytes(StandardCharsets.US_ASCII));
+                    return;
+                case "MULTI":
+                    transaction.queued = new ArrayList<>();
+                    reply.write("+OK\r\n".getBytes(StandardCharsets.US_ASCII));
+                    return;
+                case "EXEC":
+                    synchronized (data) {
+                        boolean conflict = false;
+                        for (Map.Entry<String, byte[]> entry : transaction.watched.entrySet()) {
+                            conflict |= data.get(entry.getKey()) != entry.getValue();
+                        }
+                        if (conflict) {
+                            execAborts.incrementAndGet();
+                            reply.write("*-1\r\n".getBytes(StandardCharsets.US_ASCII));
+                        } else {
+                            reply.write(("*" + transaction.queued.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                            for (List<byte[]> queued : transaction.queued) {
+                                execute(queued, reply, out);
+                            }
+                        }
+                    }
+                    transaction.watched.clear();
+                    transaction.queued = null;
+                    return;
+                default:
+                    if (transaction.queued != null) {
+                        transaction.queued.add(command);
+                        reply.write("+QUEUED\r\n".getBytes(StandardCharsets.US_ASCII));
+                        return;
+                    }
+                    synchronized (data) {
+                        execute(command, reply, out);
+                    }
+            }
+        }
+
+        private void execute(List<byte[]> command, ByteArrayOutputStream reply, OutputStream out) throws IOException {
+            String name = new String(command.get(0), StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+            switch (name) {
+                case "GET":
+                    writeBulk(reply, data.get(text(command.get(1))));
+                    break;
+                case "SET":
+                    setCount.incrementAndGet();
+                    data.put(text(command.get(1)), command.get(2));
+                    reply.write("+OK\r\n".getBytes(StandardCharsets.US_ASCII));
+                    break;
+                case "MGET":
+                    mgetCount.incrementAndGet();
+                    reply.write(("*" + (command.size() - 1) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    for (int i = 1; i < command.size(); i++) {
+                        writeBulk(reply, data.get(text(command.get(i))));
+                    }
+                    break;
+                case "DEL":
+                    reply.write((":" + (data.remove(text(command.get(1))) == null ? 0 : 1) + "\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    break;
+                case "SUBSCRIBE":
+                    subscribers.add(out);
+                    reply.write("*3\r\n".getBytes(StandardCharsets.US_ASCII));
+                    writeBulk(reply, "subscribe".getBytes(StandardCharsets.UTF_8));
+                    writeBulk(reply, command.get(1));
+                    reply.write(":1\r\n".getBytes(StandardCharsets.US_ASCII));
+                    break;
+                case "PUBLISH":
+                    ByteArrayOutputStream message = new ByteArrayOutputStream();
+                    message.write("*3\r\n".getBytes(StandardCharsets.US_ASCII));
+                    writeBulk(message, "message".getBytes(StandardCharsets.UTF_8));
+                    writeBulk(message, command.get(1));
+                    writeBulk(message, command.get(2));
+                    for (OutputStream subscriber : subscribers) {
+                        synchronized (subscriber) {
+                            subscriber.write(message.toByteArray());
+                            subscriber.flush();
+                        }
+                    }
+                    reply.write((":" + subscribers.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    break;
+                default:
+                    reply.write("+PONG\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+
+        private static List<byte[]> readCommand(InputStream in) throws IOException {
+            String header = readLine(in);
+            if (header == null) {
+                return null;
+            }
+            int count = Integer.parseInt(header.substring(1));
+            List<byte[]> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = Integer.parseInt(readLine(in).substring(1));
+                args.add(in.readNBytes(length));
+                readLine(in);
+            }
+            return args;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b < 0) {
+                    return null;
+                }
+                line.append((char) b);
+            }
+            in.read();
+            return line.toString();
+        }
+
+        private static void writeBulk(ByteArrayOutputStream out, byte[] value) throws IOException {
+            if (value == null) {
+                out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            out.write(("$" + value.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(value);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private static String text(byte[] value) {
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            for (Socket client : clients) {
+                client.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo;
+
+import com.example.demo.service.RollingCorrelation;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 滚动相关系数矩阵测试类
+ */
+public class RollingCorrelationTest {
+
+    private static final int SIZE = 70;   // 超过一个分块
+    private static final int WINDOW = 30;
+
+    private double[][] randomReturns(int days) {
+        Random random = new Random(5);
+        double[][] returns = new double[days][SIZE];
+        for (int d = 0; d < days; d++) {
+            double market = random.nextGaussian() * 0.01;
+            for (int i = 0; i < SIZE; i++) {
+                // 前一半代码跟随同一个市场因子
+                returns[d][i] = (i < SIZE / 2 ? market : 0) + random.nextGaussian() * 0.01;
+            }
+        }
+        return returns;
+    }
+
+    private double pearson(double[][] returns, int from, int to, int i, int j) {
+        int n = to - from;
+        double sumX = 0, sumY = 0;
+        for (int d = from; d < to; d++) {
+            sumX += returns[d][i];
+            sumY += returns[d][j];
+        }
+        double meanX = sumX / n, meanY = sumY / n;
+        double cov = 0, varX = 0, varY = 0;
+        for (int d = from; d < to; d++) {
+            double dx = returns[d][i] - meanX, dy = returns[d][j] - meanY;
+            cov += dx * dy;
+            varX += dx * dx;
+            varY += dy * dy;
+        }
+        return cov / Math.sqrt(varX * varY);
+    }
+
+    @Test
+    public void testIncrementalMatchesFullComputation() {
+        double[][] returns = randomReturns(100);
+
+        RollingCorrelation incremental = new RollingCorrelation(SIZE, WINDOW);
+        incremental.rebuild(Arrays.copyOfRange(returns, 0, 10));
+        for (int d = 10; d < returns.length; d++) {
+            incremental.push(returns[d]);
+        }
+
+        RollingCorrelation full = new RollingCorrelation(SIZE, WINDOW);
+        full.rebuild(returns);
+
+        assertEquals(WINDOW, incremental.getCount());
+        for (int i = 0; i < SIZE; i += 7) {
+            for (int j = 0; j < SIZE; j += 5) {
+                double expected = i == j ? 1 : pearson(returns, 100 - WINDOW, 100, i, j);
+                assertEquals(expected, full.correlation(i, j), 1e-9);
+                assertEquals(expected, incremental.correlation(i, j), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testReplaceLast() {
+        double[][] returns = randomReturns(WINDOW + 5);
+        RollingCorrelation rolling = new RollingCorrelation(SIZE, WINDOW);
+        rolling.rebuild(Arrays.copyOfRange(returns, 0, WINDOW + 4));
+
+        // 盘中最新一天被修正为最终值
+        rolling.push(new double[SIZE]);
+        rolling.replaceLast(returns[WINDOW + 4]);
+
+        assertEquals(pearson(returns, 5, WINDOW + 5, 1, 2), rolling.correlation(1, 2), 1e-9);
+        assertEquals(pearson(returns, 5, WINDOW + 5, 3, 60), rolling.correlation(3, 60), 1e-9);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo;
+
+import com.example.demo.dao.BarField;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.SeriesSnapshot;
+import com.example.demo.service.ScreenExpression;
+import com.example.demo.service.ScreenService;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 选股条件表达式测试类
+ */
+public class ScreenExpressionTest {
+
+    private static final int BASE_DAY = 20000;
+
+    private KLineData bar(int day, double close, long volume, double turnover, double amplitude) {
+        KLineData data = new KLineData();
+        data.setDate(EpochDays.toDate(day));
+        data.setOpen(close);
+        data.setClose(close);
+        data.setHigh(close);
+        data.setLow(close);
+        data.setVolume(volume);
+        data.setTurnoverRate(turnover);
+        data.setAmplitude(amplitude);
+        return data;
+    }
+
+    private double[][] columns(SeriesSnapshot snapshot, ScreenExpression expression) {
+        double[][] columns = new double[BarField.count()][];
+        for (BarField field : expression.getFields()) {
+            columns[field.ordinal()] = snapshot.column(field);
+        }
+        return columns;
+    }
+
+    private boolean test(SeriesSnapshot snapshot, String source) {
+        ScreenExpression expression = ScreenExpression.compile(source);
+        return expression.test(columns(snapshot, expression), snapshot.size() - 1);
+    }
+
+    private double evaluate(SeriesSnapshot snapshot, String source, int index) {
+        ScreenExpression expression = ScreenExpression.compile(source);
+        return expression.evaluate(columns(snapshot, expression), index);
+    }
+
+    /**
+     * 收盘价1..30逐日上涨，最后3天缩量，最后一天换手6%、振幅1.5%
+     */
+    private SeriesSnapshot series() {
+        List<KLineData> bars = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            long volume = i < 27 ? 1000 : 1000 - (i - 26) * 100L;
+            bars.add(bar(BASE_DAY + i, i + 1, volume, i == 29 ? 6 : 1, i == 29 ? 1.5 : 3));
+        }
+        return SeriesSnapshot.of(bars);
+    }
+
+    @Test
+    public void testRequestExample() {
+        SeriesSnapshot snapshot = series();
+        assertTrue(test(snapshot, "turnover > 5%, amplitude < 2%, close > ma(close, 20), falling(volume, 3)"));
+        assertFalse(test(snapshot, "turnover > 5 and falling(volume, 4)"));
+        assertTrue(test(snapshot, "TURNOVER > 5 AND NOT amplitude >= 2"));
+    }
+
+    @Test
+    public void testFunctionsAndOffsets() {
+        SeriesSnapshot snapshot = series();
+        assertEquals(20.5, evaluate(snapshot, "ma(close, 20)", 29), 1e-9);
+        assertEquals(29, evaluate(snapshot, "close[1]", 29), 1e-9);
+        assertEquals(27, evaluate(snapshot, "ref(close, 3)", 29), 1e-9);
+        assertEquals(30 + 29 + 28, evaluate(snapshot, "sum(close, 3)", 29), 1e-9);
+        assertEquals(26, evaluate(snapshot, "min(close[2], 3)", 29), 1e-9);
+        assertEquals(1000, evaluate(snapshot, "max(volume, 5)", 29), 1e-9);
+        assertEquals(3, evaluate(snapshot, "count(volume < 1000, 10)", 29), 1e-9);
+        assertEquals(4, evaluate(snapshot, "abs(ma(close, 2)[1] - close * 2 + 35.5)", 29), 1e-9);
+        assertEquals(7, evaluate(snapshot, "1 + 2 * 3", 0), 1e-9);
+        assertEquals(-1, evaluate(snapshot, "-(1 + 2) / 3", 0), 1e-9);
+        assertTrue(test(snapshot, "rising(close, 29) and rising(ma(close, 5), 3)"));
+        assertFalse(test(snapshot, "rising(close, 30)"));
+    }
+
+    @Test
+    public void testInsufficientHistoryIsFalse() {
+        SeriesSnapshot snapshot = series();
+        ScreenExpression expression = ScreenExpression.compile("close > ma(close, 20) or close[40] > 0");
+        double[][] columns = columns(snapshot, expression);
+        assertFalse(expression.test(columns, 10));
+        assertTrue(expression.test(columns, 19));
+        assertTrue(Double.isNaN(evaluate(snapshot, "ma(close, 20)", 18)));
+        assertFalse(test(snapshot, "close[40] != 1"));
+    }
+
+    @Test
+    public void testNotKeepsMissingValuesFalse() {
+        SeriesSnapshot snapshot = series();
+        // 历史不足时比较结果为假，取反后仍为假
+        assertFalse(test(snapshot, "not ma(close, 50) > 0"));
+        assertFalse(test(snapshot, "not ma(close, 50) <= 0"));
+        assertFalse(test(snapshot, "not not ma(close, 50) > 0"));
+        assertFalse(test(snapshot, "not rising(close, 40)"));
+        assertFalse(test(snapshot, "not (close[40] > 1 or close > 100)"));
+        assertTrue(test(snapshot, "not (close[40] > 1 and close > 100)"));
+        assertTrue(test(snapshot, "not rising(volume, 3)"));
+        assertTrue(test(snapshot, "not not close > 1"));
+    }
+
+    @Test
+    public void testOperatorPrecedence() {
+        SeriesSnapshot snapshot = series();
+        assertTrue(test(snapshot, "close > 100 and close > 0 or close == 30"));
+        assertFalse(test(snapshot, "close > 100 and (close > 0 or close == 30)"));
+        assertTrue(test(snapshot, "!(close < 1) && close = 30 || close > 100"));
+        assertTrue(test(snapshot, "close - 10 * 2 == 10"));
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        String[] invalid = {"", "close >", "close > foo", "unknown(close, 2)", "ma(close)", "ma(close, 0)",
+                "close and volume > 1", "close > 1 extra", "not close", "count(close, 3)", "close[x]", "(close > 1"};
+        for (String source : invalid) {
+            try {
+                ScreenExpression.compile(source);
+                fail("应当拒绝: " + source);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("表达式"));
+            }
+        }
+        assertFalse(ScreenExpression.compile("turnover * 2").isPredicate());
+    }
+
+    @Test
+    public void testColumnsCachedPerSnapshot() {
+        SeriesSnapshot snapshot = series();
+        double[] close = snapshot.column(BarField.CLOSE);
+        assertSame(close, snapshot.column(BarField.CLOSE));
+        assertEquals(30, close[29], 1e-9);
+        assertEquals(29, snapshot.floorIndex(BASE_DAY + 100));
+        assertEquals(0, snapshot.floorIndex(BASE_DAY));
+        assertEquals(-1, snapshot.floorIndex(BASE_DAY - 1));
+
+        // 新版本重新提取
+        SeriesSnapshot next = snapshot.withBar(bar(BASE_DAY + 30, 99, 1, 1, 1), null);
+        assertEquals(99, next.column(BarField.CLOSE)[30], 1e-9);
+        assertEquals(30, close.length);
+    }
+
+    @Test
+    public void testCompileCacheKeepsRecentlyUsed() {
+        ScreenService service = new ScreenService();
+        ScreenExpression hot = service.compile("close > ma(close, 20)");
+        ScreenExpression cold = service.compile("close > ma(close, 10)");
+        for (int i = 0; i < 300; i++) {
+            assertSame(hot, service.compile("close > ma(close, 20)"));
+            service.compile("close > " + i);
+        }
+        // 最近使用的条件保留，长期未用的被淘汰
+        assertSame(hot, service.compile("close > ma(close, 20)"));
+        assertNotSame(cold, service.compile("close > ma(close, 10)"));
+    }
+
+    @Test
+    public void testThroughput() {
+        Random random = new Random(7);
+        int seriesCount = 5000;
+        List<double[][]> market = new ArrayList<>(seriesCount);
+        ScreenExpression expression = ScreenExpression.compile(
+                "turnover > 5, amplitude < 2, close > ma(close, 20), falling(volume, 3)");
+        for (int s = 0; s < seriesCount; s++) {
+            List<KLineData> bars = new ArrayList<>();
+            double close = 10;
+            for (int i = 0; i < 250; i++) {
+                close *= 1 + (random.nextDouble() - 0.5) * 0.04;
+                bars.add(bar(BASE_DAY + i, close, 1000 + random.nextInt(1000),
+                        random.nextDouble() * 10, random.nextDouble() * 4));
+            }
+            market.add(columns(SeriesSnapshot.of(bars), expression));
+        }
+
+        int matched = 0;
+        long start = System.nanoTime();
+        int rounds = 20;
+        for (int round = 0; round < rounds; round++) {
+            for (double[][] columns : market) {
+                if (expression.test(columns, 249)) {
+                    matched++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("条件选股: %d 次求值 %.1f ms, 命中 %d%n",
+                seriesCount * rounds, elapsed / 1e6, matched / rounds);
+        assertTrue(matched > 0);
+    }
+}
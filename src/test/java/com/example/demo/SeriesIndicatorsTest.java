@@ -0,0 +1,68 @@
+package com.example.demo;
+
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.PeriodCalendar;
+import com.example.demo.dao.SeriesIndicators;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 滚动指标与周期日历测试类
+ */
+public class SeriesIndicatorsTest {
+
+    private KLineData bar(double close, long volume) {
+        KLineData data = new KLineData();
+        data.setClose(close);
+        data.setVolume(volume);
+        return data;
+    }
+
+    @Test
+    public void testIncrementalMovingAverage() {
+        List<KLineData> bars = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            bars.add(bar(i, i * 100L));
+        }
+        SeriesIndicators indicators = SeriesIndicators.fromData(bars);
+        assertEquals(28.0, indicators.getCloseMa(5), 1e-9);
+        assertEquals(20.5, indicators.getCloseMa(20), 1e-9);
+        assertEquals(2800.0, indicators.getVolumeMa(5), 1e-9);
+
+        // 盘中修正最新K线
+        indicators.replaceLast(bar(35, 3500L));
+        assertEquals(29.0, indicators.getCloseMa(5), 1e-9);
+
+        // 新K线追加后窗口滑动
+        indicators.append(bar(31, 3100L));
+        assertEquals((27 + 28 + 29 + 35 + 31) / 5.0, indicators.getCloseMa(5), 1e-9);
+    }
+
+    @Test
+    public void testInsufficientData() {
+        List<KLineData> bars = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            bars.add(bar(i, 100L));
+        }
+        SeriesIndicators indicators = SeriesIndicators.fromData(bars);
+        assertEquals(5.0, indicators.getCloseMa(5), 1e-9);
+        assertTrue(Double.isNaN(indicators.getCloseMa(10)));
+    }
+
+    @Test
+    public void testPeriodCalendar() {
+        LocalDate monday = LocalDate.of(2025, 4, 7);
+        assertTrue(PeriodCalendar.isSamePeriod(monday, LocalDate.of(2025, 4, 11), 102));
+        assertFalse(PeriodCalendar.isSamePeriod(monday, LocalDate.of(2025, 4, 4), 102));
+        assertTrue(PeriodCalendar.isSamePeriod(LocalDate.of(2025, 4, 1), LocalDate.of(2025, 6, 30), 104));
+        assertFalse(PeriodCalendar.isSamePeriod(LocalDate.of(2025, 6, 30), LocalDate.of(2025, 7, 1), 105));
+        assertEquals(LocalDate.of(2025, 7, 1), PeriodCalendar.periodStart(LocalDate.of(2025, 9, 15), 105));
+    }
+}
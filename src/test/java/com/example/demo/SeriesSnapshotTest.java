@@ -0,0 +1,200 @@
+package com.example.demo;
+
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.SeriesSnapshot;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * K线序列快照测试类
+ */
+public class SeriesSnapshotTest {
+
+    private static final int BASE_DAY = 20000;
+
+    private KLineData bar(int day, double close) {
+        KLineData data = new KLineData();
+        data.setDate(EpochDays.toDate(day));
+        data.setClose(close);
+        data.setLastClose(close);
+        return data;
+    }
+
+    private List<KLineData> bars(int fromDay, int count, double close) {
+        List<KLineData> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(bar(fromDay + i, close));
+        }
+        return result;
+    }
+
+    @Test
+    public void testCoverageRanges() {
+        int friday = EpochDays.of(LocalDate.of(2025, 1, 3));
+        DayRanges ranges = DayRanges.of(friday - 10, friday);
+        // 只隔周末的两段视为连续
+        assertEquals(1, ranges.union(friday + 3, friday + 5).size());
+        // 隔了工作日则分成两段，跨段不算连续
+        DayRanges split = ranges.union(friday + 4, friday + 5);
+        assertEquals(2, split.size());
+        assertTrue(split.covers(friday - 10, friday));
+        assertFalse(split.covers(friday, friday + 4));
+        assertFalse(split.contains(friday + 3));
+        assertEquals(1, split.union(friday - 20, friday + 4).size());
+
+        // 合并时并入获取区间，盘中K线并入其所在日期
+        SeriesSnapshot snapshot = SeriesSnapshot.of(bars(friday - 4, 5, 1), DayRanges.of(friday - 4, friday));
+        assertTrue(snapshot.withBar(bar(friday + 3, 2), null).getCoverage().covers(friday - 4, friday + 3));
+        assertEquals(2, snapshot.withBar(bar(friday + 4, 2), null).getCoverage().size());
+        assertTrue(snapshot.merge(bars(friday + 1, 1, 1)).getCoverage().covers(friday - 4, friday));
+    }
+
+    @Test
+    public void testOverlay() {
+        // 已有序列覆盖100天；较新的快照只获取了最后10天，且其中一天的K线已被移除（周K线换键）
+        SeriesSnapshot existing = SeriesSnapshot.of(bars(BASE_DAY, 100, 1), DayRanges.of(BASE_DAY, BASE_DAY + 99));
+        List<KLineData> recent = bars(BASE_DAY + 90, 10, 2);
+        recent.remove(5);
+        SeriesSnapshot newer = SeriesSnapshot.of(recent, DayRanges.of(BASE_DAY + 90, BASE_DAY + 99));
+
+        SeriesSnapshot merged = existing.overlay(newer);
+        assertEquals(99, merged.size());
+        assertEquals(1.0, merged.get(BASE_DAY + 89).getClose(), 0);
+        assertEquals(2.0, merged.get(BASE_DAY + 90).getClose(), 0);
+        assertFalse(merged.contains(BASE_DAY + 95));
+        assertEquals(existing.getCoverage(), merged.getCoverage());
+    }
+
+    @Test
+    public void testMergeAndRange() {
+        List<KLineData> first = bars(BASE_DAY, 10, 1);
+        Collections.shuffle(first);
+        SeriesSnapshot v1 = SeriesSnapshot.of(first);
+        assertEquals(1, v1.getVersion());
+        assertEquals(10, v1.size());
+
+        // 与已有日期重叠的部分以新K线为准，旧版本不受影响
+        SeriesSnapshot v2 = v1.merge(bars(BASE_DAY + 8, 5, 2));
+        assertEquals(2, v2.getVersion());
+        assertEquals(13, v2.size());
+        assertEquals(1.0, v1.get(BASE_DAY + 9).getClose(), 0);
+        assertEquals(2.0, v2.get(BASE_DAY + 9).getClose(), 0);
+
+        List<KLineData> range = v2.range(BASE_DAY + 2, BASE_DAY + 5);
+        assertEquals(4, range.size());
+        assertEquals(BASE_DAY + 5, range.get(0).getEpochDay());
+        assertEquals(BASE_DAY + 2, range.get(3).getEpochDay());
+        assertEquals(BASE_DAY + 2, SeriesSnapshot.ascending(range).get(0).getEpochDay());
+        assertTrue(v2.range(BASE_DAY + 100, BASE_DAY + 200).isEmpty());
+        assertEquals(BASE_DAY + 4, v2.lower(BASE_DAY + 5).getEpochDay());
+        assertNull(v2.lower(BASE_DAY));
+
+        try {
+            range.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+            fail("视图应为只读");
+        } catch (UnsupportedOperationException expected) {
+            // 只读
+        }
+    }
+
+    @Test
+    public void testWithBar() {
+        SeriesSnapshot v1 = SeriesSnapshot.of(bars(BASE_DAY, 5, 1));
+        KLineData today = bar(BASE_DAY + 5, 3);
+        SeriesSnapshot appended = v1.withBar(today, null);
+        assertEquals(6, appended.size());
+        assertSame(today, appended.descending().get(0));
+
+        // 周K线盘中更新：写入今日并移除本周上一交易日的旧K线
+        SeriesSnapshot replaced = appended.withBar(bar(BASE_DAY + 5, 4), BASE_DAY + 4);
+        assertEquals(5, replaced.size());
+        assertNull(replaced.get(BASE_DAY + 4));
+        assertEquals(4.0, replaced.get(BASE_DAY + 5).getClose(), 0);
+        assertEquals(5, v1.size());
+    }
+
+    /**
+     * 读写混合：读线程持续做区间查询，写线程不断发布新版本；
+     * 读到的每个区间都必须完整有序且来自同一版本（收盘价一致）
+     */
+    @Test
+    public void testMixedReadWriteThroughput() throws Exception {
+        int days = 1000;
+        int readers = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        ConcurrentHashMap<Integer, SeriesSnapshot> cache = new ConcurrentHashMap<>();
+        cache.put(101, SeriesSnapshot.of(bars(BASE_DAY, days, 0)));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        CountDownLatch done = new CountDownLatch(readers + 1);
+
+        Thread writer = new Thread(() -> {
+            int version = 0;
+            while (running.get()) {
+                List<KLineData> all = bars(BASE_DAY, days, ++version);
+                cache.compute(101, (k, current) -> current.merge(all));
+                writes.increment();
+            }
+            done.countDown();
+        });
+        writer.start();
+        for (int r = 0; r < readers; r++) {
+            int seed = r;
+            new Thread(() -> {
+                int offset = seed;
+                while (running.get()) {
+                    offset = (offset + 37) % (days - 250);
+                    List<KLineData> range = cache.get(101).range(BASE_DAY + offset, BASE_DAY + offset + 249);
+                    double close = range.get(0).getClose();
+                    for (int i = 0; i < range.size(); i++) {
+                        KLineData data = range.get(i);
+                        if (data.getEpochDay() != BASE_DAY + offset + 249 - i || data.getClose() != close) {
+                            failure.compareAndSet(null, "区间不完整或混合了不同版本");
+                        }
+                    }
+                    if (range.size() != 250) {
+                        failure.compareAndSet(null, "区间长度错误: " + range.size());
+                    }
+                    reads.increment();
+                }
+                done.countDown();
+            }).start();
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(1000);
+        running.set(false);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format("读线程%d个, 区间读取%.0f次/秒, 发布新版本%.0f次/秒",
+                readers, reads.sum() / seconds, writes.sum() / seconds));
+        assertNull(failure.get());
+        assertTrue(reads.sum() > 0 && writes.sum() > 0);
+        assertEquals(days, cache.get(101).size());
+        assertEquals(Arrays.asList(BASE_DAY, BASE_DAY + days - 1),
+                Arrays.asList(cache.get(101).firstDay(), cache.get(101).lastDay()));
+    }
+}
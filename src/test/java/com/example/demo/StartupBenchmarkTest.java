@@ -0,0 +1,148 @@
+package com.example.demo;
+
+import com.example.demo.dao.DayRanges;
+import com.example.demo.dao.EpochDays;
+import com.example.demo.dao.KLineArchive;
+import com.example.demo.dao.KLineData;
+import com.example.demo.dao.SeriesSnapshot;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 启动耗时基准
+ * 需先执行 mvn -Pfast-startup package；以本地归档作为离线K线数据，上游地址指向本机关闭的端口，
+ * 分别以普通方式和快速启动方式（AOT + AppCDS + 懒加载）启动独立JVM，
+ * 测量从进程启动到首个K线响应、首个提示词响应的耗时。未构建时跳过。
+ */
+public class StartupBenchmarkTest {
+
+    private static final String[] CODES = {"510500", "510300"};
+    private static final int RUNS = 3;
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    @Test
+    public void testTimeToFirstResponse() throws Exception {
+        File dir = new File("target/fast-startup");
+        File[] jars = dir.listFiles((d, name) -> name.endsWith(".jar"));
+        File cdsArchive = new File(dir, "application.jsa");
+        assumeTrue("未找到快速启动构建产物，跳过", jars != null && jars.length == 1 && cdsArchive.isFile());
+
+        Path fixtures = Files.createTempDirectory("kline-fixtures");
+        writeFixtures(fixtures);
+
+        List<String> common = Arrays.asList(
+                "--kline.archive.dir=" + fixtures,
+                "--kline.upstream.base-url=http://127.0.0.1:9",
+                "--kline.upstream.max-attempts=1");
+        List<String> fastOptions = Arrays.asList(
+                "-XX:SharedArchiveFile=" + cdsArchive.getAbsolutePath(),
+                "-Dspring.aot.enabled=true",
+                "-Dspring.profiles.active=fast-startup");
+
+        long[] normal = measure(jars[0], new ArrayList<>(), common);
+        long[] fast = measure(jars[0], fastOptions, common);
+        System.out.println(String.format(Locale.ROOT,
+                "普通启动: 首个K线响应%dms, 首个提示词响应%dms%n快速启动: 首个K线响应%dms, 首个提示词响应%dms",
+                normal[0], normal[1], fast[0], fast[1]));
+        assertTrue(normal[1] > 0 && fast[1] > 0);
+    }
+
+    /**
+     * 最近400个自然日的日K线，最后一根为今天，使缓存完整覆盖默认查询范围，不会访问上游
+     */
+    private void writeFixtures(Path directory) {
+        KLineArchive archive = new KLineArchive(directory.toString());
+        Random random = new Random(7);
+        LocalDate today = LocalDate.now();
+        for (String code : CODES) {
+            List<KLineData> bars = new ArrayList<>();
+            double lastClose = 5;
+            for (int i = 400; i >= 0; i--) {
+                double close = lastClose * (1 + (random.nextDouble() - 0.5) * 0.04);
+                String line = String.format(Locale.ROOT, "%s,%.3f,%.3f,%.3f,%.3f,%d,%.0f,%.2f,%.2f,%.3f,%.2f",
+                        today.minusDays(i), lastClose, close, Math.max(lastClose, close) * 1.01,
+                        Math.min(lastClose, close) * 0.99, 1_000_000 + random.nextInt(1_000_000),
+                        close * 1_000_000, 2.0, (close / lastClose - 1) * 100, close - lastClose, 1.5);
+                bars.add(new KLineData(line, 101));
+                lastClose = close;
+            }
+            archive.save(code, 101, SeriesSnapshot.of(bars,
+                    DayRanges.of(EpochDays.of(today.minusDays(400)), EpochDays.of(today))));
+        }
+    }
+
+    /**
+     * 多次启动取中位数：[首个K线响应耗时, 首个提示词响应耗时]
+     */
+    private long[] measure(File jar, List<String> jvmOptions, List<String> appArgs) throws Exception {
+        long[] kline = new long[RUNS];
+        long[] prompt = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            int port = freePort();
+            List<String> command = new ArrayList<>();
+            command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+            command.addAll(jvmOptions);
+            command.add("-jar");
+            command.add(jar.getAbsolutePath());
+            command.add("--server.port=" + port);
+            command.addAll(appArgs);
+
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            try {
+                waitForOk("http://127.0.0.1:" + port + "/kline?code=" + CODES[0], start);
+                kline[run] = (System.nanoTime() - start) / 1_000_000;
+                waitForOk("http://127.0.0.1:" + port + "/?code=" + CODES[1], start);
+                prompt[run] = (System.nanoTime() - start) / 1_000_000;
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+        Arrays.sort(kline);
+        Arrays.sort(prompt);
+        return new long[]{kline[RUNS / 2], prompt[RUNS / 2]};
+    }
+
+    private void waitForOk(String url, long start) throws InterruptedException {
+        while ((System.nanoTime() - start) / 1_000_000 < TIMEOUT_MILLIS) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+                connection.setConnectTimeout(200);
+                connection.setReadTimeout((int) TIMEOUT_MILLIS);
+                int status = connection.getResponseCode();
+                connection.disconnect();
+                if (status == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // 尚未开始监听
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("等待响应超时: " + url);
+    }
+
+    private int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo;
+
+import com.example.demo.service.StratifiedSampler;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分层蓄水池抽样测试类
+ */
+public class StratifiedSamplerTest {
+
+    /**
+     * 层0有9000个候选（上涨），层1只有1000个（下跌），层2有300个，元素编码为 层*100000+序号
+     */
+    private StratifiedSampler<Integer> sample(int total, long seed) {
+        StratifiedSampler<Integer> sampler = new StratifiedSampler<>(3, total, seed);
+        int[] sizes = {9000, 1000, 300};
+        // 各层交错到来，模拟逐个序列扫描
+        for (int i = 0; i < 9000; i++) {
+            for (int stratum = 0; stratum < 3; stratum++) {
+                if (i < sizes[stratum]) {
+                    int slot = sampler.admit(stratum);
+                    if (slot >= 0) {
+                        sampler.put(stratum, slot, stratum * 100000 + i);
+                    }
+                }
+            }
+        }
+        return sampler;
+    }
+
+    @Test
+    public void testBalancedAllocation() {
+        StratifiedSampler<Integer> sampler = sample(1500, 42);
+        List<Integer> selected = sampler.select();
+        assertEquals(1500, selected.size());
+        assertEquals(1500, new HashSet<>(selected).size());
+        // 层2不足平均名额，全部入选；剩余名额由层0和层1均分
+        assertEquals(300, sampler.getSelected(2));
+        assertEquals(600, sampler.getSelected(0));
+        assertEquals(600, sampler.getSelected(1));
+        assertEquals(9000, sampler.getSeen(0));
+
+        int[] counts = new int[3];
+        for (int item : selected) {
+            counts[item / 100000]++;
+        }
+        assertEquals(600, counts[0]);
+        assertEquals(300, counts[2]);
+    }
+
+    @Test
+    public void testFewerCandidatesThanRequested() {
+        StratifiedSampler<Integer> sampler = sample(20000, 1);
+        List<Integer> selected = sampler.select();
+        assertEquals(10300, selected.size());
+        assertEquals(9000, sampler.getSelected(0));
+
+        StratifiedSampler<Integer> empty = new StratifiedSampler<>(4, 10, 1);
+        assertTrue(empty.select().isEmpty());
+    }
+
+    @Test
+    public void testReproducibleWithSeed() {
+        assertEquals(sample(500, 7).select(), sample(500, 7).select());
+        assertFalse(sample(500, 7).select().equals(sample(500, 8).select()));
+    }
+
+    @Test
+    public void testUniformWithinStratum() {
+        // 层0的9000个候选分成前后两半，入选数应大致相等
+        int early = 0;
+        int late = 0;
+        for (long seed = 0; seed < 20; seed++) {
+            for (int item : sample(1500, seed).select()) {
+                if (item < 100000) {
+                    if (item < 4500) {
+                        early++;
+                    } else {
+                        late++;
+                    }
+                }
+            }
+        }
+        double ratio = (double) early / (early + late);
+        assertTrue("前半比例 " + ratio, ratio > 0.45 && ratio < 0.55);
+    }
+}
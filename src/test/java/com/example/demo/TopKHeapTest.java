@@ -0,0 +1,45 @@
+package com.example.demo;
+
+import com.example.demo.service.TopKHeap;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Top-K堆测试类
+ */
+public class TopKHeapTest {
+
+    @Test
+    public void testKeepsLargestScores() {
+        TopKHeap heap = new TopKHeap(3);
+        double[] scores = {0.2, 0.9, -0.5, 0.6, 0.9, 0.1};
+        double[] ties = {0, 1.5, 0, 0, 2.0, 0};
+        for (int i = 0; i < scores.length; i++) {
+            heap.offer(scores[i], ties[i], i);
+        }
+        // 分值相同时次级分值大的在前
+        assertArrayEquals(new int[]{4, 1, 3}, heap.drainDescending());
+    }
+
+    @Test
+    public void testMergeChunks() {
+        Random random = new Random(7);
+        TopKHeap all = new TopKHeap(10);
+        TopKHeap left = new TopKHeap(10);
+        TopKHeap right = new TopKHeap(10);
+        for (int i = 0; i < 1000; i++) {
+            double score = random.nextDouble();
+            all.offer(score, 0, i);
+            (i % 2 == 0 ? left : right).offer(score, 0, i);
+        }
+        left.merge(right);
+        assertFalse(left.accepts(0.0, 0));
+        assertTrue(left.accepts(2.0, 0));
+        assertArrayEquals(all.drainDescending(), left.drainDescending());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo;
+
+import com.example.demo.dao.AdaptiveRateLimiter;
+import com.example.demo.dao.CircuitBreaker;
+import com.example.demo.dao.EastmoneyClient;
+import com.example.demo.dao.UpstreamException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 上游限流、重试与熔断测试类，使用本地桩服务模拟429和超时
+ */
+public class UpstreamResilienceTest {
+
+    private static final String BODY = "{\"rc\":0,\"data\":{\"klines\":[]}}";
+
+    private HttpServer server;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile int throttledRequests;   // 前N个请求返回429
+    private volatile boolean hang;            // 是否模拟超时
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            int n = requestCount.incrementAndGet();
+            if (hang) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException ignored) {
+                }
+            }
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            int status = n <= throttledRequests ? 429 : 200;
+            exchange.sendResponseHeaders(status, status == 200 ? body.length : -1);
+            if (status == 200) {
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private EastmoneyClient createClient(AdaptiveRateLimiter limiter, CircuitBreaker breaker) {
+        return new EastmoneyClient("http://127.0.0.1:" + server.getAddress().getPort(), 4, 1000, 200,
+                limiter, breaker);
+    }
+
+    @Test
+    public void testRetryOn429AndBackOff() throws Exception {
+        throttledRequests = 2;
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(20, 1, 50, 1000);
+        EastmoneyClient client = createClient(limiter, new CircuitBreaker(3, 60000));
+
+        assertEquals(BODY, client.get("/api/qt/stock/kline/get?secid=1.510300"));
+        assertEquals(3, requestCount.get());
+        // 遇到429后速率减半
+        assertTrue(limiter.getRate() < 20);
+    }
+
+    @Test
+    public void testAdditiveIncrease() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(5, 1, 50, 1000);
+        EastmoneyClient client = createClient(limiter, new CircuitBreaker(3, 60000));
+        for (int i = 0; i < 10; i++) {
+            client.get("/ok");
+        }
+        assertTrue(limiter.getRate() > 5);
+    }
+
+    @Test
+    public void testCircuitOpensOnTimeouts() throws Exception {
+        hang = true;
+        CircuitBreaker breaker = new CircuitBreaker(2, 60000);
+        EastmoneyClient client = createClient(new AdaptiveRateLimiter(50, 1, 50, 1000), breaker);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.get("/slow");
+                fail("应当超时");
+            } catch (UpstreamException expected) {
+                // 重试耗尽
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(client.isAvailable());
+
+        // 熔断期间不再访问上游
+        int before = requestCount.get();
+        try {
+            client.get("/slow");
+            fail("熔断期间应直接拒绝");
+        } catch (UpstreamException expected) {
+            assertEquals(before, requestCount.get());
+        }
+    }
+
+    @Test
+    public void testHalfOpenRecovers() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 50);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(80);
+
+        EastmoneyClient client = createClient(new AdaptiveRateLimiter(50, 1, 50, 1000), breaker);
+        assertEquals(BODY, client.get("/ok"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo;
+
+import com.example.demo.dao.KLineData;
+import com.example.demo.service.TrendRuleFeatures;
+import com.example.demo.service.WalkForwardEvaluator;
+import com.example.demo.service.WalkForwardFold;
+import com.example.demo.service.WalkForwardResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 滚动前推评估测试类
+ */
+public class WalkForwardEvaluatorTest {
+
+    private static final long DAY = 24L * 3600 * 1000;
+
+    /**
+     * 随机K线，下一根K线的涨跌由当前K线的T-1量价信号决定
+     */
+    private List<KLineData> followsLag1Signal(int count) {
+        Random random = new Random(13);
+        List<KLineData> bars = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            KLineData data = new KLineData();
+            data.setDate(new Date(i * DAY));
+            data.setOpen(10.0);
+            data.setClose(random.nextBoolean() ? 10.5 : 9.5);
+            data.setVolume(1000L + random.nextInt(1000));
+            data.setChangeRate(0.0);
+            bars.add(data);
+        }
+        for (int i = 1; i < count - 1; i++) {
+            KLineData current = bars.get(i);
+            boolean isRise = current.getClose() >= current.getOpen();
+            boolean isVolumeShrink = current.getVolume() < bars.get(i - 1).getVolume();
+            bars.get(i + 1).setChangeRate(isVolumeShrink == isRise ? 1.0 : -1.0);
+        }
+        return bars;
+    }
+
+    @Test
+    public void testConfidenceMatchesRule() {
+        List<KLineData> bars = new ArrayList<>();
+        long[] volumes = {100, 200, 300, 400, 50, 250};
+        for (int i = 0; i < volumes.length; i++) {
+            KLineData data = new KLineData();
+            data.setDate(new Date(i * DAY));
+            data.setOpen(10.0);
+            data.setClose(11.0);
+            data.setVolume(volumes[i]);
+            bars.add(data);
+        }
+        TrendRuleFeatures features = TrendRuleFeatures.fromBars(bars);
+        // 最后一根上涨：相对T-1(50)放量->看跌，相对T-2~T-5(400,300,200,100)缩量2次看涨、放量2次看跌
+        double expected = (0.8 * -1 + 0.05 * (2 - 2)) / (0.8 + 0.05 * 4);
+        assertEquals(expected, features.confidence(5, 0.8), 1e-12);
+        assertEquals(-1.0, features.confidence(5, 1.0), 1e-12);
+        // T-2~T-5信号相互抵消，置信度只剩T-1的贡献
+        assertEquals(-0.2, features.confidence(5, 0.2), 1e-12);
+    }
+
+    @Test
+    public void testRejectsNonPositiveSegments() {
+        int[][] invalid = {{250, 0}, {250, -1}, {0, 60}, {-5, 60}};
+        for (int[] sizes : invalid) {
+            try {
+                new WalkForwardEvaluator(sizes[0], sizes[1]);
+                fail("train=" + sizes[0] + ", test=" + sizes[1]);
+            } catch (IllegalArgumentException e) {
+                // 预期
+            }
+        }
+    }
+
+    @Test
+    public void testFoldsAndBestWeight() {
+        TrendRuleFeatures features = TrendRuleFeatures.fromBars(followsLag1Signal(400));
+        WalkForwardResult result = new WalkForwardEvaluator(250, 60)
+                .evaluate(new String[]{"510300"}, new TrendRuleFeatures[]{features});
+
+        // 测试段起点250、310、370，最后一折只有29个可评估样本（最后一根没有下一根）
+        assertEquals(3, result.getFolds().size());
+        assertEquals(60 + 60 + 29, result.getTestCount());
+        for (WalkForwardFold fold : result.getFolds()) {
+            assertTrue(fold.getBestT1Weight() > 0.5);
+            assertEquals(1.0, fold.getTestAccuracy(), 1e-12);
+        }
+        assertEquals(1.0, result.getTestAccuracy(), 1e-12);
+
+        long calibrated = 0;
+        for (long count : result.getCalibrationCounts()) {
+            calibrated += count;
+        }
+        assertEquals(result.getTestCount(), calibrated);
+    }
+}